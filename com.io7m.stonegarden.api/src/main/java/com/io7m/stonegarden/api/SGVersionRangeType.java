@@ -92,19 +92,40 @@ public interface SGVersionRangeType
     final SGVersion version)
   {
     Objects.requireNonNull(version, "version");
+    return this.includesPacked(version.packed());
+  }
+
+  /**
+   * @param version A packed version
+   *
+   * @return {@code true} if the given packed version is within the current range
+   *
+   * @see SGVersionType#pack(int, int, int)
+   */
 
-    final var lower = this.lower();
-    final var upper = this.upper();
+  default boolean includesPacked(
+    final long version)
+  {
+    return version >= this.lowerPackedInclusive() && version <= this.upperPackedInclusive();
+  }
 
-    if (this.lowerExclusive()) {
-      if (this.upperExclusive()) {
-        return version.compareTo(lower) > 0 && version.compareTo(upper) < 0;
-      }
-      return version.compareTo(lower) > 0 && version.compareTo(upper) <= 0;
-    }
-    if (this.upperExclusive()) {
-      return version.compareTo(lower) >= 0 && version.compareTo(upper) < 0;
-    }
-    return version.compareTo(lower) >= 0 && version.compareTo(upper) <= 0;
+  /**
+   * @return The smallest packed version included in the range
+   */
+
+  default long lowerPackedInclusive()
+  {
+    final var lower = this.lower().packed();
+    return this.lowerExclusive() ? lower + 1L : lower;
+  }
+
+  /**
+   * @return The largest packed version included in the range
+   */
+
+  default long upperPackedInclusive()
+  {
+    final var upper = this.upper().packed();
+    return this.upperExclusive() ? upper - 1L : upper;
   }
 }
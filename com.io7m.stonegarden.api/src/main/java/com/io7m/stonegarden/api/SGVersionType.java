@@ -19,10 +19,13 @@ package com.io7m.stonegarden.api;
 import com.io7m.immutables.styles.ImmutablesStyleType;
 import org.immutables.value.Value;
 
-import java.util.Comparator;
-
 /**
  * A version number.
+ *
+ * Each component of a version must be in the range {@code [0, 2097151]}, so that the complete
+ * version can be packed into a single {@code long} (see {@link #packed()}). Packed versions
+ * compare in the same order as the versions themselves, so comparisons never need to examine the
+ * individual components.
  */
 
 @ImmutablesStyleType
@@ -50,15 +53,103 @@ public interface SGVersionType extends Comparable<SGVersionType>
   @Value.Parameter
   int patch();
 
+  /**
+   * @return The version packed into a single non-negative {@code long}
+   *
+   * @see #pack(int, int, int)
+   */
+
+  @Value.Derived
+  @Value.Auxiliary
+  default long packed()
+  {
+    return pack(this.major(), this.minor(), this.patch());
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (!isValidComponent(this.major())
+      || !isValidComponent(this.minor())
+      || !isValidComponent(this.patch())) {
+      final var separator = System.lineSeparator();
+      throw new IllegalArgumentException(
+        new StringBuilder(128)
+          .append("Invalid version.")
+          .append(separator)
+          .append("  Problem: Version components must be in the range [0, 2097151]")
+          .append(separator)
+          .append("  Major:   ")
+          .append(this.major())
+          .append(separator)
+          .append("  Minor:   ")
+          .append(this.minor())
+          .append(separator)
+          .append("  Patch:   ")
+          .append(this.patch())
+          .append(separator)
+          .toString());
+    }
+  }
+
+  /**
+   * @param component A version component
+   *
+   * @return {@code true} if the component can be represented in a packed version
+   */
+
+  static boolean isValidComponent(
+    final int component)
+  {
+    return component >= 0 && component <= 0x1f_ffff;
+  }
+
+  /**
+   * Pack the given version components into a {@code long}. Each component occupies 21 bits, with
+   * the major version in the most significant position, so that packed versions order in the same
+   * way as versions.
+   *
+   * @param major The major version
+   * @param minor The minor version
+   * @param patch The patch version
+   *
+   * @return A packed version
+   */
+
+  static long pack(
+    final int major,
+    final int minor,
+    final int patch)
+  {
+    return ((long) major << 42) | ((long) minor << 21) | (long) patch;
+  }
+
+  /**
+   * Unpack a version produced by {@link #pack(int, int, int)}.
+   *
+   * @param packed The packed version
+   *
+   * @return A version
+   */
+
+  static SGVersion unpack(
+    final long packed)
+  {
+    return SGVersion.of(
+      (int) ((packed >>> 42) & 0x1f_ffffL),
+      (int) ((packed >>> 21) & 0x1f_ffffL),
+      (int) (packed & 0x1f_ffffL));
+  }
+
   @Override
   default int compareTo(
     final SGVersionType other)
   {
-    return Comparator
-      .comparingInt(SGVersionType::major)
-      .thenComparingInt(SGVersionType::minor)
-      .thenComparingInt(SGVersionType::patch)
-      .compare(this, other);
+    return Long.compare(this.packed(), other.packed());
   }
 
   /**
@@ -37,7 +37,9 @@ public interface SGComputerType extends SGDeviceType
   }
 
   /**
-   * Boot the computer. Does nothing if the computer is already running.
+   * Boot the computer. Does nothing if the computer is already running. Boots are spread across
+   * ticks by the simulation according to its configured boot concurrency and boot latency, so the
+   * computer may finish booting on a later tick than the one on which the request is processed.
    *
    * @param order The boot order
    *
@@ -60,4 +62,10 @@ public interface SGComputerType extends SGDeviceType
    */
 
   boolean isRunning();
+
+  /**
+   * @return The console of the computer
+   */
+
+  SGConsoleType console();
 }
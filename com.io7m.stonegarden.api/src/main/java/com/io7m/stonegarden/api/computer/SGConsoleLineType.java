@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.computer;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+/**
+ * A line written to a computer console.
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface SGConsoleLineType
+{
+  /**
+   * @return The position of the line; the first line written to a console has position {@code 0},
+   * and each subsequent line has a position one greater than the previous line
+   */
+
+  @Value.Parameter
+  long position();
+
+  /**
+   * @return The frame on which the line was written
+   */
+
+  @Value.Parameter
+  long frame();
+
+  /**
+   * @return The text of the line
+   */
+
+  @Value.Parameter
+  String text();
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.computer;
+
+import io.reactivex.Observable;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The console of a computer. A console retains a bounded number of its most recent lines; lines
+ * are identified by their positions, so a reader can keep a cursor and read only the lines
+ * written since it last looked. The console must only be read from the thread that ticks the
+ * simulation.
+ */
+
+public interface SGConsoleType
+{
+  /**
+   * @return The position of the oldest line that can still be read
+   */
+
+  long start();
+
+  /**
+   * @return The position that will be assigned to the next line written
+   */
+
+  long end();
+
+  /**
+   * Read the retained lines with positions greater than or equal to {@code from}. If {@code from}
+   * is less than {@link #start()}, the lines between {@code from} and {@link #start()} have been
+   * evicted, and reading begins at {@link #start()}.
+   *
+   * @param from The position of the first line to read
+   *
+   * @return The lines in position order
+   */
+
+  List<SGConsoleLine> read(long from);
+
+  /**
+   * Read every line written on a frame in the range {@code [frame_from, frame_to]}, including
+   * lines that have been evicted from the console. Evicted lines are only available if the
+   * simulation was configured with a console history directory; otherwise only retained lines are
+   * returned.
+   *
+   * @param frame_from The first frame, inclusive
+   * @param frame_to   The last frame, inclusive
+   *
+   * @return The lines in position order
+   *
+   * @throws IOException On errors reading the history
+   * @see com.io7m.stonegarden.api.simulation.SGSimulationConfiguration#consoleHistoryDirectory()
+   */
+
+  List<SGConsoleLine> history(
+    long frame_from,
+    long frame_to)
+    throws IOException;
+
+  /**
+   * Subscribe to lines as they are written. Lines are only formatted for delivery while there
+   * is at least one subscriber. The observable completes when the computer is closed.
+   *
+   * @return An observable that produces each new line
+   */
+
+  Observable<SGConsoleLine> lines();
+}
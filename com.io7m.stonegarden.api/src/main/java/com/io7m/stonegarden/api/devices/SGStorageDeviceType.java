@@ -16,11 +16,14 @@
 
 package com.io7m.stonegarden.api.devices;
 
+import com.io7m.stonegarden.api.SGArchitecture;
+import com.io7m.stonegarden.api.SGVersion;
 import com.io7m.stonegarden.api.kernels.SGKernelExecutableDescriptionType;
 
 import java.math.BigInteger;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * A storage device instance.
@@ -70,4 +73,36 @@ public interface SGStorageDeviceType extends SGDeviceType
    */
 
   List<SGKernelExecutableDescriptionType> kernels();
+
+  /**
+   * Find the first kernel on the device with the given name, version, and architecture.
+   * Implementations are encouraged to index kernels so that this does not require a scan of
+   * {@link #kernels()}.
+   *
+   * @param name         The kernel name
+   * @param version      The kernel version
+   * @param architecture The architecture
+   *
+   * @return The kernel, if one exists
+   */
+
+  default Optional<SGKernelExecutableDescriptionType> kernelFor(
+    final String name,
+    final SGVersion version,
+    final SGArchitecture architecture)
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(version, "version");
+    Objects.requireNonNull(architecture, "architecture");
+
+    return this.kernels()
+      .stream()
+      .filter(exec -> {
+        final var description = exec.description();
+        return Objects.equals(description.name(), name)
+          && Objects.equals(description.version(), version)
+          && Objects.equals(description.compatibility().architecture(), architecture);
+      })
+      .findFirst();
+  }
 }
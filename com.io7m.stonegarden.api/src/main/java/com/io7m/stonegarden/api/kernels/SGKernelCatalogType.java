@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.kernels;
+
+import com.io7m.stonegarden.api.SGArchitecture;
+import com.io7m.stonegarden.api.SGVersionRange;
+import com.io7m.stonegarden.api.devices.SGStorageDeviceType;
+import com.io7m.stonegarden.api.programs.SGProgramCompatibility;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A catalog of the kernels installed on every storage device in a simulation. Kernels are
+ * indexed by name and architecture, and then ordered by version, so that resolving a version
+ * range does not require examining every kernel.
+ */
+
+public interface SGKernelCatalogType
+{
+  /**
+   * Find the kernel with the highest version within {@code range}.
+   *
+   * @param name         The kernel name
+   * @param architecture The architecture
+   * @param range        The range of acceptable versions
+   *
+   * @return The kernel with the highest version in {@code range}, if any
+   */
+
+  Optional<SGKernelExecutableDescriptionType> bestKernel(
+    String name,
+    SGArchitecture architecture,
+    SGVersionRange range);
+
+  /**
+   * Find the kernel with the highest version that satisfies the given program compatibility
+   * information.
+   *
+   * @param compatibility The program compatibility information
+   *
+   * @return The kernel with the highest compatible version, if any
+   */
+
+  default Optional<SGKernelExecutableDescriptionType> bestKernel(
+    final SGProgramCompatibility compatibility)
+  {
+    Objects.requireNonNull(compatibility, "compatibility");
+    return this.bestKernel(
+      compatibility.kernelName(),
+      compatibility.architecture(),
+      compatibility.versionRange());
+  }
+
+  /**
+   * Find the storage devices that hold at least one kernel with a version within {@code range}.
+   * Each device appears at most once in the result.
+   *
+   * @param name         The kernel name
+   * @param architecture The architecture
+   * @param range        The range of acceptable versions
+   *
+   * @return The devices holding a kernel in {@code range}
+   */
+
+  List<SGStorageDeviceType> devicesWithKernel(
+    String name,
+    SGArchitecture architecture,
+    SGVersionRange range);
+
+  /**
+   * Find the storage devices that hold at least one kernel that satisfies the given program
+   * compatibility information.
+   *
+   * @param compatibility The program compatibility information
+   *
+   * @return The devices holding a compatible kernel
+   */
+
+  default List<SGStorageDeviceType> devicesWithKernel(
+    final SGProgramCompatibility compatibility)
+  {
+    Objects.requireNonNull(compatibility, "compatibility");
+    return this.devicesWithKernel(
+      compatibility.kernelName(),
+      compatibility.architecture(),
+      compatibility.versionRange());
+  }
+}
@@ -17,6 +17,8 @@
 package com.io7m.stonegarden.api.kernels;
 
 import com.io7m.stonegarden.api.devices.SGDeviceKernelInterfaceType;
+import com.io7m.stonegarden.api.machines.SGMachineType;
+import com.io7m.stonegarden.api.programs.SGProcessSchedulerType;
 
 import java.util.List;
 
@@ -33,7 +35,18 @@ public interface SGKernelContextType
   List<SGDeviceKernelInterfaceType> connectedDevices();
 
   /**
-   * Write a message to the console.
+   * @return A snapshot of the devices that can be reached, directly or transitively, through the
+   * connections of the computer
+   */
+
+  List<SGDeviceKernelInterfaceType> reachableDevices();
+
+  /**
+   * Write a message to the console. Depending on the configuration of the simulation, the message
+   * may not be formatted until the console is read. Arguments that are not strings, UUIDs, or
+   * boxed primitive values are converted to strings when the message is written, so later changes
+   * to the arguments are not reflected in the console. If the format string is not valid for the
+   * arguments, a description of the error is written instead of the message.
    *
    * @param format    A format string
    * @param arguments Format arguments
@@ -45,6 +58,23 @@ public interface SGKernelContextType
     String format,
     Object... arguments);
 
+  /**
+   * The process scheduler of the running kernel. Each boot of the computer has its own
+   * scheduler, so processes do not survive a reboot. Kernels typically spawn programs when they
+   * start, and divide their tick budget between processes in {@link
+   * SGKernelType#onTick(SGKernelTickType)}.
+   *
+   * @return The process scheduler
+   */
+
+  SGProcessSchedulerType processes();
+
+  /**
+   * @return The simulated processor of the computer
+   */
+
+  SGMachineType machine();
+
   /**
    * Tell the computer to shut down.
    */
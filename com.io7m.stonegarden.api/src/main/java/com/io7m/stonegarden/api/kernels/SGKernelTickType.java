@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.kernels;
+
+/**
+ * The state of a single call to {@link SGKernelType#onTick(SGKernelTickType)}.
+ *
+ * Each running kernel is given a budget of abstract work units per tick. Kernels are expected to
+ * report the work that they perform with {@link #consume(long)}, and to yield by returning from
+ * {@link SGKernelType#onTick(SGKernelTickType)} when the budget is exhausted. Work performed in
+ * excess of the budget is deducted from the budgets of subsequent ticks; a kernel whose debt
+ * exceeds an entire budget is not called at all on that tick.
+ *
+ * Values of this type are only valid for the duration of the call to which they are passed, and
+ * must not be retained by kernels.
+ *
+ * @see com.io7m.stonegarden.api.simulation.SGSimulationConfiguration#kernelTickBudget()
+ */
+
+public interface SGKernelTickType
+{
+  /**
+   * @return The current frame
+   */
+
+  long frame();
+
+  /**
+   * @return The duration of the tick in seconds
+   */
+
+  double seconds();
+
+  /**
+   * @return The number of work units remaining in the budget for this tick
+   */
+
+  long budgetRemaining();
+
+  /**
+   * Consume work units from the budget.
+   *
+   * @param units The number of units consumed
+   *
+   * @return {@code true} if the budget has not been exhausted
+   */
+
+  boolean consume(long units);
+
+  /**
+   * Do not call the kernel for the next {@code ticks} ticks. Sleeping kernels cost nothing to
+   * the simulation until they wake. A kernel that sleeps for {@code n} ticks on frame
+   * {@code f} is next called on frame {@code f + n + 1}. A value of {@code 0} has no effect.
+   *
+   * @param ticks The number of ticks to sleep
+   */
+
+  void sleep(long ticks);
+
+  /**
+   * Do not call the kernel again for as long as it runs.
+   */
+
+  void suspend();
+}
@@ -31,6 +31,23 @@ public interface SGKernelType
   void onStart()
     throws Exception;
 
+  /**
+   * Called once per tick while the kernel is running, unless the kernel is sleeping or has been
+   * suspended. Kernels that do not perform ongoing work need not override this method: the
+   * default implementation suspends the kernel so that it is never called again.
+   *
+   * @param tick The state of the current tick
+   *
+   * @throws Exception If required
+   */
+
+  default void onTick(
+    final SGKernelTickType tick)
+    throws Exception
+  {
+    tick.suspend();
+  }
+
   /**
    * Called when the kernel is about to shut down.
    *
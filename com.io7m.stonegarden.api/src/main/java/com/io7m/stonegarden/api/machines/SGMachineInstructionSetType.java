@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.machines;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import com.io7m.stonegarden.api.SGArchitecture;
+import org.immutables.value.Value;
+
+import java.util.Map;
+
+/**
+ * The instruction timings of a hardware architecture.
+ *
+ * @see com.io7m.stonegarden.api.simulation.SGSimulationConfiguration#machineInstructionSets()
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface SGMachineInstructionSetType
+{
+  /**
+   * @return The hardware architecture
+   */
+
+  @Value.Parameter
+  SGArchitecture architecture();
+
+  /**
+   * The number of cycles taken by each instruction. Opcodes that are not present take
+   * {@link SGMachineOpcode#defaultCycles()} cycles.
+   *
+   * @return The cycles taken by each instruction
+   */
+
+  Map<SGMachineOpcode, Integer> cycles();
+
+  /**
+   * @param opcode The opcode
+   *
+   * @return The number of cycles taken by instructions with the given opcode
+   */
+
+  default int cyclesOf(
+    final SGMachineOpcode opcode)
+  {
+    return this.cycles().getOrDefault(opcode, Integer.valueOf(opcode.defaultCycles())).intValue();
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    for (final var entry : this.cycles().entrySet()) {
+      if (entry.getValue().intValue() <= 0) {
+        throw new IllegalArgumentException(
+          new StringBuilder(128)
+            .append("Invalid instruction set.")
+            .append(System.lineSeparator())
+            .append("  Problem: Instruction cycles must be positive")
+            .append(System.lineSeparator())
+            .append("  Opcode: ")
+            .append(entry.getKey())
+            .append(System.lineSeparator())
+            .append("  Cycles: ")
+            .append(entry.getValue())
+            .append(System.lineSeparator())
+            .toString());
+      }
+    }
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.machines;
+
+/**
+ * The opcodes of the simulated machine instruction set.
+ *
+ * A machine has sixteen 32-bit registers {@code r0} to {@code r15}, a word-addressed memory of
+ * 32-bit words, and a program counter holding the index of the current instruction. Each
+ * instruction is a single {@code int}: the opcode occupies bits {@code [0, 7]}, register
+ * {@code a} occupies bits {@code [8, 11]}, register {@code b} occupies bits {@code [12, 15]},
+ * and a signed 16-bit immediate occupies bits {@code [16, 31]}. Instructions that take a third
+ * register {@code c} store it in the low four bits of the immediate. Arithmetic wraps on
+ * overflow. Branch and jump offsets are relative to the address of the branch instruction
+ * itself.
+ *
+ * Executing an instruction with an unknown opcode, dividing by zero, accessing memory outside
+ * of the machine's memory, or transferring control outside of the program, is a fault; the
+ * program exits with {@link com.io7m.stonegarden.api.programs.SGProgramExitCode#EXIT_FAILURE}.
+ *
+ * @see SGMachineType
+ */
+
+public enum SGMachineOpcode
+{
+  /**
+   * Do nothing.
+   */
+
+  NOP(0, 1),
+
+  /**
+   * {@code r[a] = immediate}
+   */
+
+  LOAD_IMMEDIATE(1, 1),
+
+  /**
+   * {@code r[a] = r[b]}
+   */
+
+  MOVE(2, 1),
+
+  /**
+   * {@code r[a] = r[b] + r[c]}
+   */
+
+  ADD(3, 1),
+
+  /**
+   * {@code r[a] = r[b] + immediate}
+   */
+
+  ADD_IMMEDIATE(4, 1),
+
+  /**
+   * {@code r[a] = r[b] - r[c]}
+   */
+
+  SUBTRACT(5, 1),
+
+  /**
+   * {@code r[a] = r[b] * r[c]}
+   */
+
+  MULTIPLY(6, 3),
+
+  /**
+   * {@code r[a] = r[b] / r[c]}
+   */
+
+  DIVIDE(7, 20),
+
+  /**
+   * {@code r[a] = r[b] % r[c]}
+   */
+
+  REMAINDER(8, 20),
+
+  /**
+   * {@code r[a] = r[b] & r[c]}
+   */
+
+  AND(9, 1),
+
+  /**
+   * {@code r[a] = r[b] | r[c]}
+   */
+
+  OR(10, 1),
+
+  /**
+   * {@code r[a] = r[b] ^ r[c]}
+   */
+
+  XOR(11, 1),
+
+  /**
+   * {@code r[a] = r[b] << (r[c] & 31)}
+   */
+
+  SHIFT_LEFT(12, 1),
+
+  /**
+   * {@code r[a] = r[b] >> (r[c] & 31)}
+   */
+
+  SHIFT_RIGHT(13, 1),
+
+  /**
+   * {@code r[a] = memory[r[b] + immediate]}
+   */
+
+  LOAD(14, 2),
+
+  /**
+   * {@code memory[r[b] + immediate] = r[a]}
+   */
+
+  STORE(15, 2),
+
+  /**
+   * Continue at {@code pc + immediate}.
+   */
+
+  JUMP(16, 1),
+
+  /**
+   * Continue at {@code pc + immediate} if {@code r[a] == 0}.
+   */
+
+  BRANCH_ZERO(17, 1),
+
+  /**
+   * Continue at {@code pc + immediate} if {@code r[a] != 0}.
+   */
+
+  BRANCH_NOT_ZERO(18, 1),
+
+  /**
+   * Continue at {@code pc + immediate} if {@code r[a] < r[b]}.
+   */
+
+  BRANCH_LESS(19, 1),
+
+  /**
+   * Exit the program. The program exits successfully if {@code r[a] == 0}, and fails otherwise.
+   */
+
+  EXIT(20, 1);
+
+  private final int code;
+  private final int default_cycles;
+
+  SGMachineOpcode(
+    final int in_code,
+    final int in_default_cycles)
+  {
+    this.code = in_code;
+    this.default_cycles = in_default_cycles;
+  }
+
+  /**
+   * @return The numeric value of the opcode
+   */
+
+  public int code()
+  {
+    return this.code;
+  }
+
+  /**
+   * @return The number of cycles the instruction takes on an architecture that does not specify
+   * otherwise
+   *
+   * @see SGMachineInstructionSetType#cycles()
+   */
+
+  public int defaultCycles()
+  {
+    return this.default_cycles;
+  }
+
+  /**
+   * Encode an instruction with this opcode.
+   *
+   * @param a         Register {@code a}
+   * @param b         Register {@code b}
+   * @param immediate The immediate value, or register {@code c}
+   *
+   * @return An encoded instruction
+   *
+   * @throws IllegalArgumentException If a register is not in the range {@code [0, 15]}, or the
+   *                                  immediate value does not fit in a signed 16-bit integer
+   */
+
+  public int encode(
+    final int a,
+    final int b,
+    final int immediate)
+    throws IllegalArgumentException
+  {
+    checkRegister(a);
+    checkRegister(b);
+    if (immediate < Short.MIN_VALUE || immediate > Short.MAX_VALUE) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Immediate value out of range.")
+          .append(System.lineSeparator())
+          .append("  Expected: A value in the range [-32768, 32767]")
+          .append(System.lineSeparator())
+          .append("  Received: ")
+          .append(immediate)
+          .append(System.lineSeparator())
+          .toString());
+    }
+    return this.code | (a << 8) | (b << 12) | (immediate << 16);
+  }
+
+  private static void checkRegister(
+    final int register)
+  {
+    if (register < 0 || register > 15) {
+      throw new IllegalArgumentException(
+        new StringBuilder(64)
+          .append("Register out of range.")
+          .append(System.lineSeparator())
+          .append("  Expected: A value in the range [0, 15]")
+          .append(System.lineSeparator())
+          .append("  Received: ")
+          .append(register)
+          .append(System.lineSeparator())
+          .toString());
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.machines;
+
+import com.io7m.stonegarden.api.programs.SGProgramExecutableType;
+
+/**
+ * The simulated processor of a computer. The processor executes programs written in the
+ * machine instruction set, charging the cycles taken by each instruction to the running process
+ * as work units.
+ *
+ * Blocks of code that are executed frequently may be translated to JVM bytecode, and then run
+ * without interpretation. Translation does not change the results of programs, or the cycles
+ * that they take.
+ *
+ * @see SGMachineOpcode
+ * @see com.io7m.stonegarden.api.kernels.SGKernelContextType#machine()
+ */
+
+public interface SGMachineType
+{
+  /**
+   * @return The instruction timings of the processor
+   */
+
+  SGMachineInstructionSet instructionSet();
+
+  /**
+   * @return The number of blocks of code that have been translated for processes running on the
+   * processor so far
+   *
+   * @see com.io7m.stonegarden.api.simulation.SGSimulationConfiguration#machineTranslationThreshold()
+   */
+
+  long translatedBlocks();
+
+  /**
+   * Create an executable for a machine program. The code is copied, and each process started
+   * from the executable receives its own registers and memory, all initially zero. Execution
+   * starts at the first instruction.
+   *
+   * @param code         The encoded instructions
+   * @param memory_words The size of the memory of each process in words
+   *
+   * @return An executable program
+   *
+   * @see SGMachineOpcode#encode(int, int, int)
+   */
+
+  SGProgramExecutableType executable(
+    int[] code,
+    int memory_words);
+}
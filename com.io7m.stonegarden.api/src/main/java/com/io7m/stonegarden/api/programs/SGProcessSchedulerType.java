@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.programs;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A process scheduler. A scheduler holds a table of running processes and divides a budget of
+ * abstract work units between them in time slices. Scheduling is fair: the next process to run
+ * is always the process that has consumed the least time relative to the other processes, and
+ * newly spawned processes start level with the least-served running process. Selecting a
+ * process costs {@code O(log n)} in the number of running processes.
+ *
+ * Exited processes are removed from the process table immediately; their exit codes remain
+ * available through the {@link SGProcessType} values returned by {@link #spawn(SGProgramExecutableType,
+ * List)}.
+ *
+ * Schedulers must only be accessed from the thread that ticks the simulation.
+ *
+ * @see com.io7m.stonegarden.api.kernels.SGKernelContextType#processes()
+ */
+
+public interface SGProcessSchedulerType
+{
+  /**
+   * Spawn a process. The program's {@link SGProgramBodyType#onStart(SGProgramContextType)} method
+   * is called immediately.
+   *
+   * @param executable The program executable
+   * @param arguments  The program arguments
+   *
+   * @return The new process
+   */
+
+  SGProcessType spawn(
+    SGProgramExecutableType executable,
+    List<String> arguments);
+
+  /**
+   * @param id The process ID
+   *
+   * @return The running process with the given ID, if any
+   */
+
+  Optional<SGProcessType> process(int id);
+
+  /**
+   * Kill a process. The process exits with {@link SGProgramExitCode#EXIT_FAILURE} without its
+   * {@link SGProgramBodyType#onExit(SGProgramContextType)} method being called.
+   *
+   * @param id The process ID
+   *
+   * @return {@code true} if a running process was killed
+   */
+
+  boolean kill(int id);
+
+  /**
+   * @return The number of running processes
+   */
+
+  int processCount();
+
+  /**
+   * @return The total number of work units consumed by all processes so far, saturating at
+   * {@link Long#MAX_VALUE}
+   */
+
+  long cpuUnits();
+
+  /**
+   * Run processes until {@code budget} work units have been consumed or no processes remain.
+   * Because processes may overrun their time slices, the units consumed may exceed the budget.
+   *
+   * @param budget The budget in work units
+   *
+   * @return The number of work units consumed, saturating at {@link Long#MAX_VALUE}
+   */
+
+  long run(long budget);
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.programs;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A process: a program running under a {@link SGProcessSchedulerType}.
+ */
+
+public interface SGProcessType
+{
+  /**
+   * @return The process ID, unique within the scheduler
+   */
+
+  int id();
+
+  /**
+   * @return The arguments with which the program was started
+   */
+
+  List<String> arguments();
+
+  /**
+   * @return The total number of work units consumed by the process so far, saturating at
+   * {@link Long#MAX_VALUE}
+   */
+
+  long cpuUnits();
+
+  /**
+   * @return {@code true} if the process has not yet exited
+   */
+
+  boolean isRunning();
+
+  /**
+   * @return The exit code of the process, if the process has exited
+   */
+
+  Optional<SGProgramExitCode> exitCode();
+}
@@ -17,7 +17,12 @@
 package com.io7m.stonegarden.api.programs;
 
 /**
- * A kernel body.
+ * A program body. Programs are run by a {@link SGProcessSchedulerType}, which calls {@link
+ * #onStart(SGProgramContextType)} once when the program is spawned, {@link
+ * #onRun(SGProgramContextType)} once per time slice, and {@link #onExit(SGProgramContextType)}
+ * once after the program has requested to exit with {@link SGProgramContextType#exit()}. A
+ * program that raises an exception from any of these methods exits with {@link
+ * SGProgramExitCode#EXIT_FAILURE}.
  */
 
 public interface SGProgramBodyType
@@ -32,7 +37,9 @@ public interface SGProgramBodyType
     SGProgramContextType context);
 
   /**
-   * Called when the program should run for one period.
+   * Called when the program should run for one time slice. The program should report the work
+   * that it performs with {@link SGProgramContextType#consume(long)}, and return when the slice
+   * is exhausted. A call that consumes nothing is charged one unit.
    *
    * @param context The execution context
    */
@@ -16,11 +16,61 @@
 
 package com.io7m.stonegarden.api.programs;
 
+import java.util.List;
+
 /**
  * The execution context of a program.
  */
 
 public interface SGProgramContextType
 {
+  /**
+   * @return The ID of the process running the program
+   */
+
+  int processId();
+
+  /**
+   * @return The arguments with which the program was started
+   */
+
+  List<String> arguments();
+
+  /**
+   * @return The total number of work units consumed by the process so far, saturating at
+   * {@link Long#MAX_VALUE}
+   */
+
+  long cpuUnits();
+
+  /**
+   * @return The number of work units remaining in the current time slice
+   */
+
+  long sliceRemaining();
+
+  /**
+   * Consume work units from the current time slice. Work in excess of the slice is charged to
+   * the process, and delays the process's next slice accordingly.
+   *
+   * @param units The number of units consumed
+   *
+   * @return {@code true} if the slice has not been exhausted
+   */
+
+  boolean consume(long units);
+
+  /**
+   * @return The system calls available to the program
+   */
+
+  SGProgramSystemCallsType systemCalls();
+
+  /**
+   * Request that the program exit. The program's
+   * {@link SGProgramBodyType#onExit(SGProgramContextType)} method is called when the current call
+   * returns.
+   */
 
+  void exit();
 }
@@ -16,11 +16,100 @@
 
 package com.io7m.stonegarden.api.programs;
 
+import java.util.List;
+
 /**
  * The system calls exposed to a program.
+ *
+ * System calls are asynchronous. Each process has a fixed-capacity submission ring and a
+ * fixed-capacity completion ring. A program submits any number of calls, each with a tag of its
+ * choosing, and continues running; the process scheduler executes the submitted calls of every
+ * process in a single batch at the end of each run, and posts the results to the completion
+ * rings, where the program collects them on a later time slice. Neither submitting a call nor
+ * receiving a completion allocates.
+ *
+ * Calls are executed in the order that they were submitted. If a process's completion ring is
+ * full, its remaining submissions are left in the submission ring until the program has
+ * received some completions. Calls submitted by a process before it exits are still executed,
+ * but their completions are discarded. A call that raises an exception during execution
+ * completes with {@link SGSystemCallStatus#FAILED}, and does not affect other calls.
+ *
+ * @see SGProgramContextType#systemCalls()
  */
 
 public interface SGProgramSystemCallsType
 {
+  /**
+   * @return The capacity of each of the submission and completion rings
+   */
+
+  int capacity();
+
+  /**
+   * @return The number of calls submitted and not yet executed
+   */
+
+  int submissionsPending();
+
+  /**
+   * @return The number of completions not yet received
+   */
+
+  int completionsPending();
+
+  /**
+   * Submit a {@link SGSystemCall#WRITE_CONSOLE} call.
+   *
+   * @param tag  The tag for the completion
+   * @param text The text to write
+   *
+   * @return {@code false} if the submission ring is full
+   */
+
+  boolean submitWriteConsole(
+    long tag,
+    String text);
+
+  /**
+   * Submit a {@link SGSystemCall#SPAWN} call. The argument list is copied when the call is
+   * submitted, and must not contain {@code null} elements.
+   *
+   * @param tag        The tag for the completion
+   * @param executable The program executable
+   * @param arguments  The program arguments
+   *
+   * @return {@code false} if the submission ring is full
+   */
+
+  boolean submitSpawn(
+    long tag,
+    SGProgramExecutableType executable,
+    List<String> arguments);
+
+  /**
+   * Submit a {@link SGSystemCall#DEVICE_SPACE_AVAILABLE} call.
+   *
+   * @param tag    The tag for the completion
+   * @param device The index of the device in the list of connected devices
+   *
+   * @return {@code false} if the submission ring is full
+   */
+
+  boolean submitDeviceSpaceAvailable(
+    long tag,
+    int device);
+
+  /**
+   * Receive all pending completions, in the order that the calls were executed.
+   *
+   * @param context  A context value passed to the receiver
+   * @param receiver The receiver
+   * @param <C>      The type of context values
+   *
+   * @return The number of completions received
+   */
 
+  <C> int receiveCompletions(
+    C context,
+    SGSystemCallCompletionReceiverType<C> receiver);
 }
@@ -18,9 +18,11 @@ package com.io7m.stonegarden.api.programs;
 
 /**
  * A program instance.
+ *
+ * @see SGProcessSchedulerType
  */
 
-public interface SGProgramType
+public interface SGProgramType extends SGProgramBodyType
 {
 
 }
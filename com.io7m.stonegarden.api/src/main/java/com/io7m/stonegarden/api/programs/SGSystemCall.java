@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.programs;
+
+/**
+ * The system calls that programs may submit.
+ *
+ * @see SGProgramSystemCallsType
+ */
+
+public enum SGSystemCall
+{
+  /**
+   * Write a line of text to the console of the computer. The result is always {@code 0}.
+   */
+
+  WRITE_CONSOLE,
+
+  /**
+   * Spawn a process. The result is the ID of the new process.
+   */
+
+  SPAWN,
+
+  /**
+   * Query the space available on a storage device connected to the computer, identified by its
+   * index in the list of connected devices. The result is the number of octets available,
+   * saturated to {@link Long#MAX_VALUE}.
+   */
+
+  DEVICE_SPACE_AVAILABLE
+}
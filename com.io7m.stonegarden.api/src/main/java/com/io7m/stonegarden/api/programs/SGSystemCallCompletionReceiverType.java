@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.programs;
+
+/**
+ * A receiver of system call completions.
+ *
+ * @param <C> The type of context values
+ *
+ * @see SGProgramSystemCallsType#receiveCompletions(Object, SGSystemCallCompletionReceiverType)
+ */
+
+public interface SGSystemCallCompletionReceiverType<C>
+{
+  /**
+   * Receive a completion.
+   *
+   * @param context The context value passed to
+   *                {@link SGProgramSystemCallsType#receiveCompletions(Object, SGSystemCallCompletionReceiverType)}
+   * @param tag     The tag given when the system call was submitted
+   * @param call    The system call
+   * @param status  The status of the call
+   * @param result  The result of the call
+   */
+
+  void receive(
+    C context,
+    long tag,
+    SGSystemCall call,
+    SGSystemCallStatus status,
+    long result);
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.simulation;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+/**
+ * Statistics describing the boots performed by a simulation. Latencies are measured in ticks,
+ * from the tick on which a boot was requested to the tick on which its kernel was started.
+ * Latency percentiles are exact below 1024 ticks; above that, they are rounded up to the next
+ * power of two (minus one), and never exceed the maximum latency.
+ *
+ * @see SGSimulationConfiguration#bootConcurrency()
+ * @see SGSimulationConfiguration#bootLatencyTicks()
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface SGBootStatisticsType
+{
+  /**
+   * @return The number of boots that are waiting to start
+   */
+
+  @Value.Parameter
+  int queued();
+
+  /**
+   * @return The number of boots that have started but not yet completed
+   */
+
+  @Value.Parameter
+  int inProgress();
+
+  /**
+   * @return The total number of boots that completed by starting a kernel
+   */
+
+  @Value.Parameter
+  long completed();
+
+  /**
+   * @return The total number of boots that failed or were cancelled
+   */
+
+  @Value.Parameter
+  long failed();
+
+  /**
+   * @return The number of boots that completed on the most recent tick
+   */
+
+  @Value.Parameter
+  long completedLastTick();
+
+  /**
+   * @return The median boot latency in ticks
+   */
+
+  @Value.Parameter
+  long latencyP50Ticks();
+
+  /**
+   * @return The 90th percentile boot latency in ticks
+   */
+
+  @Value.Parameter
+  long latencyP90Ticks();
+
+  /**
+   * @return The 99th percentile boot latency in ticks
+   */
+
+  @Value.Parameter
+  long latencyP99Ticks();
+
+  /**
+   * @return The maximum boot latency in ticks
+   */
+
+  @Value.Parameter
+  long latencyMaxTicks();
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.simulation;
+
+/**
+ * The ways in which computer consoles can store their most recent lines.
+ *
+ * @see SGSimulationConfiguration#consoleStorage()
+ */
+
+public enum SGConsoleStorage
+{
+  /**
+   * Lines are stored as a reference to a format string shared by the whole simulation, and the
+   * line's arguments. Lines are only formatted when the console is read. Writing a line is cheap,
+   * but arguments are retained until the line is evicted.
+   */
+
+  TEMPLATES,
+
+  /**
+   * Lines are stored in a single byte array per console as a reference to a format string shared
+   * by the whole simulation, followed by a compact encoding of the line's arguments. Lines are
+   * only formatted when the console is read. Lines with arguments that have no compact encoding
+   * are formatted when they are written and stored as UTF-8. No objects are retained per line.
+   */
+
+  BYTES
+}
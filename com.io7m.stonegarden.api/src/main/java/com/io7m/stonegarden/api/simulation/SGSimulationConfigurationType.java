@@ -0,0 +1,361 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.simulation;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import com.io7m.stonegarden.api.SGArchitecture;
+import com.io7m.stonegarden.api.machines.SGMachineInstructionSet;
+import org.immutables.value.Value;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The configuration of a simulation.
+ *
+ * @see SGSimulationProviderType#create(SGSimulationConfiguration)
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface SGSimulationConfigurationType
+{
+  /**
+   * The maximum number of computers that may be booting at any one time. Boot requests in excess
+   * of this limit are queued and started on later ticks, in the order that they were requested.
+   * The default places no limit on concurrent boots.
+   *
+   * @return The maximum number of concurrent boots
+   */
+
+  @Value.Default
+  default int bootConcurrency()
+  {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * The number of ticks that a computer spends in its power-on self test before its kernel is
+   * loaded and started. The default of {@code 0} causes a computer to boot completely within the
+   * tick on which its boot was started.
+   *
+   * @return The simulated boot latency in ticks
+   */
+
+  @Value.Default
+  default long bootLatencyTicks()
+  {
+    return 0L;
+  }
+
+  /**
+   * The number of abstract work units that each running kernel may consume on each tick.
+   *
+   * @return The per-kernel tick budget
+   *
+   * @see com.io7m.stonegarden.api.kernels.SGKernelTickType
+   */
+
+  @Value.Default
+  default long kernelTickBudget()
+  {
+    return 10_000L;
+  }
+
+  /**
+   * The maximum number of work units that a process may consume before the process scheduler
+   * considers running a different process.
+   *
+   * @return The process time slice
+   *
+   * @see com.io7m.stonegarden.api.programs.SGProcessSchedulerType
+   */
+
+  @Value.Default
+  default long programTimeSlice()
+  {
+    return 1_000L;
+  }
+
+  /**
+   * The capacity of each of the system call submission and completion rings of each process.
+   *
+   * @return The system call ring capacity
+   *
+   * @see com.io7m.stonegarden.api.programs.SGProgramSystemCallsType
+   */
+
+  @Value.Default
+  default int programSystemCallRingSize()
+  {
+    return 64;
+  }
+
+  /**
+   * The number of lines that each computer console retains. Consoles that use
+   * {@link SGConsoleStorage#BYTES} storage additionally limit the retained lines to an average of
+   * {@link #consoleBytesPerLine()} octets each.
+   *
+   * @return The console capacity in lines
+   */
+
+  @Value.Default
+  default int consoleCapacity()
+  {
+    return 80;
+  }
+
+  /**
+   * The average number of octets available to each retained line of a console that uses
+   * {@link SGConsoleStorage#BYTES} storage. Each such console stores its lines in a byte array
+   * that starts small and grows on demand up to {@link #consoleCapacity()} multiplied by this
+   * value, so consoles that write little output use little memory. Lines longer than the
+   * maximum size of the array are truncated. The default is {@code 128}.
+   *
+   * @return The console octets per line
+   */
+
+  @Value.Default
+  default int consoleBytesPerLine()
+  {
+    return 128;
+  }
+
+  /**
+   * @return The way in which computer consoles store lines
+   */
+
+  @Value.Default
+  default SGConsoleStorage consoleStorage()
+  {
+    return SGConsoleStorage.TEMPLATES;
+  }
+
+  /**
+   * The maximum number of distinct format strings that the simulation interns on behalf of its
+   * consoles. Once the table is full, lines with format strings that have not already been
+   * interned are formatted when they are written and stored as text. Format strings that contain
+   * no conversions are always stored as text, and are never interned. A value of {@code 0}
+   * disables interning entirely. The default is {@code 4096}.
+   *
+   * @return The maximum number of interned console format strings
+   */
+
+  @Value.Default
+  default int consoleTemplateCapacity()
+  {
+    return 4096;
+  }
+
+  /**
+   * The directory into which the console output of every computer is archived. Lines are
+   * appended to segment files named {@code console-NNNNNNNN.log}, each line being written as the
+   * frame, the device ID, and the text, separated by spaces. Lines are accumulated and written
+   * once per tick. If no directory is specified, console output is not archived.
+   *
+   * @return The console archive directory, if any
+   */
+
+  Optional<Path> consoleArchiveDirectory();
+
+  /**
+   * The size in octets at which a console archive segment is closed and a new segment is
+   * started. Segments are only rotated on line boundaries, and so a segment may exceed this size
+   * by at most the length of one line.
+   *
+   * @return The console archive segment size in octets
+   */
+
+  @Value.Default
+  default long consoleArchiveSegmentSize()
+  {
+    return 16_777_216L;
+  }
+
+  /**
+   * The directory in which the full console history of each computer is stored. Lines evicted
+   * from a computer's console are appended to blocks that are compressed and written to a file
+   * named after the computer's ID once they reach {@link #consoleHistoryBlockSize()} octets. If no
+   * directory is specified, evicted lines are discarded.
+   *
+   * @return The console history directory, if any
+   */
+
+  Optional<Path> consoleHistoryDirectory();
+
+  /**
+   * The uncompressed size in octets at which a block of console history is compressed and written
+   * to disk. Larger blocks compress better, but reading any part of the history requires
+   * decompressing each block that overlaps the requested frames in its entirety.
+   *
+   * @return The console history block size in octets
+   */
+
+  @Value.Default
+  default int consoleHistoryBlockSize()
+  {
+    return 65536;
+  }
+
+  /**
+   * The instruction timings of each hardware architecture. Computers with architectures that are
+   * not listed here use the default timings of each instruction.
+   *
+   * @return The machine instruction sets
+   *
+   * @see com.io7m.stonegarden.api.machines.SGMachineType
+   */
+
+  List<SGMachineInstructionSet> machineInstructionSets();
+
+  /**
+   * The number of times that control must be transferred to an address in a machine program
+   * before the block of code starting at that address is translated to JVM bytecode.
+   * Translations are held per process, and are discarded when the process finishes.
+   *
+   * @return The machine code translation threshold
+   *
+   * @see com.io7m.stonegarden.api.machines.SGMachineType
+   */
+
+  @Value.Default
+  default int machineTranslationThreshold()
+  {
+    return 1_000;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    checkMachines(this.machineInstructionSets(), this.machineTranslationThreshold());
+    checkConsole(this.consoleCapacity(), this.consoleBytesPerLine(), this.consoleTemplateCapacity());
+    checkBoot(this.bootConcurrency(), this.bootLatencyTicks());
+
+    if (this.programSystemCallRingSize() <= 0) {
+      throw invalid(
+        "Program system call ring size must be positive",
+        "Program system call ring size",
+        Integer.valueOf(this.programSystemCallRingSize()));
+    }
+    if (this.programTimeSlice() <= 0L) {
+      throw invalid(
+        "Program time slice must be positive",
+        "Program time slice",
+        Long.valueOf(this.programTimeSlice()));
+    }
+    if (this.kernelTickBudget() <= 0L) {
+      throw invalid(
+        "Kernel tick budget must be positive",
+        "Kernel tick budget",
+        Long.valueOf(this.kernelTickBudget()));
+    }
+    if (this.consoleHistoryBlockSize() <= 0) {
+      throw invalid(
+        "Console history block size must be positive",
+        "Console history block size",
+        Integer.valueOf(this.consoleHistoryBlockSize()));
+    }
+    if (this.consoleArchiveSegmentSize() <= 0L) {
+      throw invalid(
+        "Console archive segment size must be positive",
+        "Console archive segment size",
+        Long.valueOf(this.consoleArchiveSegmentSize()));
+    }
+  }
+
+  private static IllegalArgumentException invalid(
+    final String problem,
+    final String name,
+    final Object value)
+  {
+    return new IllegalArgumentException(
+      new StringBuilder(128)
+        .append("Invalid simulation configuration.")
+        .append(System.lineSeparator())
+        .append("  Problem: ")
+        .append(problem)
+        .append(System.lineSeparator())
+        .append("  ")
+        .append(name)
+        .append(": ")
+        .append(value)
+        .append(System.lineSeparator())
+        .toString());
+  }
+
+  private static void checkBoot(
+    final int concurrency,
+    final long latency)
+  {
+    if (concurrency <= 0) {
+      throw invalid("Boot concurrency must be positive", "Boot concurrency", Integer.valueOf(concurrency));
+    }
+    if (latency < 0L) {
+      throw invalid("Boot latency must be non-negative", "Boot latency ticks", Long.valueOf(latency));
+    }
+  }
+
+  private static void checkConsole(
+    final int capacity,
+    final int bytes_per_line,
+    final int template_capacity)
+  {
+    if (template_capacity < 0) {
+      throw invalid(
+        "Console template capacity must be non-negative",
+        "Console template capacity",
+        Integer.valueOf(template_capacity));
+    }
+    if (capacity <= 0) {
+      throw invalid("Console capacity must be positive", "Console capacity", Integer.valueOf(capacity));
+    }
+    if (bytes_per_line <= 0 || (long) capacity * (long) bytes_per_line > Integer.MAX_VALUE) {
+      throw invalid(
+        "Console octets per line must be positive, and the total for the console capacity must fit in an int",
+        "Console octets per line",
+        Integer.valueOf(bytes_per_line));
+    }
+  }
+
+  private static void checkMachines(
+    final List<SGMachineInstructionSet> instruction_sets,
+    final int translation_threshold)
+  {
+    if (translation_threshold <= 0) {
+      throw invalid(
+        "Machine translation threshold must be positive",
+        "Machine translation threshold",
+        Integer.valueOf(translation_threshold));
+    }
+
+    final var architectures = new HashSet<SGArchitecture>();
+    for (final var instruction_set : instruction_sets) {
+      if (!architectures.add(instruction_set.architecture())) {
+        throw invalid(
+          "Multiple instruction sets for the same architecture",
+          "Architecture",
+          instruction_set.architecture().name());
+      }
+    }
+  }
+}
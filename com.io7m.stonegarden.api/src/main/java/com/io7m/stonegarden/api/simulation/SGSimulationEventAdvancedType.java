@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.simulation;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+import java.math.BigInteger;
+
+/**
+ * The simulation was stepped forward by a number of ticks without publishing individual tick
+ * events.
+ *
+ * @see SGSimulationType#advance(long, double)
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface SGSimulationEventAdvancedType extends SGSimulationEventType
+{
+  /**
+   * @return The first simulation frame that was executed
+   */
+
+  @Value.Parameter
+  BigInteger frameFirst();
+
+  /**
+   * @return The last simulation frame that was executed
+   */
+
+  @Value.Parameter
+  BigInteger frameLast();
+
+  /**
+   * @return The number of ticks that were executed
+   */
+
+  @Value.Parameter
+  long ticks();
+
+  /**
+   * @return The duration of each tick in seconds
+   */
+
+  @Value.Parameter
+  double seconds();
+}
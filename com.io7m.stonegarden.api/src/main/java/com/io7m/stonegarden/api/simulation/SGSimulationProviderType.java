@@ -22,11 +22,24 @@ package com.io7m.stonegarden.api.simulation;
 
 public interface SGSimulationProviderType
 {
+  /**
+   * Create a new simulation with the default configuration.
+   *
+   * @return A new simulation
+   */
+
+  default SGSimulationType create()
+  {
+    return this.create(SGSimulationConfiguration.builder().build());
+  }
+
   /**
    * Create a new simulation.
    *
+   * @param configuration The simulation configuration
+   *
    * @return A new simulation
    */
 
-  SGSimulationType create();
+  SGSimulationType create(SGSimulationConfiguration configuration);
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.simulation;
+
+import com.io7m.stonegarden.api.connectors.SGConnectorSocketType;
+import com.io7m.stonegarden.api.connectors.SGConnectorType;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A batch of changes to the connections between devices. Changes are recorded in order and have no
+ * effect until the transaction is committed. Committing a transaction validates and applies all of
+ * the recorded changes together in a single simulation task: either every change is applied, or
+ * (if any change would fail) none of them are.
+ */
+
+public interface SGSimulationTopologyTransactionType
+{
+  /**
+   * Record a connection of {@code connector} to {@code socket}.
+   *
+   * @param connector The connector
+   * @param socket    The socket
+   *
+   * @return this
+   */
+
+  SGSimulationTopologyTransactionType connect(
+    SGConnectorType connector,
+    SGConnectorSocketType socket);
+
+  /**
+   * Record a disconnection of {@code connector} from whatever socket it is connected to at that
+   * point in the transaction.
+   *
+   * @param connector The connector
+   *
+   * @return this
+   */
+
+  SGSimulationTopologyTransactionType disconnect(
+    SGConnectorType connector);
+
+  /**
+   * Record a disconnection of {@code socket} from whatever connector it is connected to at that
+   * point in the transaction.
+   *
+   * @param socket The socket
+   *
+   * @return this
+   */
+
+  SGSimulationTopologyTransactionType disconnect(
+    SGConnectorSocketType socket);
+
+  /**
+   * Commit the transaction. The transaction cannot be used after it has been committed. If any
+   * recorded change would fail, the returned future fails with the exception that the
+   * corresponding individual operation would have raised (such as
+   * {@link com.io7m.stonegarden.api.connectors.SGConnectedAlreadyException} or
+   * {@link com.io7m.stonegarden.api.connectors.SGConnectorIncompatibleException}) and no changes
+   * are applied. Connection events for the transaction are published only after all of the changes
+   * have been applied.
+   *
+   * @return A future representing the application of the transaction
+   */
+
+  CompletableFuture<Void> commit();
+}
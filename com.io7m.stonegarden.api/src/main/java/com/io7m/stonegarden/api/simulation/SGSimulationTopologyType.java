@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.simulation;
+
+import com.io7m.stonegarden.api.devices.SGDeviceType;
+
+import java.util.List;
+
+/**
+ * A readable view of the connections between the devices in a simulation. Two devices are
+ * <i>directly connected</i> if a connector of one is connected to a socket of the other. Two
+ * devices are in the same <i>component</i> if there is a path of direct connections between them.
+ *
+ * A view may be live or may be an immutable snapshot; see {@link SGSimulationType#topology()} and
+ * {@link SGSimulationType#topologySnapshot()}.
+ */
+
+public interface SGSimulationTopologyType
+{
+  /**
+   * @param device0 The first device
+   * @param device1 The second device
+   *
+   * @return {@code true} iff the given devices are directly connected
+   */
+
+  boolean areDirectlyConnected(
+    SGDeviceType device0,
+    SGDeviceType device1);
+
+  /**
+   * @param device0 The first device
+   * @param device1 The second device
+   *
+   * @return {@code true} iff the given devices are in the same component
+   */
+
+  boolean sameComponent(
+    SGDeviceType device0,
+    SGDeviceType device1);
+
+  /**
+   * @param device The device
+   *
+   * @return The devices that can be reached from {@code device}, not including {@code device}
+   */
+
+  List<SGDeviceType> devicesReachableFrom(
+    SGDeviceType device);
+
+  /**
+   * @param device The device
+   *
+   * @return The number of devices in the component containing {@code device}, or {@code 0} if the
+   * device is not part of the simulation
+   */
+
+  int componentSize(
+    SGDeviceType device);
+
+  /**
+   * @return The number of components
+   */
+
+  int componentCount();
+
+  /**
+   * @return The number of devices in the largest component
+   */
+
+  int largestComponentSize();
+}
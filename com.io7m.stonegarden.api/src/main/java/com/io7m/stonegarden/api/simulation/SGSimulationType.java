@@ -20,9 +20,16 @@ import com.io7m.stonegarden.api.SGEventType;
 import com.io7m.stonegarden.api.computer.SGComputerDescription;
 import com.io7m.stonegarden.api.computer.SGComputerType;
 import com.io7m.stonegarden.api.devices.SGStorageDeviceDescription;
+import com.io7m.stonegarden.api.devices.SGDeviceType;
 import com.io7m.stonegarden.api.devices.SGStorageDeviceType;
+import com.io7m.stonegarden.api.kernels.SGKernelCatalogType;
 import io.reactivex.Observable;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * A simulation.
  */
@@ -41,12 +48,153 @@ public interface SGSimulationType extends AutoCloseable
 
   void tick(double seconds);
 
+  /**
+   * Step the simulation forward by {@code count} ticks of the given number of seconds each. This
+   * is equivalent to calling {@link #tick(double)} {@code count} times except that no individual
+   * {@link SGSimulationEventTick} events are published. Instead, a single {@link
+   * SGSimulationEventAdvanced} event is published after all of the ticks have executed.
+   *
+   * @param count   The number of ticks
+   * @param seconds The duration of each tick in seconds
+   */
+
+  void advance(
+    long count,
+    double seconds);
+
   /**
    * @return An observable that produces events
    */
 
   Observable<SGEventType> events();
 
+  /**
+   * Subscribe to events of a specific type. Implementations are permitted to avoid constructing
+   * events that have no subscribers, so subscribing to only the events of interest (as opposed to
+   * filtering the results of {@link #events()}) can significantly reduce the amount of work
+   * performed by the simulation.
+   *
+   * @param clazz The type of events
+   * @param <T>   The type of events
+   *
+   * @return An observable that produces events of type {@code T}
+   */
+
+  <T extends SGEventType> Observable<T> eventsOfType(Class<T> clazz);
+
+  /**
+   * @return A live view of the connections between the devices in the simulation; the view must
+   * only be accessed from the thread that ticks the simulation
+   */
+
+  SGSimulationTopologyType topology();
+
+  /**
+   * Retrieve an immutable snapshot of the connections between the devices in the simulation, as
+   * they were at the end of the most recent call to {@link #tick(double)} or
+   * {@link #advance(long, double)}. Snapshots may be queried from any thread, and remain valid
+   * (and unchanging) regardless of subsequent changes to the simulation.
+   *
+   * @return The most recent topology snapshot
+   */
+
+  SGSimulationTopologyType topologySnapshot();
+
+  /**
+   * @return A new, empty topology transaction
+   */
+
+  SGSimulationTopologyTransactionType topologyTransaction();
+
+  /**
+   * @return Statistics describing the boots performed by the simulation so far
+   */
+
+  SGBootStatistics bootStatistics();
+
+  /**
+   * @return Statistics describing the kernels that are currently running in the simulation
+   */
+
+  SGKernelStatistics kernelStatistics();
+
+  /**
+   * @return A live catalog of the kernels installed on the storage devices in the simulation; the
+   * catalog must only be accessed from the thread that ticks the simulation
+   */
+
+  SGKernelCatalogType kernelCatalog();
+
+  /**
+   * Connect every unconnected connector and socket of {@code device} to a compatible unconnected
+   * port of some other device. Ports for which no compatible free port exists are left
+   * unconnected. The simulation maintains an index of free ports by protocol, so the cost of this
+   * operation is proportional to the number of ports on {@code device}, not to the number of
+   * ports in the simulation.
+   *
+   * @param device The device
+   *
+   * @return A future representing the operation
+   */
+
+  CompletableFuture<Void> autoConnect(
+    SGDeviceType device);
+
+  /**
+   * Create devices and connections from a line-oriented topology description. The description is
+   * read incrementally and is never held in memory in its entirety. Devices and connections are
+   * created immediately rather than being scheduled for the next tick. Blank lines and lines
+   * beginning with {@code #} are ignored. Each remaining line is one of:
+   *
+   * <ul>
+   * <li>{@code protocol <name>}: Declare a connector protocol. All protocols must be declared
+   * before the first device.</li>
+   * <li>{@code computer <device> <architecture> [sockets <protocol>...] [connectors
+   * <protocol>...]}: Create a computer.</li>
+   * <li>{@code storage <device> <capacity-octets> [sockets <protocol>...] [connectors
+   * <protocol>...]}: Create a storage device.</li>
+   * <li>{@code link <device> <connector-index> <device> <socket-index>}: Connect a connector of the
+   * first device to a socket of the second.</li>
+   * </ul>
+   *
+   * Device names are local to the description. If loading fails, any devices and connections
+   * created before the failing line remain in the simulation.
+   *
+   * @param reader The topology description
+   *
+   * @return Statistics describing the load
+   *
+   * @throws IOException               On I/O errors
+   * @throws SGTopologyParseException On malformed or invalid descriptions
+   */
+
+  SGTopologyLoadStatistics loadTopology(
+    Reader reader)
+    throws IOException, SGTopologyParseException;
+
+  /**
+   * Write the current topology of the simulation to {@code channel}. Every device and every
+   * connector and socket is written as a node; each port is linked to the device that owns it,
+   * and each connection is written as an edge between a connector and a socket. The topology is
+   * streamed directly from the simulation's internal structures to the channel, so this method
+   * must only be called from the thread that ticks the simulation (or, before the simulation has
+   * been ticked, the thread that created it). The channel must be in blocking mode.
+   *
+   * @param channel The output channel
+   * @param format  The output format
+   *
+   * @return The number of octets written
+   *
+   * @throws IOException           On I/O errors, or if the channel does not accept any data
+   * @throws IllegalStateException If called from a thread other than the thread that ticks the
+   *                               simulation
+   */
+
+  long exportTopology(
+    WritableByteChannel channel,
+    SGTopologyExportFormat format)
+    throws IOException;
+
   /**
    * Create a new computer.
    *
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.simulation;
+
+import com.io7m.immutables.styles.ImmutablesStyleType;
+import org.immutables.value.Value;
+
+import java.time.Duration;
+
+/**
+ * Statistics describing the loading of a topology description.
+ *
+ * @see SGSimulationType#loadTopology(java.io.Reader)
+ */
+
+@ImmutablesStyleType
+@Value.Immutable
+public interface SGTopologyLoadStatisticsType
+{
+  /**
+   * @return The number of lines read
+   */
+
+  @Value.Parameter
+  long lines();
+
+  /**
+   * @return The number of devices created
+   */
+
+  @Value.Parameter
+  long devices();
+
+  /**
+   * @return The number of connectors and sockets created
+   */
+
+  @Value.Parameter
+  long ports();
+
+  /**
+   * @return The number of connections made
+   */
+
+  @Value.Parameter
+  long links();
+
+  /**
+   * @return The time taken to load the topology
+   */
+
+  @Value.Parameter
+  Duration duration();
+}
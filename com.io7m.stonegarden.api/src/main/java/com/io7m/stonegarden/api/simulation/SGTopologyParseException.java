@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.api.simulation;
+
+import com.io7m.stonegarden.api.SGException;
+
+import java.util.Objects;
+
+/**
+ * A topology description could not be loaded.
+ *
+ * @see SGSimulationType#loadTopology(java.io.Reader)
+ */
+
+public final class SGTopologyParseException extends SGException
+{
+  private final long line;
+
+  /**
+   * Construct an exception.
+   *
+   * @param in_line The line number at which the problem occurred
+   * @param problem A description of the problem
+   */
+
+  public SGTopologyParseException(
+    final long in_line,
+    final String problem)
+  {
+    super(makeMessage(in_line, problem));
+    this.line = in_line;
+  }
+
+  /**
+   * Construct an exception.
+   *
+   * @param in_line The line number at which the problem occurred
+   * @param problem A description of the problem
+   * @param cause   The underlying cause
+   */
+
+  public SGTopologyParseException(
+    final long in_line,
+    final String problem,
+    final Throwable cause)
+  {
+    super(makeMessage(in_line, problem), cause);
+    this.line = in_line;
+  }
+
+  private static String makeMessage(
+    final long line,
+    final String problem)
+  {
+    Objects.requireNonNull(problem, "problem");
+
+    final var separator = System.lineSeparator();
+    return new StringBuilder(128)
+      .append("Could not load topology.")
+      .append(separator)
+      .append("  Line: ")
+      .append(line)
+      .append(separator)
+      .append("  Problem: ")
+      .append(problem)
+      .append(separator)
+      .toString();
+  }
+
+  /**
+   * @return The line number at which the problem occurred
+   */
+
+  public long line()
+  {
+    return this.line;
+  }
+}
@@ -44,6 +44,7 @@ import org.mockito.stubbing.Answer;
 import java.lang.reflect.Field;
 import java.math.BigInteger;
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
@@ -62,6 +63,7 @@ public final class SGBruteForceEqualityTest
     com.io7m.stonegarden.api.computer.SGComputerEventBooting.class,
     com.io7m.stonegarden.api.computer.SGComputerEventShutDown.class,
     com.io7m.stonegarden.api.computer.SGComputerEventShuttingDown.class,
+    com.io7m.stonegarden.api.computer.SGConsoleLine.class,
     com.io7m.stonegarden.api.connectors.SGConnectorDescription.class,
     com.io7m.stonegarden.api.connectors.SGConnectorEventConnected.class,
     com.io7m.stonegarden.api.connectors.SGConnectorEventDisconnected.class,
@@ -78,9 +80,15 @@ public final class SGBruteForceEqualityTest
     com.io7m.stonegarden.api.kernels.SGKernelCompatibility.class,
     com.io7m.stonegarden.api.kernels.SGKernelDescription.class,
     com.io7m.stonegarden.api.kernels.SGKernelExecutableDescription.class,
+    com.io7m.stonegarden.api.machines.SGMachineInstructionSet.class,
     com.io7m.stonegarden.api.programs.SGProgramCompatibility.class,
     com.io7m.stonegarden.api.programs.SGProgramDescription.class,
+    com.io7m.stonegarden.api.simulation.SGBootStatistics.class,
+    com.io7m.stonegarden.api.simulation.SGKernelStatistics.class,
+    com.io7m.stonegarden.api.simulation.SGSimulationConfiguration.class,
+    com.io7m.stonegarden.api.simulation.SGSimulationEventAdvanced.class,
     com.io7m.stonegarden.api.simulation.SGSimulationEventTick.class,
+    com.io7m.stonegarden.api.simulation.SGTopologyLoadStatistics.class,
     com.io7m.stonegarden.api.SGArchitecture.class,
     com.io7m.stonegarden.api.SGVersion.class,
     com.io7m.stonegarden.api.SGVersionRange.class,
@@ -153,6 +161,15 @@ public final class SGBruteForceEqualityTest
       throws Throwable
     {
       final var return_type = invocation.getMethod().getReturnType();
+      if (return_type.isEnum()) {
+        return return_type.getEnumConstants()[0];
+      }
+      if (return_type.equals(int.class)) {
+        return Integer.valueOf(23);
+      }
+      if (return_type.equals(long.class)) {
+        return Long.valueOf(23L);
+      }
       if (return_type.equals(String.class)) {
         return "xyz";
       }
@@ -168,6 +185,9 @@ public final class SGBruteForceEqualityTest
       if (return_type.equals(UUID.class)) {
         return UUID.randomUUID();
       }
+      if (return_type.equals(Duration.class)) {
+        return Duration.ofSeconds(23L);
+      }
       if (return_type.equals(Properties.class)) {
         return new Properties();
       }
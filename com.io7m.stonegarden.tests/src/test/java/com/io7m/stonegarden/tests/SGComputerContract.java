@@ -24,16 +24,44 @@ import com.io7m.stonegarden.api.computer.SGComputerBootOrderItem;
 import com.io7m.stonegarden.api.computer.SGComputerDescription;
 import com.io7m.stonegarden.api.computer.SGComputerEventBootFailed;
 import com.io7m.stonegarden.api.computer.SGComputerEventBooting;
+import com.io7m.stonegarden.api.computer.SGComputerEventBooted;
+import com.io7m.stonegarden.api.computer.SGComputerEventShutDown;
+import com.io7m.stonegarden.api.computer.SGComputerEventShuttingDown;
+import com.io7m.stonegarden.api.computer.SGComputerType;
+import com.io7m.stonegarden.api.computer.SGConsoleLine;
 import com.io7m.stonegarden.api.connectors.SGConnectorDescription;
+import com.io7m.stonegarden.api.connectors.SGConnectorEventConnected;
 import com.io7m.stonegarden.api.connectors.SGConnectorProtocol;
 import com.io7m.stonegarden.api.connectors.SGConnectorProtocolName;
 import com.io7m.stonegarden.api.connectors.SGConnectorSocketDescription;
 import com.io7m.stonegarden.api.devices.SGDeviceEventCreated;
 import com.io7m.stonegarden.api.devices.SGStorageDeviceDescription;
+import com.io7m.stonegarden.api.devices.SGStorageDeviceType;
+import com.io7m.stonegarden.api.kernels.SGKernelCompatibility;
+import com.io7m.stonegarden.api.kernels.SGKernelContextType;
+import com.io7m.stonegarden.api.kernels.SGKernelDescription;
+import com.io7m.stonegarden.api.kernels.SGKernelExecutableDescription;
+import com.io7m.stonegarden.api.kernels.SGKernelExecutableType;
+import com.io7m.stonegarden.api.kernels.SGKernelTickType;
+import com.io7m.stonegarden.api.kernels.SGKernelType;
+import com.io7m.stonegarden.api.machines.SGMachineInstructionSet;
+import com.io7m.stonegarden.api.machines.SGMachineOpcode;
+import com.io7m.stonegarden.api.programs.SGProcessType;
+import com.io7m.stonegarden.api.programs.SGProgramContextType;
+import com.io7m.stonegarden.api.programs.SGProgramExecutableType;
+import com.io7m.stonegarden.api.programs.SGProgramExitCode;
+import com.io7m.stonegarden.api.programs.SGProgramType;
+import com.io7m.stonegarden.api.programs.SGSystemCall;
+import com.io7m.stonegarden.api.programs.SGSystemCallCompletionReceiverType;
+import com.io7m.stonegarden.api.programs.SGSystemCallStatus;
+import com.io7m.stonegarden.api.simulation.SGConsoleStorage;
+import com.io7m.stonegarden.api.simulation.SGKernelStatistics;
+import com.io7m.stonegarden.api.simulation.SGSimulationConfiguration;
 import com.io7m.stonegarden.api.simulation.SGSimulationEventTick;
 import com.io7m.stonegarden.api.simulation.SGSimulationType;
 import com.io7m.stonegarden.vanilla.SGKernelHelloWorld;
 import com.io7m.stonegarden.vanilla.SGKernelInstaller;
+import io.reactivex.Observer;
 import io.reactivex.disposables.Disposable;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -41,10 +69,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public abstract class SGComputerContract
 {
@@ -61,7 +98,13 @@ public abstract class SGComputerContract
   private Disposable subscription;
   private Logger logger;
 
-  protected abstract SGSimulationType createSimulation();
+  protected abstract SGSimulationType createSimulation(
+    SGSimulationConfiguration configuration);
+
+  private SGSimulationType createSimulation()
+  {
+    return this.createSimulation(SGSimulationConfiguration.builder().build());
+  }
 
   protected abstract Logger logger();
 
@@ -146,6 +189,1935 @@ public abstract class SGComputerContract
       });
   }
 
+  @Test
+  public final void testPortsConnectedTo()
+  {
+    final var computer =
+      this.simulation.createComputer(
+        SGComputerDescription.builder()
+          .setArchitecture(ARCH_0)
+          .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+          .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+          .build());
+
+    final var device =
+      this.simulation.createStorageDevice(
+        SGStorageDeviceDescription.builder()
+          .addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0))
+          .setSpaceCapacityOctets(BigInteger.valueOf(1_000_000L))
+          .build());
+
+    final var connector = device.connectors().get(0);
+    final var socket0 = computer.sockets().get(0);
+    final var socket1 = computer.sockets().get(1);
+
+    Assertions.assertTrue(connector.connectedTo().isEmpty());
+    Assertions.assertTrue(socket0.connectedTo().isEmpty());
+    Assertions.assertTrue(socket1.connectedTo().isEmpty());
+
+    connector.connectTo(socket1);
+    this.simulation.tick(1.0 / 60.0);
+
+    Assertions.assertEquals(socket1, connector.connectedTo().get());
+    Assertions.assertEquals(connector, socket1.connectedTo().get());
+    Assertions.assertTrue(socket0.connectedTo().isEmpty());
+
+    connector.disconnect();
+    this.simulation.tick(1.0 / 60.0);
+
+    Assertions.assertTrue(connector.connectedTo().isEmpty());
+    Assertions.assertTrue(socket1.connectedTo().isEmpty());
+  }
+
+  @Test
+  public final void testTopologyTransaction()
+  {
+    final var computer =
+      this.simulation.createComputer(
+        SGComputerDescription.builder()
+          .setArchitecture(ARCH_0)
+          .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+          .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+          .build());
+
+    final var storage_description =
+      SGStorageDeviceDescription.builder()
+        .addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0))
+        .setSpaceCapacityOctets(BigInteger.valueOf(1_000_000L))
+        .build();
+
+    final var connector0 = this.simulation.createStorageDevice(storage_description).connectors().get(0);
+    final var connector1 = this.simulation.createStorageDevice(storage_description).connectors().get(0);
+    final var socket0 = computer.sockets().get(0);
+    final var socket1 = computer.sockets().get(1);
+
+    final var failed =
+      this.simulation.topologyTransaction()
+        .connect(connector0, socket0)
+        .connect(connector1, socket0)
+        .commit();
+
+    this.simulation.tick(1.0 / 60.0);
+    Assertions.assertTrue(failed.isCompletedExceptionally());
+    Assertions.assertTrue(connector0.connectedTo().isEmpty());
+    Assertions.assertTrue(socket0.connectedTo().isEmpty());
+
+    final var observed = new ArrayList<Boolean>();
+    final var sub =
+      this.simulation.eventsOfType(SGConnectorEventConnected.class)
+        .subscribe(e -> observed.add(
+          Boolean.valueOf(connector0.connectedTo().isPresent() && connector1.connectedTo().isPresent())));
+
+    final var succeeded =
+      this.simulation.topologyTransaction()
+        .connect(connector0, socket0)
+        .connect(connector1, socket1)
+        .commit();
+
+    this.simulation.tick(1.0 / 60.0);
+    sub.dispose();
+
+    Assertions.assertTrue(succeeded.isDone());
+    Assertions.assertFalse(succeeded.isCompletedExceptionally());
+    Assertions.assertEquals(List.of(Boolean.TRUE, Boolean.TRUE), observed);
+    Assertions.assertEquals(socket0, connector0.connectedTo().get());
+    Assertions.assertEquals(socket1, connector1.connectedTo().get());
+
+    final var swapped =
+      this.simulation.topologyTransaction()
+        .disconnect(socket0)
+        .disconnect(connector1)
+        .connect(connector0, socket1)
+        .commit();
+
+    this.simulation.tick(1.0 / 60.0);
+    Assertions.assertFalse(swapped.isCompletedExceptionally());
+    Assertions.assertEquals(socket1, connector0.connectedTo().get());
+    Assertions.assertTrue(connector1.connectedTo().isEmpty());
+    Assertions.assertTrue(socket0.connectedTo().isEmpty());
+  }
+
+  @Test
+  public final void testAutoConnect()
+  {
+    final var other_protocol =
+      SGConnectorProtocol.of(SGConnectorProtocolName.of("GPB-1"));
+
+    final var computer =
+      this.simulation.createComputer(
+        SGComputerDescription.builder()
+          .setArchitecture(ARCH_0)
+          .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+          .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+          .addSockets(SGConnectorSocketDescription.of(other_protocol))
+          .addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0))
+          .build());
+
+    final var storage_description =
+      SGStorageDeviceDescription.builder()
+        .addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0))
+        .setSpaceCapacityOctets(BigInteger.valueOf(1_000_000L))
+        .build();
+
+    final var device0 = this.simulation.createStorageDevice(storage_description);
+    final var device1 = this.simulation.createStorageDevice(storage_description);
+
+    final var future0 = this.simulation.autoConnect(device0);
+    this.simulation.tick(1.0 / 60.0);
+    Assertions.assertFalse(future0.isCompletedExceptionally());
+    Assertions.assertEquals(computer, device0.connectors().get(0).connectedTo().get().owner());
+
+    final var future1 = this.simulation.autoConnect(computer);
+    this.simulation.tick(1.0 / 60.0);
+    Assertions.assertFalse(future1.isCompletedExceptionally());
+    Assertions.assertEquals(computer, device1.connectors().get(0).connectedTo().get().owner());
+    Assertions.assertTrue(computer.sockets().get(2).connectedTo().isEmpty());
+    Assertions.assertTrue(computer.connectors().get(0).connectedTo().isEmpty());
+    Assertions.assertEquals(3, this.simulation.topology().componentSize(computer));
+  }
+
+  @Test
+  public final void testConsole()
+    throws Exception
+  {
+    for (final var storage : SGConsoleStorage.values()) {
+      final var configuration =
+        SGSimulationConfiguration.builder()
+          .setConsoleCapacity(2)
+          .setConsoleStorage(storage)
+          .build();
+
+      try (var sim = this.createSimulation(configuration)) {
+        final var computer =
+          sim.createComputer(
+            SGComputerDescription.builder()
+              .setArchitecture(ARCH_0)
+              .build());
+        final var device =
+          sim.createStorageDevice(SGStorageDeviceDescription.builder().build());
+
+        final var console = computer.console();
+        final var received = new ArrayList<SGConsoleLine>();
+        console.lines().subscribe(received::add);
+
+        final var order =
+          List.of(SGComputerBootOrderItem.of("HELLO", SGVersion.of(0, 1, 0), new Properties(), device));
+
+        computer.boot(order);
+        sim.tick(1.0 / 60.0);
+
+        final var expected = String.format("device %s is not connected", device.id());
+        Assertions.assertEquals(0L, console.start());
+        Assertions.assertEquals(1L, console.end());
+        Assertions.assertEquals(List.of(SGConsoleLine.of(0L, 1L, expected)), console.read(0L));
+        Assertions.assertEquals(List.of(), console.read(1L));
+        Assertions.assertEquals(console.read(0L), received);
+
+        computer.boot(order);
+        sim.tick(1.0 / 60.0);
+        computer.boot(order);
+        sim.tick(1.0 / 60.0);
+
+        Assertions.assertEquals(1L, console.start());
+        Assertions.assertEquals(3L, console.end());
+        Assertions.assertEquals(
+          List.of(SGConsoleLine.of(1L, 2L, expected), SGConsoleLine.of(2L, 3L, expected)),
+          console.read(0L));
+        Assertions.assertEquals(3, received.size());
+      }
+    }
+  }
+
+  @Test
+  public final void testConsoleArguments()
+    throws Exception
+  {
+    final var uuid = UUID.randomUUID();
+    final var arguments = new Object[][]{
+      {},
+      {Integer.valueOf(-23), Long.valueOf(Long.MIN_VALUE), uuid},
+      {"päth", null, Integer.valueOf(Integer.MAX_VALUE)},
+      {Double.valueOf(2.5), "x"},
+      {"y".repeat(300)},
+    };
+    final var formats = new String[]{
+      "plain",
+      "%x %d %s",
+      "%s %s %d",
+      "%.2f %s",
+      "%s",
+    };
+
+    final var description =
+      SGKernelDescription.builder()
+        .setCompatibility(SGKernelCompatibility.of(ARCH_0))
+        .setName("ECHO")
+        .setVersion(SGVersion.of(1, 0, 0))
+        .setSizeOctets(BigInteger.ONE)
+        .build();
+
+    final var executable =
+      SGKernelExecutableDescription.builder()
+        .setDescription(description)
+        .setExecutable((simulation, context, parameters) -> new SGKernelType()
+        {
+          @Override
+          public void onStart()
+          {
+            for (int index = 0; index < formats.length; ++index) {
+              context.writeConsole(formats[index], arguments[index]);
+            }
+          }
+
+          @Override
+          public void onShutDown()
+          {
+
+          }
+        })
+        .build();
+
+    for (final var storage : SGConsoleStorage.values()) {
+      final var configuration =
+        SGSimulationConfiguration.builder()
+          .setConsoleStorage(storage)
+          .build();
+
+      try (var sim = this.createSimulation(configuration)) {
+        final var computer =
+          sim.createComputer(
+            SGComputerDescription.builder()
+              .setArchitecture(ARCH_0)
+              .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+              .build());
+        final var device =
+          sim.createStorageDevice(
+            SGStorageDeviceDescription.builder()
+              .addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0))
+              .setSpaceCapacityOctets(BigInteger.TEN)
+              .addKernels(executable)
+              .build());
+
+        device.connectors().get(0).connectTo(computer.sockets().get(0));
+        sim.tick(1.0 / 60.0);
+
+        computer.boot(List.of(SGComputerBootOrderItem.of(
+          "ECHO",
+          SGVersion.of(1, 0, 0),
+          new Properties(),
+          device)));
+        sim.tick(1.0 / 60.0);
+
+        final var lines = computer.console().read(0L);
+        Assertions.assertEquals(formats.length, lines.size());
+        for (int index = 0; index < formats.length; ++index) {
+          Assertions.assertEquals(
+            String.format(formats[index], arguments[index]),
+            lines.get(index).text());
+        }
+      }
+    }
+  }
+
+  private static SGKernelExecutableDescription echoKernel(
+    final Consumer<SGKernelContextType> writer)
+  {
+    return SGKernelExecutableDescription.builder()
+      .setDescription(
+        SGKernelDescription.builder()
+          .setCompatibility(SGKernelCompatibility.of(ARCH_0))
+          .setName("ECHO")
+          .setVersion(SGVersion.of(1, 0, 0))
+          .setSizeOctets(BigInteger.ONE)
+          .build())
+      .setExecutable((simulation, context, parameters) -> new SGKernelType()
+      {
+        @Override
+        public void onStart()
+        {
+          writer.accept(context);
+        }
+
+        @Override
+        public void onShutDown()
+        {
+
+        }
+      })
+      .build();
+  }
+
+  private List<SGConsoleLine> echo(
+    final SGSimulationConfiguration configuration,
+    final List<String> texts)
+    throws Exception
+  {
+    return this.echo(configuration, context -> {
+      for (final var text : texts) {
+        context.writeConsole("%s", text);
+      }
+    });
+  }
+
+  private List<SGConsoleLine> echo(
+    final SGSimulationConfiguration configuration,
+    final Consumer<SGKernelContextType> writer)
+    throws Exception
+  {
+    try (var sim = this.createSimulation(configuration)) {
+      final var computer =
+        sim.createComputer(
+          SGComputerDescription.builder()
+            .setArchitecture(ARCH_0)
+            .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+            .build());
+      final var device =
+        sim.createStorageDevice(
+          SGStorageDeviceDescription.builder()
+            .addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0))
+            .setSpaceCapacityOctets(BigInteger.TEN)
+            .addKernels(echoKernel(writer))
+            .build());
+
+      device.connectors().get(0).connectTo(computer.sockets().get(0));
+      computer.boot(List.of(SGComputerBootOrderItem.of(
+        "ECHO",
+        SGVersion.of(1, 0, 0),
+        new Properties(),
+        device)));
+      sim.tick(1.0 / 60.0);
+      return computer.console().read(0L);
+    }
+  }
+
+  @Test
+  public final void testConsoleBytesPerLine()
+    throws Exception
+  {
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> SGSimulationConfiguration.builder()
+        .setConsoleBytesPerLine(0)
+        .build());
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> SGSimulationConfiguration.builder()
+        .setConsoleCapacity(1 << 16)
+        .setConsoleBytesPerLine(1 << 16)
+        .build());
+
+    /*
+     * Lines are truncated to the octet capacity of the console.
+     */
+
+    final var small =
+      this.echo(
+        SGSimulationConfiguration.builder()
+          .setConsoleStorage(SGConsoleStorage.BYTES)
+          .setConsoleCapacity(4)
+          .setConsoleBytesPerLine(16)
+          .build(),
+        List.of("y".repeat(100)));
+    Assertions.assertEquals(1, small.size());
+    Assertions.assertEquals("y".repeat(63), small.get(0).text());
+
+    /*
+     * The byte array grows while its contents wrap around the end of the array.
+     */
+
+    final var texts = new ArrayList<String>();
+    for (int index = 0; index < 10; ++index) {
+      texts.add(String.valueOf(index).repeat(100));
+    }
+    for (int index = 0; index < 4; ++index) {
+      texts.add(String.valueOf((char) ('a' + index)).repeat(900));
+    }
+
+    final var grown =
+      this.echo(
+        SGSimulationConfiguration.builder()
+          .setConsoleStorage(SGConsoleStorage.BYTES)
+          .setConsoleCapacity(4)
+          .setConsoleBytesPerLine(1024)
+          .build(),
+        texts);
+    Assertions.assertEquals(
+      texts.subList(10, 14),
+      grown.stream().map(SGConsoleLine::text).collect(Collectors.toList()));
+  }
+
+  @Test
+  public final void testConsoleHistoryUnwritable()
+    throws Exception
+  {
+    final var directory = Files.createTempDirectory("stonegarden-history-");
+    final var configuration =
+      SGSimulationConfiguration.builder()
+        .setConsoleCapacity(2)
+        .setConsoleHistoryDirectory(directory)
+        .setConsoleHistoryBlockSize(200)
+        .build();
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var computer =
+        sim.createComputer(
+          SGComputerDescription.builder()
+            .setArchitecture(ARCH_0)
+            .build());
+      final var device =
+        sim.createStorageDevice(SGStorageDeviceDescription.builder().build());
+      final var order =
+        List.of(SGComputerBootOrderItem.of("HELLO", SGVersion.of(0, 1, 0), new Properties(), device));
+      final var text = String.format("device %s is not connected", device.id());
+
+      /*
+       * A directory in place of the history file makes the history unwritable. The console
+       * continues to accept lines.
+       */
+
+      final var file = directory.resolve(computer.id() + ".history");
+      Files.createDirectory(file);
+
+      final var expected = new ArrayList<SGConsoleLine>();
+      for (int index = 0; index < 20; ++index) {
+        computer.boot(order);
+        sim.tick(1.0 / 60.0);
+        expected.add(SGConsoleLine.of((long) index, (long) index + 1L, text));
+      }
+
+      final var console = computer.console();
+      Assertions.assertEquals(20L, console.end());
+      Assertions.assertEquals(expected.subList(18, 20), console.read(0L));
+
+      /*
+       * Once the history is writable again, later lines are recorded.
+       */
+
+      Files.delete(file);
+      for (int index = 20; index < 40; ++index) {
+        computer.boot(order);
+        sim.tick(1.0 / 60.0);
+        expected.add(SGConsoleLine.of((long) index, (long) index + 1L, text));
+      }
+
+      Assertions.assertEquals(40L, console.end());
+      Assertions.assertEquals(expected.subList(38, 40), console.read(0L));
+
+      final var history = console.history(0L, Long.MAX_VALUE);
+      Assertions.assertTrue(history.size() < expected.size());
+      Assertions.assertEquals(
+        expected.subList(20, 40),
+        history.subList(history.size() - 20, history.size()));
+      for (int index = 1; index < history.size(); ++index) {
+        Assertions.assertTrue(history.get(index - 1).position() < history.get(index).position());
+      }
+      Assertions.assertTrue(Files.isRegularFile(file));
+    }
+  }
+
+  @Test
+  public final void testConsoleHistory()
+    throws Exception
+  {
+    final var directory = Files.createTempDirectory("stonegarden-history-");
+
+    for (final var storage : SGConsoleStorage.values()) {
+      final var configuration =
+        SGSimulationConfiguration.builder()
+          .setConsoleCapacity(2)
+          .setConsoleStorage(storage)
+          .setConsoleHistoryDirectory(directory)
+          .setConsoleHistoryBlockSize(200)
+          .build();
+
+      final SGComputerType computer;
+      final var expected = new ArrayList<SGConsoleLine>();
+      try (var sim = this.createSimulation(configuration)) {
+        computer =
+          sim.createComputer(
+            SGComputerDescription.builder()
+              .setArchitecture(ARCH_0)
+              .build());
+        final var device =
+          sim.createStorageDevice(SGStorageDeviceDescription.builder().build());
+        final var order =
+          List.of(SGComputerBootOrderItem.of("HELLO", SGVersion.of(0, 1, 0), new Properties(), device));
+        final var text = String.format("device %s is not connected", device.id());
+
+        for (int index = 0; index < 20; ++index) {
+          computer.boot(order);
+          sim.tick(1.0 / 60.0);
+          expected.add(SGConsoleLine.of((long) index, (long) index + 1L, text));
+        }
+
+        final var console = computer.console();
+        Assertions.assertEquals(18L, console.start());
+        Assertions.assertEquals(expected, console.history(0L, Long.MAX_VALUE));
+        Assertions.assertEquals(expected.subList(4, 9), console.history(5L, 9L));
+        Assertions.assertEquals(expected.subList(17, 20), console.history(18L, 25L));
+        Assertions.assertEquals(List.of(), console.history(21L, 25L));
+
+        final var file = directory.resolve(computer.id() + ".history");
+        Assertions.assertTrue(Files.size(file) > 0L);
+        Assertions.assertTrue(Files.size(file) < (long) (text.length() * 18));
+      }
+
+      /*
+       * Closing the simulation writes the partially filled block.
+       */
+
+      Assertions.assertEquals(expected, computer.console().history(0L, Long.MAX_VALUE));
+    }
+
+    try (var sim = this.createSimulation(SGSimulationConfiguration.builder()
+                                           .setConsoleCapacity(2)
+                                           .build())) {
+      final var computer =
+        sim.createComputer(
+          SGComputerDescription.builder()
+            .setArchitecture(ARCH_0)
+            .build());
+      final var device =
+        sim.createStorageDevice(SGStorageDeviceDescription.builder().build());
+      final var order =
+        List.of(SGComputerBootOrderItem.of("HELLO", SGVersion.of(0, 1, 0), new Properties(), device));
+
+      for (int index = 0; index < 5; ++index) {
+        computer.boot(order);
+        sim.tick(1.0 / 60.0);
+      }
+
+      final var history = computer.console().history(0L, Long.MAX_VALUE);
+      Assertions.assertEquals(computer.console().read(0L), history);
+      Assertions.assertEquals(2, history.size());
+    }
+  }
+
+  @Test
+  public final void testConsoleTemplateCapacity()
+    throws Exception
+  {
+    Assertions.assertThrows(
+      IllegalArgumentException.class,
+      () -> SGSimulationConfiguration.builder()
+        .setConsoleTemplateCapacity(-1)
+        .build());
+
+    /*
+     * Lines whose format strings do not fit in the template table, and lines without
+     * conversions, are stored as text and read back unchanged.
+     */
+
+    final Consumer<SGKernelContextType> writer = context -> {
+      for (int index = 0; index < 4; ++index) {
+        context.writeConsole("a %d", Integer.valueOf(index));
+        context.writeConsole("b %s", "x" + index);
+        context.writeConsole(
+          "c %d %s",
+          Long.valueOf(index),
+          UUID.fromString("00000000-0000-0000-0000-00000000000" + index));
+        context.writeConsole("plain " + index);
+      }
+    };
+
+    final var expected = new ArrayList<String>();
+    for (int index = 0; index < 4; ++index) {
+      expected.add("a " + index);
+      expected.add("b x" + index);
+      expected.add("c " + index + " 00000000-0000-0000-0000-00000000000" + index);
+      expected.add("plain " + index);
+    }
+
+    for (final var storage : SGConsoleStorage.values()) {
+      for (final var templates : List.of(0, 1, 2, 4096)) {
+        final var lines =
+          this.echo(
+            SGSimulationConfiguration.builder()
+              .setConsoleStorage(storage)
+              .setConsoleCapacity(16)
+              .setConsoleTemplateCapacity(templates.intValue())
+              .build(),
+            writer);
+        Assertions.assertEquals(
+          expected,
+          lines.stream().map(SGConsoleLine::text).collect(Collectors.toList()),
+          storage + " " + templates);
+      }
+    }
+  }
+
+  @Test
+  public final void testConsoleMalformed()
+    throws Exception
+  {
+    final var description =
+      SGKernelDescription.builder()
+        .setCompatibility(SGKernelCompatibility.of(ARCH_0))
+        .setName("ECHO")
+        .setVersion(SGVersion.of(1, 0, 0))
+        .setSizeOctets(BigInteger.ONE)
+        .build();
+
+    final var executable =
+      SGKernelExecutableDescription.builder()
+        .setDescription(description)
+        .setExecutable((simulation, context, parameters) -> new SGKernelType()
+        {
+          @Override
+          public void onStart()
+          {
+            context.writeConsole("100%");
+            context.writeConsole("%d", "x");
+            context.writeConsole("%s %s", "x");
+
+            final var builder = new StringBuilder("before");
+            final var arguments = new Object[]{builder, Integer.valueOf(1)};
+            context.writeConsole("%s %d", arguments);
+            builder.setLength(0);
+            builder.append("after");
+            arguments[1] = Integer.valueOf(2);
+
+            context.writeConsole("%5s|%-3d|%.1f|%x|%%|%c", "a", 7, 2.25, 255, 'z');
+            context.writeConsole("%08d %1$s", 3);
+          }
+
+          @Override
+          public void onShutDown()
+          {
+
+          }
+        })
+        .build();
+
+    final var directory = Files.createTempDirectory("stonegarden-history-");
+    for (final var storage : SGConsoleStorage.values()) {
+      final var configuration =
+        SGSimulationConfiguration.builder()
+          .setConsoleCapacity(2)
+          .setConsoleStorage(storage)
+          .setConsoleHistoryDirectory(directory)
+          .build();
+
+      try (var sim = this.createSimulation(configuration)) {
+        final var computer =
+          sim.createComputer(
+            SGComputerDescription.builder()
+              .setArchitecture(ARCH_0)
+              .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+              .build());
+        final var device =
+          sim.createStorageDevice(
+            SGStorageDeviceDescription.builder()
+              .addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0))
+              .setSpaceCapacityOctets(BigInteger.TEN)
+              .addKernels(executable)
+              .build());
+
+        device.connectors().get(0).connectTo(computer.sockets().get(0));
+        final var received = new ArrayList<SGConsoleLine>();
+        computer.console().lines().subscribe(received::add);
+
+        computer.boot(List.of(SGComputerBootOrderItem.of(
+          "ECHO",
+          SGVersion.of(1, 0, 0),
+          new Properties(),
+          device)));
+        sim.tick(1.0 / 60.0);
+
+        /*
+         * Malformed lines are written as descriptions of the error, and neither the observers
+         * nor the eviction of the lines to the history fail.
+         */
+
+        final var history = computer.console().history(0L, Long.MAX_VALUE);
+        Assertions.assertEquals(received, history);
+        Assertions.assertEquals(6, history.size());
+        Assertions.assertEquals(
+          "(invalid console format: UnknownFormatConversionException) 100%",
+          history.get(0).text());
+        Assertions.assertEquals(
+          "(invalid console format: IllegalFormatConversionException) %d",
+          history.get(1).text());
+        Assertions.assertEquals(
+          "(invalid console format: MissingFormatArgumentException) %s %s",
+          history.get(2).text());
+        Assertions.assertEquals("before 1", history.get(3).text());
+        Assertions.assertEquals("    a|7  |2.3|ff|%|z", history.get(4).text());
+        Assertions.assertEquals("00000003 3", history.get(5).text());
+        Assertions.assertEquals(history.subList(4, 6), computer.console().read(0L));
+      }
+    }
+  }
+
+  @Test
+  public final void testConsoleArchive()
+    throws Exception
+  {
+    final var directory = Files.createTempDirectory("stonegarden-console-");
+    final var configuration =
+      SGSimulationConfiguration.builder()
+        .setConsoleArchiveDirectory(directory)
+        .setConsoleArchiveSegmentSize(150L)
+        .build();
+
+    final var expected = new ArrayList<String>();
+    try (var sim = this.createSimulation(configuration)) {
+      final var device =
+        sim.createStorageDevice(SGStorageDeviceDescription.builder().build());
+      final var order =
+        List.of(SGComputerBootOrderItem.of("HELLO", SGVersion.of(0, 1, 0), new Properties(), device));
+
+      for (int index = 0; index < 6; ++index) {
+        final var computer =
+          sim.createComputer(
+            SGComputerDescription.builder()
+              .setArchitecture(ARCH_0)
+              .build());
+        computer.boot(order);
+        expected.add(String.format("1 %s device %s is not connected", computer.id(), device.id()));
+      }
+
+      sim.tick(1.0 / 60.0);
+
+      /*
+       * Every line is roughly 100 octets, so each segment holds two lines.
+       */
+
+      Assertions.assertEquals(expected, readConsoleArchive(directory));
+      Assertions.assertTrue(Files.isRegularFile(directory.resolve("console-00000002.log")));
+      Assertions.assertFalse(Files.exists(directory.resolve("console-00000003.log")));
+    }
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var device =
+        sim.createStorageDevice(SGStorageDeviceDescription.builder().build());
+      final var computer =
+        sim.createComputer(
+          SGComputerDescription.builder()
+            .setArchitecture(ARCH_0)
+            .build());
+
+      computer.boot(List.of(SGComputerBootOrderItem.of(
+        "HELLO",
+        SGVersion.of(0, 1, 0),
+        new Properties(),
+        device)));
+      expected.add(String.format("1 %s device %s is not connected", computer.id(), device.id()));
+    }
+
+    /*
+     * Closing the simulation without ticking writes nothing; the next simulation continues the
+     * segment numbering of the previous one.
+     */
+
+    Assertions.assertEquals(expected.subList(0, 6), readConsoleArchive(directory));
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var device =
+        sim.createStorageDevice(SGStorageDeviceDescription.builder().build());
+      final var computer =
+        sim.createComputer(
+          SGComputerDescription.builder()
+            .setArchitecture(ARCH_0)
+            .build());
+
+      computer.boot(List.of(SGComputerBootOrderItem.of(
+        "HELLO",
+        SGVersion.of(0, 1, 0),
+        new Properties(),
+        device)));
+      sim.advance(3L, 1.0 / 60.0);
+      expected.set(6, String.format("1 %s device %s is not connected", computer.id(), device.id()));
+    }
+
+    Assertions.assertEquals(expected, readConsoleArchive(directory));
+    Assertions.assertTrue(Files.isRegularFile(directory.resolve("console-00000003.log")));
+  }
+
+  private static List<String> readConsoleArchive(
+    final Path directory)
+    throws IOException
+  {
+    final var lines = new ArrayList<String>();
+    try (var stream = Files.list(directory)) {
+      final var files = stream.sorted().collect(Collectors.toList());
+      for (final var file : files) {
+        lines.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+      }
+    }
+    return lines;
+  }
+
+  private static SGKernelExecutableDescription tickingKernel(
+    final String name,
+    final SGKernelExecutableType executable)
+  {
+    return SGKernelExecutableDescription.builder()
+      .setDescription(
+        SGKernelDescription.builder()
+          .setCompatibility(SGKernelCompatibility.of(ARCH_0))
+          .setName(name)
+          .setVersion(SGVersion.of(1, 0, 0))
+          .setSizeOctets(BigInteger.ONE)
+          .build())
+      .setExecutable(executable)
+      .build();
+  }
+
+  /**
+   * Boot a computer with a kernel that captures its context, and tick once. If {@code run} is
+   * {@code true}, the kernel runs processes on each tick, and otherwise suspends itself.
+   */
+
+  private static ProcessKernel bootProcessKernel(
+    final SGSimulationType sim,
+    final boolean run)
+    throws Exception
+  {
+    final var contexts = new ArrayList<SGKernelContextType>();
+    final var kernel =
+      tickingKernel("PROCS", (simulation, context, parameters) -> {
+        contexts.add(context);
+        return new TickingKernel()
+        {
+          @Override
+          public void onTick(final SGKernelTickType tick)
+          {
+            if (run) {
+              tick.consume(context.processes().run(tick.budgetRemaining()));
+            } else {
+              tick.suspend();
+            }
+          }
+        };
+      });
+
+    final var device =
+      sim.createStorageDevice(
+        SGStorageDeviceDescription.builder()
+          .addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0))
+          .setSpaceCapacityOctets(BigInteger.TEN)
+          .addKernels(kernel)
+          .build());
+    final var computer =
+      sim.createComputer(
+        SGComputerDescription.builder()
+          .setArchitecture(ARCH_0)
+          .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+          .build());
+    device.connectors().get(0).connectTo(computer.sockets().get(0));
+    computer.boot(List.of(SGComputerBootOrderItem.of(
+      "PROCS",
+      SGVersion.of(1, 0, 0),
+      new Properties(),
+      device)));
+    sim.tick(1.0 / 60.0);
+
+    return new ProcessKernel(computer, device, contexts.get(0));
+  }
+
+  private static final class ProcessKernel
+  {
+    private final SGComputerType computer;
+    private final SGStorageDeviceType device;
+    private final SGKernelContextType context;
+
+    ProcessKernel(
+      final SGComputerType in_computer,
+      final SGStorageDeviceType in_device,
+      final SGKernelContextType in_context)
+    {
+      this.computer = Objects.requireNonNull(in_computer, "computer");
+      this.device = Objects.requireNonNull(in_device, "device");
+      this.context = Objects.requireNonNull(in_context, "context");
+    }
+
+    SGComputerType computer()
+    {
+      return this.computer;
+    }
+
+    SGStorageDeviceType device()
+    {
+      return this.device;
+    }
+
+    SGKernelContextType context()
+    {
+      return this.context;
+    }
+  }
+
+  private abstract static class TickingKernel implements SGKernelType
+  {
+    @Override
+    public final void onStart()
+    {
+
+    }
+
+    @Override
+    public final void onShutDown()
+    {
+
+    }
+  }
+
+  @Test
+  public final void testKernelTick()
+    throws Exception
+  {
+    final var configuration =
+      SGSimulationConfiguration.builder()
+        .setKernelTickBudget(100L)
+        .build();
+
+    final var work = new ArrayList<List<Long>>();
+    final var sleeps = new ArrayList<Long>();
+    final var fails = new ArrayList<Long>();
+
+    final var kernels = List.of(
+      tickingKernel("WORK", (simulation, context, parameters) -> new TickingKernel()
+      {
+        @Override
+        public void onTick(final SGKernelTickType tick)
+        {
+          work.add(List.of(Long.valueOf(tick.frame()), Long.valueOf(tick.budgetRemaining())));
+          Assertions.assertFalse(tick.consume(250L));
+          Assertions.assertEquals(0L, tick.budgetRemaining());
+        }
+      }),
+      tickingKernel("SLEEP", (simulation, context, parameters) -> new TickingKernel()
+      {
+        @Override
+        public void onTick(final SGKernelTickType tick)
+        {
+          sleeps.add(Long.valueOf(tick.frame()));
+          tick.sleep(2L);
+        }
+      }),
+      tickingKernel("FAIL", (simulation, context, parameters) -> new TickingKernel()
+      {
+        @Override
+        public void onTick(final SGKernelTickType tick)
+          throws IOException
+        {
+          fails.add(Long.valueOf(tick.frame()));
+          throw new IOException("boom");
+        }
+      }),
+      SGKernelHelloWorld.get(ARCH_0, BigInteger.ONE));
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var device_description = SGStorageDeviceDescription.builder();
+      for (var index = 0; index < kernels.size(); ++index) {
+        device_description.addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0));
+      }
+      device_description.setSpaceCapacityOctets(BigInteger.valueOf(1_000L));
+      device_description.addAllKernels(kernels);
+      final var device = sim.createStorageDevice(device_description.build());
+
+      final var computers = new ArrayList<SGComputerType>();
+      final var transaction = sim.topologyTransaction();
+      for (var index = 0; index < kernels.size(); ++index) {
+        final var computer =
+          sim.createComputer(
+            SGComputerDescription.builder()
+              .setArchitecture(ARCH_0)
+              .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+              .build());
+        transaction.connect(device.connectors().get(index), computer.sockets().get(0));
+        computers.add(computer);
+
+        final var kernel = kernels.get(index).description();
+        computer.boot(List.of(SGComputerBootOrderItem.of(
+          kernel.name(),
+          kernel.version(),
+          new Properties(),
+          device)));
+      }
+      transaction.commit();
+
+      sim.tick(1.0 / 60.0);
+      sim.advance(5L, 1.0 / 60.0);
+
+      /*
+       * The working kernel overspends its budget by 150 units on its first tick, and by 200 units
+       * on its second, and the debt is repaid by skipping ticks.
+       */
+
+      Assertions.assertEquals(
+        List.of(
+          List.of(Long.valueOf(1L), Long.valueOf(100L)),
+          List.of(Long.valueOf(3L), Long.valueOf(50L)),
+          List.of(Long.valueOf(6L), Long.valueOf(100L))),
+        work);
+
+      /*
+       * The sleeping kernel sleeps for two ticks, and so is skipped on frames 2 and 3, and on
+       * frames 5 and 6.
+       */
+
+      Assertions.assertEquals(List.of(Long.valueOf(1L), Long.valueOf(4L)), sleeps);
+      Assertions.assertEquals(List.of(Long.valueOf(1L)), fails);
+      Assertions.assertEquals(
+        "kernel tick failed: boom",
+        computers.get(2).console().read(0L).get(0).text());
+
+      computers.get(1).shutdown();
+      sim.advance(4L, 1.0 / 60.0);
+      Assertions.assertEquals(2, sleeps.size());
+      Assertions.assertTrue(computers.get(3).isRunning());
+    }
+  }
+
+  @Test
+  public final void testKernelSleepDestroyed()
+    throws Exception
+  {
+    final var kernel =
+      tickingKernel("SLEEPY", (simulation, context, parameters) -> new TickingKernel()
+      {
+        @Override
+        public void onTick(final SGKernelTickType tick)
+        {
+          tick.sleep(Long.MAX_VALUE);
+        }
+      });
+
+    try (var sim = this.createSimulation(SGSimulationConfiguration.builder().build())) {
+      final var device =
+        sim.createStorageDevice(
+          SGStorageDeviceDescription.builder()
+            .addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0))
+            .setSpaceCapacityOctets(BigInteger.TEN)
+            .addKernels(kernel)
+            .build());
+
+      final var computer =
+        sim.createComputer(
+          SGComputerDescription.builder()
+            .setArchitecture(ARCH_0)
+            .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+            .build());
+      device.connectors().get(0).connectTo(computer.sockets().get(0));
+      final var order =
+        List.of(SGComputerBootOrderItem.of("SLEEPY", SGVersion.of(1, 0, 0), new Properties(), device));
+
+      /*
+       * Kernels that are shut down or destroyed while sleeping forever are removed from the
+       * scheduler immediately, so repeated cycles do not accumulate sleeping kernels.
+       */
+
+      for (int cycle = 0; cycle < 3; ++cycle) {
+        computer.boot(order);
+        sim.advance(2L, 1.0 / 60.0);
+        Assertions.assertEquals(SGKernelStatistics.of(0, 1), sim.kernelStatistics());
+        computer.shutdown();
+        sim.tick(1.0 / 60.0);
+        Assertions.assertEquals(SGKernelStatistics.of(0, 0), sim.kernelStatistics());
+      }
+
+      computer.boot(order);
+      sim.advance(2L, 1.0 / 60.0);
+      Assertions.assertEquals(SGKernelStatistics.of(0, 1), sim.kernelStatistics());
+      computer.close();
+      sim.tick(1.0 / 60.0);
+      Assertions.assertEquals(SGKernelStatistics.of(0, 0), sim.kernelStatistics());
+    }
+  }
+
+  private static SGProgramExecutableType program(
+    final long units,
+    final int runs,
+    final boolean crash)
+  {
+    return arguments -> new SGProgramType()
+    {
+      private int count;
+
+      @Override
+      public void onStart(final SGProgramContextType context)
+      {
+        Assertions.assertEquals(arguments, context.arguments());
+      }
+
+      @Override
+      public void onRun(final SGProgramContextType context)
+      {
+        if (crash) {
+          throw new IllegalStateException("crash");
+        }
+        context.consume(units);
+        this.count = this.count + 1;
+        if (this.count == runs) {
+          context.exit();
+        }
+      }
+
+      @Override
+      public SGProgramExitCode onExit(final SGProgramContextType context)
+      {
+        return SGProgramExitCode.EXIT_SUCCESS;
+      }
+    };
+  }
+
+  @Test
+  public final void testProcessScheduler()
+    throws Exception
+  {
+    final var configuration =
+      SGSimulationConfiguration.builder()
+        .setKernelTickBudget(100L)
+        .setProgramTimeSlice(10L)
+        .build();
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var context = bootProcessKernel(sim, true).context();
+      final var processes = context.processes();
+      Assertions.assertEquals(0, processes.processCount());
+
+      final var crasher = processes.spawn(program(1L, 1, true), List.of("crash"));
+      final var hog0 = processes.spawn(program(10L, -1, false), List.of("hog0"));
+      final var hog1 = processes.spawn(program(10L, -1, false), List.of("hog1"));
+      Assertions.assertEquals(3, processes.processCount());
+      Assertions.assertEquals(Optional.of(hog0), processes.process(hog0.id()));
+
+      sim.tick(1.0 / 60.0);
+      Assertions.assertEquals(Optional.of(SGProgramExitCode.EXIT_FAILURE), crasher.exitCode());
+      Assertions.assertEquals(Optional.empty(), processes.process(crasher.id()));
+
+      /*
+       * The final slice of the tick is one unit short, but the second hog overruns it.
+       */
+
+      Assertions.assertEquals(50L, hog0.cpuUnits());
+      Assertions.assertEquals(50L, hog1.cpuUnits());
+      Assertions.assertEquals(101L, processes.cpuUnits());
+
+      Assertions.assertEquals(900L, processes.run(900L));
+      Assertions.assertEquals(500L, hog0.cpuUnits());
+      Assertions.assertEquals(500L, hog1.cpuUnits());
+
+      /*
+       * A process spawned late starts level with the others rather than monopolizing the CPU.
+       */
+
+      final var hog2 = processes.spawn(program(10L, -1, false), List.of("hog2"));
+      processes.run(300L);
+      Assertions.assertEquals(600L, hog0.cpuUnits());
+      Assertions.assertEquals(600L, hog1.cpuUnits());
+      Assertions.assertEquals(100L, hog2.cpuUnits());
+
+      Assertions.assertTrue(processes.kill(hog0.id()));
+      Assertions.assertFalse(processes.kill(hog0.id()));
+      Assertions.assertFalse(hog0.isRunning());
+      processes.run(100L);
+      Assertions.assertEquals(600L, hog0.cpuUnits());
+      Assertions.assertEquals(Optional.of(SGProgramExitCode.EXIT_FAILURE), hog0.exitCode());
+
+      Assertions.assertTrue(processes.kill(hog1.id()));
+      Assertions.assertTrue(processes.kill(hog2.id()));
+
+      final var counter = processes.spawn(program(4L, 3, false), List.of());
+      processes.run(1000L);
+      Assertions.assertEquals(Optional.of(SGProgramExitCode.EXIT_SUCCESS), counter.exitCode());
+      Assertions.assertEquals(12L, counter.cpuUnits());
+      Assertions.assertEquals(0, processes.processCount());
+
+      final var spawned = new ArrayList<SGProcessType>();
+      for (int index = 0; index < 20_000; ++index) {
+        spawned.add(processes.spawn(program(1L, 2, false), List.of()));
+      }
+      Assertions.assertEquals(20_000, processes.processCount());
+      Assertions.assertEquals(40_000L, processes.run(Long.MAX_VALUE));
+      Assertions.assertEquals(0, processes.processCount());
+      for (final var process : spawned) {
+        Assertions.assertEquals(Optional.of(SGProgramExitCode.EXIT_SUCCESS), process.exitCode());
+      }
+
+      /*
+       * A process that overruns its slice by an enormous amount saturates the accounting rather
+       * than overflowing it, and is then scheduled after every other process.
+       */
+
+      final var greedy = processes.spawn(program(Long.MAX_VALUE, -1, false), List.of());
+      final var hog3 = processes.spawn(program(10L, -1, false), List.of());
+      Assertions.assertEquals(Long.MAX_VALUE, processes.run(100L));
+      Assertions.assertEquals(Long.MAX_VALUE, greedy.cpuUnits());
+      Assertions.assertEquals(Long.MAX_VALUE, processes.cpuUnits());
+      Assertions.assertEquals(0L, hog3.cpuUnits());
+
+      Assertions.assertEquals(100L, processes.run(100L));
+      Assertions.assertEquals(Long.MAX_VALUE, greedy.cpuUnits());
+      Assertions.assertEquals(100L, hog3.cpuUnits());
+      Assertions.assertEquals(Long.MAX_VALUE, processes.cpuUnits());
+    }
+  }
+
+  @Test
+  public final void testSystemCalls()
+    throws Exception
+  {
+    final var configuration =
+      SGSimulationConfiguration.builder()
+        .setProgramSystemCallRingSize(4)
+        .build();
+
+    final var programs = new ArrayList<SGProgramContextType>();
+    final SGProgramExecutableType idle =
+      arguments -> new SGProgramType()
+      {
+        @Override
+        public void onStart(final SGProgramContextType context)
+        {
+          programs.add(context);
+        }
+
+        @Override
+        public void onRun(final SGProgramContextType context)
+        {
+          context.consume(1L);
+        }
+
+        @Override
+        public SGProgramExitCode onExit(final SGProgramContextType context)
+        {
+          return SGProgramExitCode.EXIT_SUCCESS;
+        }
+      };
+
+    final var received = new ArrayList<List<Object>>();
+    final SGSystemCallCompletionReceiverType<List<List<Object>>> receiver =
+      (list, tag, call, status, result) -> list.add(List.of(tag, call, status, result));
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var booted = bootProcessKernel(sim, false);
+      final var computer = booted.computer();
+      final var context = booted.context();
+      final var processes = context.processes();
+      final var parent = processes.spawn(idle, List.of("parent"));
+      final var calls = programs.get(0).systemCalls();
+      Assertions.assertEquals(4, calls.capacity());
+
+      /*
+       * Submissions are queued without being executed, up to the capacity of the ring.
+       */
+
+      Assertions.assertTrue(calls.submitWriteConsole(1L, "100% done"));
+      Assertions.assertTrue(calls.submitSpawn(2L, idle, List.of("child")));
+      Assertions.assertTrue(calls.submitDeviceSpaceAvailable(3L, 0));
+      Assertions.assertTrue(calls.submitDeviceSpaceAvailable(4L, 7));
+      Assertions.assertFalse(calls.submitWriteConsole(5L, "dropped"));
+      Assertions.assertEquals(4, calls.submissionsPending());
+      Assertions.assertEquals(1, processes.processCount());
+
+      processes.run(1L);
+      Assertions.assertEquals(0, calls.submissionsPending());
+      Assertions.assertEquals(4, calls.completionsPending());
+      Assertions.assertEquals(2, processes.processCount());
+      Assertions.assertEquals(List.of("child"), programs.get(1).arguments());
+
+      final var lines = computer.console().read(0L);
+      Assertions.assertEquals("100% done", lines.get(lines.size() - 1).text());
+
+      Assertions.assertEquals(4, calls.receiveCompletions(received, receiver));
+      Assertions.assertEquals(0, calls.completionsPending());
+      Assertions.assertEquals(
+        List.of(
+          List.of(1L, SGSystemCall.WRITE_CONSOLE, SGSystemCallStatus.SUCCEEDED, 0L),
+          List.of(2L, SGSystemCall.SPAWN, SGSystemCallStatus.SUCCEEDED, (long) programs.get(1).processId()),
+          List.of(
+            3L,
+            SGSystemCall.DEVICE_SPACE_AVAILABLE,
+            SGSystemCallStatus.SUCCEEDED,
+            booted.device().spaceAvailableOctets().longValueExact()),
+          List.of(4L, SGSystemCall.DEVICE_SPACE_AVAILABLE, SGSystemCallStatus.FAILED, 0L)),
+        received);
+
+      /*
+       * A full completion ring holds back further submissions until completions are received.
+       */
+
+      for (long tag = 10L; tag < 14L; ++tag) {
+        Assertions.assertTrue(calls.submitDeviceSpaceAvailable(tag, 0));
+      }
+      processes.run(1L);
+      for (long tag = 14L; tag < 18L; ++tag) {
+        Assertions.assertTrue(calls.submitDeviceSpaceAvailable(tag, 0));
+      }
+      processes.run(1L);
+      Assertions.assertEquals(4, calls.submissionsPending());
+      Assertions.assertEquals(4, calls.completionsPending());
+
+      received.clear();
+      Assertions.assertEquals(4, calls.receiveCompletions(received, receiver));
+      Assertions.assertEquals(10L, received.get(0).get(0));
+      processes.run(1L);
+      Assertions.assertEquals(0, calls.submissionsPending());
+
+      received.clear();
+      Assertions.assertEquals(4, calls.receiveCompletions(received, receiver));
+      Assertions.assertEquals(14L, received.get(0).get(0));
+
+      /*
+       * Calls submitted by a process that has exited still execute, but nothing completes.
+       */
+
+      /*
+       * Spawn arguments are validated on submission. A call that raises an exception fails
+       * without disturbing the other calls in the batch.
+       */
+
+      final var arguments_bad = new ArrayList<String>();
+      arguments_bad.add(null);
+      Assertions.assertThrows(
+        NullPointerException.class,
+        () -> calls.submitSpawn(30L, idle, arguments_bad));
+
+      final var arguments_mutable = new ArrayList<String>();
+      arguments_mutable.add("copied");
+      Assertions.assertTrue(calls.submitWriteConsole(31L, "explode"));
+      Assertions.assertTrue(calls.submitSpawn(32L, idle, arguments_mutable));
+      Assertions.assertTrue(calls.submitWriteConsole(33L, "fine"));
+      arguments_mutable.set(0, "modified");
+
+      computer.console().lines().subscribe(new Observer<>()
+      {
+        @Override
+        public void onSubscribe(final Disposable disposable)
+        {
+
+        }
+
+        @Override
+        public void onNext(final SGConsoleLine line)
+        {
+          if ("explode".equals(line.text())) {
+            throw new IllegalStateException("explode");
+          }
+        }
+
+        @Override
+        public void onError(final Throwable error)
+        {
+
+        }
+
+        @Override
+        public void onComplete()
+        {
+
+        }
+      });
+      processes.run(1L);
+
+      Assertions.assertEquals(0, calls.submissionsPending());
+      Assertions.assertEquals(List.of("copied"), programs.get(programs.size() - 1).arguments());
+      received.clear();
+      Assertions.assertEquals(3, calls.receiveCompletions(received, receiver));
+      Assertions.assertEquals(
+        List.of(
+          List.of(31L, SGSystemCall.WRITE_CONSOLE, SGSystemCallStatus.FAILED, 0L),
+          List.of(
+            32L,
+            SGSystemCall.SPAWN,
+            SGSystemCallStatus.SUCCEEDED,
+            (long) programs.get(programs.size() - 1).processId()),
+          List.of(33L, SGSystemCall.WRITE_CONSOLE, SGSystemCallStatus.SUCCEEDED, 0L)),
+        received);
+
+      Assertions.assertTrue(calls.submitWriteConsole(20L, "goodbye"));
+      Assertions.assertTrue(processes.kill(parent.id()));
+      processes.run(1L);
+      final var after = computer.console().read(0L);
+      Assertions.assertEquals("goodbye", after.get(after.size() - 1).text());
+      Assertions.assertEquals(0, calls.completionsPending());
+    }
+  }
+
+  @Test
+  public final void testMachine()
+    throws Exception
+  {
+    final var instruction_set =
+      SGMachineInstructionSet.builder()
+        .setArchitecture(ARCH_0)
+        .putCycles(SGMachineOpcode.MULTIPLY, 5)
+        .build();
+
+    final var configuration =
+      SGSimulationConfiguration.builder()
+        .setProgramTimeSlice(10L)
+        .addMachineInstructionSets(instruction_set)
+        .build();
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var booted = bootProcessKernel(sim, false);
+      final var computer = booted.computer();
+      final var context = booted.context();
+      final var machine = context.machine();
+      final var processes = context.processes();
+      Assertions.assertEquals(instruction_set, machine.instructionSet());
+
+      /*
+       * Sum the squares of 1..40 and check the result via memory. Each iteration of the loop
+       * takes 5 + 1 + 1 + 1 cycles, and every slice boundary is crossed with exact accounting.
+       */
+
+      final var squares =
+        processes.spawn(machine.executable(new int[]{
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(1, 0, 40),
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(2, 0, 0),
+          SGMachineOpcode.MULTIPLY.encode(3, 1, 1),
+          SGMachineOpcode.ADD.encode(2, 2, 3),
+          SGMachineOpcode.ADD_IMMEDIATE.encode(1, 1, -1),
+          SGMachineOpcode.BRANCH_NOT_ZERO.encode(1, 0, -3),
+          SGMachineOpcode.STORE.encode(2, 0, 0),
+          SGMachineOpcode.LOAD.encode(4, 0, 0),
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(5, 0, 22140),
+          SGMachineOpcode.SUBTRACT.encode(6, 4, 5),
+          SGMachineOpcode.EXIT.encode(6, 0, 0),
+        }, 1), List.of());
+
+      processes.run(Long.MAX_VALUE);
+      Assertions.assertEquals(Optional.of(SGProgramExitCode.EXIT_SUCCESS), squares.exitCode());
+      Assertions.assertEquals(2L + (40L * 8L) + 7L, squares.cpuUnits());
+
+      /*
+       * A loop of a million iterations.
+       */
+
+      final var counter =
+        processes.spawn(machine.executable(new int[]{
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(1, 0, 1000),
+          SGMachineOpcode.MULTIPLY.encode(1, 1, 1),
+          SGMachineOpcode.ADD_IMMEDIATE.encode(1, 1, -1),
+          SGMachineOpcode.BRANCH_NOT_ZERO.encode(1, 0, -1),
+          SGMachineOpcode.EXIT.encode(1, 0, 0),
+        }, 0), List.of());
+
+      processes.run(Long.MAX_VALUE);
+      Assertions.assertEquals(Optional.of(SGProgramExitCode.EXIT_SUCCESS), counter.exitCode());
+      Assertions.assertEquals(1L + 5L + 2_000_000L + 1L, counter.cpuUnits());
+
+      /*
+       * Faults and unsuccessful exits.
+       */
+
+      final var divider =
+        processes.spawn(machine.executable(new int[]{
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(1, 0, 7),
+          SGMachineOpcode.DIVIDE.encode(2, 1, 0),
+          SGMachineOpcode.EXIT.encode(0, 0, 0),
+        }, 0), List.of());
+
+      processes.run(Long.MAX_VALUE);
+      Assertions.assertEquals(Optional.of(SGProgramExitCode.EXIT_FAILURE), divider.exitCode());
+      Assertions.assertEquals(21L, divider.cpuUnits());
+      final var lines = computer.console().read(0L);
+      Assertions.assertEquals(
+        "machine fault at 1: division by zero",
+        lines.get(lines.size() - 1).text());
+
+      final var loader =
+        processes.spawn(machine.executable(new int[]{
+          SGMachineOpcode.LOAD.encode(1, 0, 4),
+        }, 4), List.of());
+      final var runaway =
+        processes.spawn(machine.executable(new int[]{
+          SGMachineOpcode.NOP.encode(0, 0, 0),
+        }, 0), List.of());
+      final var failure =
+        processes.spawn(machine.executable(new int[]{
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(1, 0, 1),
+          SGMachineOpcode.EXIT.encode(1, 0, 0),
+        }, 0), List.of());
+
+      processes.run(Long.MAX_VALUE);
+      Assertions.assertEquals(Optional.of(SGProgramExitCode.EXIT_FAILURE), loader.exitCode());
+      Assertions.assertEquals(Optional.of(SGProgramExitCode.EXIT_FAILURE), runaway.exitCode());
+      Assertions.assertEquals(Optional.of(SGProgramExitCode.EXIT_FAILURE), failure.exitCode());
+      Assertions.assertEquals(2L, failure.cpuUnits());
+      Assertions.assertEquals(0, processes.processCount());
+
+      Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> SGMachineOpcode.ADD.encode(16, 0, 0));
+      Assertions.assertThrows(
+        IllegalArgumentException.class,
+        () -> SGMachineOpcode.LOAD_IMMEDIATE.encode(0, 0, 40000));
+    }
+  }
+
+  /**
+   * Run a set of machine programs to completion, returning the exit code and the cycles taken by
+   * each, followed by the number of blocks translated.
+   */
+
+  private List<Object> runMachinePrograms(
+    final int threshold)
+    throws Exception
+  {
+    final var configuration =
+      SGSimulationConfiguration.builder()
+        .setProgramTimeSlice(7L)
+        .setMachineTranslationThreshold(threshold)
+        .build();
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var booted = bootProcessKernel(sim, false);
+      final var computer = booted.computer();
+      final var context = booted.context();
+      final var machine = context.machine();
+      final var processes = context.processes();
+
+      final var squares =
+        processes.spawn(machine.executable(new int[]{
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(1, 0, 40),
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(2, 0, 0),
+          SGMachineOpcode.MULTIPLY.encode(3, 1, 1),
+          SGMachineOpcode.ADD.encode(2, 2, 3),
+          SGMachineOpcode.ADD_IMMEDIATE.encode(1, 1, -1),
+          SGMachineOpcode.BRANCH_NOT_ZERO.encode(1, 0, -3),
+          SGMachineOpcode.STORE.encode(2, 0, 0),
+          SGMachineOpcode.LOAD.encode(4, 0, 0),
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(5, 0, 22140),
+          SGMachineOpcode.SUBTRACT.encode(6, 4, 5),
+          SGMachineOpcode.EXIT.encode(6, 0, 0),
+        }, 1), List.of());
+
+      final var filler =
+        processes.spawn(machine.executable(new int[]{
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(1, 0, 0),
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(2, 0, 1),
+          SGMachineOpcode.STORE.encode(1, 1, 0),
+          SGMachineOpcode.ADD.encode(1, 1, 2),
+          SGMachineOpcode.JUMP.encode(0, 0, -2),
+        }, 50), List.of());
+
+      final var divider =
+        processes.spawn(machine.executable(new int[]{
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(1, 0, 30),
+          SGMachineOpcode.LOAD_IMMEDIATE.encode(2, 0, 1000),
+          SGMachineOpcode.DIVIDE.encode(3, 2, 1),
+          SGMachineOpcode.SHIFT_LEFT.encode(4, 3, 1),
+          SGMachineOpcode.ADD_IMMEDIATE.encode(1, 1, -1),
+          SGMachineOpcode.JUMP.encode(0, 0, -3),
+        }, 0), List.of());
+
+      processes.run(Long.MAX_VALUE);
+      Assertions.assertEquals(0, processes.processCount());
+
+      final var lines = computer.console().read(0L);
+      return List.of(
+        squares.exitCode(),
+        Long.valueOf(squares.cpuUnits()),
+        filler.exitCode(),
+        Long.valueOf(filler.cpuUnits()),
+        divider.exitCode(),
+        Long.valueOf(divider.cpuUnits()),
+        lines.get(lines.size() - 2).text(),
+        lines.get(lines.size() - 1).text(),
+        Long.valueOf(machine.translatedBlocks()));
+    }
+  }
+
+  @Test
+  public final void testMachineTranslation()
+    throws Exception
+  {
+    final var interpreted = this.runMachinePrograms(Integer.MAX_VALUE);
+    Assertions.assertEquals(
+      List.of(
+        Optional.of(SGProgramExitCode.EXIT_SUCCESS),
+        Long.valueOf(2L + (40L * 6L) + 7L),
+        Optional.of(SGProgramExitCode.EXIT_FAILURE),
+        Long.valueOf(2L + (50L * 4L) + 2L),
+        Optional.of(SGProgramExitCode.EXIT_FAILURE),
+        Long.valueOf(2L + (30L * 23L) + 20L),
+        "machine fault at 2: memory address out of range",
+        "machine fault at 2: division by zero",
+        Long.valueOf(0L)),
+      interpreted);
+
+    /*
+     * Translation changes neither the results nor the cycles taken, whether the programs
+     * fault inside translated blocks or not.
+     */
+
+    for (final var threshold : List.of(Integer.valueOf(1), Integer.valueOf(3))) {
+      final var translated = this.runMachinePrograms(threshold.intValue());
+      Assertions.assertEquals(
+        interpreted.subList(0, interpreted.size() - 1),
+        translated.subList(0, translated.size() - 1));
+      Assertions.assertNotEquals(Long.valueOf(0L), translated.get(translated.size() - 1));
+    }
+  }
+
+  @Test
+  public final void testBootScheduled()
+    throws Exception
+  {
+    final var configuration =
+      SGSimulationConfiguration.builder()
+        .setBootConcurrency(2)
+        .setBootLatencyTicks(3L)
+        .build();
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var device_description = SGStorageDeviceDescription.builder();
+      for (var index = 0; index < 5; ++index) {
+        device_description.addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0));
+      }
+      device_description.setSpaceCapacityOctets(BigInteger.valueOf(1_000_000_000L));
+      device_description.addKernels(SGKernelHelloWorld.get(ARCH_0, BigInteger.ONE));
+      final var device = sim.createStorageDevice(device_description.build());
+
+      final var computers = new ArrayList<SGComputerType>();
+      final var transaction = sim.topologyTransaction();
+      for (var index = 0; index < 5; ++index) {
+        final var computer =
+          sim.createComputer(
+            SGComputerDescription.builder()
+              .setArchitecture(ARCH_0)
+              .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+              .build());
+        transaction.connect(device.connectors().get(index), computer.sockets().get(0));
+        computers.add(computer);
+      }
+      transaction.commit();
+      sim.tick(1.0 / 60.0);
+
+      for (final var computer : computers) {
+        computer.boot(List.of(SGComputerBootOrderItem.of(
+          "HELLO",
+          SGVersion.of(0, 1, 0),
+          new Properties(),
+          device)));
+      }
+
+      sim.tick(1.0 / 60.0);
+      Assertions.assertEquals(3, sim.bootStatistics().queued());
+      Assertions.assertEquals(2, sim.bootStatistics().inProgress());
+      Assertions.assertEquals(0L, sim.bootStatistics().completed());
+
+      sim.advance(3L, 1.0 / 60.0);
+      Assertions.assertEquals(2L, sim.bootStatistics().completed());
+      Assertions.assertEquals(2L, sim.bootStatistics().completedLastTick());
+      Assertions.assertEquals(2, sim.bootStatistics().inProgress());
+      Assertions.assertTrue(computers.get(0).isRunning());
+
+      sim.advance(6L, 1.0 / 60.0);
+      final var statistics = sim.bootStatistics();
+      Assertions.assertEquals(0, statistics.queued());
+      Assertions.assertEquals(0, statistics.inProgress());
+      Assertions.assertEquals(5L, statistics.completed());
+      Assertions.assertEquals(0L, statistics.failed());
+      Assertions.assertEquals(6L, statistics.latencyP50Ticks());
+      Assertions.assertEquals(9L, statistics.latencyP90Ticks());
+      Assertions.assertEquals(9L, statistics.latencyMaxTicks());
+    }
+  }
+
+  @Test
+  public final void testBootCancelledByDestroy()
+    throws Exception
+  {
+    final var configuration =
+      SGSimulationConfiguration.builder()
+        .setBootConcurrency(1)
+        .setBootLatencyTicks(3L)
+        .build();
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var booted = new ArrayList<SGComputerEventBooted>();
+      sim.eventsOfType(SGComputerEventBooted.class).subscribe(booted::add);
+      final var booting = new ArrayList<SGComputerEventBooting>();
+      sim.eventsOfType(SGComputerEventBooting.class).subscribe(booting::add);
+
+      final var computers = bootHelloComputers(sim, 2);
+      sim.tick(1.0 / 60.0);
+      Assertions.assertEquals(1, sim.bootStatistics().inProgress());
+      Assertions.assertEquals(1, sim.bootStatistics().queued());
+
+      /*
+       * Destroy one computer during its power-on self test, and the other while it is queued.
+       */
+
+      computers.get(0).close();
+      computers.get(1).close();
+      sim.advance(10L, 1.0 / 60.0);
+
+      final var statistics = sim.bootStatistics();
+      Assertions.assertEquals(0, statistics.queued());
+      Assertions.assertEquals(0, statistics.inProgress());
+      Assertions.assertEquals(0L, statistics.completed());
+      Assertions.assertEquals(2L, statistics.failed());
+      Assertions.assertEquals(List.of(), booted);
+      Assertions.assertEquals(List.of(SGComputerEventBooting.of(computers.get(0).id())), booting);
+      for (final var computer : computers) {
+        Assertions.assertFalse(computer.isRunning());
+      }
+    }
+  }
+
+  private static List<SGComputerType> bootHelloComputers(
+    final SGSimulationType sim,
+    final int count)
+  {
+    final var device_description = SGStorageDeviceDescription.builder();
+    for (var index = 0; index < count; ++index) {
+      device_description.addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0));
+    }
+    device_description.setSpaceCapacityOctets(BigInteger.TEN);
+    device_description.addKernels(SGKernelHelloWorld.get(ARCH_0, BigInteger.ONE));
+    final var device = sim.createStorageDevice(device_description.build());
+
+    final var computers = new ArrayList<SGComputerType>();
+    for (var index = 0; index < count; ++index) {
+      final var computer =
+        sim.createComputer(
+          SGComputerDescription.builder()
+            .setArchitecture(ARCH_0)
+            .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+            .build());
+      device.connectors().get(index).connectTo(computer.sockets().get(0));
+      computers.add(computer);
+    }
+
+    for (final var computer : computers) {
+      computer.boot(List.of(SGComputerBootOrderItem.of(
+        "HELLO",
+        SGVersion.of(0, 1, 0),
+        new Properties(),
+        device)));
+    }
+    return computers;
+  }
+
+  @Test
+  public final void testBootLongLatency()
+    throws Exception
+  {
+    /*
+     * A boot cancelled during its power-on self test releases its place immediately.
+     */
+
+    try (var sim = this.createSimulation(
+      SGSimulationConfiguration.builder()
+        .setBootConcurrency(1)
+        .setBootLatencyTicks(100L)
+        .build())) {
+      final var computers = bootHelloComputers(sim, 2);
+      sim.tick(1.0 / 60.0);
+      Assertions.assertEquals(1, sim.bootStatistics().inProgress());
+      Assertions.assertEquals(1, sim.bootStatistics().queued());
+
+      computers.get(0).shutdown();
+      sim.tick(1.0 / 60.0);
+      Assertions.assertEquals(1, sim.bootStatistics().inProgress());
+      Assertions.assertEquals(0, sim.bootStatistics().queued());
+      Assertions.assertEquals(1L, sim.bootStatistics().failed());
+
+      sim.advance(100L, 1.0 / 60.0);
+      Assertions.assertEquals(1L, sim.bootStatistics().completed());
+      Assertions.assertTrue(computers.get(1).isRunning());
+    }
+
+    /*
+     * Enormous latencies do not overflow.
+     */
+
+    try (var sim = this.createSimulation(
+      SGSimulationConfiguration.builder()
+        .setBootLatencyTicks(Long.MAX_VALUE)
+        .build())) {
+      bootHelloComputers(sim, 1);
+      sim.advance(3L, 1.0 / 60.0);
+      Assertions.assertEquals(1, sim.bootStatistics().inProgress());
+      Assertions.assertEquals(0L, sim.bootStatistics().completed());
+    }
+
+    /*
+     * Latencies beyond the exact range of the histogram are limited to the maximum latency.
+     */
+
+    try (var sim = this.createSimulation(
+      SGSimulationConfiguration.builder()
+        .setBootLatencyTicks(1_500L)
+        .build())) {
+      bootHelloComputers(sim, 1);
+      sim.advance(1_502L, 1.0 / 60.0);
+      final var statistics = sim.bootStatistics();
+      Assertions.assertEquals(1L, statistics.completed());
+      Assertions.assertEquals(1_500L, statistics.latencyP50Ticks());
+      Assertions.assertEquals(1_500L, statistics.latencyMaxTicks());
+    }
+  }
+
+  @Test
+  public final void testBootCancelledByShutdown()
+    throws Exception
+  {
+    final var configuration =
+      SGSimulationConfiguration.builder()
+        .setBootLatencyTicks(3L)
+        .build();
+
+    final var started = new ArrayList<Integer>();
+    final var stopped = new ArrayList<Integer>();
+    final var kernel =
+      tickingKernel("COUNT", (simulation, context, parameters) -> new SGKernelType()
+      {
+        private final Integer number = Integer.valueOf(started.size());
+
+        @Override
+        public void onStart()
+        {
+          started.add(this.number);
+        }
+
+        @Override
+        public void onShutDown()
+        {
+          stopped.add(this.number);
+        }
+      });
+
+    try (var sim = this.createSimulation(configuration)) {
+      final var booted = new ArrayList<SGComputerEventBooted>();
+      sim.eventsOfType(SGComputerEventBooted.class).subscribe(booted::add);
+      final var shutting_down = new ArrayList<SGComputerEventShuttingDown>();
+      sim.eventsOfType(SGComputerEventShuttingDown.class).subscribe(shutting_down::add);
+      final var shut_down = new ArrayList<SGComputerEventShutDown>();
+      sim.eventsOfType(SGComputerEventShutDown.class).subscribe(shut_down::add);
+
+      final var device =
+        sim.createStorageDevice(
+          SGStorageDeviceDescription.builder()
+            .addConnectors(SGConnectorDescription.of(HARDWARE_PORT_PROTOCOL_0))
+            .setSpaceCapacityOctets(BigInteger.TEN)
+            .addKernels(kernel)
+            .build());
+      final var computer =
+        sim.createComputer(
+          SGComputerDescription.builder()
+            .setArchitecture(ARCH_0)
+            .addSockets(SGConnectorSocketDescription.of(HARDWARE_PORT_PROTOCOL_0))
+            .build());
+      device.connectors().get(0).connectTo(computer.sockets().get(0));
+
+      final var order =
+        List.of(SGComputerBootOrderItem.of("COUNT", SGVersion.of(1, 0, 0), new Properties(), device));
+
+      /*
+       * Boot and shut down a kernel normally.
+       */
+
+      computer.boot(order);
+      sim.advance(4L, 1.0 / 60.0);
+      Assertions.assertTrue(computer.isRunning());
+      computer.shutdown();
+      sim.tick(1.0 / 60.0);
+      Assertions.assertEquals(List.of(Integer.valueOf(0)), started);
+      Assertions.assertEquals(List.of(Integer.valueOf(0)), stopped);
+
+      /*
+       * Shut down during the power-on self test of the next boot. No kernel is started, the
+       * previous kernel is not shut down a second time, and no shutdown events are published.
+       */
+
+      computer.boot(order);
+      sim.tick(1.0 / 60.0);
+      Assertions.assertEquals(1, sim.bootStatistics().inProgress());
+      computer.shutdown();
+      sim.advance(10L, 1.0 / 60.0);
+
+      Assertions.assertFalse(computer.isRunning());
+      Assertions.assertEquals(List.of(Integer.valueOf(0)), started);
+      Assertions.assertEquals(List.of(Integer.valueOf(0)), stopped);
+      Assertions.assertEquals(1, booted.size());
+      Assertions.assertEquals(1, shutting_down.size());
+      Assertions.assertEquals(1, shut_down.size());
+
+      final var statistics = sim.bootStatistics();
+      Assertions.assertEquals(0, statistics.inProgress());
+      Assertions.assertEquals(1L, statistics.completed());
+      Assertions.assertEquals(1L, statistics.failed());
+
+      /*
+       * The computer can still be booted after a cancelled boot.
+       */
+
+      computer.boot(order);
+      sim.advance(4L, 1.0 / 60.0);
+      Assertions.assertTrue(computer.isRunning());
+      Assertions.assertEquals(List.of(Integer.valueOf(0), Integer.valueOf(1)), started);
+    }
+  }
+
   @Test
   public final void testCreateComputerBootInstaller()
   {
@@ -174,6 +2146,10 @@ public abstract class SGComputerContract
       device.id().toString());
 
     Assertions.assertEquals(0L, device.spaceUsedOctets().longValue());
+    Assertions.assertTrue(
+      device.kernelFor("INSTALLER", SGVersion.of(0, 1, 0), ARCH_0).isPresent());
+    Assertions.assertTrue(
+      device.kernelFor("HELLO", SGVersion.of(0, 1, 0), ARCH_0).isEmpty());
 
     connector.connectTo(socket);
     this.simulation.tick(1.0 / 60.0);
@@ -189,6 +2165,12 @@ public abstract class SGComputerContract
     this.simulation.tick(1.0 / 60.0);
     Assertions.assertFalse(computer.isRunning());
     Assertions.assertEquals(5855104L, device.spaceUsedOctets().longValue());
+    Assertions.assertTrue(
+      device.kernelFor("HELLO", SGVersion.of(0, 1, 0), ARCH_0).isPresent());
+    Assertions.assertTrue(
+      device.kernelFor("HELLO", SGVersion.of(0, 1, 1), ARCH_0).isEmpty());
+    Assertions.assertTrue(
+      device.kernelFor("HELLO", SGVersion.of(0, 1, 0), SGArchitecture.of("OTHER")).isEmpty());
 
     computer.boot(
       List.of(SGComputerBootOrderItem.of(
@@ -16,6 +16,7 @@
 
 package com.io7m.stonegarden.tests;
 
+import com.io7m.stonegarden.api.simulation.SGSimulationConfiguration;
 import com.io7m.stonegarden.api.simulation.SGSimulationType;
 import com.io7m.stonegarden.vanilla.SGSimulations;
 import org.slf4j.Logger;
@@ -24,9 +25,10 @@ import org.slf4j.LoggerFactory;
 public final class SGComputerTest extends SGComputerContract
 {
   @Override
-  protected SGSimulationType createSimulation()
+  protected SGSimulationType createSimulation(
+    final SGSimulationConfiguration configuration)
   {
-    return new SGSimulations().create();
+    return new SGSimulations().create(configuration);
   }
 
   @Override
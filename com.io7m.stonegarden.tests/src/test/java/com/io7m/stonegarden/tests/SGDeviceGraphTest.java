@@ -33,7 +33,9 @@ import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -51,6 +53,26 @@ public final class SGDeviceGraphTest
   private PublishSubject<SGEventType> events;
   private SGDeviceGraph graph;
 
+  private static SGConnectorType connector(
+    final SGDeviceType owner)
+  {
+    final var connector = Mockito.mock(SGConnectorType.class);
+    Mockito.when(connector.id()).thenReturn(UUID.randomUUID());
+    Mockito.when(connector.protocol()).thenReturn(PROTOCOL_0);
+    Mockito.when(connector.owner()).thenReturn(owner);
+    return connector;
+  }
+
+  private static SGConnectorSocketType socket(
+    final SGDeviceType owner)
+  {
+    final var socket = Mockito.mock(SGConnectorSocketType.class);
+    Mockito.when(socket.id()).thenReturn(UUID.randomUUID());
+    Mockito.when(socket.protocol()).thenReturn(PROTOCOL_0);
+    Mockito.when(socket.owner()).thenReturn(owner);
+    return socket;
+  }
+
   @BeforeEach
   public void testSetup()
   {
@@ -98,6 +120,158 @@ public final class SGDeviceGraphTest
     Assertions.assertEquals(Optional.empty(), this.graph.connectedSocket(connector));
   }
 
+  @Test
+  public void testConnectParallel()
+    throws Exception
+  {
+    final var device0 = Mockito.mock(SGDeviceType.class);
+    final var device1 = Mockito.mock(SGDeviceType.class);
+    final var device2 = Mockito.mock(SGDeviceType.class);
+
+    final var connector0 = Mockito.mock(SGConnectorType.class);
+    Mockito.when(connector0.id()).thenReturn(UUID.randomUUID());
+    Mockito.when(connector0.protocol()).thenReturn(PROTOCOL_0);
+    Mockito.when(connector0.owner()).thenReturn(device0);
+
+    final var connector1 = Mockito.mock(SGConnectorType.class);
+    Mockito.when(connector1.id()).thenReturn(UUID.randomUUID());
+    Mockito.when(connector1.protocol()).thenReturn(PROTOCOL_0);
+    Mockito.when(connector1.owner()).thenReturn(device0);
+
+    final var socket0 = Mockito.mock(SGConnectorSocketType.class);
+    Mockito.when(socket0.id()).thenReturn(UUID.randomUUID());
+    Mockito.when(socket0.protocol()).thenReturn(PROTOCOL_0);
+    Mockito.when(socket0.owner()).thenReturn(device1);
+
+    final var socket1 = Mockito.mock(SGConnectorSocketType.class);
+    Mockito.when(socket1.id()).thenReturn(UUID.randomUUID());
+    Mockito.when(socket1.protocol()).thenReturn(PROTOCOL_0);
+    Mockito.when(socket1.owner()).thenReturn(device1);
+
+    this.graph.addDevice(device2);
+    this.graph.connect(connector0, socket0);
+    this.graph.connect(connector1, socket1);
+
+    Assertions.assertTrue(this.graph.areDirectlyConnected(device0, device1));
+    Assertions.assertTrue(this.graph.areDirectlyConnected(device1, device0));
+    Assertions.assertFalse(this.graph.areDirectlyConnected(device0, device2));
+    Assertions.assertEquals(1L, this.graph.devicesConnectedTo(device0).count());
+    Assertions.assertEquals(0L, this.graph.devicesConnectedTo(device2).count());
+
+    final var visited = new ArrayList<SGDeviceType>();
+    Assertions.assertEquals(1, this.graph.forEachDeviceConnectedTo(device0, visited, ArrayList::add));
+    Assertions.assertEquals(List.of(device1), visited);
+
+    final var generation = this.graph.generation();
+    this.graph.disconnect(socket0);
+    Assertions.assertNotEquals(generation, this.graph.generation());
+    Assertions.assertTrue(this.graph.areDirectlyConnected(device0, device1));
+    Assertions.assertEquals(Optional.of(socket1), this.graph.connectedSocket(connector1));
+
+    this.graph.disconnect(connector1);
+    Assertions.assertFalse(this.graph.areDirectlyConnected(device0, device1));
+    Assertions.assertEquals(0L, this.graph.devicesConnectedTo(device1).count());
+  }
+
+  @Test
+  public void testComponents()
+    throws Exception
+  {
+    final var device0 = Mockito.mock(SGDeviceType.class);
+    final var device1 = Mockito.mock(SGDeviceType.class);
+    final var device2 = Mockito.mock(SGDeviceType.class);
+    final var device3 = Mockito.mock(SGDeviceType.class);
+    final var device4 = Mockito.mock(SGDeviceType.class);
+
+    this.graph.addDevice(device0);
+    this.graph.addDevice(device1);
+    this.graph.addDevice(device2);
+    this.graph.addDevice(device3);
+    this.graph.addDevice(device4);
+
+    Assertions.assertEquals(5, this.graph.componentCount());
+    Assertions.assertEquals(1, this.graph.largestComponentSize());
+    Assertions.assertFalse(this.graph.sameComponent(device0, device1));
+
+    final var connector01 = connector(device0);
+    final var connector12 = connector(device1);
+    final var connector23 = connector(device2);
+    final var connector30 = connector(device3);
+    this.graph.connect(connector01, socket(device1));
+    this.graph.connect(connector12, socket(device2));
+    this.graph.connect(connector23, socket(device3));
+
+    Assertions.assertEquals(2, this.graph.componentCount());
+    Assertions.assertEquals(4, this.graph.largestComponentSize());
+    Assertions.assertEquals(4, this.graph.componentSize(device3));
+    Assertions.assertEquals(1, this.graph.componentSize(device4));
+    Assertions.assertTrue(this.graph.sameComponent(device0, device3));
+    Assertions.assertFalse(this.graph.sameComponent(device0, device4));
+    Assertions.assertEquals(3, this.graph.devicesReachableFrom(device0).size());
+    Assertions.assertEquals(0, this.graph.devicesReachableFrom(device4).size());
+
+    /*
+     * Close the cycle; removing any single connection must now leave the component intact.
+     */
+
+    this.graph.connect(connector30, socket(device0));
+    this.graph.disconnect(connector12);
+    Assertions.assertEquals(2, this.graph.componentCount());
+    Assertions.assertTrue(this.graph.sameComponent(device1, device2));
+
+    this.graph.disconnect(connector30);
+    Assertions.assertEquals(3, this.graph.componentCount());
+    Assertions.assertEquals(2, this.graph.largestComponentSize());
+    Assertions.assertTrue(this.graph.sameComponent(device0, device1));
+    Assertions.assertTrue(this.graph.sameComponent(device2, device3));
+    Assertions.assertFalse(this.graph.sameComponent(device1, device2));
+    Assertions.assertNotEquals(this.graph.componentOf(device0), this.graph.componentOf(device3));
+
+    this.graph.disconnect(connector01);
+    this.graph.disconnect(connector23);
+    Assertions.assertEquals(5, this.graph.componentCount());
+    Assertions.assertEquals(1, this.graph.largestComponentSize());
+  }
+
+  @Test
+  public void testSnapshots()
+    throws Exception
+  {
+    final var devices = new ArrayList<SGDeviceType>();
+    for (var index = 0; index < 100; ++index) {
+      final var device = Mockito.mock(SGDeviceType.class);
+      devices.add(device);
+      this.graph.addDevice(device);
+    }
+
+    final var snapshot0 = this.graph.snapshot();
+    Assertions.assertEquals(0, snapshot0.componentCount());
+
+    this.graph.publishSnapshot();
+    final var snapshot1 = this.graph.snapshot();
+    Assertions.assertEquals(100, snapshot1.componentCount());
+    Assertions.assertEquals(1, snapshot1.componentSize(devices.get(99)));
+
+    for (var index = 0; index < 99; ++index) {
+      this.graph.connect(connector(devices.get(index)), socket(devices.get(index + 1)));
+    }
+    this.graph.publishSnapshot();
+    final var snapshot2 = this.graph.snapshot();
+
+    Assertions.assertEquals(100, snapshot1.componentCount());
+    Assertions.assertFalse(snapshot1.sameComponent(devices.get(0), devices.get(99)));
+    Assertions.assertFalse(snapshot1.areDirectlyConnected(devices.get(40), devices.get(41)));
+
+    Assertions.assertEquals(1, snapshot2.componentCount());
+    Assertions.assertEquals(100, snapshot2.largestComponentSize());
+    Assertions.assertTrue(snapshot2.sameComponent(devices.get(0), devices.get(99)));
+    Assertions.assertTrue(snapshot2.areDirectlyConnected(devices.get(41), devices.get(40)));
+    Assertions.assertEquals(99, snapshot2.devicesReachableFrom(devices.get(50)).size());
+
+    this.graph.publishSnapshot();
+    Assertions.assertSame(snapshot2, this.graph.snapshot());
+  }
+
   @Test
   public void testConnectedAlready0()
     throws Exception
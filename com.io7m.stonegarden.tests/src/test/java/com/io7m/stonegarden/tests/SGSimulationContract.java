@@ -16,15 +16,43 @@
 
 package com.io7m.stonegarden.tests;
 
+import com.io7m.stonegarden.api.SGArchitecture;
 import com.io7m.stonegarden.api.SGEventType;
+import com.io7m.stonegarden.api.SGVersion;
+import com.io7m.stonegarden.api.SGVersionRange;
+import com.io7m.stonegarden.api.computer.SGComputerDescription;
+import com.io7m.stonegarden.api.devices.SGDeviceEventCreated;
+import com.io7m.stonegarden.api.devices.SGStorageDeviceDescription;
+import com.io7m.stonegarden.api.devices.SGStorageDeviceKernelInterfaceType;
+import com.io7m.stonegarden.api.kernels.SGKernelCompatibility;
+import com.io7m.stonegarden.api.kernels.SGKernelDescription;
+import com.io7m.stonegarden.api.kernels.SGKernelExecutableDescription;
+import com.io7m.stonegarden.api.simulation.SGSimulationEventAdvanced;
+import com.io7m.stonegarden.api.simulation.SGSimulationEventTick;
 import com.io7m.stonegarden.api.simulation.SGSimulationType;
+import com.io7m.stonegarden.api.simulation.SGTopologyExportFormat;
+import com.io7m.stonegarden.api.simulation.SGTopologyParseException;
 import io.reactivex.disposables.Disposable;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public abstract class SGSimulationContract
 {
@@ -51,6 +79,324 @@ public abstract class SGSimulationContract
     Assertions.assertTrue(observable.isDisposed(), "Events closed");
   }
 
+  @Test
+  public final void testAdvance()
+    throws Exception
+  {
+    try (var sim = this.createSimulation()) {
+      sim.events().subscribe(this::eventPublished);
+
+      sim.advance(1000L, 1.0 / 60.0);
+      sim.advance(0L, 1.0 / 60.0);
+      sim.tick(1.0 / 60.0);
+
+      Assertions.assertEquals(2, this.events.size(), "Correct event count");
+
+      EventAssertions.isTypeAndMatches(
+        SGSimulationEventAdvanced.class,
+        this.events,
+        0,
+        e -> {
+          Assertions.assertEquals(BigInteger.valueOf(1L), e.frameFirst());
+          Assertions.assertEquals(BigInteger.valueOf(1000L), e.frameLast());
+          Assertions.assertEquals(1000L, e.ticks());
+        });
+
+      EventAssertions.isTypeAndMatches(
+        SGSimulationEventTick.class,
+        this.events,
+        1,
+        e -> Assertions.assertEquals(BigInteger.valueOf(1001L), e.frame()));
+    }
+  }
+
+
+  @Test
+  public final void testEventsOfType()
+    throws Exception
+  {
+    final Disposable observable;
+    try (var sim = this.createSimulation()) {
+      observable =
+        sim.eventsOfType(SGDeviceEventCreated.class)
+          .subscribe(this::eventPublished);
+
+      final var computer =
+        sim.createComputer(
+          SGComputerDescription.builder()
+            .setArchitecture(SGArchitecture.of("PK3"))
+            .build());
+
+      sim.tick(1.0 / 60.0);
+      computer.close();
+      sim.tick(1.0 / 60.0);
+
+      Assertions.assertEquals(1, this.events.size(), "Correct event count");
+      EventAssertions.isTypeAndMatches(
+        SGDeviceEventCreated.class,
+        this.events,
+        0,
+        e -> Assertions.assertEquals(computer.id(), e.id()));
+    }
+    Assertions.assertTrue(observable.isDisposed(), "Events closed");
+  }
+
+  @Test
+  public final void testLoadTopology()
+    throws Exception
+  {
+    final var text =
+      String.join(
+        System.lineSeparator(),
+        "# A computer with two disks",
+        "protocol GPB-0",
+        "",
+        "computer c0 PK3 sockets GPB-0 GPB-0",
+        "storage s0 1000000 connectors GPB-0",
+        "storage s1 1000000 connectors GPB-0",
+        "link s0 0 c0 0",
+        "link s1 0 c0 1");
+
+    try (var sim = this.createSimulation()) {
+      final var statistics = sim.loadTopology(new StringReader(text));
+      Assertions.assertEquals(8L, statistics.lines());
+      Assertions.assertEquals(3L, statistics.devices());
+      Assertions.assertEquals(4L, statistics.ports());
+      Assertions.assertEquals(2L, statistics.links());
+      Assertions.assertEquals(1, sim.topology().componentCount());
+      Assertions.assertEquals(3, sim.topology().largestComponentSize());
+    }
+  }
+
+  @Test
+  public final void testLoadTopologyErrors()
+    throws Exception
+  {
+    final var cases = List.of(
+      List.of("protocol GPB-0", "computer c0 PK3 sockets GPB-1"),
+      List.of("computer c0 PK3", "protocol GPB-0"),
+      List.of("protocol GPB-0", "computer c0 PK3", "computer c0 PK3"),
+      List.of("protocol GPB-0", "storage s0 large"),
+      List.of("protocol GPB-0", "storage s0 100 GPB-0"),
+      List.of("protocol GPB-0", "computer c0 PK3 sockets GPB-0", "link c0 0 c0 0"),
+      List.of("protocol GPB-0", "computer c0 PK3 sockets GPB-0", "link c1 0 c0 0"),
+      List.of(
+        "protocol GPB-0",
+        "computer c0 PK3 sockets GPB-0",
+        "storage s0 100 connectors GPB-0 GPB-0",
+        "link s0 0 c0 0",
+        "link s0 1 c0 0"),
+      List.of("protocol GPB-0", "unknown"));
+
+    for (final var lines : cases) {
+      try (var sim = this.createSimulation()) {
+        final var ex = Assertions.assertThrows(
+          SGTopologyParseException.class,
+          () -> sim.loadTopology(new StringReader(String.join("\n", lines))));
+        this.logger().debug("exception: ", ex);
+        Assertions.assertEquals((long) lines.size(), ex.line());
+      }
+    }
+  }
+
+  @Test
+  public final void testExportTopology()
+    throws Exception
+  {
+    final var text =
+      String.join(
+        System.lineSeparator(),
+        "protocol GPB<&\"'>",
+        "computer c0 PK3 sockets GPB<&\"'>",
+        "storage s0 1000000 connectors GPB<&\"'>",
+        "link s0 0 c0 0");
+
+    try (var sim = this.createSimulation()) {
+      sim.loadTopology(new StringReader(text));
+
+      final var dot = new ByteArrayOutputStream();
+      final var dot_size =
+        sim.exportTopology(Channels.newChannel(dot), SGTopologyExportFormat.DOT);
+      final var dot_text = dot.toString(StandardCharsets.UTF_8);
+      this.logger().debug("{}", dot_text);
+
+      Assertions.assertEquals(dot.size(), dot_size);
+      Assertions.assertTrue(dot_text.startsWith("graph topology {"));
+      Assertions.assertTrue(dot_text.contains("GPB<&\\\"'>"));
+      Assertions.assertEquals(3L, dot_text.lines().filter(line -> line.contains(" -- ")).count());
+
+      final var graphml = new ByteArrayOutputStream();
+      sim.exportTopology(Channels.newChannel(graphml), SGTopologyExportFormat.GRAPHML);
+
+      final var document =
+        DocumentBuilderFactory.newInstance()
+          .newDocumentBuilder()
+          .parse(new ByteArrayInputStream(graphml.toByteArray()));
+
+      Assertions.assertEquals(4, document.getElementsByTagName("node").getLength());
+      Assertions.assertEquals(3, document.getElementsByTagName("edge").getLength());
+      Assertions.assertTrue(graphml.toString(StandardCharsets.UTF_8).contains("GPB&lt;&amp;&quot;&apos;&gt;"));
+    }
+  }
+
+  @Test
+  public final void testExportTopologyUnpairedSurrogate()
+    throws Exception
+  {
+    final var text =
+      String.join(
+        System.lineSeparator(),
+        "protocol GPB\ud800x",
+        "computer c0 PK3 sockets GPB\ud800x");
+
+    try (var sim = this.createSimulation()) {
+      sim.loadTopology(new StringReader(text));
+
+      final var dot = new ByteArrayOutputStream();
+      sim.exportTopology(Channels.newChannel(dot), SGTopologyExportFormat.DOT);
+      final var dot_text = dot.toString(StandardCharsets.UTF_8);
+      Assertions.assertTrue(dot_text.contains("GPB\ufffdx"));
+      Assertions.assertArrayEquals(dot.toByteArray(), dot_text.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public final void testExportTopologyChannelFull()
+    throws Exception
+  {
+    final WritableByteChannel full =
+      new WritableByteChannel()
+      {
+        @Override
+        public int write(final ByteBuffer source)
+        {
+          return 0;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+          return true;
+        }
+
+        @Override
+        public void close()
+        {
+
+        }
+      };
+
+    try (var sim = this.createSimulation()) {
+      sim.loadTopology(new StringReader("protocol GPB-0"));
+      Assertions.assertThrows(
+        IOException.class,
+        () -> sim.exportTopology(full, SGTopologyExportFormat.DOT));
+    }
+  }
+
+  @Test
+  public final void testExportTopologyWrongThread()
+    throws Exception
+  {
+    try (var sim = this.createSimulation()) {
+      sim.tick(1.0 / 60.0);
+
+      final var result =
+        CompletableFuture.runAsync(() -> {
+          try {
+            sim.exportTopology(
+              Channels.newChannel(new ByteArrayOutputStream()),
+              SGTopologyExportFormat.DOT);
+          } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+
+      final var ex = Assertions.assertThrows(ExecutionException.class, result::get);
+      Assertions.assertEquals(IllegalStateException.class, ex.getCause().getClass());
+
+      final var dot = new ByteArrayOutputStream();
+      sim.exportTopology(Channels.newChannel(dot), SGTopologyExportFormat.DOT);
+      Assertions.assertTrue(dot.size() > 0);
+    }
+  }
+
+  private static SGKernelExecutableDescription kernel(
+    final SGArchitecture architecture,
+    final SGVersion version)
+  {
+    return SGKernelExecutableDescription.of(
+      SGKernelDescription.of(
+        "HELLO",
+        version,
+        SGKernelCompatibility.of(architecture),
+        BigInteger.ONE),
+      (simulation, context, parameters) -> {
+        throw new UnsupportedOperationException();
+      });
+  }
+
+  @Test
+  public final void testKernelCatalog()
+    throws Exception
+  {
+    try (var sim = this.createSimulation()) {
+      final var arch0 = SGArchitecture.of("PK3");
+      final var arch1 = SGArchitecture.of("PK4");
+
+      final var device0 =
+        sim.createStorageDevice(
+          SGStorageDeviceDescription.builder()
+            .setSpaceCapacityOctets(BigInteger.valueOf(1000L))
+            .addKernels(kernel(arch0, SGVersion.of(1, 0, 0)))
+            .addKernels(kernel(arch0, SGVersion.of(1, 2, 0)))
+            .addKernels(kernel(arch1, SGVersion.of(2, 0, 0)))
+            .build());
+
+      final var device1 =
+        sim.createStorageDevice(
+          SGStorageDeviceDescription.builder()
+            .setSpaceCapacityOctets(BigInteger.valueOf(1000L))
+            .addKernels(kernel(arch0, SGVersion.of(1, 1, 0)))
+            .build());
+
+      final var catalog = sim.kernelCatalog();
+      final var range =
+        SGVersionRange.of(SGVersion.of(1, 0, 0), false, SGVersion.of(2, 0, 0), true);
+      final var range_lower =
+        SGVersionRange.of(SGVersion.of(1, 0, 0), true, SGVersion.of(1, 2, 0), true);
+
+      Assertions.assertEquals(
+        SGVersion.of(1, 2, 0),
+        catalog.bestKernel("HELLO", arch0, range).orElseThrow().description().version());
+      Assertions.assertEquals(
+        SGVersion.of(1, 1, 0),
+        catalog.bestKernel("HELLO", arch0, range_lower).orElseThrow().description().version());
+      Assertions.assertEquals(
+        List.of(device0, device1),
+        catalog.devicesWithKernel("HELLO", arch0, range));
+      Assertions.assertEquals(
+        List.of(device1),
+        catalog.devicesWithKernel("HELLO", arch0, range_lower));
+      Assertions.assertTrue(catalog.bestKernel("HELLO", arch1, range).isEmpty());
+      Assertions.assertTrue(catalog.bestKernel("GOODBYE", arch0, range).isEmpty());
+
+      ((SGStorageDeviceKernelInterfaceType) device1).addKernel(kernel(arch0, SGVersion.of(1, 9, 0)));
+      sim.tick(1.0 / 60.0);
+      Assertions.assertEquals(
+        SGVersion.of(1, 9, 0),
+        catalog.bestKernel("HELLO", arch0, range).orElseThrow().description().version());
+
+      device1.close();
+      sim.tick(1.0 / 60.0);
+      Assertions.assertEquals(
+        SGVersion.of(1, 2, 0),
+        catalog.bestKernel("HELLO", arch0, range).orElseThrow().description().version());
+      Assertions.assertEquals(
+        List.of(device0),
+        catalog.devicesWithKernel("HELLO", arch0, range));
+    }
+  }
 
   private void eventPublished(
     final SGEventType event)
@@ -19,6 +19,7 @@ package com.io7m.stonegarden.tests;
 
 import com.io7m.stonegarden.api.SGVersion;
 import com.io7m.stonegarden.api.SGVersionRange;
+import com.io7m.stonegarden.api.SGVersionType;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
@@ -57,6 +58,35 @@ public final class SGVersionTest
     }
   }
 
+  @Test
+  public void testPacked()
+  {
+    final var versions =
+      List.of(
+        SGVersion.of(0, 0, 0),
+        SGVersion.of(0, 0, 2097151),
+        SGVersion.of(0, 1, 0),
+        SGVersion.of(1, 0, 0),
+        SGVersion.of(2097151, 2097151, 2097151));
+
+    for (var index = 0; index < versions.size(); ++index) {
+      final var version = versions.get(index);
+      Assertions.assertEquals(version, SGVersionType.unpack(version.packed()));
+      Assertions.assertTrue(version.packed() >= 0L);
+      if (index > 0) {
+        Assertions.assertTrue(versions.get(index - 1).packed() < version.packed());
+      }
+    }
+  }
+
+  @Test
+  public void testInvalid()
+  {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> SGVersion.of(-1, 0, 0));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> SGVersion.of(0, 2097152, 0));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> SGVersion.of(0, 0, Integer.MAX_VALUE));
+  }
+
   @Test
   public void testRangeInvalid()
   {
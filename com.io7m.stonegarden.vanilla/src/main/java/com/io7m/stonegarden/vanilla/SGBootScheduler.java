@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.computer.SGComputerBootOrderItem;
+import com.io7m.stonegarden.api.simulation.SGBootStatistics;
+import com.io7m.stonegarden.api.simulation.SGSimulationConfiguration;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * A scheduler that spreads computer boots across ticks.
+ *
+ * Boot requests are queued in the order that they are submitted. On each tick, every boot that has
+ * spent the configured number of ticks in its power-on self test is completed by loading and
+ * starting a kernel, and then queued boots are started until the configured number of boots are
+ * in progress. Boots started with a latency of zero ticks are completed immediately, so the
+ * default configuration boots every computer on the tick that its boot was requested. Because
+ * every boot spends the same number of ticks in progress, boots complete in the order that they
+ * were started, and both queues are simple FIFO queues.
+ *
+ * A boot that is cancelled by a shutdown or by the destruction of its computer releases its
+ * place among the boots in progress on the next tick, rather than when its power-on self test
+ * would have finished. Cancellations are rare, so the boots in progress are only scanned on
+ * ticks that follow a cancellation.
+ *
+ * Boot latencies are recorded in a fixed-size histogram that holds one bucket for each latency
+ * below {@value #EXACT_LATENCIES} ticks, and one bucket for each power of two above that. The
+ * reported percentiles are exact for latencies below {@value #EXACT_LATENCIES} ticks, and are
+ * otherwise the upper bound of the containing bucket, limited to the maximum recorded latency.
+ * Recording a latency does not allocate.
+ */
+
+final class SGBootScheduler
+{
+  private static final int EXACT_LATENCIES = 1024;
+
+  private final int concurrency;
+  private final long latency;
+  private final LongSupplier frame;
+  private final ArrayDeque<Request> queued;
+  private final ArrayDeque<Request> in_progress;
+  private final long[] latencies;
+  private long completed;
+  private long completed_last_tick;
+  private long failed;
+  private long latency_max;
+  private boolean cancellations;
+
+  SGBootScheduler(
+    final SGSimulationConfiguration configuration,
+    final LongSupplier in_frame)
+  {
+    Objects.requireNonNull(configuration, "configuration");
+
+    this.frame = Objects.requireNonNull(in_frame, "frame");
+    this.concurrency = configuration.bootConcurrency();
+    this.latency = configuration.bootLatencyTicks();
+    this.queued = new ArrayDeque<>();
+    this.in_progress = new ArrayDeque<>();
+    this.latencies = new long[EXACT_LATENCIES + Long.SIZE];
+  }
+
+  private static int bucketOf(
+    final long ticks)
+  {
+    if (ticks < (long) EXACT_LATENCIES) {
+      return (int) ticks;
+    }
+    return EXACT_LATENCIES + (Long.SIZE - 1 - Long.numberOfLeadingZeros(ticks));
+  }
+
+  private static long bucketLimit(
+    final int bucket)
+  {
+    if (bucket < EXACT_LATENCIES) {
+      return bucket;
+    }
+    final var power = bucket - EXACT_LATENCIES;
+    return power >= Long.SIZE - 2 ? Long.MAX_VALUE : (1L << (power + 1)) - 1L;
+  }
+
+  /**
+   * Submit a boot request.
+   *
+   * @param computer   The computer
+   * @param order      The boot order
+   * @param generation The boot generation of the computer at the time of the request
+   */
+
+  void submit(
+    final SGComputer computer,
+    final List<SGComputerBootOrderItem> order,
+    final long generation)
+  {
+    this.queued.add(new Request(computer, order, generation, this.frame.getAsLong()));
+  }
+
+  /**
+   * Note that a computer may have cancelled a boot that is in progress.
+   */
+
+  void cancelled()
+  {
+    this.cancellations = true;
+  }
+
+  /**
+   * Start and complete boots for the current tick.
+   */
+
+  void run()
+  {
+    final var now = this.frame.getAsLong();
+    this.completed_last_tick = 0L;
+    if (this.cancellations) {
+      this.cancellations = false;
+      this.removeCancelled();
+    }
+    this.completeReady(now);
+    this.startQueued(now);
+    this.completeReady(now);
+  }
+
+  private void removeCancelled()
+  {
+    final var iterator = this.in_progress.iterator();
+    while (iterator.hasNext()) {
+      final var request = iterator.next();
+      if (!request.computer.bootIsCurrent(request.generation)) {
+        iterator.remove();
+        this.failed = this.failed + 1L;
+      }
+    }
+  }
+
+  private void startQueued(
+    final long now)
+  {
+    while (this.in_progress.size() < this.concurrency && !this.queued.isEmpty()) {
+      final var request = this.queued.poll();
+      if (!request.computer.bootIsCurrent(request.generation)) {
+        this.failed = this.failed + 1L;
+        continue;
+      }
+      request.computer.bootStart();
+      request.ready = now + Math.min(this.latency, Long.MAX_VALUE - now);
+      this.in_progress.add(request);
+    }
+  }
+
+  private void completeReady(
+    final long now)
+  {
+    while (!this.in_progress.isEmpty() && this.in_progress.peek().ready <= now) {
+      final var request = this.in_progress.poll();
+      if (request.computer.bootIsCurrent(request.generation)
+        && request.computer.bootComplete(request.order)) {
+        this.completed = this.completed + 1L;
+        this.completed_last_tick = this.completed_last_tick + 1L;
+        this.recordLatency(now - request.requested);
+      } else {
+        this.failed = this.failed + 1L;
+      }
+    }
+  }
+
+  private void recordLatency(
+    final long ticks)
+  {
+    final var index = bucketOf(ticks);
+    this.latencies[index] = this.latencies[index] + 1L;
+    this.latency_max = Math.max(this.latency_max, ticks);
+  }
+
+  private long latencyPercentile(
+    final double percentile)
+  {
+    if (this.completed == 0L) {
+      return 0L;
+    }
+
+    final var rank = Math.max(1L, (long) Math.ceil(percentile * (double) this.completed));
+    var cumulative = 0L;
+    for (var index = 0; index < this.latencies.length; ++index) {
+      cumulative = cumulative + this.latencies[index];
+      if (cumulative >= rank) {
+        return Math.min(bucketLimit(index), this.latency_max);
+      }
+    }
+    return this.latency_max;
+  }
+
+  /**
+   * @return The current boot statistics
+   */
+
+  SGBootStatistics statistics()
+  {
+    return SGBootStatistics.of(
+      this.queued.size(),
+      this.in_progress.size(),
+      this.completed,
+      this.failed,
+      this.completed_last_tick,
+      this.latencyPercentile(0.5),
+      this.latencyPercentile(0.9),
+      this.latencyPercentile(0.99),
+      this.latency_max);
+  }
+
+  private static final class Request
+  {
+    private final SGComputer computer;
+    private final List<SGComputerBootOrderItem> order;
+    private final long generation;
+    private final long requested;
+    private long ready;
+
+    Request(
+      final SGComputer in_computer,
+      final List<SGComputerBootOrderItem> in_order,
+      final long in_generation,
+      final long in_requested)
+    {
+      this.computer = Objects.requireNonNull(in_computer, "computer");
+      this.order = Objects.requireNonNull(in_order, "order");
+      this.generation = in_generation;
+      this.requested = in_requested;
+    }
+  }
+}
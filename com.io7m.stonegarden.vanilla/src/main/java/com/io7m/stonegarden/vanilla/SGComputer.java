@@ -23,21 +23,29 @@ import com.io7m.stonegarden.api.computer.SGComputerEventBooted;
 import com.io7m.stonegarden.api.computer.SGComputerEventBooting;
 import com.io7m.stonegarden.api.computer.SGComputerEventShutDown;
 import com.io7m.stonegarden.api.computer.SGComputerEventShuttingDown;
+import com.io7m.stonegarden.api.computer.SGComputerEventType;
 import com.io7m.stonegarden.api.computer.SGComputerType;
+import com.io7m.stonegarden.api.computer.SGConsoleType;
 import com.io7m.stonegarden.api.devices.SGDeviceKernelInterfaceType;
+import com.io7m.stonegarden.api.devices.SGDeviceType;
 import com.io7m.stonegarden.api.kernels.SGKernelContextType;
 import com.io7m.stonegarden.api.kernels.SGKernelExecutableDescriptionType;
+import com.io7m.stonegarden.api.kernels.SGKernelTickType;
 import com.io7m.stonegarden.api.kernels.SGKernelType;
+import com.io7m.stonegarden.api.machines.SGMachineInstructionSet;
+import com.io7m.stonegarden.api.machines.SGMachineType;
+import com.io7m.stonegarden.api.programs.SGProcessSchedulerType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -52,9 +60,10 @@ final class SGComputer extends SGDevice implements SGComputerType
   private final SGComputerDescription description;
   private final AtomicBoolean running;
   private final SGSimulationInternalAPIType simulation;
-  private final LinkedList<String> text_buffer;
-  private final int text_buffer_limit;
+  private final SGConsole console;
   private SGKernelType kernel;
+  private long boot_generation;
+  private SGKernelTickScheduler.Entry tick_entry;
 
   SGComputer(
     final SGSimulationInternalAPIType in_simulation,
@@ -71,8 +80,7 @@ final class SGComputer extends SGDevice implements SGComputerType
       Objects.requireNonNull(in_description, "description");
 
     this.running = new AtomicBoolean(false);
-    this.text_buffer = new LinkedList<>();
-    this.text_buffer_limit = 80;
+    this.console = in_simulation.createConsole(in_id);
   }
 
   private static Optional<SGKernelExecutableDescriptionType> findKernelWithMatchingName(
@@ -94,33 +102,57 @@ final class SGComputer extends SGDevice implements SGComputerType
       && Objects.equals(description.version(), item.version());
   }
 
+  /**
+   * Shutting down a computer whose boot is queued or in its power-on self test cancels the boot.
+   * The kernel is only shut down, and the shutdown events are only published, if a kernel was
+   * started by the current boot.
+   */
+
   @Override
   public CompletableFuture<Void> shutdown()
   {
     return this.simulation.runLater(() -> {
       if (this.running.compareAndSet(true, false)) {
-        this.simulation.publishEvent(SGComputerEventShuttingDown.of(this.id));
-
-        if (this.kernel != null) {
-          try {
-            this.kernel.onShutDown();
-          } catch (final Exception e) {
-            this.writeConsole("kernel shutdown failed: %s", e.getMessage());
-            LOG.debug("kernel shutdown failed: ", e);
-          }
+        this.boot_generation = this.boot_generation + 1L;
+        this.simulation.bootScheduler().cancelled();
+        this.stopTicking();
+
+        final var started = this.kernel;
+        this.kernel = null;
+        if (started != null) {
+          this.shutdownKernel(started);
         }
-
-        this.simulation.publishEvent(SGComputerEventShutDown.of(this.id));
       }
     });
   }
 
+  private void shutdownKernel(
+    final SGKernelType started)
+  {
+    this.publishComputerEvent(SGComputerEventShuttingDown.class, SGComputerEventShuttingDown::of);
+
+    try {
+      started.onShutDown();
+    } catch (final Exception e) {
+      this.writeConsole("kernel shutdown failed: %s", e.getMessage());
+      LOG.debug("kernel shutdown failed: ", e);
+    }
+
+    this.publishComputerEvent(SGComputerEventShutDown.class, SGComputerEventShutDown::of);
+  }
+
   @Override
   public boolean isRunning()
   {
     return this.running.get();
   }
 
+  @Override
+  public SGConsoleType console()
+  {
+    return this.console;
+  }
+
   @Override
   public SGComputerDescription description()
   {
@@ -134,64 +166,121 @@ final class SGComputer extends SGDevice implements SGComputerType
       final var order = List.copyOf(next_order);
 
       if (this.running.compareAndSet(false, true)) {
-        this.simulation.publishEvent(SGComputerEventBooting.of(this.id));
-
-        for (final var item : order) {
-          final var device = item.device();
-          if (!this.simulation.deviceGraph().areDirectlyConnected(this, device)) {
-            this.writeConsole("device %s is not connected", device.id());
-            continue;
-          }
-
-          final var kernel_desc_found = findKernelWithMatchingName(item);
-          if (kernel_desc_found.isEmpty()) {
-            this.writeConsole(
-              "no kernel found on %s with name %s:%s",
-              device.id(),
-              item.name(),
-              item.version().toHumanString());
-            continue;
-          }
-
-          final var kernel_desc = kernel_desc_found.get();
-          if (!this.kernelIsCompatible(kernel_desc)) {
-            this.writeConsole("kernel is not compatible with this architecture");
-            continue;
-          }
-
-          final var context = new KernelContext(this);
-          final var executable = kernel_desc.executable();
-
-          try {
-            this.kernel = executable.execute(this.simulation, context, item.parameters());
-          } catch (final Exception e) {
-            this.simulation.publishEvent(SGComputerEventBootFailed.of(this.id, e.getMessage()));
-            this.running.set(false);
-          }
-
-          this.simulation.publishEvent(SGComputerEventBooted.of(this.id));
-          this.running.set(true);
-
-          try {
-            this.kernel.onStart();
-          } catch (final Exception e) {
-            LOG.error("[{}]: kernel start failed: ", this.id.toString(), e);
-          }
-          return;
+        this.boot_generation = this.boot_generation + 1L;
+        this.simulation.bootScheduler().submit(this, order, this.boot_generation);
+      }
+    });
+  }
+
+  /**
+   * @param generation The boot generation captured when a boot was requested
+   *
+   * @return {@code true} if the boot requested at {@code generation} has not been superseded or
+   * cancelled by a shutdown
+   */
+
+  boolean bootIsCurrent(
+    final long generation)
+  {
+    return this.running.get() && this.boot_generation == generation;
+  }
+
+  /**
+   * Begin booting the computer.
+   */
+
+  void bootStart()
+  {
+    this.publishComputerEvent(SGComputerEventBooting.class, SGComputerEventBooting::of);
+  }
+
+  /**
+   * Complete booting the computer by loading and starting the first available kernel in the boot
+   * order.
+   *
+   * @param order The boot order
+   *
+   * @return {@code true} if a kernel was started
+   */
+
+  boolean bootComplete(
+    final List<SGComputerBootOrderItem> order)
+  {
+    for (final var item : order) {
+      final var device = item.device();
+      if (!this.simulation.deviceGraph().areDirectlyConnected(this, device)) {
+        this.writeConsole("device %s is not connected", device.id());
+        continue;
+      }
+
+      final var kernel_desc_found =
+        device.kernelFor(item.name(), item.version(), this.description.architecture());
+
+      if (kernel_desc_found.isEmpty()) {
+        if (findKernelWithMatchingName(item).isPresent()) {
+          this.writeConsole("kernel is not compatible with this architecture");
+        } else {
+          this.writeConsole(
+            "no kernel found on %s with name %s:%s",
+            device.id(),
+            item.name(),
+            item.version().toHumanString());
         }
+        continue;
+      }
+
+      final var kernel_desc = kernel_desc_found.get();
+
+      final var context = new KernelContext(this);
+      final var executable = kernel_desc.executable();
 
-        this.simulation.publishEvent(SGComputerEventBootFailed.of(this.id, "No kernel available"));
+      final SGKernelType started;
+      try {
+        started = Objects.requireNonNull(
+          executable.execute(this.simulation, context, item.parameters()),
+          "kernel");
+      } catch (final Exception e) {
+        this.publishBootFailed(e.getMessage());
         this.running.set(false);
+        return false;
       }
-    });
+
+      this.kernel = started;
+
+      this.publishComputerEvent(SGComputerEventBooted.class, SGComputerEventBooted::of);
+      this.running.set(true);
+
+      try {
+        this.kernel.onStart();
+      } catch (final Exception e) {
+        LOG.error("[{}]: kernel start failed: ", this.id.toString(), e);
+      }
+
+      this.stopTicking();
+      this.tick_entry = this.simulation.kernelTickScheduler().add(this);
+      return true;
+    }
+
+    this.publishBootFailed("No kernel available");
+    this.running.set(false);
+    return false;
+  }
+
+  private <T extends SGComputerEventType> void publishComputerEvent(
+    final Class<T> clazz,
+    final Function<UUID, T> constructor)
+  {
+    if (this.simulation.isEventWanted(clazz)) {
+      this.simulation.publishEvent(constructor.apply(this.id));
+    }
   }
 
-  private boolean kernelIsCompatible(
-    final SGKernelExecutableDescriptionType kernel_exec)
+  private void publishBootFailed(
+    final String message)
   {
-    final var kernel_arch = kernel_exec.description().compatibility().architecture();
-    final var comput_arch = this.description.architecture();
-    return Objects.equals(kernel_arch, comput_arch);
+    if (this.simulation.isEventWanted(SGComputerEventBootFailed.class)) {
+      this.simulation.publishEvent(SGComputerEventBootFailed.of(this.id, message));
+    }
   }
 
   private void writeConsole(
@@ -200,37 +289,117 @@ final class SGComputer extends SGDevice implements SGComputerType
   {
     Objects.requireNonNull(format, "format");
 
-    final var message = String.format(format, arguments);
-    message.lines().forEach(line -> {
-      LOG.trace("[{}]: console: {}", this.id(), line);
-      if ((!this.text_buffer.isEmpty()) && this.text_buffer.size() >= this.text_buffer_limit) {
-        this.text_buffer.removeFirst();
-      }
-      this.text_buffer.add(line);
-    });
+    this.console.write(this.simulation.frame(), format, arguments);
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("[{}]: console: {}", this.id(), SGConsoleFormatting.format(format, arguments));
+    }
+  }
+
+  /**
+   * Call the running kernel for the current tick. A kernel that raises an exception is suspended
+   * and is not called again until the computer is rebooted.
+   *
+   * @param tick The tick state
+   */
+
+  void tickKernel(
+    final SGKernelTickType tick)
+  {
+    try {
+      this.kernel.onTick(tick);
+    } catch (final Exception e) {
+      this.writeConsole("kernel tick failed: %s", e.getMessage());
+      LOG.error("[{}]: kernel tick failed: ", this.id.toString(), e);
+      tick.suspend();
+    }
+  }
+
+  private void stopTicking()
+  {
+    if (this.tick_entry != null) {
+      this.simulation.kernelTickScheduler().remove(this.tick_entry);
+      this.tick_entry = null;
+    }
   }
 
+  /**
+   * Write any buffered console history to disk.
+   */
+
+  void flushConsole()
+  {
+    this.console.flush();
+  }
+
+  /**
+   * Closing the computer cancels any boot that is queued or in progress, so that a destroyed
+   * computer is never booted.
+   */
+
   @Override
   protected void onClose()
   {
-
+    this.running.set(false);
+    this.boot_generation = this.boot_generation + 1L;
+    this.simulation.bootScheduler().cancelled();
+    this.kernel = null;
+    this.stopTicking();
+    this.console.close();
   }
 
   private static final class KernelContext implements SGKernelContextType
   {
     private final SGComputer computer;
+    private final ArrayList<SGDeviceKernelInterfaceType> connected_scratch;
+    private List<SGDeviceKernelInterfaceType> connected;
+    private long connected_generation;
+    private SGProcessScheduler processes;
+    private SGMachine machine;
 
     KernelContext(
       final SGComputer in_computer)
     {
       this.computer = Objects.requireNonNull(in_computer, "computer");
+      this.connected_scratch = new ArrayList<>();
+      this.connected = List.of();
+      this.connected_generation = -1L;
     }
 
+    private static void collectConnected(
+      final ArrayList<SGDeviceKernelInterfaceType> results,
+      final SGDeviceType device)
+    {
+      results.add((SGDeviceKernelInterfaceType) device);
+    }
+
+    /**
+     * The list of connected devices is immutable and is only rebuilt when the generation of the
+     * device graph changes, so kernels that poll their connected devices every tick do not
+     * produce garbage.
+     */
+
     @Override
     public List<SGDeviceKernelInterfaceType> connectedDevices()
+    {
+      final var graph = this.computer.simulation.deviceGraph();
+      final var generation = graph.generation();
+      if (generation != this.connected_generation) {
+        this.connected_scratch.clear();
+        graph.forEachDeviceConnectedTo(
+          this.computer, this.connected_scratch, KernelContext::collectConnected);
+        this.connected = List.copyOf(this.connected_scratch);
+        this.connected_scratch.clear();
+        this.connected_generation = generation;
+      }
+      return this.connected;
+    }
+
+    @Override
+    public List<SGDeviceKernelInterfaceType> reachableDevices()
     {
       return this.computer.simulation.deviceGraph()
-        .devicesConnectedTo(this.computer)
+        .devicesReachableFrom(this.computer)
+        .stream()
         .map(device -> (SGDeviceKernelInterfaceType) device)
         .collect(Collectors.toList());
     }
@@ -243,6 +412,38 @@ final class SGComputer extends SGDevice implements SGComputerType
       this.computer.writeConsole(format, arguments);
     }
 
+    @Override
+    public SGProcessSchedulerType processes()
+    {
+      if (this.processes == null) {
+        final var configuration = this.computer.simulation.configuration();
+        this.processes =
+          new SGProcessScheduler(
+            this,
+            configuration.programTimeSlice(),
+            configuration.programSystemCallRingSize());
+      }
+      return this.processes;
+    }
+
+    @Override
+    public SGMachineType machine()
+    {
+      if (this.machine == null) {
+        final var architecture = this.computer.description.architecture();
+        final var configuration = this.computer.simulation.configuration();
+        final var instruction_set =
+          configuration.machineInstructionSets()
+            .stream()
+            .filter(set -> Objects.equals(set.architecture(), architecture))
+            .findFirst()
+            .orElseGet(() -> SGMachineInstructionSet.of(architecture));
+        this.machine =
+          new SGMachine(instruction_set, configuration.machineTranslationThreshold());
+      }
+      return this.machine;
+    }
+
     @Override
     public void shutdown()
     {
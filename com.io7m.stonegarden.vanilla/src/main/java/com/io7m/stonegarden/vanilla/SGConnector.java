@@ -26,11 +26,12 @@ import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
-final class SGConnector extends SGIdentifiable implements SGConnectorType
+final class SGConnector extends SGIdentifiable implements SGConnectorType, SGDeviceGraphVertexType
 {
   private final SGConnectorDescription description;
   private final SGDeviceType owner;
   private final SGSimulationInternalAPIType simulation;
+  private int graph_index;
 
   SGConnector(
     final SGSimulationInternalAPIType in_simulation,
@@ -46,6 +47,7 @@ final class SGConnector extends SGIdentifiable implements SGConnectorType
       Objects.requireNonNull(in_device, "device");
     this.description =
       Objects.requireNonNull(in_description, "description");
+    this.graph_index = -1;
   }
 
   @Override
@@ -79,4 +81,15 @@ final class SGConnector extends SGIdentifiable implements SGConnectorType
     return this.simulation.deviceGraph().connectedSocket(this);
   }
 
+  @Override
+  public int graphIndex()
+  {
+    return this.graph_index;
+  }
+
+  @Override
+  public void setGraphIndex(final int index)
+  {
+    this.graph_index = index;
+  }
 }
@@ -26,11 +26,12 @@ import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
-final class SGConnectorSocket extends SGIdentifiable implements SGConnectorSocketType
+final class SGConnectorSocket extends SGIdentifiable implements SGConnectorSocketType, SGDeviceGraphVertexType
 {
   private final SGConnectorSocketDescription description;
   private final SGSimulationInternalAPIType simulation;
   private final SGDeviceType owner;
+  private int graph_index;
 
   SGConnectorSocket(
     final SGSimulationInternalAPIType in_simulation,
@@ -46,6 +47,7 @@ final class SGConnectorSocket extends SGIdentifiable implements SGConnectorSocke
       Objects.requireNonNull(in_device, "device");
     this.description =
       Objects.requireNonNull(in_description, "description");
+    this.graph_index = -1;
   }
 
   @Override
@@ -79,4 +81,15 @@ final class SGConnectorSocket extends SGIdentifiable implements SGConnectorSocke
     return this.simulation.deviceGraph().connectedConnector(this);
   }
 
+  @Override
+  public int graphIndex()
+  {
+    return this.graph_index;
+  }
+
+  @Override
+  public void setGraphIndex(final int index)
+  {
+    this.graph_index = index;
+  }
 }
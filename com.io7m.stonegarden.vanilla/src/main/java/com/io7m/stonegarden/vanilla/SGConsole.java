@@ -0,0 +1,216 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.computer.SGConsoleLine;
+import com.io7m.stonegarden.api.computer.SGConsoleType;
+import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * The console of a computer. Lines are held in a console buffer, and are only formatted for
+ * subscribers if at least one subscriber exists at the time the line is written, or if the
+ * console writes to an archive.
+ *
+ * The history is best-effort: an I/O error writing evicted lines to the history is logged, and
+ * the lines that could not be written are lost, but the console continues to accept lines.
+ */
+
+final class SGConsole implements SGConsoleType
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SGConsole.class);
+
+  private final SGConsoleBufferType buffer;
+  private final SGConsoleArchive archive;
+  private final SGConsoleHistory history;
+  private final String device;
+  private final PublishSubject<SGConsoleLine> subject;
+  private final Observable<SGConsoleLine> lines;
+
+  /**
+   * Construct a console.
+   *
+   * @param in_buffer  The buffer holding the console's lines
+   * @param in_device  The device that owns the console
+   * @param in_archive The archive to which lines are written, or {@code null} for no archive
+   * @param in_history The history to which evicted lines are written, or {@code null} for none
+   */
+
+  SGConsole(
+    final SGConsoleBufferType in_buffer,
+    final UUID in_device,
+    final SGConsoleArchive in_archive,
+    final SGConsoleHistory in_history)
+  {
+    this.buffer = Objects.requireNonNull(in_buffer, "buffer");
+    this.device = Objects.requireNonNull(in_device, "device").toString();
+    this.archive = in_archive;
+    this.history = in_history;
+    if (this.history != null) {
+      this.buffer.setEvictionListener(this::onEvict);
+    }
+    this.subject = PublishSubject.create();
+    this.lines = this.subject.hide();
+  }
+
+  /**
+   * Write a line to the console. A format string that contains no conversions is written as
+   * text, without being interned. Otherwise, the arguments are captured immediately into a new
+   * array, as the caller may reuse or modify the array it passed. A line whose format string is
+   * not known to be valid for its arguments is formatted immediately, and if it cannot be
+   * formatted, a description of the error is written instead.
+   *
+   * @param frame     The current frame
+   * @param format    The format string
+   * @param arguments The format arguments
+   */
+
+  void write(
+    final long frame,
+    final String format,
+    final Object[] arguments)
+  {
+    final var position = this.buffer.end();
+    if (format.indexOf('%') < 0) {
+      this.buffer.writeText(frame, format);
+    } else {
+      final var captured = SGConsoleFormatting.capture(arguments);
+      if (SGConsoleFormatting.isValid(format, captured)) {
+        this.buffer.write(frame, format, captured);
+      } else {
+        this.buffer.writeText(frame, SGConsoleFormatting.format(format, arguments));
+      }
+    }
+
+    final var observed = this.subject.hasObservers();
+    if (observed || this.archive != null) {
+      final var text = this.buffer.text(position);
+      if (this.archive != null) {
+        this.archive.append(this.device, frame, text);
+      }
+      if (observed) {
+        this.subject.onNext(SGConsoleLine.of(position, frame, text));
+      }
+    }
+  }
+
+  private void onEvict(
+    final long position)
+  {
+    try {
+      this.history.append(position, this.buffer.frame(position), this.buffer.text(position));
+    } catch (final UncheckedIOException e) {
+      LOG.error("[{}]: console history could not be written: ", this.device, e);
+    }
+  }
+
+  /**
+   * Write any buffered history to disk.
+   */
+
+  void flush()
+  {
+    if (this.history != null) {
+      try {
+        this.history.flush();
+      } catch (final UncheckedIOException e) {
+        LOG.error("[{}]: console history could not be written: ", this.device, e);
+      }
+    }
+  }
+
+  /**
+   * Close the console, writing any buffered history and completing any subscriptions.
+   */
+
+  void close()
+  {
+    try {
+      this.flush();
+    } finally {
+      this.subject.onComplete();
+    }
+  }
+
+  @Override
+  public long start()
+  {
+    return this.buffer.start();
+  }
+
+  @Override
+  public long end()
+  {
+    return this.buffer.end();
+  }
+
+  @Override
+  public List<SGConsoleLine> read(
+    final long from)
+  {
+    final var start = Math.max(from, this.buffer.start());
+    final var end = this.buffer.end();
+    if (start >= end) {
+      return List.of();
+    }
+
+    final var results = new ArrayList<SGConsoleLine>((int) (end - start));
+    for (var position = start; position < end; ++position) {
+      results.add(SGConsoleLine.of(position, this.buffer.frame(position), this.buffer.text(position)));
+    }
+    return results;
+  }
+
+  @Override
+  public List<SGConsoleLine> history(
+    final long frame_from,
+    final long frame_to)
+    throws IOException
+  {
+    final var results = new ArrayList<SGConsoleLine>();
+    if (this.history != null) {
+      this.history.read(frame_from, frame_to, results);
+    }
+
+    final var end = this.buffer.end();
+    for (var position = this.buffer.start(); position < end; ++position) {
+      final var frame = this.buffer.frame(position);
+      if (frame > frame_to) {
+        break;
+      }
+      if (frame >= frame_from) {
+        results.add(SGConsoleLine.of(position, frame, this.buffer.text(position)));
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public Observable<SGConsoleLine> lines()
+  {
+    return this.lines;
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * An archive of the console output of every computer in a simulation. Lines are encoded directly
+ * into a direct buffer, and the buffer is written to the current segment file when it fills or
+ * when the simulation flushes the archive at the end of a tick. Segments are rotated on line
+ * boundaries once they reach the configured size.
+ *
+ * I/O errors are raised as {@link UncheckedIOException}: an archive that cannot be written is
+ * not permitted to silently lose output.
+ */
+
+final class SGConsoleArchive implements AutoCloseable
+{
+  private static final int BUFFER_SIZE = 65536;
+  private static final Pattern SEGMENT_NAME = Pattern.compile("console-([0-9]{8})\\.log");
+
+  private final Path directory;
+  private final long segment_size;
+  private final ByteBuffer buffer;
+  private final CharsetEncoder encoder;
+  private final StringBuilder line;
+  private CharBuffer chars;
+  private FileChannel channel;
+  private long segment_index;
+  private long segment_written;
+  private boolean closed;
+
+  private SGConsoleArchive(
+    final Path in_directory,
+    final long in_segment_size,
+    final long in_segment_index)
+  {
+    this.directory = Objects.requireNonNull(in_directory, "directory");
+    this.segment_size = in_segment_size;
+    this.segment_index = in_segment_index;
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    this.encoder =
+      StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.line = new StringBuilder(256);
+    this.chars = CharBuffer.allocate(256);
+  }
+
+  /**
+   * Open an archive in the given directory, creating the directory if necessary. Segments are
+   * numbered starting after the highest numbered segment already present in the directory, so
+   * the output of previous simulations is never overwritten.
+   *
+   * @param directory    The directory
+   * @param segment_size The segment size in octets
+   *
+   * @return A new archive
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static SGConsoleArchive open(
+    final Path directory,
+    final long segment_size)
+    throws IOException
+  {
+    Objects.requireNonNull(directory, "directory");
+    Preconditions.checkPreconditionL(
+      segment_size,
+      segment_size > 0L,
+      s -> "Segment size must be positive");
+
+    Files.createDirectories(directory);
+
+    long index = 0L;
+    try (var stream = Files.list(directory)) {
+      final var iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        final var matcher = SEGMENT_NAME.matcher(iterator.next().getFileName().toString());
+        if (matcher.matches()) {
+          index = Math.max(index, Long.parseLong(matcher.group(1)) + 1L);
+        }
+      }
+    }
+
+    return new SGConsoleArchive(directory, segment_size, index);
+  }
+
+  /**
+   * @param index The segment index
+   *
+   * @return The file name of the segment with the given index
+   */
+
+  static String segmentName(
+    final long index)
+  {
+    return String.format("console-%08d.log", Long.valueOf(index));
+  }
+
+  /**
+   * Append a line to the archive. Line separators within {@code text} are replaced with spaces
+   * so that each line of console output occupies exactly one line of the archive.
+   *
+   * @param device The device ID, as text
+   * @param frame  The frame on which the line was written
+   * @param text   The line text
+   */
+
+  void append(
+    final String device,
+    final long frame,
+    final String text)
+  {
+    if (this.closed) {
+      throw new IllegalStateException("Console archive has been closed");
+    }
+
+    final var line_text = this.line;
+    line_text.setLength(0);
+    line_text.append(frame);
+    line_text.append(' ');
+    line_text.append(device);
+    line_text.append(' ');
+
+    final var text_start = line_text.length();
+    line_text.append(text);
+    final var text_end = line_text.length();
+    line_text.append('\n');
+
+    final var length = line_text.length();
+    if (this.chars.capacity() < length) {
+      this.chars = CharBuffer.allocate(Math.max(length, this.chars.capacity() * 2));
+    }
+
+    final var array = this.chars.array();
+    line_text.getChars(0, length, array, 0);
+    for (int index = text_start; index < text_end; ++index) {
+      final var c = array[index];
+      if (c == '\n' || c == '\r') {
+        array[index] = ' ';
+      }
+    }
+
+    this.chars.clear();
+    this.chars.limit(length);
+
+    try {
+      this.encoder.reset();
+      while (this.encoder.encode(this.chars, this.buffer, true).isOverflow()) {
+        this.writeBuffer();
+      }
+      while (this.encoder.flush(this.buffer).isOverflow()) {
+        this.writeBuffer();
+      }
+
+      if (this.segment_written + (long) this.buffer.position() >= this.segment_size) {
+        this.writeBuffer();
+        this.rotate();
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Write any buffered lines to the current segment.
+   */
+
+  void flush()
+  {
+    if (this.closed) {
+      return;
+    }
+
+    try {
+      this.writeBuffer();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void writeBuffer()
+    throws IOException
+  {
+    if (this.buffer.position() == 0) {
+      return;
+    }
+
+    if (this.channel == null) {
+      this.channel =
+        FileChannel.open(
+          this.directory.resolve(segmentName(this.segment_index)),
+          StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.WRITE);
+    }
+
+    this.buffer.flip();
+    while (this.buffer.hasRemaining()) {
+      this.segment_written = this.segment_written + (long) this.channel.write(this.buffer);
+    }
+    this.buffer.clear();
+  }
+
+  private void rotate()
+    throws IOException
+  {
+    if (this.channel != null) {
+      this.channel.close();
+      this.channel = null;
+    }
+    this.segment_index = this.segment_index + 1L;
+    this.segment_written = 0L;
+  }
+
+  @Override
+  public void close()
+  {
+    if (this.closed) {
+      return;
+    }
+
+    try {
+      this.writeBuffer();
+      if (this.channel != null) {
+        this.channel.close();
+        this.channel = null;
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      this.closed = true;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A fixed-capacity buffer of console lines.
+ *
+ * Every line written to a console is assigned a position, starting at {@code 0} and increasing by
+ * one for each line. The buffer retains the lines in the positions {@code [start(), end())};
+ * writing a line to a full buffer evicts the line at {@link #start()}.
+ */
+
+interface SGConsoleBufferType
+{
+  /**
+   * Write a line. The format string must be valid for the arguments, and the arguments must be
+   * immutable.
+   *
+   * @see SGConsoleFormatting#isValid(String, Object[])
+   * @see SGConsoleFormatting#capture(Object[])
+   *
+   * @param frame     The frame on which the line was written
+   * @param format    The format string
+   * @param arguments The format arguments
+   */
+
+  void write(
+    long frame,
+    String format,
+    Object[] arguments);
+
+  /**
+   * Write a line that has already been formatted.
+   *
+   * @param frame The frame on which the line was written
+   * @param text  The text of the line
+   */
+
+  void writeText(
+    long frame,
+    String text);
+
+  /**
+   * @return The position of the oldest retained line
+   */
+
+  long start();
+
+  /**
+   * @return The position that will be assigned to the next line written
+   */
+
+  long end();
+
+  /**
+   * @param position The position of a retained line
+   *
+   * @return The frame on which the line was written
+   */
+
+  long frame(long position);
+
+  /**
+   * @param position The position of a retained line
+   *
+   * @return The formatted text of the line
+   */
+
+  String text(long position);
+
+  /**
+   * Set the function that is called with the position of each line immediately before the line
+   * is evicted. The line can still be read when the function is called.
+   *
+   * @param listener The eviction listener
+   */
+
+  void setEvictionListener(LongConsumer listener);
+}
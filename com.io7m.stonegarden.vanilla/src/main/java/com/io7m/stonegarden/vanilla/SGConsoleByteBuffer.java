@@ -0,0 +1,467 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+
+/**
+ * A console buffer that stores lines in a single circular byte array. Line boundaries are held
+ * in preallocated arrays indexed by line, so the only per-line storage is the encoded line itself.
+ *
+ * A line is encoded as the identifier of its interned format string followed by its arguments.
+ * Arguments that are {@code null}, strings, integers, longs, or UUIDs are encoded compactly and
+ * the line is only formatted when it is read. A line with any other kind of argument is
+ * formatted when it is written and stored as UTF-8, as is a line whose format string could not
+ * be interned because the template table is full, and a line whose encoding would not fit in
+ * the entire byte array. A line that is stored as UTF-8 and is still larger than the entire byte
+ * array is truncated.
+ *
+ * The byte array starts small and is doubled in size whenever a line would not fit, up to the
+ * octet capacity of the buffer. A line is evicted when either the maximum number of lines is
+ * reached or there is no room left for the new line's octets in an array of the maximum size.
+ */
+
+final class SGConsoleByteBuffer implements SGConsoleBufferType
+{
+  private static final int TEXT = 0;
+  private static final int TAG_NULL = 0;
+  private static final int TAG_STRING = 1;
+  private static final int TAG_INT = 2;
+  private static final int TAG_LONG = 3;
+  private static final int TAG_UUID = 4;
+  private static final int INITIAL_OCTETS = 1024;
+
+  private final SGConsoleTemplateTable templates;
+  private final int capacity_octets;
+  private byte[] data;
+  private final long[] frames;
+  private final long[] offsets;
+  private final int[] lengths;
+  private byte[] scratch;
+  private LongConsumer eviction;
+  private long start;
+  private long end;
+  private long data_end;
+
+  SGConsoleByteBuffer(
+    final SGConsoleTemplateTable in_templates,
+    final int capacity,
+    final int in_capacity_octets)
+  {
+    Preconditions.checkPreconditionI(
+      capacity,
+      capacity > 0,
+      c -> "Capacity must be positive");
+    Preconditions.checkPreconditionI(
+      in_capacity_octets,
+      in_capacity_octets > 0,
+      c -> "Octet capacity must be positive");
+
+    this.templates = Objects.requireNonNull(in_templates, "templates");
+    this.capacity_octets = in_capacity_octets;
+    this.data = new byte[Math.min(INITIAL_OCTETS, in_capacity_octets)];
+    this.frames = new long[capacity];
+    this.offsets = new long[capacity];
+    this.lengths = new int[capacity];
+    this.scratch = new byte[Math.min(256, in_capacity_octets)];
+    this.eviction = position -> { };
+  }
+
+  private static boolean isCompact(
+    final Object[] arguments)
+  {
+    if (arguments == null) {
+      return true;
+    }
+    for (final var argument : arguments) {
+      if (!isCompactArgument(argument)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isCompactArgument(
+    final Object argument)
+  {
+    if (argument == null || argument instanceof String) {
+      return true;
+    }
+    return argument instanceof Integer || argument instanceof Long || argument instanceof UUID;
+  }
+
+  @Override
+  public void write(
+    final long frame,
+    final String format,
+    final Object[] arguments)
+  {
+    var length = -1;
+    if (isCompact(arguments)) {
+      length = this.encodeCompact(format, arguments);
+    }
+    if (length < 0 || length > this.capacity_octets) {
+      length = this.encodeText(SGConsoleFormatting.format(format, arguments));
+    }
+    this.append(frame, length);
+  }
+
+  @Override
+  public void writeText(
+    final long frame,
+    final String text)
+  {
+    this.append(frame, this.encodeText(Objects.requireNonNull(text, "text")));
+  }
+
+  private void append(
+    final long frame,
+    final int length)
+  {
+    final var required = this.used() + (long) length;
+    if (required > (long) this.data.length && this.data.length < this.capacity_octets) {
+      this.grow(required);
+    }
+
+    while (this.isFullFor(length)) {
+      try {
+        this.eviction.accept(this.start);
+      } finally {
+        this.start = this.start + 1L;
+      }
+    }
+
+    final var index = this.indexOf(this.end);
+    this.frames[index] = frame;
+    this.offsets[index] = this.data_end;
+    this.lengths[index] = length;
+
+    final var data_index = (int) (this.data_end % this.data.length);
+    final var first = Math.min(length, this.data.length - data_index);
+    System.arraycopy(this.scratch, 0, this.data, data_index, first);
+    System.arraycopy(this.scratch, first, this.data, 0, length - first);
+
+    this.data_end = this.data_end + length;
+    this.end = this.end + 1L;
+  }
+
+  private int encodeText(
+    final String text)
+  {
+    final var encoded = text.getBytes(StandardCharsets.UTF_8);
+    final var position = this.putVarint(0, TEXT);
+    this.ensureScratch(position + encoded.length);
+    System.arraycopy(encoded, 0, this.scratch, position, encoded.length);
+    return Math.min(position + encoded.length, this.capacity_octets);
+  }
+
+  private int encodeCompact(
+    final String format,
+    final Object[] arguments)
+  {
+    final var id = this.templates.intern(format);
+    if (id < 0) {
+      return -1;
+    }
+
+    var position = this.putVarint(0, (long) id + 1L);
+    if (arguments == null) {
+      return this.putVarint(position, 0L);
+    }
+
+    position = this.putVarint(position, arguments.length);
+    for (final var argument : arguments) {
+      if (argument == null) {
+        position = this.putByte(position, TAG_NULL);
+      } else if (argument instanceof String) {
+        final var encoded = ((String) argument).getBytes(StandardCharsets.UTF_8);
+        position = this.putByte(position, TAG_STRING);
+        position = this.putVarint(position, encoded.length);
+        this.ensureScratch(position + encoded.length);
+        System.arraycopy(encoded, 0, this.scratch, position, encoded.length);
+        position = position + encoded.length;
+      } else if (argument instanceof Integer) {
+        position = this.putByte(position, TAG_INT);
+        position = this.putVarint(position, zigzag(((Integer) argument).longValue()));
+      } else if (argument instanceof Long) {
+        position = this.putByte(position, TAG_LONG);
+        position = this.putVarint(position, zigzag(((Long) argument).longValue()));
+      } else {
+        final var uuid = (UUID) argument;
+        position = this.putByte(position, TAG_UUID);
+        position = this.putLong(position, uuid.getMostSignificantBits());
+        position = this.putLong(position, uuid.getLeastSignificantBits());
+      }
+    }
+    return position;
+  }
+
+  private static long zigzag(
+    final long x)
+  {
+    return (x << 1) ^ (x >> 63);
+  }
+
+  private static long unzigzag(
+    final long x)
+  {
+    return (x >>> 1) ^ -(x & 1L);
+  }
+
+  private void ensureScratch(
+    final int size)
+  {
+    if (this.scratch.length < size) {
+      final var resized = new byte[Math.max(size, this.scratch.length * 2)];
+      System.arraycopy(this.scratch, 0, resized, 0, this.scratch.length);
+      this.scratch = resized;
+    }
+  }
+
+  private int putByte(
+    final int position,
+    final int value)
+  {
+    this.ensureScratch(position + 1);
+    this.scratch[position] = (byte) value;
+    return position + 1;
+  }
+
+  private int putVarint(
+    final int position,
+    final long value)
+  {
+    var remaining = value;
+    var current = position;
+    while ((remaining & ~0x7fL) != 0L) {
+      current = this.putByte(current, (int) ((remaining & 0x7fL) | 0x80L));
+      remaining = remaining >>> 7;
+    }
+    return this.putByte(current, (int) remaining);
+  }
+
+  private int putLong(
+    final int position,
+    final long value)
+  {
+    var current = position;
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      current = this.putByte(current, (int) (value >>> shift));
+    }
+    return current;
+  }
+
+  private long used()
+  {
+    if (this.start == this.end) {
+      return 0L;
+    }
+    return this.data_end - this.offsets[this.indexOf(this.start)];
+  }
+
+  /**
+   * Enlarge the byte array so that it can hold at least {@code required} octets, or as many as
+   * the octet capacity allows. Octets remain at their offsets modulo the size of the array.
+   */
+
+  private void grow(
+    final long required)
+  {
+    var size = (long) this.data.length;
+    while (size < required && size < (long) this.capacity_octets) {
+      size = Math.min(size * 2L, (long) this.capacity_octets);
+    }
+
+    final var resized = new byte[(int) size];
+    final var from = this.data_end - this.used();
+    for (var offset = from; offset < this.data_end; ++offset) {
+      resized[(int) (offset % size)] = this.data[(int) (offset % (long) this.data.length)];
+    }
+    this.data = resized;
+  }
+
+  private boolean isFullFor(
+    final int length)
+  {
+    if (this.end - this.start == this.frames.length) {
+      return true;
+    }
+    return this.used() + (long) length > (long) this.data.length;
+  }
+
+  private int indexOf(
+    final long position)
+  {
+    return (int) (position % this.frames.length);
+  }
+
+  private int checkedIndexOf(
+    final long position)
+  {
+    Preconditions.checkPreconditionL(
+      position,
+      position >= this.start && position < this.end,
+      p -> "Position must be retained");
+    return this.indexOf(position);
+  }
+
+  @Override
+  public void setEvictionListener(
+    final LongConsumer listener)
+  {
+    this.eviction = Objects.requireNonNull(listener, "listener");
+  }
+
+  @Override
+  public long start()
+  {
+    return this.start;
+  }
+
+  @Override
+  public long end()
+  {
+    return this.end;
+  }
+
+  @Override
+  public long frame(
+    final long position)
+  {
+    return this.frames[this.checkedIndexOf(position)];
+  }
+
+  @Override
+  public String text(
+    final long position)
+  {
+    final var index = this.checkedIndexOf(position);
+    final var length = this.lengths[index];
+    final var data_index = (int) (this.offsets[index] % this.data.length);
+    final var first = Math.min(length, this.data.length - data_index);
+    if (first == length) {
+      return this.decode(new Decoder(this.data, data_index, data_index + length));
+    }
+
+    final var bytes = new byte[length];
+    System.arraycopy(this.data, data_index, bytes, 0, first);
+    System.arraycopy(this.data, 0, bytes, first, length - first);
+    return this.decode(new Decoder(bytes, 0, length));
+  }
+
+  private String decode(
+    final Decoder decoder)
+  {
+    final var template = decoder.varint();
+    if (template == (long) TEXT) {
+      return decoder.text(decoder.remaining());
+    }
+
+    final var format = this.templates.template((int) (template - 1L));
+    final var arguments = new Object[(int) decoder.varint()];
+    for (int index = 0; index < arguments.length; ++index) {
+      final var tag = decoder.tag();
+      switch (tag) {
+        case TAG_STRING:
+          arguments[index] = decoder.text((int) decoder.varint());
+          break;
+        case TAG_INT:
+          arguments[index] = Integer.valueOf((int) unzigzag(decoder.varint()));
+          break;
+        case TAG_LONG:
+          arguments[index] = Long.valueOf(unzigzag(decoder.varint()));
+          break;
+        case TAG_UUID:
+          arguments[index] = new UUID(decoder.fixedLong(), decoder.fixedLong());
+          break;
+        default:
+          arguments[index] = null;
+          break;
+      }
+    }
+    return SGConsoleFormatting.format(format, arguments);
+  }
+
+  private static final class Decoder
+  {
+    private final byte[] bytes;
+    private final int limit;
+    private int position;
+
+    Decoder(
+      final byte[] in_bytes,
+      final int in_position,
+      final int in_limit)
+    {
+      this.bytes = in_bytes;
+      this.position = in_position;
+      this.limit = in_limit;
+    }
+
+    int remaining()
+    {
+      return this.limit - this.position;
+    }
+
+    int tag()
+    {
+      final var value = this.bytes[this.position];
+      this.position = this.position + 1;
+      return value;
+    }
+
+    long varint()
+    {
+      long value = 0L;
+      int shift = 0;
+      while (true) {
+        final var octet = this.bytes[this.position];
+        this.position = this.position + 1;
+        value = value | ((long) (octet & 0x7f) << shift);
+        if ((octet & 0x80) == 0) {
+          return value;
+        }
+        shift = shift + 7;
+      }
+    }
+
+    long fixedLong()
+    {
+      long value = 0L;
+      for (int index = 0; index < 8; ++index) {
+        value = (value << 8) | (long) (this.bytes[this.position] & 0xff);
+        this.position = this.position + 1;
+      }
+      return value;
+    }
+
+    String text(
+      final int length)
+    {
+      final var text =
+        StandardCharsets.UTF_8.decode(ByteBuffer.wrap(this.bytes, this.position, length)).toString();
+      this.position = this.position + length;
+      return text;
+    }
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Functions to format console lines.
+ *
+ * Consoles may defer formatting until a line is read, so a line must be checked when it is
+ * written: {@link #capture(Object[])} copies the arguments so that later changes to the caller's
+ * array or objects are not observed, and {@link #isValid(String, Object[])} recognizes the
+ * common, well-formed format strings for which deferred formatting cannot fail. Lines that are
+ * not recognized are formatted immediately with {@link #format(String, Object[])}, which never
+ * raises formatting errors.
+ */
+
+final class SGConsoleFormatting
+{
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private static final Set<Class<?>> IMMUTABLE_TYPES =
+    Set.of(
+      String.class,
+      Boolean.class,
+      Byte.class,
+      Character.class,
+      Short.class,
+      Integer.class,
+      Long.class,
+      Float.class,
+      Double.class,
+      BigInteger.class,
+      BigDecimal.class,
+      UUID.class);
+
+  private static final String GENERAL_CONVERSIONS = "sSbB";
+  private static final String INTEGRAL_CONVERSIONS = "doxX";
+  private static final String FLOATING_CONVERSIONS = "eEfgG";
+
+  private static final Set<Class<?>> CHARACTER_TYPES =
+    Set.of(Character.class);
+
+  private static final Set<Class<?>> INTEGRAL_TYPES =
+    Set.of(
+      Byte.class,
+      Short.class,
+      Integer.class,
+      Long.class,
+      BigInteger.class);
+
+  private static final Set<Class<?>> FLOATING_TYPES =
+    Set.of(
+      Float.class,
+      Double.class,
+      BigDecimal.class);
+
+  private SGConsoleFormatting()
+  {
+
+  }
+
+  /**
+   * Format a console line. Format strings without arguments or conversions are returned as-is.
+   * If the line cannot be formatted, a description of the failure is returned instead.
+   *
+   * @param format    The format string
+   * @param arguments The format arguments
+   *
+   * @return The formatted line
+   */
+
+  static String format(
+    final String format,
+    final Object[] arguments)
+  {
+    if ((arguments == null || arguments.length == 0) && format.indexOf('%') == -1) {
+      return format;
+    }
+
+    /*
+     * As well as raising IllegalFormatException, arguments that were not captured may fail in
+     * their own toString methods.
+     */
+
+    try {
+      return String.format(format, arguments);
+    } catch (final RuntimeException e) {
+      return fallback(format, e);
+    }
+  }
+
+  private static String fallback(
+    final String format,
+    final RuntimeException e)
+  {
+    return new StringBuilder(format.length() + 64)
+      .append("(invalid console format: ")
+      .append(e.getClass().getSimpleName())
+      .append(") ")
+      .append(format)
+      .toString();
+  }
+
+  /**
+   * Capture the values of format arguments. Strings, UUIDs, and boxed primitive values are
+   * immutable and are kept as they are; any other argument is converted to a string.
+   *
+   * @param arguments The format arguments
+   *
+   * @return A new array of immutable arguments
+   */
+
+  static Object[] capture(
+    final Object[] arguments)
+  {
+    if (arguments == null || arguments.length == 0) {
+      return NO_ARGUMENTS;
+    }
+
+    final var captured = new Object[arguments.length];
+    for (int index = 0; index < arguments.length; ++index) {
+      captured[index] = captureArgument(arguments[index]);
+    }
+    return captured;
+  }
+
+  private static Object captureArgument(
+    final Object argument)
+  {
+    if (argument == null || IMMUTABLE_TYPES.contains(argument.getClass())) {
+      return argument;
+    }
+
+    try {
+      return String.valueOf(argument);
+    } catch (final RuntimeException e) {
+      return argument.getClass().getName();
+    }
+  }
+
+  /**
+   * Determine if a format string is known to format the given arguments without error. The
+   * check is conservative: it recognizes the {@code %%} and {@code %n} conversions, and the
+   * {@code s}, {@code S}, {@code b}, {@code B}, {@code c}, {@code d}, {@code o}, {@code x},
+   * {@code X}, {@code e}, {@code E}, {@code f}, {@code g}, and {@code G} conversions with an
+   * optional {@code -} flag, width, and precision where they are permitted. Format strings using
+   * any other syntax are reported as not valid, even if they would be accepted by
+   * {@link java.util.Formatter}.
+   *
+   * @param format    The format string
+   * @param arguments The captured format arguments
+   *
+   * @return {@code true} if the format string is valid for the arguments
+   */
+
+  static boolean isValid(
+    final String format,
+    final Object[] arguments)
+  {
+    var argument = 0;
+    var percent = format.indexOf('%');
+    while (percent != -1) {
+      final var at = conversionIndex(format, percent);
+      if (at < 0) {
+        return false;
+      }
+
+      final var conversion = format.charAt(at);
+      if (conversion != '%' && conversion != 'n') {
+        if (argument >= arguments.length) {
+          return false;
+        }
+        final var dot = format.indexOf('.', percent);
+        final var precision = dot != -1 && dot < at;
+        if (!isCompatible(conversion, precision, arguments[argument])) {
+          return false;
+        }
+        argument = argument + 1;
+      }
+      percent = format.indexOf('%', at + 1);
+    }
+    return true;
+  }
+
+  /**
+   * Parse the optional flag, width, and precision of the format specifier starting at
+   * {@code percent}.
+   *
+   * @return The index of the conversion character, or {@code -1} if the specifier is not
+   * recognized
+   */
+
+  private static int conversionIndex(
+    final String format,
+    final int percent)
+  {
+    final var length = format.length();
+    var cursor = percent + 1;
+    final var left = cursor < length && format.charAt(cursor) == '-';
+    if (left) {
+      cursor = cursor + 1;
+    }
+
+    final var width_start = cursor;
+    cursor = skipDigits(format, cursor);
+    final var width = cursor > width_start;
+    if (width && format.charAt(width_start) == '0' || left && !width) {
+      return -1;
+    }
+
+    var precision = false;
+    if (cursor < length && format.charAt(cursor) == '.') {
+      final var precision_start = cursor + 1;
+      cursor = skipDigits(format, precision_start);
+      if (cursor == precision_start) {
+        return -1;
+      }
+      precision = true;
+    }
+
+    if (cursor >= length) {
+      return -1;
+    }
+    if (!isValidModifiers(format.charAt(cursor), width, precision)) {
+      return -1;
+    }
+    return cursor;
+  }
+
+  private static boolean isValidModifiers(
+    final char conversion,
+    final boolean width,
+    final boolean precision)
+  {
+    if (conversion == '%') {
+      return !precision;
+    }
+    if (conversion == 'n') {
+      return !width && !precision;
+    }
+    return true;
+  }
+
+  private static int skipDigits(
+    final String format,
+    final int start)
+  {
+    var cursor = start;
+    while (cursor < format.length() && Character.isDigit(format.charAt(cursor))) {
+      cursor = cursor + 1;
+    }
+    return cursor;
+  }
+
+  private static boolean isCompatible(
+    final char conversion,
+    final boolean precision,
+    final Object argument)
+  {
+    if (GENERAL_CONVERSIONS.indexOf(conversion) != -1) {
+      return true;
+    }
+    if (conversion == 'c') {
+      return !precision && isOfType(CHARACTER_TYPES, argument);
+    }
+    if (INTEGRAL_CONVERSIONS.indexOf(conversion) != -1) {
+      return !precision && isOfType(INTEGRAL_TYPES, argument);
+    }
+    if (FLOATING_CONVERSIONS.indexOf(conversion) != -1) {
+      return isOfType(FLOATING_TYPES, argument);
+    }
+    return false;
+  }
+
+  private static boolean isOfType(
+    final Set<Class<?>> types,
+    final Object argument)
+  {
+    return argument == null || types.contains(argument.getClass());
+  }
+}
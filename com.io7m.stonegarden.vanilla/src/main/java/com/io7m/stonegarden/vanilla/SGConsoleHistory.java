@@ -0,0 +1,409 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.stonegarden.api.computer.SGConsoleLine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The long-term console history of a single computer. Lines are appended to an uncompressed
+ * block on the heap; when the block reaches the configured size, it is compressed and appended
+ * to the computer's history file, and a single entry describing the block is added to a sparse
+ * in-memory index. Reading the lines for a range of frames only decompresses the blocks whose
+ * frames overlap the range.
+ *
+ * Each block in the file is preceded by a fixed-size header holding the block's compressed and
+ * uncompressed sizes, line count, first position, and first and last frames, so that the file
+ * can be read without the in-memory index. The file is only opened while a block is being
+ * written or read, so histories do not hold file descriptors between ticks.
+ *
+ * A block that cannot be written is discarded along with its lines, and the error is raised.
+ * The next line appended starts a new block, so a transient I/O error loses some history but
+ * does not prevent later lines from being recorded.
+ */
+
+final class SGConsoleHistory
+{
+  private static final int HEADER_SIZE = 36;
+
+  private final Path file;
+  private final int block_size;
+  private final Deflater deflater;
+  private byte[] block;
+  private int block_used;
+  private int block_lines;
+  private long block_first_position;
+  private long block_first_frame;
+  private long block_last_frame;
+  private byte[] compressed;
+  private long[] index_first_frames;
+  private long[] index_last_frames;
+  private long[] index_first_positions;
+  private long[] index_offsets;
+  private int[] index_sizes;
+  private int[] index_lengths;
+  private int[] index_lines;
+  private int index_count;
+  private long file_size;
+
+  /**
+   * Construct a history. The compressor is owned by the caller, and may be shared between
+   * histories that are written from the same thread.
+   *
+   * @param in_file       The history file
+   * @param in_block_size The uncompressed block size in octets
+   * @param in_deflater   The compressor
+   */
+
+  SGConsoleHistory(
+    final Path in_file,
+    final int in_block_size,
+    final Deflater in_deflater)
+  {
+    Preconditions.checkPreconditionI(
+      in_block_size,
+      in_block_size > 0,
+      s -> "Block size must be positive");
+
+    this.file = Objects.requireNonNull(in_file, "file");
+    this.deflater = Objects.requireNonNull(in_deflater, "deflater");
+    this.block_size = in_block_size;
+    this.block = new byte[Math.min(in_block_size, 4096)];
+    this.compressed = new byte[256];
+    this.index_first_frames = new long[8];
+    this.index_last_frames = new long[8];
+    this.index_first_positions = new long[8];
+    this.index_offsets = new long[8];
+    this.index_sizes = new int[8];
+    this.index_lengths = new int[8];
+    this.index_lines = new int[8];
+  }
+
+  /**
+   * Append a line. Lines must be appended in position order.
+   *
+   * @param position The position of the line
+   * @param frame    The frame on which the line was written
+   * @param text     The text of the line
+   */
+
+  void append(
+    final long position,
+    final long frame,
+    final String text)
+  {
+    final var encoded = text.getBytes(StandardCharsets.UTF_8);
+    final var needed = 20 + encoded.length;
+    if (this.block_lines > 0 && this.block_used + needed > this.block_size) {
+      this.flush();
+    }
+
+    if (this.block_lines == 0) {
+      this.block_first_position = position;
+      this.block_first_frame = frame;
+    }
+
+    Preconditions.checkPreconditionL(
+      position,
+      position == this.block_first_position + (long) this.block_lines,
+      p -> "Lines must be appended in position order");
+    Preconditions.checkPreconditionL(
+      frame,
+      frame >= this.block_last_frame || this.block_lines == 0,
+      f -> "Lines must be appended in frame order");
+
+    this.ensureBlock(this.block_used + needed);
+    this.block_used = this.putVarint(this.block_used, frame - this.block_first_frame);
+    this.block_used = this.putVarint(this.block_used, encoded.length);
+    System.arraycopy(encoded, 0, this.block, this.block_used, encoded.length);
+    this.block_used = this.block_used + encoded.length;
+    this.block_lines = this.block_lines + 1;
+    this.block_last_frame = frame;
+
+    if (this.block_used >= this.block_size) {
+      this.flush();
+    }
+  }
+
+  private void ensureBlock(
+    final int size)
+  {
+    if (this.block.length < size) {
+      this.block = Arrays.copyOf(this.block, Math.max(size, this.block.length * 2));
+    }
+  }
+
+  private int putVarint(
+    final int position,
+    final long value)
+  {
+    var remaining = value;
+    var current = position;
+    while ((remaining & ~0x7fL) != 0L) {
+      this.block[current] = (byte) ((remaining & 0x7fL) | 0x80L);
+      current = current + 1;
+      remaining = remaining >>> 7;
+    }
+    this.block[current] = (byte) remaining;
+    return current + 1;
+  }
+
+  /**
+   * Compress the current block, if it contains any lines, and append it to the history file. If
+   * the block cannot be written, it is discarded.
+   */
+
+  void flush()
+  {
+    if (this.block_lines == 0) {
+      return;
+    }
+
+    this.deflater.reset();
+    this.deflater.setInput(this.block, 0, this.block_used);
+    this.deflater.finish();
+
+    var length = 0;
+    while (!this.deflater.finished()) {
+      if (length == this.compressed.length) {
+        this.compressed = Arrays.copyOf(this.compressed, this.compressed.length * 2);
+      }
+      length = length + this.deflater.deflate(this.compressed, length, this.compressed.length - length);
+    }
+
+    final var header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(length);
+    header.putInt(this.block_used);
+    header.putInt(this.block_lines);
+    header.putLong(this.block_first_position);
+    header.putLong(this.block_first_frame);
+    header.putLong(this.block_last_frame);
+    header.flip();
+
+    try (var channel = this.openForWriting()) {
+      channel.position(this.file_size);
+      final var data = ByteBuffer.wrap(this.compressed, 0, length);
+      while (header.hasRemaining() || data.hasRemaining()) {
+        channel.write(new ByteBuffer[]{header, data});
+      }
+    } catch (final IOException e) {
+      this.block_used = 0;
+      this.block_lines = 0;
+      throw new UncheckedIOException(e);
+    }
+
+    this.indexBlock(this.file_size + (long) HEADER_SIZE, length);
+    this.file_size = this.file_size + (long) HEADER_SIZE + (long) length;
+    this.block_used = 0;
+    this.block_lines = 0;
+  }
+
+  private FileChannel openForWriting()
+    throws IOException
+  {
+    if (this.index_count == 0) {
+      return FileChannel.open(
+        this.file,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE);
+    }
+    return FileChannel.open(this.file, StandardOpenOption.WRITE);
+  }
+
+  private void indexBlock(
+    final long offset,
+    final int length)
+  {
+    if (this.index_count == this.index_offsets.length) {
+      final var capacity = this.index_count * 2;
+      this.index_first_frames = Arrays.copyOf(this.index_first_frames, capacity);
+      this.index_last_frames = Arrays.copyOf(this.index_last_frames, capacity);
+      this.index_first_positions = Arrays.copyOf(this.index_first_positions, capacity);
+      this.index_offsets = Arrays.copyOf(this.index_offsets, capacity);
+      this.index_sizes = Arrays.copyOf(this.index_sizes, capacity);
+      this.index_lengths = Arrays.copyOf(this.index_lengths, capacity);
+      this.index_lines = Arrays.copyOf(this.index_lines, capacity);
+    }
+
+    final var index = this.index_count;
+    this.index_first_frames[index] = this.block_first_frame;
+    this.index_last_frames[index] = this.block_last_frame;
+    this.index_first_positions[index] = this.block_first_position;
+    this.index_offsets[index] = offset;
+    this.index_sizes[index] = this.block_used;
+    this.index_lengths[index] = length;
+    this.index_lines[index] = this.block_lines;
+    this.index_count = index + 1;
+  }
+
+  /**
+   * Read the lines written on frames in the range {@code [frame_from, frame_to]}.
+   *
+   * @param frame_from The first frame, inclusive
+   * @param frame_to   The last frame, inclusive
+   * @param output     The list to which lines are added, in position order
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void read(
+    final long frame_from,
+    final long frame_to,
+    final List<SGConsoleLine> output)
+    throws IOException
+  {
+    var low = 0;
+    var high = this.index_count;
+    while (low < high) {
+      final var middle = (low + high) >>> 1;
+      if (this.index_last_frames[middle] < frame_from) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    if (low < this.index_count && this.index_first_frames[low] <= frame_to) {
+      final var inflater = new Inflater();
+      try (var channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+        for (var index = low; index < this.index_count; ++index) {
+          if (this.index_first_frames[index] > frame_to) {
+            break;
+          }
+          this.readBlock(channel, inflater, index, frame_from, frame_to, output);
+        }
+      } finally {
+        inflater.end();
+      }
+    }
+
+    if (this.block_lines > 0) {
+      decodeLines(
+        this.block,
+        this.block_lines,
+        this.block_first_position,
+        this.block_first_frame,
+        frame_from,
+        frame_to,
+        output);
+    }
+  }
+
+  private void readBlock(
+    final FileChannel channel,
+    final Inflater inflater,
+    final int index,
+    final long frame_from,
+    final long frame_to,
+    final List<SGConsoleLine> output)
+    throws IOException
+  {
+    final var length = this.index_lengths[index];
+    final var data = ByteBuffer.allocate(length);
+    var offset = this.index_offsets[index];
+    while (data.hasRemaining()) {
+      final var count = channel.read(data, offset);
+      if (count < 0) {
+        throw new IOException("Unexpected end of console history file: " + this.file);
+      }
+      offset = offset + (long) count;
+    }
+
+    final var size = this.index_sizes[index];
+    final var uncompressed = new byte[size];
+    inflater.reset();
+    inflater.setInput(data.array(), 0, length);
+    try {
+      var inflated = 0;
+      while (inflated < size) {
+        final var count = inflater.inflate(uncompressed, inflated, size - inflated);
+        if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new IOException("Truncated console history block in " + this.file);
+        }
+        inflated = inflated + count;
+      }
+    } catch (final DataFormatException e) {
+      throw new IOException("Corrupt console history block in " + this.file, e);
+    }
+
+    decodeLines(
+      uncompressed,
+      this.index_lines[index],
+      this.index_first_positions[index],
+      this.index_first_frames[index],
+      frame_from,
+      frame_to,
+      output);
+  }
+
+  private static void decodeLines(
+    final byte[] data,
+    final int lines,
+    final long first_position,
+    final long first_frame,
+    final long frame_from,
+    final long frame_to,
+    final List<SGConsoleLine> output)
+  {
+    final var cursor = new int[1];
+    for (int index = 0; index < lines; ++index) {
+      final var frame = first_frame + getVarint(data, cursor);
+      final var length = (int) getVarint(data, cursor);
+      if (frame > frame_to) {
+        return;
+      }
+      if (frame >= frame_from) {
+        final var text =
+          StandardCharsets.UTF_8.decode(ByteBuffer.wrap(data, cursor[0], length)).toString();
+        output.add(SGConsoleLine.of(first_position + (long) index, frame, text));
+      }
+      cursor[0] = cursor[0] + length;
+    }
+  }
+
+  private static long getVarint(
+    final byte[] data,
+    final int[] cursor)
+  {
+    long value = 0L;
+    int shift = 0;
+    while (true) {
+      final var octet = data[cursor[0]];
+      cursor[0] = cursor[0] + 1;
+      value = value | ((long) (octet & 0x7f) << shift);
+      if ((octet & 0x80) == 0) {
+        return value;
+      }
+      shift = shift + 7;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+/**
+ * A console buffer that stores interned format strings and their arguments, and formats lines
+ * only when they are read. Writing a line stores a template identifier, its frame, and a reference
+ * to its captured arguments in preallocated arrays. Once the line's format string has been
+ * interned, the buffer itself allocates nothing, but the captured arguments are a per-line array
+ * copied from the caller's arguments. Lines that were formatted when they were written,
+ * including lines whose format strings could not be interned because the template table is full,
+ * are stored as text.
+ */
+
+final class SGConsoleTemplateBuffer implements SGConsoleBufferType
+{
+  private final SGConsoleTemplateTable templates;
+  private final long[] frames;
+  private final int[] formats;
+  private final Object[][] arguments;
+  private final String[] texts;
+  private LongConsumer eviction;
+  private long start;
+  private long end;
+
+  SGConsoleTemplateBuffer(
+    final SGConsoleTemplateTable in_templates,
+    final int capacity)
+  {
+    this.templates = Objects.requireNonNull(in_templates, "templates");
+
+    Preconditions.checkPreconditionI(
+      capacity,
+      capacity > 0,
+      c -> "Capacity must be positive");
+
+    this.frames = new long[capacity];
+    this.formats = new int[capacity];
+    this.arguments = new Object[capacity][];
+    this.texts = new String[capacity];
+    this.eviction = position -> { };
+  }
+
+  @Override
+  public void write(
+    final long frame,
+    final String format,
+    final Object[] format_arguments)
+  {
+    final var id = this.templates.intern(format);
+    if (id < 0) {
+      this.writeText(frame, SGConsoleFormatting.format(format, format_arguments));
+      return;
+    }
+
+    final var index = this.append(frame);
+    this.formats[index] = id;
+    this.arguments[index] = format_arguments;
+    this.texts[index] = null;
+  }
+
+  @Override
+  public void writeText(
+    final long frame,
+    final String text)
+  {
+    final var index = this.append(frame);
+    this.formats[index] = -1;
+    this.arguments[index] = null;
+    this.texts[index] = Objects.requireNonNull(text, "text");
+  }
+
+  private int append(
+    final long frame)
+  {
+    final var capacity = this.formats.length;
+    if (this.end - this.start == capacity) {
+      try {
+        this.eviction.accept(this.start);
+      } finally {
+        this.start = this.start + 1L;
+      }
+    }
+
+    final var index = (int) (this.end % capacity);
+    this.frames[index] = frame;
+    this.end = this.end + 1L;
+    return index;
+  }
+
+  @Override
+  public void setEvictionListener(
+    final LongConsumer listener)
+  {
+    this.eviction = Objects.requireNonNull(listener, "listener");
+  }
+
+  @Override
+  public long start()
+  {
+    return this.start;
+  }
+
+  @Override
+  public long end()
+  {
+    return this.end;
+  }
+
+  private int indexOf(
+    final long position)
+  {
+    Preconditions.checkPreconditionL(
+      position,
+      position >= this.start && position < this.end,
+      p -> "Position must be retained");
+    return (int) (position % this.formats.length);
+  }
+
+  @Override
+  public long frame(
+    final long position)
+  {
+    return this.frames[this.indexOf(position)];
+  }
+
+  @Override
+  public String text(
+    final long position)
+  {
+    final var index = this.indexOf(position);
+    final var format = this.formats[index];
+    if (format < 0) {
+      return this.texts[index];
+    }
+    return SGConsoleFormatting.format(
+      this.templates.template(this.formats[index]),
+      this.arguments[index]);
+  }
+}
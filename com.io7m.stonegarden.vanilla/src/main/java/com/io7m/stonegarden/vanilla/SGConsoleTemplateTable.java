@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * A table of interned console format strings, shared by every console in a simulation. Consoles
+ * store the integer identifier of a format string rather than the string itself, and so the
+ * memory used by format strings grows with the number of distinct strings rather than with the
+ * number of computers.
+ *
+ * The table holds at most a fixed number of format strings, so that a simulation that produces
+ * an unbounded variety of format strings does not retain an unbounded amount of memory. Once the
+ * table is full, format strings that have not already been interned are refused, and consoles
+ * store the formatted text of such lines instead.
+ */
+
+final class SGConsoleTemplateTable
+{
+  private final HashMap<String, Integer> ids;
+  private final ArrayList<String> templates;
+  private final int capacity;
+
+  SGConsoleTemplateTable(
+    final int in_capacity)
+  {
+    Preconditions.checkPreconditionI(
+      in_capacity,
+      in_capacity >= 0,
+      c -> "Capacity must be non-negative");
+
+    this.capacity = in_capacity;
+    this.ids = new HashMap<>(Math.min(64, in_capacity));
+    this.templates = new ArrayList<>(Math.min(64, in_capacity));
+  }
+
+  /**
+   * Intern a format string.
+   *
+   * @param template The format string
+   *
+   * @return The identifier of the format string, or {@code -1} if the string has not already
+   * been interned and the table is full
+   */
+
+  int intern(
+    final String template)
+  {
+    Objects.requireNonNull(template, "template");
+
+    final var existing = this.ids.get(template);
+    if (existing != null) {
+      return existing.intValue();
+    }
+
+    final var id = this.templates.size();
+    if (id >= this.capacity) {
+      return -1;
+    }
+
+    this.templates.add(template);
+    this.ids.put(template, Integer.valueOf(id));
+    return id;
+  }
+
+  /**
+   * @param id The identifier of an interned format string
+   *
+   * @return The format string
+   */
+
+  String template(
+    final int id)
+  {
+    Preconditions.checkPreconditionI(
+      id,
+      id >= 0 && id < this.templates.size(),
+      i -> "Template must have been interned");
+    return this.templates.get(id);
+  }
+}
@@ -32,7 +32,7 @@ import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-abstract class SGDevice extends SGIdentifiable implements SGDeviceKernelInterfaceType
+abstract class SGDevice extends SGIdentifiable implements SGDeviceKernelInterfaceType, SGDeviceGraphVertexType
 {
   private final SGSimulationInternalAPIType simulation;
   private final SGDeviceDescriptionType description;
@@ -43,6 +43,7 @@ abstract class SGDevice extends SGIdentifiable implements SGDeviceKernelInterfac
   private final TreeMap<UUID, SGConnectorType> connectors_by_id;
   private final TreeMap<UUID, SGConnectorSocketType> sockets_by_id;
   private final AtomicBoolean closed;
+  private int graph_index;
 
   SGDevice(
     final SGSimulationInternalAPIType in_simulation,
@@ -52,6 +53,7 @@ abstract class SGDevice extends SGIdentifiable implements SGDeviceKernelInterfac
     super(in_uuid);
 
     this.closed = new AtomicBoolean(false);
+    this.graph_index = -1;
 
     this.simulation =
       Objects.requireNonNull(in_simulation, "simulation");
@@ -84,9 +86,13 @@ abstract class SGDevice extends SGIdentifiable implements SGDeviceKernelInterfac
     this.simulation.runLater(() -> {
       if (this.closed.compareAndSet(false, true)) {
         final var id = this.id();
-        this.simulation.publishEvent(SGDeviceEventDestroying.of(id));
+        if (this.simulation.isEventWanted(SGDeviceEventDestroying.class)) {
+          this.simulation.publishEvent(SGDeviceEventDestroying.of(id));
+        }
         this.onClose();
-        this.simulation.publishEvent(SGDeviceEventDestroyed.of(id));
+        if (this.simulation.isEventWanted(SGDeviceEventDestroyed.class)) {
+          this.simulation.publishEvent(SGDeviceEventDestroyed.of(id));
+        }
       }
     });
   }
@@ -109,4 +115,16 @@ abstract class SGDevice extends SGIdentifiable implements SGDeviceKernelInterfac
   {
     return this.simulation;
   }
+
+  @Override
+  public final int graphIndex()
+  {
+    return this.graph_index;
+  }
+
+  @Override
+  public final void setGraphIndex(final int index)
+  {
+    this.graph_index = index;
+  }
 }
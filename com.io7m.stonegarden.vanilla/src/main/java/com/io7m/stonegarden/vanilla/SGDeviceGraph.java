@@ -14,11 +14,9 @@
  * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
  */
 
-
 package com.io7m.stonegarden.vanilla;
 
 import com.io7m.jaffirm.core.Invariants;
-import com.io7m.jaffirm.core.Preconditions;
 import com.io7m.stonegarden.api.SGEventType;
 import com.io7m.stonegarden.api.SGIdentifiableType;
 import com.io7m.stonegarden.api.connectors.SGConnectableType;
@@ -26,84 +24,144 @@ import com.io7m.stonegarden.api.connectors.SGConnectedAlreadyException;
 import com.io7m.stonegarden.api.connectors.SGConnectorEventConnected;
 import com.io7m.stonegarden.api.connectors.SGConnectorEventDisconnected;
 import com.io7m.stonegarden.api.connectors.SGConnectorIncompatibleException;
+import com.io7m.stonegarden.api.connectors.SGConnectorProtocol;
 import com.io7m.stonegarden.api.connectors.SGConnectorSocketType;
 import com.io7m.stonegarden.api.connectors.SGConnectorType;
 import com.io7m.stonegarden.api.devices.SGDeviceEventDestroying;
 import com.io7m.stonegarden.api.devices.SGDeviceEventType;
 import com.io7m.stonegarden.api.devices.SGDeviceType;
+import com.io7m.stonegarden.api.simulation.SGSimulationTopologyType;
 import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
-import org.jgrapht.graph.SimpleGraph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 // CHECKSTYLE:OFF
 
-public final class SGDeviceGraph
+/**
+ * The graph of connections between devices.
+ *
+ * Every connector and every socket can be connected to at most one other connectable, so the
+ * graph stores connectivity as a single slot per connectable: {@code peers[c]} holds the index of
+ * the connectable to which {@code c} is connected, or {@code -1}. Each device additionally has a
+ * compact adjacency list holding the connector index of every connection that involves the
+ * device. An edge therefore costs four {@code int} slots and no allocation.
+ *
+ * The {@code Optional} values returned by {@link #connectedSocket(SGConnectorType)} and
+ * {@link #connectedConnector(SGConnectorSocketType)} are cached per connectable and only replaced
+ * when the connectable is connected, so polling the connectivity of a port does not allocate.
+ *
+ * Every device is labelled with the connected component to which it belongs. When a connection
+ * joins two components, the devices of the smaller component are relabelled (union by size). When
+ * a disconnection might split a component, a breadth-first search proceeds from both ends of the
+ * removed connection in lockstep; the search that is exhausted first has found the smaller half of
+ * a split, and only that half is relabelled. Both operations therefore cost time proportional to
+ * the size of the smaller side, and component queries are array reads.
+ *
+ * The graph records which devices have changed since the last call to {@link #publishSnapshot()}.
+ * Publishing a snapshot applies only those changes to the persistent vectors of the previous
+ * snapshot, so the cost of a snapshot is proportional to the amount of change rather than to the
+ * size of the graph.
+ *
+ * Unconnected connectors and sockets are additionally indexed by protocol, so that a compatible free
+ * port can be found without scanning every port in the simulation.
+ *
+ * The graph maintains a generation counter that is incremented whenever a device or a connection
+ * is added or removed. Callers that derive data from the graph (such as lists of neighbouring
+ * devices) can cache that data and recompute it only when the generation changes.
+ */
+
+public final class SGDeviceGraph implements SGSimulationTopologyType
 {
-  private final SimpleGraph<SGConnectableType, ConnectorSocketEdge> connector_graph;
-  private final SimpleGraph<SGDeviceType, DeviceEdge> device_graph;
+  private static final int[] NO_EDGES = new int[0];
+
   private final Disposable event_sub;
   private final Consumer<SGEventType> event_sink;
+  private final ArrayList<SGEventType> events_deferred;
+  private boolean events_deferring;
+  private final Predicate<Class<? extends SGEventType>> event_wanted;
   private final HashMap<UUID, SGIdentifiableType> objects;
+  private final SGDeviceGraphIndex<SGConnectableType> connectables;
+  private final SGDeviceGraphIndex<SGDeviceType> devices;
+  private int[] peers;
+  private int[] owners;
+  private Optional<?>[] peer_views;
+  private final SGDeviceGraphFreePorts free_ports;
+  private int[][] adjacency;
+  private int[] adjacency_sizes;
+  private int[] device_marks;
+  private int device_mark;
+  private final SGDeviceGraphComponents components;
+  private int[] device_components;
+  private int[] search_queue0;
+  private int[] search_queue1;
+  private final BitSet dirty_devices;
+  private volatile SGDeviceGraphSnapshot snapshot;
+  private long generation;
 
   public SGDeviceGraph(
     final Consumer<SGEventType> event_sink,
     final Observable<SGEventType> events,
     final HashMap<UUID, SGIdentifiableType> in_devices)
+  {
+    this(event_sink, clazz -> true, events, in_devices);
+  }
+
+  public SGDeviceGraph(
+    final Consumer<SGEventType> in_event_sink,
+    final Predicate<Class<? extends SGEventType>> in_event_wanted,
+    final Observable<? extends SGEventType> events,
+    final HashMap<UUID, SGIdentifiableType> in_devices)
   {
     Objects.requireNonNull(events, "events");
 
     this.objects =
       Objects.requireNonNull(in_devices, "devices");
     this.event_sink =
-      Objects.requireNonNull(event_sink, "event_sink");
-
-    this.connector_graph =
-      new SimpleGraph<>(
-        () -> {
-          throw new IllegalStateException();
-        },
-        () -> {
-          throw new IllegalStateException();
-        },
-        false);
-
-    this.device_graph =
-      new SimpleGraph<>(
-        () -> {
-          throw new IllegalStateException();
-        },
-        () -> {
-          throw new IllegalStateException();
-        },
-        false);
+      Objects.requireNonNull(in_event_sink, "event_sink");
+    this.event_wanted =
+      Objects.requireNonNull(in_event_wanted, "event_wanted");
+    this.events_deferred = new ArrayList<>();
+
+    this.connectables = new SGDeviceGraphIndex<>(64);
+    this.peers = new int[this.connectables.capacity()];
+    this.owners = new int[this.connectables.capacity()];
+    this.peer_views = new Optional<?>[this.connectables.capacity()];
+    Arrays.fill(this.peers, -1);
+    Arrays.fill(this.owners, -1);
+    Arrays.fill(this.peer_views, Optional.empty());
+    this.free_ports = new SGDeviceGraphFreePorts(this.connectables.capacity());
+
+    this.devices = new SGDeviceGraphIndex<>(32);
+    this.adjacency = new int[this.devices.capacity()][];
+    this.adjacency_sizes = new int[this.devices.capacity()];
+    this.device_marks = new int[this.devices.capacity()];
+    this.device_components = new int[this.devices.capacity()];
+    this.search_queue0 = new int[this.devices.capacity()];
+    this.search_queue1 = new int[this.devices.capacity()];
+    this.components = new SGDeviceGraphComponents(this.devices.capacity());
+    Arrays.fill(this.adjacency, NO_EDGES);
+    Arrays.fill(this.device_components, -1);
+    this.dirty_devices = new BitSet(this.devices.capacity());
+    this.snapshot = SGDeviceGraphSnapshot.empty();
 
     this.event_sub =
       events.ofType(SGDeviceEventType.class)
         .subscribe(this::onDeviceEvent);
   }
 
-  private static Optional<ConnectorSocketEdge> edgeOf(
-    final Set<ConnectorSocketEdge> edges)
-  {
-    if (!edges.isEmpty()) {
-      Invariants.checkInvariantI(
-        edges.size(),
-        edges.size() == 1,
-        e -> "Connectable must have exactly one edge");
-      final var edge = edges.iterator().next();
-      return Optional.of(edge);
-    }
-    return Optional.empty();
-  }
-
   private void onDeviceEvent(
     final SGDeviceEventType event)
   {
@@ -122,16 +180,47 @@ public final class SGDeviceGraph
       final var device = (SGDeviceType) object;
       for (final var connector : device.connectors()) {
         this.disconnect(connector);
-        this.connector_graph.removeVertex(connector);
+        this.unregisterConnectable(connector);
       }
       for (final var socket : device.sockets()) {
         this.disconnect(socket);
-        this.connector_graph.removeVertex(socket);
+        this.unregisterConnectable(socket);
       }
-      this.device_graph.removeVertex(device);
+      this.removeDevice(device);
+    }
+  }
+
+  private void removeDevice(
+    final SGDeviceType device)
+  {
+    final var index = this.devices.indexOf(device);
+    if (index >= 0) {
+      Invariants.checkInvariantI(
+        this.adjacency_sizes[index],
+        this.adjacency_sizes[index] == 0,
+        x -> "Removed device must have no remaining connections");
+      this.devices.unregister(device);
+      this.adjacency[index] = NO_EDGES;
+      this.components.release(this.device_components[index]);
+      this.device_components[index] = -1;
+      this.dirty_devices.set(index);
+      this.generation = this.generation + 1L;
+    }
+  }
+
+  private void unregisterConnectable(
+    final SGConnectableType connectable)
+  {
+    final var index = this.connectables.unregister(connectable);
+    if (index >= 0) {
+      this.free_ports.remove(index);
+      this.peers[index] = -1;
+      this.owners[index] = -1;
+      this.peer_views[index] = Optional.empty();
     }
   }
 
+  @Override
   public boolean areDirectlyConnected(
     final SGDeviceType device0,
     final SGDeviceType device1)
@@ -139,38 +228,64 @@ public final class SGDeviceGraph
     Objects.requireNonNull(device0, "device0");
     Objects.requireNonNull(device1, "device1");
 
-    final var edges = this.device_graph.edgesOf(device0);
-    for (final var edge : edges) {
-      if ((Objects.equals(edge.device0, device0) && Objects.equals(edge.device1, device1))
-        || (Objects.equals(edge.device0, device1) && Objects.equals(edge.device1, device0))) {
+    final var index0 = this.devices.indexOf(device0);
+    final var index1 = this.devices.indexOf(device1);
+    if (index0 < 0 || index1 < 0) {
+      return false;
+    }
+    return this.areDirectlyConnectedIndices(index0, index1);
+  }
+
+  private boolean areDirectlyConnectedIndices(
+    final int index0,
+    final int index1)
+  {
+    final int search;
+    final int target;
+    if (this.adjacency_sizes[index0] <= this.adjacency_sizes[index1]) {
+      search = index0;
+      target = index1;
+    } else {
+      search = index1;
+      target = index0;
+    }
+
+    final var edges = this.adjacency[search];
+    final var size = this.adjacency_sizes[search];
+    for (var edge_index = 0; edge_index < size; ++edge_index) {
+      if (this.edgeOtherDevice(edges[edge_index], search) == target) {
         return true;
       }
     }
     return false;
   }
 
+  /**
+   * @param connector The connector index of an edge
+   * @param device    One of the devices involved in the edge
+   *
+   * @return The device at the other end of the edge
+   */
+
+  private int edgeOtherDevice(
+    final int connector,
+    final int device)
+  {
+    final var connector_owner = this.owners[connector];
+    if (connector_owner == device) {
+      return this.owners[this.peers[connector]];
+    }
+    return connector_owner;
+  }
+
   public void disconnect(
     final SGConnectorType connector)
   {
     Objects.requireNonNull(connector, "connector");
 
-    final var edges = Set.copyOf(this.connector_graph.outgoingEdgesOf(connector));
-    for (final var edge : edges) {
-      Invariants.checkInvariant(
-        edge.connector,
-        Objects.equals(edge.connector, connector),
-        x -> "Must have correct connector");
-
-      this.connector_graph.removeEdge(edge);
-
-      this.device_graph.removeEdge(
-        new DeviceEdge(edge.connector.owner(), edge.connector, edge.socket.owner(), edge.socket));
-
-      this.event_sink.accept(
-        SGConnectorEventDisconnected.builder()
-          .setConnector(edge.connector.id())
-          .setSocket(edge.socket.id())
-          .build());
+    final var index = this.connectables.indexOf(connector);
+    if (index >= 0 && this.peers[index] >= 0) {
+      this.removeEdge(index);
     }
   }
 
@@ -179,48 +294,97 @@ public final class SGDeviceGraph
   {
     Objects.requireNonNull(socket, "socket");
 
-    final var edges = Set.copyOf(this.connector_graph.outgoingEdgesOf(socket));
-    for (final var edge : edges) {
-      Invariants.checkInvariant(
-        edge.connector,
-        Objects.equals(edge.socket, socket),
-        x -> "Must have correct socket");
+    final var index = this.connectables.indexOf(socket);
+    if (index >= 0 && this.peers[index] >= 0) {
+      this.removeEdge(this.peers[index]);
+    }
+  }
 
-      this.connector_graph.removeEdge(edge);
+  private void removeEdge(
+    final int connector)
+  {
+    final var socket = this.peers[connector];
+    this.peers[connector] = -1;
+    this.peers[socket] = -1;
+    this.peer_views[connector] = Optional.empty();
+    this.peer_views[socket] = Optional.empty();
+    this.free_ports.add(connector, protocolOf(this.connectables.get(connector)), false);
+    this.free_ports.add(socket, protocolOf(this.connectables.get(socket)), true);
 
-      this.device_graph.removeEdge(
-        new DeviceEdge(edge.connector.owner(), edge.connector, edge.socket.owner(), edge.socket));
+    final var connector_owner = this.owners[connector];
+    final var socket_owner = this.owners[socket];
+    this.adjacencyRemove(connector_owner, connector);
+    if (socket_owner != connector_owner) {
+      this.adjacencyRemove(socket_owner, connector);
+      this.componentsSplit(connector_owner, socket_owner);
+    }
 
-      this.event_sink.accept(
+    if (this.event_wanted.test(SGConnectorEventDisconnected.class)) {
+      this.publish(
         SGConnectorEventDisconnected.builder()
-          .setConnector(edge.connector.id())
-          .setSocket(edge.socket.id())
+          .setConnector(this.connectables.get(connector).id())
+          .setSocket(this.connectables.get(socket).id())
           .build());
     }
   }
 
+  private void adjacencyRemove(
+    final int device,
+    final int connector)
+  {
+    final var edges = this.adjacency[device];
+    final var size = this.adjacency_sizes[device];
+    for (var index = 0; index < size; ++index) {
+      if (edges[index] == connector) {
+        edges[index] = edges[size - 1];
+        this.adjacency_sizes[device] = size - 1;
+        this.dirty_devices.set(device);
+        this.generation = this.generation + 1L;
+        return;
+      }
+    }
+    throw new IllegalStateException("Edge missing from adjacency list");
+  }
+
+  private void adjacencyAdd(
+    final int device,
+    final int connector)
+  {
+    final var size = this.adjacency_sizes[device];
+    var edges = this.adjacency[device];
+    if (size == edges.length) {
+      edges = Arrays.copyOf(edges, Math.max(4, edges.length * 2));
+      this.adjacency[device] = edges;
+    }
+    edges[size] = connector;
+    this.adjacency_sizes[device] = size + 1;
+    this.dirty_devices.set(device);
+    this.generation = this.generation + 1L;
+  }
+
   public Optional<SGConnectorSocketType> connectedSocket(
     final SGConnectorType connector)
   {
     Objects.requireNonNull(connector, "connector");
-    return this.edgesOf(connector).flatMap(SGDeviceGraph::edgeOf).map(ConnectorSocketEdge::socket);
+    return this.peerOf(connector);
   }
 
   public Optional<SGConnectorType> connectedConnector(
     final SGConnectorSocketType socket)
   {
     Objects.requireNonNull(socket, "socket");
-    return this.edgesOf(socket).flatMap(SGDeviceGraph::edgeOf).map(ConnectorSocketEdge::connector);
+    return this.peerOf(socket);
   }
 
-  private Optional<Set<ConnectorSocketEdge>> edgesOf(
+  @SuppressWarnings("unchecked")
+  private <T extends SGConnectableType> Optional<T> peerOf(
     final SGConnectableType connectable)
   {
-    try {
-      return Optional.of(this.connector_graph.edgesOf(connectable));
-    } catch (final IllegalArgumentException e) {
+    final var index = this.connectables.indexOf(connectable);
+    if (index < 0) {
       return Optional.empty();
     }
+    return (Optional<T>) this.peer_views[index];
   }
 
   public void connect(
@@ -245,134 +409,815 @@ public final class SGDeviceGraph
       throw new SGConnectorIncompatibleException(socket, connector);
     }
 
-    this.connector_graph.addVertex(connector);
-    this.connector_graph.addVertex(socket);
-    this.connector_graph.addEdge(connector, socket, new ConnectorSocketEdge(connector, socket));
+    this.connectUnchecked(connector, socket);
+  }
+
+  private void connectUnchecked(
+    final SGConnectorType connector,
+    final SGConnectorSocketType socket)
+  {
+    final var connector_index = this.registerConnectable(connector, connector.owner());
+    final var socket_index = this.registerConnectable(socket, socket.owner());
+
+    this.peers[connector_index] = socket_index;
+    this.peers[socket_index] = connector_index;
+    this.peer_views[connector_index] = Optional.of(socket);
+    this.peer_views[socket_index] = Optional.of(connector);
+    this.free_ports.remove(connector_index);
+    this.free_ports.remove(socket_index);
+
+    final var connector_owner = this.owners[connector_index];
+    final var socket_owner = this.owners[socket_index];
+    this.componentsMerge(connector_owner, socket_owner);
+    this.adjacencyAdd(connector_owner, connector_index);
+    if (socket_owner != connector_owner) {
+      this.adjacencyAdd(socket_owner, connector_index);
+    }
+
+    if (this.event_wanted.test(SGConnectorEventConnected.class)) {
+      this.publish(SGConnectorEventConnected.of(connector.id(), socket.id()));
+    }
+  }
+
+  private void publish(
+    final SGEventType event)
+  {
+    if (this.events_deferring) {
+      this.events_deferred.add(event);
+    } else {
+      this.event_sink.accept(event);
+    }
+  }
+
+  /**
+   * Apply a batch of operations atomically. The entire batch is first validated against a
+   * private overlay of the connections that the batch would produce; if any operation would fail,
+   * an exception is raised and the graph is left untouched. Otherwise, every operation is applied
+   * and the resulting connection events are published only once the whole batch is in place, so
+   * observers never see a partially applied batch.
+   *
+   * @param operations The operations
+   *
+   * @throws SGConnectedAlreadyException     If an operation would connect an already connected
+   *                                         connectable
+   * @throws SGConnectorIncompatibleException If an operation would connect incompatible
+   *                                         connectables
+   */
+
+  void apply(
+    final List<SGDeviceGraphOperation> operations)
+    throws SGConnectedAlreadyException, SGConnectorIncompatibleException
+  {
+    Objects.requireNonNull(operations, "operations");
+
+    this.validate(operations);
+
+    this.events_deferring = true;
+    try {
+      for (final var operation : operations) {
+        switch (operation.kind()) {
+          case CONNECT:
+            this.connectUnchecked(operation.connector(), operation.socket());
+            break;
+          case DISCONNECT_CONNECTOR:
+            this.disconnect(operation.connector());
+            break;
+          case DISCONNECT_SOCKET:
+            this.disconnect(operation.socket());
+            break;
+        }
+      }
+    } finally {
+      this.events_deferring = false;
+      for (final var event : this.events_deferred) {
+        this.event_sink.accept(event);
+      }
+      this.events_deferred.clear();
+    }
+  }
+
+  private void validate(
+    final List<SGDeviceGraphOperation> operations)
+    throws SGConnectedAlreadyException, SGConnectorIncompatibleException
+  {
+    final var overlay =
+      new IdentityHashMap<SGConnectableType, Optional<SGConnectableType>>(operations.size() * 2);
+
+    for (final var operation : operations) {
+      switch (operation.kind()) {
+        case CONNECT: {
+          final var connector = operation.connector();
+          final var socket = operation.socket();
+
+          final var socket_existing = this.overlayPeerOf(overlay, connector);
+          if (socket_existing.isPresent()) {
+            throw new SGConnectedAlreadyException(
+              connector, (SGConnectorSocketType) socket_existing.get(), socket);
+          }
+          final var connector_existing = this.overlayPeerOf(overlay, socket);
+          if (connector_existing.isPresent()) {
+            throw new SGConnectedAlreadyException(
+              socket, (SGConnectorType) connector_existing.get(), connector);
+          }
+          if (!Objects.equals(connector.protocol(), socket.protocol())) {
+            throw new SGConnectorIncompatibleException(socket, connector);
+          }
+
+          overlay.put(connector, Optional.of(socket));
+          overlay.put(socket, Optional.of(connector));
+          break;
+        }
+        case DISCONNECT_CONNECTOR:
+          this.overlayDisconnect(overlay, operation.connector());
+          break;
+        case DISCONNECT_SOCKET:
+          this.overlayDisconnect(overlay, operation.socket());
+          break;
+      }
+    }
+  }
+
+  private void overlayDisconnect(
+    final IdentityHashMap<SGConnectableType, Optional<SGConnectableType>> overlay,
+    final SGConnectableType connectable)
+  {
+    final var peer = this.overlayPeerOf(overlay, connectable);
+    if (peer.isPresent()) {
+      overlay.put(connectable, Optional.empty());
+      overlay.put(peer.get(), Optional.empty());
+    }
+  }
+
+  private Optional<SGConnectableType> overlayPeerOf(
+    final IdentityHashMap<SGConnectableType, Optional<SGConnectableType>> overlay,
+    final SGConnectableType connectable)
+  {
+    final var overridden = overlay.get(connectable);
+    if (overridden != null) {
+      return overridden;
+    }
+    return this.peerOf(connectable);
+  }
+
+  private int registerConnectable(
+    final SGConnectableType connectable,
+    final SGDeviceType owner)
+  {
+    Objects.requireNonNull(owner, "owner");
+
+    final var owner_index = this.registerDevice(owner);
+    final var existing = this.connectables.indexOf(connectable);
+    if (existing >= 0) {
+      return existing;
+    }
+
+    final var index = this.connectables.register(connectable);
+    if (index >= this.peers.length) {
+      final var capacity = this.connectables.capacity();
+      final var size_old = this.peers.length;
+      this.peers = Arrays.copyOf(this.peers, capacity);
+      this.owners = Arrays.copyOf(this.owners, capacity);
+      this.peer_views = Arrays.copyOf(this.peer_views, capacity);
+      Arrays.fill(this.peers, size_old, capacity, -1);
+      Arrays.fill(this.owners, size_old, capacity, -1);
+      Arrays.fill(this.peer_views, size_old, capacity, Optional.empty());
+      this.free_ports.ensureCapacity(capacity);
+    }
+    this.owners[index] = owner_index;
+    this.free_ports.add(
+      index,
+      protocolOf(connectable),
+      connectable instanceof SGConnectorSocketType);
+    return index;
+  }
+
+  private static SGConnectorProtocol protocolOf(
+    final SGConnectableType connectable)
+  {
+    if (connectable instanceof SGConnectorSocketType) {
+      return ((SGConnectorSocketType) connectable).protocol();
+    }
+    return ((SGConnectorType) connectable).protocol();
+  }
+
+  /**
+   * @param protocol The protocol
+   *
+   * @return The number of unconnected sockets with the given protocol
+   */
+
+  public int freeSocketCount(
+    final SGConnectorProtocol protocol)
+  {
+    Objects.requireNonNull(protocol, "protocol");
+    return this.free_ports.count(protocol, true);
+  }
+
+  /**
+   * @param protocol The protocol
+   *
+   * @return The number of unconnected connectors with the given protocol
+   */
+
+  public int freeConnectorCount(
+    final SGConnectorProtocol protocol)
+  {
+    Objects.requireNonNull(protocol, "protocol");
+    return this.free_ports.count(protocol, false);
+  }
+
+  /**
+   * Find an unconnected socket that is compatible with {@code connector} and that does not
+   * belong to the device that owns {@code connector}.
+   *
+   * @param connector The connector
+   *
+   * @return A free socket, if one exists
+   */
+
+  public Optional<SGConnectorSocketType> findFreeSocket(
+    final SGConnectorType connector)
+  {
+    Objects.requireNonNull(connector, "connector");
+
+    final var found = this.findFree(connector.protocol(), true, connector.owner());
+    if (found < 0) {
+      return Optional.empty();
+    }
+    return Optional.of((SGConnectorSocketType) this.connectables.get(found));
+  }
+
+  /**
+   * Find an unconnected connector that is compatible with {@code socket} and that does not
+   * belong to the device that owns {@code socket}.
+   *
+   * @param socket The socket
+   *
+   * @return A free connector, if one exists
+   */
+
+  public Optional<SGConnectorType> findFreeConnector(
+    final SGConnectorSocketType socket)
+  {
+    Objects.requireNonNull(socket, "socket");
+
+    final var found = this.findFree(socket.protocol(), false, socket.owner());
+    if (found < 0) {
+      return Optional.empty();
+    }
+    return Optional.of((SGConnectorType) this.connectables.get(found));
+  }
+
+  private int findFree(
+    final SGConnectorProtocol protocol,
+    final boolean socket,
+    final SGDeviceType exclude)
+  {
+    final var exclude_index = this.devices.indexOf(exclude);
+    for (var index = this.free_ports.first(protocol, socket);
+         index >= 0;
+         index = this.free_ports.next(index)) {
+      if (this.owners[index] != exclude_index) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Connect every unconnected connector and socket of {@code device} to a compatible unconnected
+   * port of some other device, where one exists. Ports for which no compatible free port exists
+   * are left unconnected.
+   *
+   * @param device The device
+   *
+   * @return The number of connections made
+   */
 
-    this.device_graph.addVertex(connector.owner());
-    this.device_graph.addVertex(socket.owner());
-    this.device_graph.addEdge(
-      connector.owner(),
-      socket.owner(),
-      new DeviceEdge(connector.owner(), connector, socket.owner(), socket));
+  public int autoConnect(
+    final SGDeviceType device)
+  {
+    Objects.requireNonNull(device, "device");
 
-    this.event_sink.accept(SGConnectorEventConnected.of(connector.id(), socket.id()));
+    var connections = 0;
+    for (final var connector : device.connectors()) {
+      if (this.connectedSocket(connector).isEmpty()) {
+        final var found = this.findFree(connector.protocol(), true, device);
+        if (found >= 0) {
+          this.connectUnchecked(connector, (SGConnectorSocketType) this.connectables.get(found));
+          connections = connections + 1;
+        }
+      }
+    }
+    for (final var socket : device.sockets()) {
+      if (this.connectedConnector(socket).isEmpty()) {
+        final var found = this.findFree(socket.protocol(), false, device);
+        if (found >= 0) {
+          this.connectUnchecked((SGConnectorType) this.connectables.get(found), socket);
+          connections = connections + 1;
+        }
+      }
+    }
+    return connections;
+  }
+
+  private int registerDevice(
+    final SGDeviceType device)
+  {
+    final var index = this.devices.register(device);
+    if (index >= this.adjacency.length) {
+      final var capacity = this.devices.capacity();
+      final var size_old = this.adjacency.length;
+      this.adjacency = Arrays.copyOf(this.adjacency, capacity);
+      this.adjacency_sizes = Arrays.copyOf(this.adjacency_sizes, capacity);
+      this.device_marks = Arrays.copyOf(this.device_marks, capacity);
+      this.device_components = Arrays.copyOf(this.device_components, capacity);
+      this.search_queue0 = new int[capacity];
+      this.search_queue1 = new int[capacity];
+      Arrays.fill(this.adjacency, size_old, capacity, NO_EDGES);
+      Arrays.fill(this.device_components, size_old, capacity, -1);
+    }
+    if (this.device_components[index] == -1) {
+      this.device_components[index] = this.components.allocate(1);
+      this.dirty_devices.set(index);
+      this.generation = this.generation + 1L;
+    }
+    return index;
   }
 
   public <T extends SGDeviceType> void addDevice(final T device)
   {
     Objects.requireNonNull(device, "device");
-    this.device_graph.addVertex(device);
+    this.registerDevice(device);
+    for (final var connector : device.connectors()) {
+      this.registerConnectable(connector, device);
+    }
+    for (final var socket : device.sockets()) {
+      this.registerConnectable(socket, device);
+    }
   }
 
   public Stream<SGDeviceType> devicesConnectedTo(final SGDeviceType host)
   {
     Objects.requireNonNull(host, "device");
 
-    return this.device_graph.edgesOf(host)
-      .stream()
-      .flatMap(edge -> Stream.of(edge.device0, edge.device1))
-      .filter(device -> !Objects.equals(device, host))
-      .distinct();
+    final var host_index = this.devices.indexOf(host);
+    if (host_index < 0) {
+      return Stream.empty();
+    }
+
+    final var results = new ArrayList<SGDeviceType>(this.adjacency_sizes[host_index]);
+    this.forEachDeviceConnectedTo(host, results, ArrayList::add);
+    return results.stream();
   }
 
-  private static final class ConnectorSocketEdge
+  /**
+   * Call {@code visitor} once for each device directly connected to {@code host}. The host itself
+   * is never visited. The iteration performs no allocation; callers that need state in the
+   * visitor should pass it as {@code context} rather than capturing it, so that the visitor itself
+   * can be a constant. The visitor may query the graph, but must not modify it.
+   *
+   * @param host    The host device
+   * @param context A context value passed to the visitor
+   * @param visitor The visitor
+   * @param <C>     The type of context values
+   *
+   * @return The number of devices visited
+   */
+
+  public <C> int forEachDeviceConnectedTo(
+    final SGDeviceType host,
+    final C context,
+    final BiConsumer<C, SGDeviceType> visitor)
   {
-    private final SGConnectorType connector;
-    private final SGConnectorSocketType socket;
+    Objects.requireNonNull(host, "device");
+    Objects.requireNonNull(visitor, "visitor");
 
-    public ConnectorSocketEdge(
-      final SGConnectorType in_connector,
-      final SGConnectorSocketType in_socket)
-    {
-      this.connector =
-        Objects.requireNonNull(in_connector, "connector");
-      this.socket =
-        Objects.requireNonNull(in_socket, "socket");
+    final var host_index = this.devices.indexOf(host);
+    if (host_index < 0) {
+      return 0;
     }
 
-    SGConnectorType connector()
-    {
-      return this.connector;
-    }
+    /*
+     * Devices that are connected by more than one connection appear more than once in the
+     * adjacency list. Duplicates are detected by scanning the preceding edges rather than by
+     * marking devices, so that the visitor is free to call methods (such as searches) that
+     * use the device marks. Adjacency lists are bounded by the number of ports on a device,
+     * so the scan is short.
+     */
 
-    SGConnectorSocketType socket()
-    {
-      return this.socket;
+    final var edges = this.adjacency[host_index];
+    final var size = this.adjacency_sizes[host_index];
+    var visited = 0;
+    for (var edge_index = 0; edge_index < size; ++edge_index) {
+      final var other = this.edgeOtherDevice(edges[edge_index], host_index);
+      if (other != host_index && !this.edgesReachBefore(edges, edge_index, host_index, other)) {
+        visitor.accept(context, this.devices.get(other));
+        visited = visited + 1;
+      }
     }
+    return visited;
+  }
 
-    @Override
-    public boolean equals(final Object o)
-    {
-      if (this == o) {
+  private boolean edgesReachBefore(
+    final int[] edges,
+    final int limit,
+    final int host,
+    final int target)
+  {
+    for (var edge_index = 0; edge_index < limit; ++edge_index) {
+      if (this.edgeOtherDevice(edges[edge_index], host) == target) {
         return true;
       }
-      if (o == null || !Objects.equals(this.getClass(), o.getClass())) {
-        return false;
+    }
+    return false;
+  }
+
+  /**
+   * @return The current generation of the graph; the generation is incremented whenever a device
+   * or connection is added or removed
+   */
+
+  public long generation()
+  {
+    return this.generation;
+  }
+
+  /**
+   * Merge the components of the given devices, if they are different, by relabelling the devices
+   * of the smaller component. This must be called before the connection between the devices is
+   * added to the adjacency lists, so that a search from the smaller side visits only the smaller
+   * component.
+   */
+
+  private void componentsMerge(
+    final int device0,
+    final int device1)
+  {
+    final var component0 = this.device_components[device0];
+    final var component1 = this.device_components[device1];
+    if (component0 == component1) {
+      return;
+    }
+
+    final var size0 = this.components.size(component0);
+    final var size1 = this.components.size(component1);
+
+    final int source;
+    final int target;
+    if (size0 <= size1) {
+      source = device0;
+      target = component1;
+    } else {
+      source = device1;
+      target = component0;
+    }
+
+    final var source_component = this.device_components[source];
+    final var count = this.search(source, this.search_queue0);
+    this.relabel(this.search_queue0, count, target);
+    this.components.setSize(target, size0 + size1);
+    this.components.release(source_component);
+  }
+
+  /**
+   * Split the component of the given devices if the removal of a connection between them has
+   * disconnected them. This must be called after the connection has been removed from the
+   * adjacency lists.
+   */
+
+  private void componentsSplit(
+    final int device0,
+    final int device1)
+  {
+    if (this.areDirectlyConnectedIndices(device0, device1)) {
+      return;
+    }
+
+    final var mark0 = this.nextDeviceMark();
+    final var mark1 = this.nextDeviceMark();
+    final var queue0 = this.search_queue0;
+    final var queue1 = this.search_queue1;
+
+    this.device_marks[device0] = mark0;
+    this.device_marks[device1] = mark1;
+    queue0[0] = device0;
+    queue1[0] = device1;
+
+    var head0 = 0;
+    var tail0 = 1;
+    var head1 = 0;
+    var tail1 = 1;
+
+    while (true) {
+      if (head0 == tail0) {
+        this.componentsSplitOff(queue0, tail0);
+        return;
+      }
+      final var next0 = this.searchStep(queue0, head0, tail0, mark0, mark1);
+      if (next0 < 0) {
+        return;
       }
-      final var that = (ConnectorSocketEdge) o;
-      return this.connector.equals(that.connector) && this.socket.equals(that.socket);
-    }
-
-    @Override
-    public int hashCode()
-    {
-      return Objects.hash(this.connector, this.socket);
-    }
-  }
-
-  private static final class DeviceEdge
-  {
-    private final SGDeviceType device0;
-    private final SGConnectorType connector;
-    private final SGDeviceType device1;
-    private final SGConnectorSocketType socket;
-
-    public DeviceEdge(
-      final SGDeviceType in_device0,
-      final SGConnectorType in_connector,
-      final SGDeviceType in_device1,
-      final SGConnectorSocketType in_socket)
-    {
-      this.device0 =
-        Objects.requireNonNull(in_device0, "device0");
-      this.connector =
-        Objects.requireNonNull(in_connector, "connector");
-      this.device1 =
-        Objects.requireNonNull(in_device1, "device1");
-      this.socket =
-        Objects.requireNonNull(in_socket, "socket");
-
-      Preconditions.checkPrecondition(
-        in_connector.owner(),
-        Objects.equals(in_connector.owner(), in_device0),
-        x -> "Connector must be owned by device " + in_device0);
-      Preconditions.checkPrecondition(
-        in_socket.owner(),
-        Objects.equals(in_socket.owner(), in_device1),
-        x -> "Socket must be owned by device " + in_device1);
-    }
-
-    @Override
-    public boolean equals(final Object o)
-    {
-      if (this == o) {
-        return true;
+      head0 = head0 + 1;
+      tail0 = next0;
+
+      if (head1 == tail1) {
+        this.componentsSplitOff(queue1, tail1);
+        return;
+      }
+      final var next1 = this.searchStep(queue1, head1, tail1, mark1, mark0);
+      if (next1 < 0) {
+        return;
       }
-      if (o == null || !Objects.equals(this.getClass(), o.getClass())) {
-        return false;
+      head1 = head1 + 1;
+      tail1 = next1;
+    }
+  }
+
+  /**
+   * Expand the device at {@code queue[head]}, appending any unvisited neighbours to the queue.
+   *
+   * @return The new queue tail, or {@code -1} if a device visited by the other search was reached
+   */
+
+  private int searchStep(
+    final int[] queue,
+    final int head,
+    final int tail,
+    final int mark,
+    final int mark_other)
+  {
+    final var device = queue[head];
+    final var edges = this.adjacency[device];
+    final var size = this.adjacency_sizes[device];
+
+    var new_tail = tail;
+    for (var edge_index = 0; edge_index < size; ++edge_index) {
+      final var other = this.edgeOtherDevice(edges[edge_index], device);
+      final var other_mark = this.device_marks[other];
+      if (other_mark == mark_other) {
+        return -1;
+      }
+      if (other_mark != mark) {
+        this.device_marks[other] = mark;
+        queue[new_tail] = other;
+        new_tail = new_tail + 1;
+      }
+    }
+    return new_tail;
+  }
+
+  private void componentsSplitOff(
+    final int[] devices_split,
+    final int count)
+  {
+    final var component_old = this.device_components[devices_split[0]];
+    final var component_new = this.components.allocate(count);
+    this.components.setSize(component_old, this.components.size(component_old) - count);
+    this.relabel(devices_split, count, component_new);
+  }
+
+  private void relabel(
+    final int[] devices_relabel,
+    final int count,
+    final int component)
+  {
+    for (var index = 0; index < count; ++index) {
+      final var device = devices_relabel[index];
+      this.device_components[device] = component;
+      this.dirty_devices.set(device);
+    }
+  }
+
+  /**
+   * @return The most recently published snapshot of the graph
+   *
+   * @see #publishSnapshot()
+   */
+
+  public SGSimulationTopologyType snapshot()
+  {
+    return this.snapshot;
+  }
+
+  /**
+   * Publish a new immutable snapshot of the graph, if anything has changed since the last
+   * snapshot was published.
+   */
+
+  public void publishSnapshot()
+  {
+    final var components_changed = this.components.changed();
+    if (this.dirty_devices.isEmpty() && components_changed.isEmpty()) {
+      return;
+    }
+
+    final var previous = this.snapshot;
+    var snap_devices = previous.devices();
+    var snap_neighbours = previous.neighbours();
+    var snap_device_components = previous.deviceComponents();
+    var snap_component_sizes = previous.componentSizes();
+
+    final var dirty = this.dirty_devices;
+    for (var index = dirty.nextSetBit(0); index >= 0; index = dirty.nextSetBit(index + 1)) {
+      final var device = this.devices.get(index);
+      snap_devices = snap_devices.set(index, device);
+      if (device == null) {
+        snap_neighbours = snap_neighbours.set(index, null);
+        snap_device_components = snap_device_components.set(index, -1);
+      } else {
+        snap_neighbours = snap_neighbours.set(index, this.neighboursOf(index));
+        snap_device_components = snap_device_components.set(index, this.device_components[index]);
       }
-      final var that = (DeviceEdge) o;
-      return this.device0.equals(that.device0)
-        && this.connector.equals(that.connector)
-        && this.device1.equals(that.device1)
-        && this.socket.equals(that.socket);
     }
 
-    @Override
-    public int hashCode()
-    {
-      return Objects.hash(this.device0, this.connector, this.device1, this.socket);
+    final var changed = components_changed;
+    for (var index = changed.nextSetBit(0); index >= 0; index = changed.nextSetBit(index + 1)) {
+      snap_component_sizes = snap_component_sizes.set(index, this.components.size(index));
+    }
+
+    dirty.clear();
+    components_changed.clear();
+
+    this.snapshot =
+      new SGDeviceGraphSnapshot(
+        previous.version() + 1L,
+        snap_devices,
+        snap_neighbours,
+        snap_device_components,
+        snap_component_sizes,
+        this.devices.foreignView(),
+        this.components.count(),
+        this.components.largest());
+  }
+
+  private int[] neighboursOf(
+    final int device)
+  {
+    final var edges = this.adjacency[device];
+    final var size = this.adjacency_sizes[device];
+    final var results = new int[size];
+    for (var edge_index = 0; edge_index < size; ++edge_index) {
+      results[edge_index] = this.edgeOtherDevice(edges[edge_index], device);
+    }
+    return results;
+  }
+
+  /**
+   * Find all devices reachable from {@code source}, including {@code source} itself.
+   *
+   * @return The number of devices written to {@code queue}
+   */
+
+  private int search(
+    final int source,
+    final int[] queue)
+  {
+    final var mark = this.nextDeviceMark();
+    this.device_marks[source] = mark;
+    queue[0] = source;
+
+    var tail = 1;
+    for (var head = 0; head < tail; ++head) {
+      tail = this.searchStep(queue, head, tail, mark, -1);
+    }
+    return tail;
+  }
+
+  /**
+   * @param device The device
+   *
+   * @return The component of the device, or {@code -1} if the device is not in the graph
+   */
+
+  public int componentOf(
+    final SGDeviceType device)
+  {
+    Objects.requireNonNull(device, "device");
+
+    final var index = this.devices.indexOf(device);
+    if (index < 0) {
+      return -1;
+    }
+    return this.device_components[index];
+  }
+
+  @Override
+  public boolean sameComponent(
+    final SGDeviceType device0,
+    final SGDeviceType device1)
+  {
+    Objects.requireNonNull(device0, "device0");
+    Objects.requireNonNull(device1, "device1");
+
+    final var component0 = this.componentOf(device0);
+    return component0 >= 0 && component0 == this.componentOf(device1);
+  }
+
+  @Override
+  public List<SGDeviceType> devicesReachableFrom(
+    final SGDeviceType device)
+  {
+    Objects.requireNonNull(device, "device");
+
+    final var index = this.devices.indexOf(device);
+    if (index < 0) {
+      return List.of();
+    }
+
+    final var count = this.search(index, this.search_queue0);
+    final var results = new ArrayList<SGDeviceType>(count - 1);
+    for (var result_index = 1; result_index < count; ++result_index) {
+      results.add(this.devices.get(this.search_queue0[result_index]));
+    }
+    return results;
+  }
+
+  @Override
+  public int componentSize(
+    final SGDeviceType device)
+  {
+    final var component = this.componentOf(device);
+    if (component < 0) {
+      return 0;
+    }
+    return this.components.size(component);
+  }
+
+  @Override
+  public int componentCount()
+  {
+    return this.components.count();
+  }
+
+  @Override
+  public int largestComponentSize()
+  {
+    return this.components.largest();
+  }
+
+  /**
+   * @return The exclusive upper bound of device indices
+   */
+
+  int deviceIndexLimit()
+  {
+    return this.devices.used();
+  }
+
+  /**
+   * @param index A device index
+   *
+   * @return The device at {@code index}, or {@code null} if there is none
+   */
+
+  SGDeviceType deviceAt(
+    final int index)
+  {
+    return this.devices.get(index);
+  }
+
+  /**
+   * @return The exclusive upper bound of connectable indices
+   */
+
+  int connectableIndexLimit()
+  {
+    return this.connectables.used();
+  }
+
+  /**
+   * @param index A connectable index
+   *
+   * @return The connectable at {@code index}, or {@code null} if there is none
+   */
+
+  SGConnectableType connectableAt(
+    final int index)
+  {
+    return this.connectables.get(index);
+  }
+
+  /**
+   * @param index A connectable index
+   *
+   * @return The index of the connectable connected to the connectable at {@code index}, or
+   * {@code -1} if it is not connected
+   */
+
+  int peerAt(
+    final int index)
+  {
+    return this.peers[index];
+  }
+
+  private int nextDeviceMark()
+  {
+    if (this.device_mark == Integer.MAX_VALUE) {
+      Arrays.fill(this.device_marks, 0);
+      this.device_mark = 0;
     }
+    this.device_mark = this.device_mark + 1;
+    return this.device_mark;
   }
 }
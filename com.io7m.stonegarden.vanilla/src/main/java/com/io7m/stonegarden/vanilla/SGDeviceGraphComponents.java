@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The bookkeeping for the connected components of a device graph. Components are identified by
+ * small integers that are reused when components disappear. The sizes of all components are
+ * tracked in a histogram so that the size of the largest component can be maintained without
+ * scanning every component. The set of components whose sizes have changed is recorded so that
+ * snapshots of the graph can be updated incrementally.
+ */
+
+final class SGDeviceGraphComponents
+{
+  private int[] sizes;
+  private int[] free;
+  private int free_count;
+  private int used;
+  private int count;
+  private int[] histogram;
+  private int largest;
+  private final BitSet changed;
+
+  SGDeviceGraphComponents(
+    final int capacity)
+  {
+    this.sizes = new int[Math.max(1, capacity)];
+    this.free = new int[Math.max(1, capacity)];
+    this.histogram = new int[Math.max(2, capacity + 1)];
+    this.changed = new BitSet(capacity);
+  }
+
+  /**
+   * Allocate a new component.
+   *
+   * @param size The initial size of the component
+   *
+   * @return The new component
+   */
+
+  int allocate(
+    final int size)
+  {
+    final int component;
+    if (this.free_count > 0) {
+      this.free_count = this.free_count - 1;
+      component = this.free[this.free_count];
+    } else {
+      if (this.used == this.sizes.length) {
+        this.sizes = Arrays.copyOf(this.sizes, this.sizes.length * 2);
+        this.free = Arrays.copyOf(this.free, this.sizes.length);
+      }
+      component = this.used;
+      this.used = this.used + 1;
+    }
+
+    this.count = this.count + 1;
+    this.sizes[component] = 0;
+    this.setSize(component, size);
+    return component;
+  }
+
+  /**
+   * Release a component. The component identifier may be reused by subsequent allocations.
+   *
+   * @param component The component
+   */
+
+  void release(
+    final int component)
+  {
+    this.setSize(component, 0);
+    this.count = this.count - 1;
+    this.free[this.free_count] = component;
+    this.free_count = this.free_count + 1;
+  }
+
+  /**
+   * @param component The component
+   *
+   * @return The number of devices in the component
+   */
+
+  int size(
+    final int component)
+  {
+    return this.sizes[component];
+  }
+
+  /**
+   * Set the number of devices in a component.
+   *
+   * @param component The component
+   * @param size      The new size
+   */
+
+  void setSize(
+    final int component,
+    final int size)
+  {
+    Preconditions.checkPreconditionI(size, size >= 0, s -> "Size must be non-negative");
+
+    final var size_old = this.sizes[component];
+    if (size_old > 0) {
+      this.histogram[size_old] = this.histogram[size_old] - 1;
+    }
+
+    this.sizes[component] = size;
+    this.changed.set(component);
+    if (size > 0) {
+      if (size >= this.histogram.length) {
+        this.histogram = Arrays.copyOf(this.histogram, Math.max(size + 1, this.histogram.length * 2));
+      }
+      this.histogram[size] = this.histogram[size] + 1;
+    }
+
+    if (size > this.largest) {
+      this.largest = size;
+    }
+    while (this.largest > 0 && this.histogram[this.largest] == 0) {
+      this.largest = this.largest - 1;
+    }
+  }
+
+  /**
+   * @return The mutable set of components whose sizes have changed since the set was last cleared
+   */
+
+  BitSet changed()
+  {
+    return this.changed;
+  }
+
+  /**
+   * @return The number of components
+   */
+
+  int count()
+  {
+    return this.count;
+  }
+
+  /**
+   * @return The number of devices in the largest component
+   */
+
+  int largest()
+  {
+    return this.largest;
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.connectors.SGConnectorProtocol;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * An index of the unconnected connectables in a device graph, grouped by protocol. Each protocol
+ * has one intrusive doubly-linked list of free sockets and one of free connectors, threaded through
+ * arrays indexed by connectable index, so adding and removing a connectable is constant time and
+ * allocation-free.
+ */
+
+final class SGDeviceGraphFreePorts
+{
+  private final HashMap<SGConnectorProtocol, Lists> lists;
+  private Lists[] list_of;
+  private boolean[] sockets;
+  private int[] next;
+  private int[] prev;
+
+  SGDeviceGraphFreePorts(
+    final int capacity)
+  {
+    this.lists = new HashMap<>(16);
+    this.list_of = new Lists[capacity];
+    this.sockets = new boolean[capacity];
+    this.next = new int[capacity];
+    this.prev = new int[capacity];
+  }
+
+  /**
+   * Ensure that connectable indices up to {@code capacity} (exclusive) can be stored.
+   *
+   * @param capacity The required capacity
+   */
+
+  void ensureCapacity(
+    final int capacity)
+  {
+    if (capacity > this.next.length) {
+      this.list_of = Arrays.copyOf(this.list_of, capacity);
+      this.sockets = Arrays.copyOf(this.sockets, capacity);
+      this.next = Arrays.copyOf(this.next, capacity);
+      this.prev = Arrays.copyOf(this.prev, capacity);
+    }
+  }
+
+  /**
+   * Mark the connectable at {@code index} as free.
+   *
+   * @param index    The connectable index
+   * @param protocol The protocol of the connectable
+   * @param socket   {@code true} if the connectable is a socket
+   */
+
+  void add(
+    final int index,
+    final SGConnectorProtocol protocol,
+    final boolean socket)
+  {
+    Objects.requireNonNull(protocol, "protocol");
+
+    if (this.list_of[index] != null) {
+      return;
+    }
+
+    final var list = this.lists.computeIfAbsent(protocol, p -> new Lists());
+    final var head = list.head(socket);
+    this.list_of[index] = list;
+    this.sockets[index] = socket;
+    this.prev[index] = -1;
+    this.next[index] = head;
+    if (head >= 0) {
+      this.prev[head] = index;
+    }
+    list.setHead(socket, index);
+    list.addCount(socket, 1);
+  }
+
+  /**
+   * Mark the connectable at {@code index} as not free. Has no effect if the connectable is not
+   * currently free.
+   *
+   * @param index The connectable index
+   */
+
+  void remove(
+    final int index)
+  {
+    final var list = this.list_of[index];
+    if (list == null) {
+      return;
+    }
+
+    final var socket = this.sockets[index];
+    final var index_prev = this.prev[index];
+    final var index_next = this.next[index];
+    if (index_prev >= 0) {
+      this.next[index_prev] = index_next;
+    } else {
+      list.setHead(socket, index_next);
+    }
+    if (index_next >= 0) {
+      this.prev[index_next] = index_prev;
+    }
+
+    this.list_of[index] = null;
+    list.addCount(socket, -1);
+  }
+
+  /**
+   * @param protocol The protocol
+   * @param socket   {@code true} to find sockets, {@code false} to find connectors
+   *
+   * @return The first free connectable of the given kind and protocol, or {@code -1} if there are
+   * none
+   */
+
+  int first(
+    final SGConnectorProtocol protocol,
+    final boolean socket)
+  {
+    final var list = this.lists.get(protocol);
+    if (list == null) {
+      return -1;
+    }
+    return list.head(socket);
+  }
+
+  /**
+   * @param index A free connectable
+   *
+   * @return The next free connectable of the same kind and protocol, or {@code -1} if there are none
+   */
+
+  int next(
+    final int index)
+  {
+    return this.next[index];
+  }
+
+  /**
+   * @param protocol The protocol
+   * @param socket   {@code true} to count sockets, {@code false} to count connectors
+   *
+   * @return The number of free connectables of the given kind and protocol
+   */
+
+  int count(
+    final SGConnectorProtocol protocol,
+    final boolean socket)
+  {
+    final var list = this.lists.get(protocol);
+    if (list == null) {
+      return 0;
+    }
+    return list.count(socket);
+  }
+
+  private static final class Lists
+  {
+    private int head_sockets;
+    private int head_connectors;
+    private int count_sockets;
+    private int count_connectors;
+
+    Lists()
+    {
+      this.head_sockets = -1;
+      this.head_connectors = -1;
+    }
+
+    int head(
+      final boolean socket)
+    {
+      return socket ? this.head_sockets : this.head_connectors;
+    }
+
+    void setHead(
+      final boolean socket,
+      final int index)
+    {
+      if (socket) {
+        this.head_sockets = index;
+      } else {
+        this.head_connectors = index;
+      }
+    }
+
+    int count(
+      final boolean socket)
+    {
+      return socket ? this.count_sockets : this.count_connectors;
+    }
+
+    void addCount(
+      final boolean socket,
+      final int delta)
+    {
+      if (socket) {
+        this.count_sockets = this.count_sockets + delta;
+      } else {
+        this.count_connectors = this.count_connectors + delta;
+      }
+    }
+  }
+}
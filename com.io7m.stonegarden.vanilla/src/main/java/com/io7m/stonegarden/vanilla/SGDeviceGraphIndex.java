@@ -0,0 +1,208 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An allocator of dense integer indices for the objects in a device graph. Objects that implement
+ * {@link SGDeviceGraphVertexType} store their own index; any other objects (such as those
+ * supplied by foreign implementations of the API) are tracked by identity in a side table.
+ * Released indices are reused in order to keep the graph arrays compact.
+ *
+ * @param <T> The type of indexed objects
+ */
+
+final class SGDeviceGraphIndex<T>
+{
+  private final IdentityHashMap<T, Integer> foreign;
+  private Map<T, Integer> foreign_view;
+  private Object[] objects;
+  private int[] free;
+  private int free_count;
+  private int used;
+  private int count;
+
+  SGDeviceGraphIndex(
+    final int capacity)
+  {
+    this.foreign = new IdentityHashMap<>(16);
+    this.foreign_view = Map.of();
+    this.objects = new Object[Math.max(1, capacity)];
+    this.free = new int[16];
+  }
+
+  /**
+   * @param object The object
+   *
+   * @return The index of {@code object}, or {@code -1} if the object is not registered
+   */
+
+  int indexOf(
+    final T object)
+  {
+    if (object instanceof SGDeviceGraphVertexType) {
+      final var index = ((SGDeviceGraphVertexType) object).graphIndex();
+      if (index >= 0 && index < this.used && this.objects[index] == object) {
+        return index;
+      }
+      return -1;
+    }
+
+    final var index = this.foreign.get(object);
+    if (index == null) {
+      return -1;
+    }
+    return index.intValue();
+  }
+
+  /**
+   * Register {@code object} if it is not already registered.
+   *
+   * @param object The object
+   *
+   * @return The index of {@code object}
+   */
+
+  int register(
+    final T object)
+  {
+    Objects.requireNonNull(object, "object");
+
+    final var existing = this.indexOf(object);
+    if (existing >= 0) {
+      return existing;
+    }
+
+    final int index;
+    if (this.free_count > 0) {
+      this.free_count = this.free_count - 1;
+      index = this.free[this.free_count];
+    } else {
+      if (this.used == this.objects.length) {
+        this.objects = Arrays.copyOf(this.objects, this.objects.length * 2);
+      }
+      index = this.used;
+      this.used = this.used + 1;
+    }
+
+    this.objects[index] = object;
+    this.count = this.count + 1;
+    if (object instanceof SGDeviceGraphVertexType) {
+      ((SGDeviceGraphVertexType) object).setGraphIndex(index);
+    } else {
+      this.foreign.put(object, Integer.valueOf(index));
+      this.foreign_view = null;
+    }
+    return index;
+  }
+
+  /**
+   * Unregister {@code object}. The index of the object becomes available for reuse. Objects that
+   * store their own index retain their (now stale) index so that immutable snapshots taken before
+   * the object was unregistered can still locate it.
+   *
+   * @param object The object
+   *
+   * @return The index that {@code object} had, or {@code -1} if it was not registered
+   */
+
+  int unregister(
+    final T object)
+  {
+    final var index = this.indexOf(object);
+    if (index < 0) {
+      return -1;
+    }
+
+    this.objects[index] = null;
+    this.count = this.count - 1;
+    if (!(object instanceof SGDeviceGraphVertexType)) {
+      this.foreign.remove(object);
+      this.foreign_view = null;
+    }
+
+    if (this.free_count == this.free.length) {
+      this.free = Arrays.copyOf(this.free, this.free.length * 2);
+    }
+    this.free[this.free_count] = index;
+    this.free_count = this.free_count + 1;
+    return index;
+  }
+
+  /**
+   * @return An immutable copy of the identity table for objects that do not store their own index
+   */
+
+  Map<T, Integer> foreignView()
+  {
+    if (this.foreign_view == null) {
+      this.foreign_view = Collections.unmodifiableMap(new IdentityHashMap<>(this.foreign));
+    }
+    return this.foreign_view;
+  }
+
+  /**
+   * @param index The index
+   *
+   * @return The object at {@code index}, or {@code null} if the index is unused
+   */
+
+  @SuppressWarnings("unchecked")
+  T get(
+    final int index)
+  {
+    Preconditions.checkPreconditionI(
+      index,
+      index >= 0 && index < this.used,
+      i -> "Index must be in range");
+    return (T) this.objects[index];
+  }
+
+  /**
+   * @return The number of indices that have ever been allocated (the highest index plus one)
+   */
+
+  int used()
+  {
+    return this.used;
+  }
+
+  /**
+   * @return The number of registered objects
+   */
+
+  int count()
+  {
+    return this.count;
+  }
+
+  /**
+   * @return The current capacity of the index; all indices are strictly less than this value
+   */
+
+  int capacity()
+  {
+    return this.objects.length;
+  }
+}
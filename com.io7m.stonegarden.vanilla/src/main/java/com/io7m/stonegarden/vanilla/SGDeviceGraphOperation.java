@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.connectors.SGConnectableType;
+import com.io7m.stonegarden.api.connectors.SGConnectorSocketType;
+import com.io7m.stonegarden.api.connectors.SGConnectorType;
+
+import java.util.Objects;
+
+/**
+ * A single operation in a batch of device graph mutations.
+ *
+ * @see SGDeviceGraph#apply(java.util.List)
+ */
+
+final class SGDeviceGraphOperation
+{
+  private final Kind kind;
+  private final SGConnectableType target;
+  private final SGConnectorSocketType socket;
+
+  private SGDeviceGraphOperation(
+    final Kind in_kind,
+    final SGConnectableType in_target,
+    final SGConnectorSocketType in_socket)
+  {
+    this.kind = Objects.requireNonNull(in_kind, "kind");
+    this.target = Objects.requireNonNull(in_target, "target");
+    this.socket = in_socket;
+  }
+
+  static SGDeviceGraphOperation connect(
+    final SGConnectorType connector,
+    final SGConnectorSocketType socket)
+  {
+    return new SGDeviceGraphOperation(
+      Kind.CONNECT,
+      connector,
+      Objects.requireNonNull(socket, "socket"));
+  }
+
+  static SGDeviceGraphOperation disconnectConnector(
+    final SGConnectorType connector)
+  {
+    return new SGDeviceGraphOperation(Kind.DISCONNECT_CONNECTOR, connector, null);
+  }
+
+  static SGDeviceGraphOperation disconnectSocket(
+    final SGConnectorSocketType socket)
+  {
+    return new SGDeviceGraphOperation(Kind.DISCONNECT_SOCKET, socket, null);
+  }
+
+  Kind kind()
+  {
+    return this.kind;
+  }
+
+  SGConnectorType connector()
+  {
+    return (SGConnectorType) this.target;
+  }
+
+  SGConnectorSocketType socket()
+  {
+    if (this.kind == Kind.DISCONNECT_SOCKET) {
+      return (SGConnectorSocketType) this.target;
+    }
+    return Objects.requireNonNull(this.socket, "socket");
+  }
+
+  enum Kind
+  {
+    CONNECT,
+    DISCONNECT_CONNECTOR,
+    DISCONNECT_SOCKET
+  }
+}
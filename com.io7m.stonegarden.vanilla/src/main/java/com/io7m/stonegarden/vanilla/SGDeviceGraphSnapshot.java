@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.devices.SGDeviceType;
+import com.io7m.stonegarden.api.simulation.SGSimulationTopologyType;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of a device graph. Snapshots are built from persistent vectors, so a new
+ * snapshot shares everything except the parts of the graph that changed since the previous one.
+ * A snapshot may be safely queried from any thread.
+ */
+
+final class SGDeviceGraphSnapshot implements SGSimulationTopologyType
+{
+  private static final SGDeviceGraphSnapshot EMPTY =
+    new SGDeviceGraphSnapshot(
+      0L,
+      SGPersistentVector.empty(),
+      SGPersistentVector.empty(),
+      SGPersistentIntVector.empty(),
+      SGPersistentIntVector.empty(),
+      Map.of(),
+      0,
+      0);
+
+  private final long version;
+  private final SGPersistentVector<SGDeviceType> devices;
+  private final SGPersistentVector<int[]> neighbours;
+  private final SGPersistentIntVector device_components;
+  private final SGPersistentIntVector component_sizes;
+  private final Map<SGDeviceType, Integer> foreign;
+  private final int component_count;
+  private final int component_largest;
+
+  SGDeviceGraphSnapshot(
+    final long in_version,
+    final SGPersistentVector<SGDeviceType> in_devices,
+    final SGPersistentVector<int[]> in_neighbours,
+    final SGPersistentIntVector in_device_components,
+    final SGPersistentIntVector in_component_sizes,
+    final Map<SGDeviceType, Integer> in_foreign,
+    final int in_component_count,
+    final int in_component_largest)
+  {
+    this.version = in_version;
+    this.devices =
+      Objects.requireNonNull(in_devices, "devices");
+    this.neighbours =
+      Objects.requireNonNull(in_neighbours, "neighbours");
+    this.device_components =
+      Objects.requireNonNull(in_device_components, "device_components");
+    this.component_sizes =
+      Objects.requireNonNull(in_component_sizes, "component_sizes");
+    this.foreign =
+      Objects.requireNonNull(in_foreign, "foreign");
+    this.component_count = in_component_count;
+    this.component_largest = in_component_largest;
+  }
+
+  static SGDeviceGraphSnapshot empty()
+  {
+    return EMPTY;
+  }
+
+  long version()
+  {
+    return this.version;
+  }
+
+  SGPersistentVector<SGDeviceType> devices()
+  {
+    return this.devices;
+  }
+
+  SGPersistentVector<int[]> neighbours()
+  {
+    return this.neighbours;
+  }
+
+  SGPersistentIntVector deviceComponents()
+  {
+    return this.device_components;
+  }
+
+  SGPersistentIntVector componentSizes()
+  {
+    return this.component_sizes;
+  }
+
+  private int indexOf(
+    final SGDeviceType device)
+  {
+    Objects.requireNonNull(device, "device");
+
+    if (device instanceof SGDeviceGraphVertexType) {
+      final var index = ((SGDeviceGraphVertexType) device).graphIndex();
+      if (index >= 0 && this.devices.get(index) == device) {
+        return index;
+      }
+      return -1;
+    }
+
+    final var index = this.foreign.get(device);
+    if (index == null) {
+      return -1;
+    }
+    return index.intValue();
+  }
+
+  @Override
+  public boolean areDirectlyConnected(
+    final SGDeviceType device0,
+    final SGDeviceType device1)
+  {
+    final var index0 = this.indexOf(device0);
+    final var index1 = this.indexOf(device1);
+    if (index0 < 0 || index1 < 0) {
+      return false;
+    }
+
+    for (final var other : this.neighbours.get(index0)) {
+      if (other == index1) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean sameComponent(
+    final SGDeviceType device0,
+    final SGDeviceType device1)
+  {
+    final var index0 = this.indexOf(device0);
+    final var index1 = this.indexOf(device1);
+    if (index0 < 0 || index1 < 0) {
+      return false;
+    }
+    return this.device_components.get(index0) == this.device_components.get(index1);
+  }
+
+  @Override
+  public List<SGDeviceType> devicesReachableFrom(
+    final SGDeviceType device)
+  {
+    final var index = this.indexOf(device);
+    if (index < 0) {
+      return List.of();
+    }
+
+    final var size = this.component_sizes.get(this.device_components.get(index));
+    final var queue = new int[size];
+    final var visited = new BitSet();
+    queue[0] = index;
+    visited.set(index);
+
+    var tail = 1;
+    for (var head = 0; head < tail; ++head) {
+      for (final var other : this.neighbours.get(queue[head])) {
+        if (!visited.get(other)) {
+          visited.set(other);
+          queue[tail] = other;
+          tail = tail + 1;
+        }
+      }
+    }
+
+    final var results = new ArrayList<SGDeviceType>(tail - 1);
+    for (var result_index = 1; result_index < tail; ++result_index) {
+      results.add(this.devices.get(queue[result_index]));
+    }
+    return results;
+  }
+
+  @Override
+  public int componentSize(
+    final SGDeviceType device)
+  {
+    final var index = this.indexOf(device);
+    if (index < 0) {
+      return 0;
+    }
+    return this.component_sizes.get(this.device_components.get(index));
+  }
+
+  @Override
+  public int componentCount()
+  {
+    return this.component_count;
+  }
+
+  @Override
+  public int largestComponentSize()
+  {
+    return this.component_largest;
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+/**
+ * The type of objects that can remember their own index within a device graph. Storing the index
+ * in the object itself means that the graph can locate the storage for a device, connector, or
+ * socket without a hash lookup.
+ */
+
+interface SGDeviceGraphVertexType
+{
+  /**
+   * @return The index of this object in the device graph, or {@code -1} if the object has never
+   * been registered. The index is not cleared when the object is unregistered, and callers must
+   * therefore check that the object at the returned index is this object.
+   */
+
+  int graphIndex();
+
+  /**
+   * Set the index of this object in the device graph.
+   *
+   * @param index The index
+   */
+
+  void setGraphIndex(int index);
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Invariants;
+import com.io7m.stonegarden.api.SGEventType;
+
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A record of which types of events currently have subscribers. Publishers consult this before
+ * constructing events so that events that nobody will observe are never allocated.
+ */
+
+final class SGEventInterest
+{
+  private final HashMap<Class<?>, Integer> subscribed;
+  private final ConcurrentHashMap<Class<?>, Boolean> wanted;
+  private volatile int subscribed_all;
+
+  SGEventInterest()
+  {
+    this.subscribed = new HashMap<>(16);
+    this.wanted = new ConcurrentHashMap<>(32);
+  }
+
+  /**
+   * Register an observer that is interested in all events.
+   */
+
+  synchronized void subscribeAll()
+  {
+    this.subscribed_all = Math.addExact(this.subscribed_all, 1);
+  }
+
+  /**
+   * Unregister an observer that is interested in all events.
+   */
+
+  synchronized void unsubscribeAll()
+  {
+    Invariants.checkInvariantI(
+      this.subscribed_all,
+      this.subscribed_all > 0,
+      x -> "Observer count must be positive");
+    this.subscribed_all = this.subscribed_all - 1;
+  }
+
+  /**
+   * Register an observer that is interested in events of type {@code clazz} (and subtypes).
+   *
+   * @param clazz The event type
+   */
+
+  synchronized void subscribe(
+    final Class<? extends SGEventType> clazz)
+  {
+    Objects.requireNonNull(clazz, "clazz");
+    this.subscribed.merge(clazz, Integer.valueOf(1), Integer::sum);
+    this.wanted.clear();
+  }
+
+  /**
+   * Unregister an observer that is interested in events of type {@code clazz}.
+   *
+   * @param clazz The event type
+   */
+
+  synchronized void unsubscribe(
+    final Class<? extends SGEventType> clazz)
+  {
+    Objects.requireNonNull(clazz, "clazz");
+
+    final var count = this.subscribed.get(clazz);
+    Invariants.checkInvariant(
+      count,
+      count != null && count.intValue() > 0,
+      x -> "Observer count must be positive");
+
+    if (count.intValue() == 1) {
+      this.subscribed.remove(clazz);
+    } else {
+      this.subscribed.put(clazz, Integer.valueOf(count.intValue() - 1));
+    }
+    this.wanted.clear();
+  }
+
+  /**
+   * @param clazz The concrete type of event
+   *
+   * @return {@code true} if any observer would receive an event of type {@code clazz}
+   */
+
+  boolean isWanted(
+    final Class<? extends SGEventType> clazz)
+  {
+    if (this.subscribed_all > 0) {
+      return true;
+    }
+
+    final var cached = this.wanted.get(clazz);
+    if (cached != null) {
+      return cached.booleanValue();
+    }
+    return this.isWantedCompute(clazz);
+  }
+
+  private synchronized boolean isWantedCompute(
+    final Class<? extends SGEventType> clazz)
+  {
+    var result = false;
+    for (final var subscribed_class : this.subscribed.keySet()) {
+      if (subscribed_class.isAssignableFrom(clazz)) {
+        result = true;
+        break;
+      }
+    }
+    this.wanted.put(clazz, Boolean.valueOf(result));
+    return result;
+  }
+}
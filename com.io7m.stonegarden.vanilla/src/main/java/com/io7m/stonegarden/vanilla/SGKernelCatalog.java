@@ -0,0 +1,233 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.SGArchitecture;
+import com.io7m.stonegarden.api.SGVersionRange;
+import com.io7m.stonegarden.api.devices.SGStorageDeviceType;
+import com.io7m.stonegarden.api.kernels.SGKernelCatalogType;
+import com.io7m.stonegarden.api.kernels.SGKernelExecutableDescriptionType;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The kernel catalog of a simulation.
+ *
+ * Kernels are indexed by name, then by architecture, and then held in a map ordered by packed
+ * version. Each version maps to the devices that hold a kernel with that version, in the order
+ * that the kernels were added. A version range therefore resolves to a pair of binary searches
+ * over a single sorted array, and the best kernel in a range is at the upper end of that span.
+ * Resolving the best kernel performs no allocation.
+ */
+
+final class SGKernelCatalog implements SGKernelCatalogType
+{
+  private final HashMap<String, HashMap<SGArchitecture, SGPackedVersionMap<Holders>>> kernels;
+
+  SGKernelCatalog()
+  {
+    this.kernels = new HashMap<>();
+  }
+
+  /**
+   * Add all of the kernels on the given device to the catalog.
+   *
+   * @param device The device
+   */
+
+  void addDevice(
+    final SGStorageDeviceType device)
+  {
+    Objects.requireNonNull(device, "device");
+
+    for (final var kernel : device.kernels()) {
+      this.addKernel(device, kernel);
+    }
+  }
+
+  /**
+   * Add a kernel held by the given device to the catalog.
+   *
+   * @param device The device
+   * @param kernel The kernel
+   */
+
+  void addKernel(
+    final SGStorageDeviceType device,
+    final SGKernelExecutableDescriptionType kernel)
+  {
+    Objects.requireNonNull(device, "device");
+    Objects.requireNonNull(kernel, "kernel");
+
+    final var description = kernel.description();
+    final var versions =
+      this.kernels
+        .computeIfAbsent(description.name(), name -> new HashMap<>())
+        .computeIfAbsent(description.compatibility().architecture(), arch -> new SGPackedVersionMap<>(4));
+
+    final var version = description.version().packed();
+    var holders = versions.get(version);
+    if (holders == null) {
+      holders = new Holders();
+      versions.put(version, holders);
+    }
+    holders.add(device, kernel);
+  }
+
+  /**
+   * Remove all of the kernels on the given device from the catalog.
+   *
+   * @param device The device
+   */
+
+  void removeDevice(
+    final SGStorageDeviceType device)
+  {
+    Objects.requireNonNull(device, "device");
+
+    for (final var kernel : device.kernels()) {
+      final var description = kernel.description();
+      final var versions = this.versionsOf(description.name(), description.compatibility().architecture());
+      if (versions == null) {
+        continue;
+      }
+
+      final var version = description.version().packed();
+      final var holders = versions.get(version);
+      if (holders != null) {
+        holders.remove(device);
+        if (holders.isEmpty()) {
+          versions.remove(version);
+        }
+      }
+    }
+  }
+
+  private SGPackedVersionMap<Holders> versionsOf(
+    final String name,
+    final SGArchitecture architecture)
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(architecture, "architecture");
+
+    final var by_architecture = this.kernels.get(name);
+    if (by_architecture == null) {
+      return null;
+    }
+    return by_architecture.get(architecture);
+  }
+
+  @Override
+  public Optional<SGKernelExecutableDescriptionType> bestKernel(
+    final String name,
+    final SGArchitecture architecture,
+    final SGVersionRange range)
+  {
+    Objects.requireNonNull(range, "range");
+
+    final var versions = this.versionsOf(name, architecture);
+    if (versions == null) {
+      return Optional.empty();
+    }
+
+    final var best = versions.floorIndex(range.upperPackedInclusive());
+    if (best < 0 || versions.keyAt(best) < range.lowerPackedInclusive()) {
+      return Optional.empty();
+    }
+    return versions.valueAt(best).first();
+  }
+
+  @Override
+  public List<SGStorageDeviceType> devicesWithKernel(
+    final String name,
+    final SGArchitecture architecture,
+    final SGVersionRange range)
+  {
+    Objects.requireNonNull(range, "range");
+
+    final var versions = this.versionsOf(name, architecture);
+    if (versions == null) {
+      return List.of();
+    }
+
+    final var lower = versions.ceilingIndex(range.lowerPackedInclusive());
+    final var upper = versions.floorIndex(range.upperPackedInclusive());
+    if (lower > upper) {
+      return List.of();
+    }
+
+    final var results = new LinkedHashSet<SGStorageDeviceType>();
+    for (var index = lower; index <= upper; ++index) {
+      results.addAll(versions.valueAt(index).devices.keySet());
+    }
+    return List.copyOf(results);
+  }
+
+  /**
+   * The devices holding a particular version of a kernel. The first kernel added is cached as an
+   * {@code Optional} so that resolving the best kernel does not allocate.
+   */
+
+  private static final class Holders
+  {
+    private final LinkedHashMap<SGStorageDeviceType, SGKernelExecutableDescriptionType> devices;
+    private Optional<SGKernelExecutableDescriptionType> first;
+
+    Holders()
+    {
+      this.devices = new LinkedHashMap<>(4);
+      this.first = Optional.empty();
+    }
+
+    Optional<SGKernelExecutableDescriptionType> first()
+    {
+      return this.first;
+    }
+
+    boolean isEmpty()
+    {
+      return this.devices.isEmpty();
+    }
+
+    void add(
+      final SGStorageDeviceType device,
+      final SGKernelExecutableDescriptionType kernel)
+    {
+      this.devices.putIfAbsent(device, kernel);
+      if (this.first.isEmpty()) {
+        this.first = Optional.of(kernel);
+      }
+    }
+
+    void remove(
+      final SGStorageDeviceType device)
+    {
+      if (this.devices.remove(device) != null) {
+        if (this.devices.isEmpty()) {
+          this.first = Optional.empty();
+        } else {
+          this.first = Optional.of(this.devices.values().iterator().next());
+        }
+      }
+    }
+  }
+}
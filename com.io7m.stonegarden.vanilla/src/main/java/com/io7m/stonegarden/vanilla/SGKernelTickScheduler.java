@@ -0,0 +1,414 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.stonegarden.api.kernels.SGKernelTickType;
+import com.io7m.stonegarden.api.simulation.SGKernelStatistics;
+import com.io7m.stonegarden.api.simulation.SGSimulationConfiguration;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A scheduler that calls {@link com.io7m.stonegarden.api.kernels.SGKernelType#onTick} for each
+ * running kernel on each tick.
+ *
+ * Only running kernels are registered with the scheduler, and kernels that are sleeping or
+ * suspended are removed from the array of active kernels, so the cost of a tick is proportional
+ * to the number of awake kernels rather than the number of devices in the simulation. Sleeping
+ * kernels are held in a binary min-heap ordered by the frame on which they wake. Each entry
+ * records its position in the heap, so a kernel removed while sleeping is taken out of the heap
+ * immediately, however distant its wake frame.
+ *
+ * Kernels may cause other kernels to be removed while the active array is being traversed, so
+ * removals during a run leave holes in the array that are compacted when the run completes.
+ */
+
+final class SGKernelTickScheduler
+{
+  private final long budget;
+  private final Tick tick;
+  private Entry[] sleepers;
+  private int sleepers_count;
+  private Entry[] active;
+  private int active_count;
+  private boolean running;
+
+  SGKernelTickScheduler(
+    final SGSimulationConfiguration configuration)
+  {
+    Objects.requireNonNull(configuration, "configuration");
+
+    this.budget = configuration.kernelTickBudget();
+    this.tick = new Tick();
+    this.sleepers = new Entry[16];
+    this.active = new Entry[16];
+  }
+
+  /**
+   * Register a computer whose kernel has started.
+   *
+   * @param computer The computer
+   *
+   * @return The entry used to remove the computer
+   */
+
+  Entry add(
+    final SGComputer computer)
+  {
+    final var entry = new Entry(computer);
+    this.activate(entry);
+    return entry;
+  }
+
+  /**
+   * Remove a computer whose kernel is shutting down.
+   *
+   * @param entry The entry returned by {@link #add(SGComputer)}
+   */
+
+  void remove(
+    final Entry entry)
+  {
+    Objects.requireNonNull(entry, "entry");
+    entry.removed = true;
+    this.deactivate(entry);
+    this.unsleep(entry);
+  }
+
+  /**
+   * @return The current kernel statistics
+   */
+
+  SGKernelStatistics statistics()
+  {
+    return SGKernelStatistics.of(this.active_count, this.sleepers_count);
+  }
+
+  private void sleep(
+    final Entry entry)
+  {
+    if (this.sleepers_count == this.sleepers.length) {
+      this.sleepers = Arrays.copyOf(this.sleepers, this.sleepers.length * 2);
+    }
+    final var index = this.sleepers_count;
+    this.sleepers_count = index + 1;
+    this.place(entry, index);
+    this.siftUp(index);
+  }
+
+  private void unsleep(
+    final Entry entry)
+  {
+    final var index = entry.heap;
+    if (index < 0) {
+      return;
+    }
+
+    entry.heap = -1;
+    final var last = this.sleepers_count - 1;
+    final var moved = this.sleepers[last];
+    this.sleepers[last] = null;
+    this.sleepers_count = last;
+    if (moved != entry) {
+      this.place(moved, index);
+      this.siftDown(index);
+      this.siftUp(moved.heap);
+    }
+  }
+
+  private void place(
+    final Entry entry,
+    final int index)
+  {
+    this.sleepers[index] = entry;
+    entry.heap = index;
+  }
+
+  private void siftUp(
+    final int start)
+  {
+    var index = start;
+    final var entry = this.sleepers[index];
+    while (index > 0) {
+      final var parent = (index - 1) >>> 1;
+      final var above = this.sleepers[parent];
+      if (above.wake_frame <= entry.wake_frame) {
+        break;
+      }
+      this.place(above, index);
+      index = parent;
+    }
+    this.place(entry, index);
+  }
+
+  private void siftDown(
+    final int start)
+  {
+    var index = start;
+    final var entry = this.sleepers[index];
+    final var half = this.sleepers_count >>> 1;
+    while (index < half) {
+      var child = (index << 1) + 1;
+      final var right = child + 1;
+      if (right < this.sleepers_count
+        && this.sleepers[right].wake_frame < this.sleepers[child].wake_frame) {
+        child = right;
+      }
+      final var below = this.sleepers[child];
+      if (entry.wake_frame <= below.wake_frame) {
+        break;
+      }
+      this.place(below, index);
+      index = child;
+    }
+    this.place(entry, index);
+  }
+
+  private void activate(
+    final Entry entry)
+  {
+    if (this.active_count == this.active.length) {
+      this.active = Arrays.copyOf(this.active, this.active.length * 2);
+    }
+    entry.slot = this.active_count;
+    this.active[this.active_count] = entry;
+    this.active_count = this.active_count + 1;
+  }
+
+  private void deactivate(
+    final Entry entry)
+  {
+    final var slot = entry.slot;
+    if (slot < 0) {
+      return;
+    }
+
+    entry.slot = -1;
+    if (this.running) {
+      this.active[slot] = null;
+      return;
+    }
+
+    final var last = this.active_count - 1;
+    final var moved = this.active[last];
+    this.active[last] = null;
+    this.active_count = last;
+    if (moved != entry) {
+      this.active[slot] = moved;
+      moved.slot = slot;
+    }
+  }
+
+  /**
+   * Wake any kernels whose sleep has expired, and then call every active kernel.
+   *
+   * @param frame   The current frame
+   * @param seconds The duration of the tick in seconds
+   */
+
+  void run(
+    final long frame,
+    final double seconds)
+  {
+    while (this.sleepers_count > 0 && this.sleepers[0].wake_frame <= frame) {
+      final var entry = this.sleepers[0];
+      this.unsleep(entry);
+      this.activate(entry);
+    }
+
+    final var count = this.active_count;
+    this.running = true;
+    try {
+      for (int index = 0; index < count; ++index) {
+        final var entry = this.active[index];
+        if (entry != null) {
+          this.runEntry(entry, frame, seconds);
+        }
+      }
+    } finally {
+      this.running = false;
+      this.compact();
+    }
+  }
+
+  private void runEntry(
+    final Entry entry,
+    final long frame,
+    final double seconds)
+  {
+    if (entry.debt >= this.budget) {
+      entry.debt = entry.debt - this.budget;
+      return;
+    }
+
+    final var state = this.tick;
+    state.reset(frame, seconds, this.budget - entry.debt);
+    entry.computer.tickKernel(state);
+    entry.debt = Math.max(0L, -state.remaining);
+
+    if (entry.removed) {
+      return;
+    }
+
+    if (state.suspended) {
+      this.deactivate(entry);
+    } else if (state.sleep > 0L) {
+      this.deactivate(entry);
+      entry.wake_frame = wakeFrame(frame, state.sleep);
+      this.sleep(entry);
+    }
+  }
+
+  /**
+   * A kernel that sleeps for {@code ticks} ticks on {@code frame} is skipped for exactly
+   * {@code ticks} frames, and so wakes on {@code frame + ticks + 1}. The result saturates at
+   * {@link Long#MAX_VALUE}.
+   */
+
+  private static long wakeFrame(
+    final long frame,
+    final long ticks)
+  {
+    final var remaining = Long.MAX_VALUE - frame;
+    if (ticks >= remaining) {
+      return Long.MAX_VALUE;
+    }
+    return frame + ticks + 1L;
+  }
+
+  private void compact()
+  {
+    var target = 0;
+    for (int index = 0; index < this.active_count; ++index) {
+      final var entry = this.active[index];
+      if (entry != null) {
+        this.active[target] = entry;
+        entry.slot = target;
+        target = target + 1;
+      }
+    }
+    Arrays.fill(this.active, target, this.active_count, null);
+    this.active_count = target;
+  }
+
+  /**
+   * The scheduling state of a single running kernel.
+   */
+
+  static final class Entry
+  {
+    private final SGComputer computer;
+    private int slot;
+    private int heap;
+    private long debt;
+    private long wake_frame;
+    private boolean removed;
+
+    private Entry(
+      final SGComputer in_computer)
+    {
+      this.computer = Objects.requireNonNull(in_computer, "computer");
+      this.slot = -1;
+      this.heap = -1;
+    }
+  }
+
+  /**
+   * A mutable tick state, reused for every kernel.
+   */
+
+  private static final class Tick implements SGKernelTickType
+  {
+    private long frame;
+    private double seconds;
+    private long remaining;
+    private long sleep;
+    private boolean suspended;
+
+    Tick()
+    {
+
+    }
+
+    void reset(
+      final long in_frame,
+      final double in_seconds,
+      final long in_budget)
+    {
+      this.frame = in_frame;
+      this.seconds = in_seconds;
+      this.remaining = in_budget;
+      this.sleep = 0L;
+      this.suspended = false;
+    }
+
+    @Override
+    public long frame()
+    {
+      return this.frame;
+    }
+
+    @Override
+    public double seconds()
+    {
+      return this.seconds;
+    }
+
+    @Override
+    public long budgetRemaining()
+    {
+      return Math.max(0L, this.remaining);
+    }
+
+    @Override
+    public boolean consume(
+      final long units)
+    {
+      Preconditions.checkPreconditionL(
+        units,
+        units >= 0L,
+        u -> "Units must be non-negative");
+
+      final var result = this.remaining - units;
+      if (result > this.remaining || result == Long.MIN_VALUE) {
+        this.remaining = -Long.MAX_VALUE;
+      } else {
+        this.remaining = result;
+      }
+      return this.remaining > 0L;
+    }
+
+    @Override
+    public void sleep(
+      final long ticks)
+    {
+      Preconditions.checkPreconditionL(
+        ticks,
+        ticks >= 0L,
+        t -> "Ticks must be non-negative");
+      this.sleep = ticks;
+    }
+
+    @Override
+    public void suspend()
+    {
+      this.suspended = true;
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.machines.SGMachineInstructionSet;
+import com.io7m.stonegarden.api.machines.SGMachineOpcode;
+import com.io7m.stonegarden.api.machines.SGMachineType;
+import com.io7m.stonegarden.api.programs.SGProgramExecutableType;
+
+import java.util.Objects;
+
+import static com.io7m.jaffirm.core.Preconditions.checkPreconditionI;
+
+/**
+ * The simulated processor of a computer.
+ *
+ * The instruction timings are flattened into a table indexed by opcode when the processor is
+ * created, so the interpreter looks up the cost of an instruction with a single array load.
+ * Opcodes that do not exist cost one cycle to decode before faulting.
+ *
+ * @see SGMachineInterpreter
+ */
+
+final class SGMachine implements SGMachineType
+{
+  private final SGMachineInstructionSet instruction_set;
+  private final int[] cycles;
+  private final int translation_threshold;
+  private long translated;
+
+  SGMachine(
+    final SGMachineInstructionSet in_instruction_set,
+    final int in_translation_threshold)
+  {
+    this.instruction_set =
+      Objects.requireNonNull(in_instruction_set, "instruction_set");
+    this.translation_threshold = in_translation_threshold;
+
+    this.cycles = new int[256];
+    for (int index = 0; index < this.cycles.length; ++index) {
+      this.cycles[index] = 1;
+    }
+    for (final var opcode : SGMachineOpcode.values()) {
+      this.cycles[opcode.code()] = this.instruction_set.cyclesOf(opcode);
+    }
+  }
+
+  @Override
+  public SGMachineInstructionSet instructionSet()
+  {
+    return this.instruction_set;
+  }
+
+  @Override
+  public long translatedBlocks()
+  {
+    return this.translated;
+  }
+
+  int translationThreshold()
+  {
+    return this.translation_threshold;
+  }
+
+  void onBlockTranslated()
+  {
+    this.translated = this.translated + 1L;
+  }
+
+  @Override
+  public SGProgramExecutableType executable(
+    final int[] code,
+    final int memory_words)
+  {
+    Objects.requireNonNull(code, "code");
+    checkPreconditionI(
+      memory_words,
+      memory_words >= 0,
+      size -> "Memory size must be non-negative");
+
+    final var program = code.clone();
+    return arguments -> new SGMachineInterpreter(this, program, this.cycles, memory_words);
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.programs.SGProgramContextType;
+import com.io7m.stonegarden.api.programs.SGProgramExitCode;
+import com.io7m.stonegarden.api.programs.SGProgramType;
+
+import java.util.Objects;
+
+/**
+ * An interpreter for a single process running a machine program.
+ *
+ * Each call to {@link #onRun(SGProgramContextType)} executes instructions until the cycles
+ * taken reach the remaining time slice, and then charges exactly those cycles to the process.
+ * The last instruction may overrun the slice, in which case the scheduler delays the process's
+ * next slice accordingly. The dispatch loop keeps the program counter, the cycle count, and the
+ * register and memory arrays in locals, switches on the opcode (which compiles to a jump
+ * table), and does not allocate.
+ *
+ * The interpreter counts the number of times control is transferred to each address. Once an
+ * address has been entered often enough, the block of straight-line code starting there is
+ * translated to JVM bytecode, and subsequent entries run the translation instead of
+ * interpreting the block, provided that the last instruction of the block would start within
+ * the remaining budget. Translated blocks charge exactly the cycles that interpretation would
+ * have, including when they fault. The translations belong to the process, and become
+ * unreachable when the process finishes.
+ *
+ * @see SGMachineTranslator
+ * @see com.io7m.stonegarden.api.machines.SGMachineOpcode
+ */
+
+final class SGMachineInterpreter implements SGProgramType
+{
+  /*
+   * The opcode values; these must match SGMachineOpcode#code().
+   */
+
+  private static final int OP_NOP = 0;
+  private static final int OP_LOAD_IMMEDIATE = 1;
+  private static final int OP_MOVE = 2;
+  private static final int OP_ADD = 3;
+  private static final int OP_ADD_IMMEDIATE = 4;
+  private static final int OP_SUBTRACT = 5;
+  private static final int OP_MULTIPLY = 6;
+  private static final int OP_DIVIDE = 7;
+  private static final int OP_REMAINDER = 8;
+  private static final int OP_AND = 9;
+  private static final int OP_OR = 10;
+  private static final int OP_XOR = 11;
+  private static final int OP_SHIFT_LEFT = 12;
+  private static final int OP_SHIFT_RIGHT = 13;
+  private static final int OP_LOAD = 14;
+  private static final int OP_STORE = 15;
+  private static final int OP_JUMP = 16;
+  private static final int OP_BRANCH_ZERO = 17;
+  private static final int OP_BRANCH_NOT_ZERO = 18;
+  private static final int OP_BRANCH_LESS = 19;
+  private static final int OP_EXIT = 20;
+
+  private static final int STATE_RUNNING = 0;
+  private static final int STATE_EXITED = 1;
+  private static final int STATE_FAULTED = 2;
+
+  private final SGMachine machine;
+  private final int[] code;
+  private final int[] cycles;
+  private final int[] registers;
+  private final int[] memory;
+  private final int[] entries;
+  private final SGMachineTranslator.Translation[] translations;
+  private SGMachineTranslator translator;
+  private int pc;
+  private int state;
+  private boolean success;
+  private String fault;
+
+  SGMachineInterpreter(
+    final SGMachine in_machine,
+    final int[] in_code,
+    final int[] in_cycles,
+    final int memory_words)
+  {
+    this.machine = Objects.requireNonNull(in_machine, "machine");
+    this.code = Objects.requireNonNull(in_code, "code");
+    this.cycles = Objects.requireNonNull(in_cycles, "cycles");
+    this.registers = new int[SGMachineTranslator.PROGRESS_REGISTER + 1];
+    this.memory = new int[memory_words];
+    this.entries = new int[in_code.length];
+    this.translations = new SGMachineTranslator.Translation[in_code.length];
+  }
+
+  private static boolean outOfRange(
+    final int index,
+    final int[] array)
+  {
+    return Integer.compareUnsigned(index, array.length) >= 0;
+  }
+
+  @Override
+  public void onStart(final SGProgramContextType context)
+  {
+
+  }
+
+  @Override
+  public void onRun(final SGProgramContextType context)
+  {
+    context.consume(this.execute(Math.max(1L, context.sliceRemaining())));
+
+    if (this.state != STATE_RUNNING) {
+      if (this.state == STATE_FAULTED) {
+        context.systemCalls().submitWriteConsole(0L, this.fault);
+      }
+      context.exit();
+    }
+  }
+
+  @Override
+  public SGProgramExitCode onExit(final SGProgramContextType context)
+  {
+    if (this.state == STATE_EXITED && this.success) {
+      return SGProgramExitCode.EXIT_SUCCESS;
+    }
+    return SGProgramExitCode.EXIT_FAILURE;
+  }
+
+  /**
+   * Count an entry to the given address, translating the block that starts there when the
+   * address becomes hot. Addresses that have reached the threshold are never counted again, so
+   * blocks that cannot be translated are only attempted once.
+   *
+   * @param address The address
+   *
+   * @return The translation of the block, if any
+   */
+
+  private SGMachineTranslator.Translation translationAt(
+    final int address)
+  {
+    final var existing = this.translations[address];
+    if (existing != null) {
+      return existing;
+    }
+
+    final var threshold = this.machine.translationThreshold();
+    final var count = this.entries[address] + 1;
+    if (count > threshold) {
+      return null;
+    }
+
+    this.entries[address] = count;
+    if (count == threshold) {
+      if (this.translator == null) {
+        this.translator = new SGMachineTranslator(this.code, this.cycles);
+      }
+      final var translation = this.translator.translate(address);
+      if (translation != null) {
+        this.translations[address] = translation;
+        this.machine.onBlockTranslated();
+      }
+      return translation;
+    }
+    return null;
+  }
+
+  private long fault(
+    final int at,
+    final long taken,
+    final String message)
+  {
+    this.pc = at;
+    this.state = STATE_FAULTED;
+    this.fault = String.format("machine fault at %d: %s", Integer.valueOf(at), message);
+    return taken;
+  }
+
+  // CHECKSTYLE:OFF
+
+  /**
+   * Execute instructions until at least {@code budget} cycles have been taken, or the program
+   * exits or faults.
+   *
+   * @param budget The cycle budget
+   *
+   * @return The number of cycles taken
+   */
+
+  private long execute(
+    final long budget)
+  {
+    final int[] code = this.code;
+    final int[] cycles = this.cycles;
+    final int[] r = this.registers;
+    final int[] m = this.memory;
+
+    int pc = this.pc;
+    long taken = 0L;
+
+    while (taken < budget) {
+      if (outOfRange(pc, code)) {
+        return this.fault(pc, taken, "program counter out of range");
+      }
+
+      final int word = code[pc];
+      final int op = word & 0xff;
+      final int a = (word >>> 8) & 0xf;
+      final int b = (word >>> 12) & 0xf;
+      final int immediate = word >> 16;
+      final int c = immediate & 0xf;
+      boolean entered = false;
+      taken += cycles[op];
+
+      switch (op) {
+        case OP_NOP:
+          pc += 1;
+          break;
+        case OP_LOAD_IMMEDIATE:
+          r[a] = immediate;
+          pc += 1;
+          break;
+        case OP_MOVE:
+          r[a] = r[b];
+          pc += 1;
+          break;
+        case OP_ADD:
+          r[a] = r[b] + r[c];
+          pc += 1;
+          break;
+        case OP_ADD_IMMEDIATE:
+          r[a] = r[b] + immediate;
+          pc += 1;
+          break;
+        case OP_SUBTRACT:
+          r[a] = r[b] - r[c];
+          pc += 1;
+          break;
+        case OP_MULTIPLY:
+          r[a] = r[b] * r[c];
+          pc += 1;
+          break;
+        case OP_DIVIDE:
+          if (r[c] == 0) {
+            return this.fault(pc, taken, "division by zero");
+          }
+          r[a] = r[b] / r[c];
+          pc += 1;
+          break;
+        case OP_REMAINDER:
+          if (r[c] == 0) {
+            return this.fault(pc, taken, "division by zero");
+          }
+          r[a] = r[b] % r[c];
+          pc += 1;
+          break;
+        case OP_AND:
+          r[a] = r[b] & r[c];
+          pc += 1;
+          break;
+        case OP_OR:
+          r[a] = r[b] | r[c];
+          pc += 1;
+          break;
+        case OP_XOR:
+          r[a] = r[b] ^ r[c];
+          pc += 1;
+          break;
+        case OP_SHIFT_LEFT:
+          r[a] = r[b] << r[c];
+          pc += 1;
+          break;
+        case OP_SHIFT_RIGHT:
+          r[a] = r[b] >> r[c];
+          pc += 1;
+          break;
+        case OP_LOAD: {
+          final int address = r[b] + immediate;
+          if (outOfRange(address, m)) {
+            return this.fault(pc, taken, "memory address out of range");
+          }
+          r[a] = m[address];
+          pc += 1;
+          break;
+        }
+        case OP_STORE: {
+          final int address = r[b] + immediate;
+          if (outOfRange(address, m)) {
+            return this.fault(pc, taken, "memory address out of range");
+          }
+          m[address] = r[a];
+          pc += 1;
+          break;
+        }
+        case OP_JUMP:
+          pc += immediate;
+          entered = true;
+          break;
+        case OP_BRANCH_ZERO:
+          pc += r[a] == 0 ? immediate : 1;
+          entered = true;
+          break;
+        case OP_BRANCH_NOT_ZERO:
+          pc += r[a] != 0 ? immediate : 1;
+          entered = true;
+          break;
+        case OP_BRANCH_LESS:
+          pc += r[a] < r[b] ? immediate : 1;
+          entered = true;
+          break;
+        case OP_EXIT:
+          this.pc = pc;
+          this.state = STATE_EXITED;
+          this.success = r[a] == 0;
+          return taken;
+        default:
+          return this.fault(pc, taken, "unknown opcode " + op);
+      }
+
+      if (entered && !outOfRange(pc, code)) {
+        final var translation = this.translationAt(pc);
+        if (translation != null && taken + translation.cyclesBeforeLast() < budget) {
+          try {
+            translation.block().accept(r, m);
+          } catch (final ArithmeticException e) {
+            final int index = r[SGMachineTranslator.PROGRESS_REGISTER];
+            return this.fault(
+              pc + index, taken + translation.cyclesThrough(index), "division by zero");
+          } catch (final ArrayIndexOutOfBoundsException e) {
+            final int index = r[SGMachineTranslator.PROGRESS_REGISTER];
+            return this.fault(
+              pc + index, taken + translation.cyclesThrough(index), "memory address out of range");
+          }
+          taken += translation.cycles();
+          pc += translation.length();
+        }
+      }
+    }
+
+    this.pc = pc;
+    return taken;
+  }
+
+  // CHECKSTYLE:ON
+}
@@ -0,0 +1,595 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * A translator from basic blocks of machine code to JVM bytecode.
+ *
+ * A block is a run of straight-line instructions that ends before the first jump, branch, exit,
+ * or unknown opcode. Each block is compiled to a class implementing {@link BiConsumer}, whose
+ * {@code accept} method takes the register array and the memory array and operates on them
+ * directly, one JVM instruction sequence per machine instruction. The generated code contains
+ * no branches, and so needs no stack map frames. Division by zero and out-of-range memory
+ * accesses raise the JVM's own exceptions; before each instruction that can fault, the
+ * generated code stores the index of the instruction within the block in the register
+ * {@link #PROGRESS_REGISTER}, which the machine's encoding cannot name, so that the interpreter
+ * can report the fault and charge the cycles taken up to the faulting instruction exactly.
+ *
+ * Every translator defines its classes in its own class loader. A translator belongs to a
+ * single process, and so its classes can be unloaded once the process has finished and the
+ * translator is no longer reachable.
+ */
+
+final class SGMachineTranslator
+{
+  /**
+   * The register in which translated code records the index of the instruction that may fault.
+   */
+
+  static final int PROGRESS_REGISTER = 16;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SGMachineTranslator.class);
+
+  private static final int MAXIMUM_LENGTH = 256;
+
+  private static final int OP_NOP = 0;
+  private static final int OP_LOAD_IMMEDIATE = 1;
+  private static final int OP_MOVE = 2;
+  private static final int OP_ADD = 3;
+  private static final int OP_ADD_IMMEDIATE = 4;
+  private static final int OP_SUBTRACT = 5;
+  private static final int OP_MULTIPLY = 6;
+  private static final int OP_DIVIDE = 7;
+  private static final int OP_REMAINDER = 8;
+  private static final int OP_AND = 9;
+  private static final int OP_OR = 10;
+  private static final int OP_XOR = 11;
+  private static final int OP_SHIFT_LEFT = 12;
+  private static final int OP_SHIFT_RIGHT = 13;
+  private static final int OP_LOAD = 14;
+  private static final int OP_STORE = 15;
+
+  private static final int JVM_ICONST_0 = 0x03;
+  private static final int JVM_BIPUSH = 0x10;
+  private static final int JVM_SIPUSH = 0x11;
+  private static final int JVM_ALOAD = 0x19;
+  private static final int JVM_ALOAD_0 = 0x2a;
+  private static final int JVM_ALOAD_1 = 0x2b;
+  private static final int JVM_ALOAD_2 = 0x2c;
+  private static final int JVM_ALOAD_3 = 0x2d;
+  private static final int JVM_IALOAD = 0x2e;
+  private static final int JVM_ASTORE = 0x3a;
+  private static final int JVM_ASTORE_3 = 0x4e;
+  private static final int JVM_IASTORE = 0x4f;
+  private static final int JVM_IADD = 0x60;
+  private static final int JVM_ISUB = 0x64;
+  private static final int JVM_IMUL = 0x68;
+  private static final int JVM_IDIV = 0x6c;
+  private static final int JVM_IREM = 0x70;
+  private static final int JVM_ISHL = 0x78;
+  private static final int JVM_ISHR = 0x7a;
+  private static final int JVM_IAND = 0x7e;
+  private static final int JVM_IOR = 0x80;
+  private static final int JVM_IXOR = 0x82;
+  private static final int JVM_RETURN = 0xb1;
+  private static final int JVM_INVOKESPECIAL = 0xb7;
+  private static final int JVM_CHECKCAST = 0xc0;
+
+  private static final int MEMORY_LOCAL = 4;
+
+  private final int[] code;
+  private final int[] cycles;
+  private final Loader loader;
+
+  SGMachineTranslator(
+    final int[] in_code,
+    final int[] in_cycles)
+  {
+    this.code = Objects.requireNonNull(in_code, "code");
+    this.cycles = Objects.requireNonNull(in_cycles, "cycles");
+    this.loader = new Loader(SGMachineTranslator.class.getClassLoader());
+  }
+
+  private static boolean isStraightLine(
+    final int op)
+  {
+    return op <= OP_STORE;
+  }
+
+  private static boolean canFault(
+    final int op)
+  {
+    switch (op) {
+      case OP_DIVIDE:
+      case OP_REMAINDER:
+      case OP_LOAD:
+      case OP_STORE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static int arithmetic(
+    final int op)
+  {
+    switch (op) {
+      case OP_ADD:
+        return JVM_IADD;
+      case OP_SUBTRACT:
+        return JVM_ISUB;
+      case OP_MULTIPLY:
+        return JVM_IMUL;
+      case OP_DIVIDE:
+        return JVM_IDIV;
+      case OP_REMAINDER:
+        return JVM_IREM;
+      case OP_AND:
+        return JVM_IAND;
+      case OP_OR:
+        return JVM_IOR;
+      case OP_XOR:
+        return JVM_IXOR;
+      case OP_SHIFT_LEFT:
+        return JVM_ISHL;
+      case OP_SHIFT_RIGHT:
+        return JVM_ISHR;
+      default:
+        throw new IllegalArgumentException("Not an arithmetic opcode: " + op);
+    }
+  }
+
+  /**
+   * Translate the block starting at {@code pc}.
+   *
+   * @param pc The address of the first instruction of the block
+   *
+   * @return A translation, or {@code null} if the block is empty or cannot be translated
+   */
+
+  Translation translate(
+    final int pc)
+  {
+    var length = 0;
+    while (length < MAXIMUM_LENGTH
+      && pc + length < this.code.length
+      && isStraightLine(this.code[pc + length] & 0xff)) {
+      length = length + 1;
+    }
+    if (length == 0) {
+      return null;
+    }
+
+    final var prefix = new long[length];
+    var total = 0L;
+    for (int index = 0; index < length; ++index) {
+      total = total + (long) this.cycles[this.code[pc + index] & 0xff];
+      prefix[index] = total;
+    }
+
+    final var name = "com.io7m.stonegarden.vanilla.generated.SGMachineBlock" + pc;
+    try {
+      final var bytes = this.compile(name, pc, length);
+      final var clazz = this.loader.define(name, bytes);
+      @SuppressWarnings("unchecked") final var block =
+        (BiConsumer<int[], int[]>) clazz.getConstructor().newInstance();
+      return new Translation(block, prefix);
+    } catch (final ReflectiveOperationException | LinkageError e) {
+      LOG.debug("could not translate block at {}: ", Integer.valueOf(pc), e);
+      return null;
+    }
+  }
+
+  private byte[] compile(
+    final String name,
+    final int pc,
+    final int length)
+  {
+    final var pool = new ConstantPool();
+    final var this_class = pool.classOf(name.replace('.', '/'));
+    final var object_class = pool.classOf("java/lang/Object");
+    final var consumer_class = pool.classOf("java/util/function/BiConsumer");
+    final var array_class = pool.classOf("[I");
+    final var init_name = pool.utf8("<init>");
+    final var init_type = pool.utf8("()V");
+    final var init_ref = pool.methodRef(object_class, init_name, init_type);
+    final var accept_name = pool.utf8("accept");
+    final var accept_type = pool.utf8("(Ljava/lang/Object;Ljava/lang/Object;)V");
+    final var code_name = pool.utf8("Code");
+
+    final var init = new Output();
+    init.u1(JVM_ALOAD_0);
+    init.u1(JVM_INVOKESPECIAL);
+    init.u2(init_ref);
+    init.u1(JVM_RETURN);
+
+    final var accept = new Output();
+    accept.u1(JVM_ALOAD_1);
+    accept.u1(JVM_CHECKCAST);
+    accept.u2(array_class);
+    accept.u1(JVM_ASTORE_3);
+    accept.u1(JVM_ALOAD_2);
+    accept.u1(JVM_CHECKCAST);
+    accept.u2(array_class);
+    accept.u1(JVM_ASTORE);
+    accept.u1(MEMORY_LOCAL);
+    for (int index = 0; index < length; ++index) {
+      this.compileInstruction(accept, index, this.code[pc + index]);
+    }
+    accept.u1(JVM_RETURN);
+
+    final var out = new Output();
+    out.u4(0xcafebabe);
+    out.u2(0);
+    out.u2(52);
+    pool.write(out);
+    out.u2(0x0001 | 0x0010 | 0x0020);
+    out.u2(this_class);
+    out.u2(object_class);
+    out.u2(1);
+    out.u2(consumer_class);
+    out.u2(0);
+    out.u2(2);
+    writeMethod(out, init_name, init_type, code_name, init, 1, 1);
+    writeMethod(out, accept_name, accept_type, code_name, accept, 6, 5);
+    out.u2(0);
+    return out.toByteArray();
+  }
+
+  private static void writeMethod(
+    final Output out,
+    final int name,
+    final int type,
+    final int code_name,
+    final Output code,
+    final int max_stack,
+    final int max_locals)
+  {
+    out.u2(0x0001);
+    out.u2(name);
+    out.u2(type);
+    out.u2(1);
+    out.u2(code_name);
+    out.u4(12 + code.size());
+    out.u2(max_stack);
+    out.u2(max_locals);
+    out.u4(code.size());
+    out.bytes(code);
+    out.u2(0);
+    out.u2(0);
+  }
+
+  private void compileInstruction(
+    final Output out,
+    final int index,
+    final int word)
+  {
+    final int op = word & 0xff;
+    final int a = (word >>> 8) & 0xf;
+    final int b = (word >>> 12) & 0xf;
+    final int immediate = word >> 16;
+    final int c = immediate & 0xf;
+
+    if (canFault(op)) {
+      out.u1(JVM_ALOAD_3);
+      pushInt(out, PROGRESS_REGISTER);
+      pushInt(out, index);
+      out.u1(JVM_IASTORE);
+    }
+
+    switch (op) {
+      case OP_NOP:
+        break;
+      case OP_LOAD_IMMEDIATE:
+        out.u1(JVM_ALOAD_3);
+        pushInt(out, a);
+        pushInt(out, immediate);
+        out.u1(JVM_IASTORE);
+        break;
+      case OP_MOVE:
+        out.u1(JVM_ALOAD_3);
+        pushInt(out, a);
+        pushRegister(out, b);
+        out.u1(JVM_IASTORE);
+        break;
+      case OP_ADD_IMMEDIATE:
+        out.u1(JVM_ALOAD_3);
+        pushInt(out, a);
+        pushRegister(out, b);
+        pushInt(out, immediate);
+        out.u1(JVM_IADD);
+        out.u1(JVM_IASTORE);
+        break;
+      case OP_LOAD:
+        out.u1(JVM_ALOAD_3);
+        pushInt(out, a);
+        out.u1(JVM_ALOAD);
+        out.u1(MEMORY_LOCAL);
+        pushRegister(out, b);
+        pushInt(out, immediate);
+        out.u1(JVM_IADD);
+        out.u1(JVM_IALOAD);
+        out.u1(JVM_IASTORE);
+        break;
+      case OP_STORE:
+        out.u1(JVM_ALOAD);
+        out.u1(MEMORY_LOCAL);
+        pushRegister(out, b);
+        pushInt(out, immediate);
+        out.u1(JVM_IADD);
+        pushRegister(out, a);
+        out.u1(JVM_IASTORE);
+        break;
+      default:
+        out.u1(JVM_ALOAD_3);
+        pushInt(out, a);
+        pushRegister(out, b);
+        pushRegister(out, c);
+        out.u1(arithmetic(op));
+        out.u1(JVM_IASTORE);
+        break;
+    }
+  }
+
+  private static void pushRegister(
+    final Output out,
+    final int register)
+  {
+    out.u1(JVM_ALOAD_3);
+    pushInt(out, register);
+    out.u1(JVM_IALOAD);
+  }
+
+  private static void pushInt(
+    final Output out,
+    final int value)
+  {
+    if (value >= -1 && value <= 5) {
+      out.u1(JVM_ICONST_0 + value);
+    } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      out.u1(JVM_BIPUSH);
+      out.u1(value);
+    } else {
+      out.u1(JVM_SIPUSH);
+      out.u2(value);
+    }
+  }
+
+  /**
+   * A translated block.
+   */
+
+  static final class Translation
+  {
+    private final BiConsumer<int[], int[]> block;
+    private final long[] prefix;
+
+    Translation(
+      final BiConsumer<int[], int[]> in_block,
+      final long[] in_prefix)
+    {
+      this.block = Objects.requireNonNull(in_block, "block");
+      this.prefix = Objects.requireNonNull(in_prefix, "prefix");
+    }
+
+    /**
+     * @return The compiled block
+     */
+
+    BiConsumer<int[], int[]> block()
+    {
+      return this.block;
+    }
+
+    /**
+     * @return The number of instructions in the block
+     */
+
+    int length()
+    {
+      return this.prefix.length;
+    }
+
+    /**
+     * @return The cycles taken by the whole block
+     */
+
+    long cycles()
+    {
+      return this.prefix[this.prefix.length - 1];
+    }
+
+    /**
+     * The block may only run if the last instruction would start within the cycle budget, as it
+     * would when interpreted.
+     *
+     * @return The cycles taken by every instruction except the last
+     */
+
+    long cyclesBeforeLast()
+    {
+      return this.prefix.length > 1 ? this.prefix[this.prefix.length - 2] : 0L;
+    }
+
+    /**
+     * @param index The index of an instruction within the block
+     *
+     * @return The cycles taken by the instructions up to and including {@code index}
+     */
+
+    long cyclesThrough(
+      final int index)
+    {
+      return this.prefix[index];
+    }
+  }
+
+  private static final class Loader extends ClassLoader
+  {
+    Loader(
+      final ClassLoader parent)
+    {
+      super(parent);
+    }
+
+    Class<?> define(
+      final String name,
+      final byte[] bytes)
+    {
+      return this.defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+
+  private static final class ConstantPool
+  {
+    private final HashMap<String, Integer> utf8s;
+    private final Output entries;
+    private int count;
+
+    ConstantPool()
+    {
+      this.utf8s = new HashMap<>();
+      this.entries = new Output();
+      this.count = 1;
+    }
+
+    int utf8(
+      final String text)
+    {
+      final var existing = this.utf8s.get(text);
+      if (existing != null) {
+        return existing.intValue();
+      }
+
+      final var bytes = text.getBytes(StandardCharsets.UTF_8);
+      this.entries.u1(1);
+      this.entries.u2(bytes.length);
+      this.entries.bytes(bytes);
+      final var index = this.next();
+      this.utf8s.put(text, Integer.valueOf(index));
+      return index;
+    }
+
+    int classOf(
+      final String name)
+    {
+      final var name_index = this.utf8(name);
+      this.entries.u1(7);
+      this.entries.u2(name_index);
+      return this.next();
+    }
+
+    int methodRef(
+      final int owner,
+      final int name,
+      final int type)
+    {
+      this.entries.u1(12);
+      this.entries.u2(name);
+      this.entries.u2(type);
+      final var name_and_type = this.next();
+      this.entries.u1(10);
+      this.entries.u2(owner);
+      this.entries.u2(name_and_type);
+      return this.next();
+    }
+
+    void write(
+      final Output out)
+    {
+      out.u2(this.count);
+      out.bytes(this.entries);
+    }
+
+    private int next()
+    {
+      final var index = this.count;
+      this.count = this.count + 1;
+      return index;
+    }
+  }
+
+  private static final class Output
+  {
+    private byte[] data;
+    private int size;
+
+    Output()
+    {
+      this.data = new byte[256];
+    }
+
+    int size()
+    {
+      return this.size;
+    }
+
+    void u1(
+      final int value)
+    {
+      if (this.size == this.data.length) {
+        this.data = Arrays.copyOf(this.data, this.data.length * 2);
+      }
+      this.data[this.size] = (byte) value;
+      this.size = this.size + 1;
+    }
+
+    void u2(
+      final int value)
+    {
+      this.u1(value >>> 8);
+      this.u1(value);
+    }
+
+    void u4(
+      final int value)
+    {
+      this.u2(value >>> 16);
+      this.u2(value);
+    }
+
+    void bytes(
+      final byte[] bytes)
+    {
+      for (final var octet : bytes) {
+        this.u1(octet);
+      }
+    }
+
+    void bytes(
+      final Output other)
+    {
+      for (int index = 0; index < other.size; ++index) {
+        this.u1(other.data[index]);
+      }
+    }
+
+    byte[] toByteArray()
+    {
+      return Arrays.copyOf(this.data, this.size);
+    }
+  }
+}
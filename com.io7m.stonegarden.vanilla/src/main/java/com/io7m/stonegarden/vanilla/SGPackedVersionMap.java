@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import java.util.Arrays;
+
+/**
+ * A map from packed versions to values, ordered by version. Versions are held in a sorted
+ * {@code long} array and located by binary search, so lookups never box versions and never
+ * allocate. Insertion and removal shift the arrays, which is acceptable for the small number of
+ * distinct versions that a single kernel typically has.
+ *
+ * @param <T> The type of values
+ *
+ * @see com.io7m.stonegarden.api.SGVersionType#packed()
+ */
+
+final class SGPackedVersionMap<T>
+{
+  private long[] keys;
+  private Object[] values;
+  private int size;
+
+  SGPackedVersionMap(
+    final int capacity)
+  {
+    this.keys = new long[capacity];
+    this.values = new Object[capacity];
+  }
+
+  /**
+   * @return The number of versions in the map
+   */
+
+  int size()
+  {
+    return this.size;
+  }
+
+  /**
+   * @param index A position in the map
+   *
+   * @return The version at {@code index}
+   */
+
+  long keyAt(
+    final int index)
+  {
+    return this.keys[index];
+  }
+
+  /**
+   * @param index A position in the map
+   *
+   * @return The value at {@code index}
+   */
+
+  @SuppressWarnings("unchecked")
+  T valueAt(
+    final int index)
+  {
+    return (T) this.values[index];
+  }
+
+  /**
+   * @param version A packed version
+   *
+   * @return The value associated with {@code version}, or {@code null} if there is none
+   */
+
+  T get(
+    final long version)
+  {
+    final var index = Arrays.binarySearch(this.keys, 0, this.size, version);
+    if (index < 0) {
+      return null;
+    }
+    return this.valueAt(index);
+  }
+
+  /**
+   * Associate {@code value} with {@code version}.
+   *
+   * @param version A packed version
+   * @param value   The value
+   */
+
+  void put(
+    final long version,
+    final T value)
+  {
+    final var index = Arrays.binarySearch(this.keys, 0, this.size, version);
+    if (index >= 0) {
+      this.values[index] = value;
+      return;
+    }
+
+    final var insert = -(index + 1);
+    if (this.size == this.keys.length) {
+      final var capacity = Math.max(4, this.keys.length * 2);
+      this.keys = Arrays.copyOf(this.keys, capacity);
+      this.values = Arrays.copyOf(this.values, capacity);
+    }
+    System.arraycopy(this.keys, insert, this.keys, insert + 1, this.size - insert);
+    System.arraycopy(this.values, insert, this.values, insert + 1, this.size - insert);
+    this.keys[insert] = version;
+    this.values[insert] = value;
+    this.size = this.size + 1;
+  }
+
+  /**
+   * Remove {@code version} from the map, if it is present.
+   *
+   * @param version A packed version
+   */
+
+  void remove(
+    final long version)
+  {
+    final var index = Arrays.binarySearch(this.keys, 0, this.size, version);
+    if (index < 0) {
+      return;
+    }
+
+    final var last = this.size - 1;
+    System.arraycopy(this.keys, index + 1, this.keys, index, last - index);
+    System.arraycopy(this.values, index + 1, this.values, index, last - index);
+    this.values[last] = null;
+    this.size = last;
+  }
+
+  /**
+   * @param version A packed version
+   *
+   * @return The position of the smallest version that is {@code >= version}, or {@link #size()}
+   * if there is none
+   */
+
+  int ceilingIndex(
+    final long version)
+  {
+    final var index = Arrays.binarySearch(this.keys, 0, this.size, version);
+    if (index >= 0) {
+      return index;
+    }
+    return -(index + 1);
+  }
+
+  /**
+   * @param version A packed version
+   *
+   * @return The position of the largest version that is {@code <= version}, or {@code -1} if
+   * there is none
+   */
+
+  int floorIndex(
+    final long version)
+  {
+    final var index = Arrays.binarySearch(this.keys, 0, this.size, version);
+    if (index >= 0) {
+      return index;
+    }
+    return -(index + 1) - 1;
+  }
+}
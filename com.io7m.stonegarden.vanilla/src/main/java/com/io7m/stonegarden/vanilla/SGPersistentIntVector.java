@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+
+/**
+ * An immutable, persistent vector of integers. The vector is a 32-way trie; updating an element
+ * copies only the nodes on the path from the root to the element, so an updated vector shares
+ * almost all of its structure with the original. Unset elements have the value {@code 0}.
+ */
+
+final class SGPersistentIntVector
+{
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+  private static final SGPersistentIntVector EMPTY = new SGPersistentIntVector(null, 0);
+
+  private final Object root;
+  private final int shift;
+
+  private SGPersistentIntVector(
+    final Object in_root,
+    final int in_shift)
+  {
+    this.root = in_root;
+    this.shift = in_shift;
+  }
+
+  /**
+   * @return The empty vector
+   */
+
+  static SGPersistentIntVector empty()
+  {
+    return EMPTY;
+  }
+
+  private static Object setIn(
+    final Object node,
+    final int shift,
+    final int index,
+    final int value)
+  {
+    if (shift == 0) {
+      final int[] leaf = node == null ? new int[WIDTH] : ((int[]) node).clone();
+      leaf[index & MASK] = value;
+      return leaf;
+    }
+
+    final Object[] inner = node == null ? new Object[WIDTH] : ((Object[]) node).clone();
+    final var slot = (index >>> shift) & MASK;
+    inner[slot] = setIn(inner[slot], shift - BITS, index, value);
+    return inner;
+  }
+
+  /**
+   * @param index The index
+   *
+   * @return The element at {@code index}
+   */
+
+  int get(
+    final int index)
+  {
+    Preconditions.checkPreconditionI(index, index >= 0, i -> "Index must be non-negative");
+
+    if (index >= this.capacity()) {
+      return 0;
+    }
+
+    var node = this.root;
+    for (var level = this.shift; level > 0; level -= BITS) {
+      if (node == null) {
+        return 0;
+      }
+      node = ((Object[]) node)[(index >>> level) & MASK];
+    }
+    if (node == null) {
+      return 0;
+    }
+    return ((int[]) node)[index & MASK];
+  }
+
+  /**
+   * @param index The index
+   * @param value The new value
+   *
+   * @return A vector equal to this vector except that the element at {@code index} is {@code value}
+   */
+
+  SGPersistentIntVector set(
+    final int index,
+    final int value)
+  {
+    Preconditions.checkPreconditionI(index, index >= 0, i -> "Index must be non-negative");
+
+    var new_root = this.root;
+    var new_shift = this.shift;
+    while (index >= 1 << (new_shift + BITS)) {
+      final var grown = new Object[WIDTH];
+      grown[0] = new_root;
+      new_root = grown;
+      new_shift = new_shift + BITS;
+    }
+    return new SGPersistentIntVector(setIn(new_root, new_shift, index, value), new_shift);
+  }
+
+  private int capacity()
+  {
+    return 1 << (this.shift + BITS);
+  }
+}
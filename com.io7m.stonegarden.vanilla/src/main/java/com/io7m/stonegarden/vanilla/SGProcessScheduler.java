@@ -0,0 +1,441 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.stonegarden.api.devices.SGStorageDeviceType;
+import com.io7m.stonegarden.api.kernels.SGKernelContextType;
+import com.io7m.stonegarden.api.programs.SGProcessSchedulerType;
+import com.io7m.stonegarden.api.programs.SGProcessType;
+import com.io7m.stonegarden.api.programs.SGProgramContextType;
+import com.io7m.stonegarden.api.programs.SGProgramExecutableType;
+import com.io7m.stonegarden.api.programs.SGProgramExitCode;
+import com.io7m.stonegarden.api.programs.SGProgramSystemCallsType;
+import com.io7m.stonegarden.api.programs.SGProgramType;
+import com.io7m.stonegarden.api.programs.SGSystemCallStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+/**
+ * The default process scheduler.
+ *
+ * Runnable processes are held in a priority queue ordered by virtual runtime (the work units
+ * consumed by the process, plus the virtual runtime at which the process was spawned), and by
+ * process ID to break ties. Each time slice is given to the process at the head of the queue,
+ * which is then reinserted with its updated virtual runtime. New processes start at the virtual
+ * runtime of the most recently selected process, so they neither starve nor are starved by
+ * processes that have been running for longer.
+ *
+ * Killed processes are not removed from the queue; they are discarded when they reach the head
+ * of the queue.
+ *
+ * A process may overrun its slice by any number of units, up to and including
+ * {@link Long#MAX_VALUE}, so all accounting uses saturating arithmetic. A process that saturates
+ * its virtual runtime is simply scheduled after every other process.
+ *
+ * System calls are executed in a batch at the end of each run. Only the rings of processes that
+ * have submitted calls since the last batch are visited, so the cost of a batch is proportional
+ * to the number of calls rather than the number of processes. A call that fails with an
+ * exception is completed as failed, and the batch continues.
+ */
+
+final class SGProcessScheduler implements SGProcessSchedulerType
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SGProcessScheduler.class);
+
+  private final SGKernelContextType kernel;
+  private final long time_slice;
+  private final int ring_size;
+  private final ArrayDeque<SGProgramSystemCalls> calls_pending;
+  private final HashMap<Integer, Process> processes;
+  private final PriorityQueue<Process> runnable;
+  private long min_vruntime;
+  private long cpu_units;
+  private int id_next;
+
+  SGProcessScheduler(
+    final SGKernelContextType in_kernel,
+    final long in_time_slice,
+    final int in_ring_size)
+  {
+    Preconditions.checkPreconditionL(
+      in_time_slice,
+      in_time_slice > 0L,
+      s -> "Time slice must be positive");
+
+    this.kernel = Objects.requireNonNull(in_kernel, "kernel");
+    this.time_slice = in_time_slice;
+    this.ring_size = in_ring_size;
+    this.calls_pending = new ArrayDeque<>(64);
+    this.processes = new HashMap<>(64);
+    this.runnable = new PriorityQueue<>(64, SGProcessScheduler::compareProcesses);
+  }
+
+  private static int compareProcesses(
+    final Process p0,
+    final Process p1)
+  {
+    final var c = Long.compare(p0.vruntime, p1.vruntime);
+    if (c != 0) {
+      return c;
+    }
+    return Integer.compare(p0.id, p1.id);
+  }
+
+  private static long saturatingSubtract(
+    final long x,
+    final long y)
+  {
+    final var result = x - y;
+    if (((x ^ y) & (x ^ result)) < 0L) {
+      return y < 0L ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+    return result;
+  }
+
+  private static long saturatingAdd(
+    final long x,
+    final long y)
+  {
+    final var result = x + y;
+    if (((x ^ result) & (y ^ result)) < 0L) {
+      return x < 0L ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+    return result;
+  }
+
+  @Override
+  public SGProcessType spawn(
+    final SGProgramExecutableType executable,
+    final List<String> arguments)
+  {
+    Objects.requireNonNull(executable, "executable");
+    Objects.requireNonNull(arguments, "arguments");
+
+    final var id = this.freshId();
+    final var arguments_copy = List.copyOf(arguments);
+    final var calls = new SGProgramSystemCalls(this.calls_pending, this.ring_size);
+    final var process = new Process(id, arguments_copy, calls, this.min_vruntime);
+    this.processes.put(Integer.valueOf(id), process);
+
+    try {
+      process.program = Objects.requireNonNull(executable.execute(arguments_copy), "program");
+      process.program.onStart(process);
+    } catch (final RuntimeException e) {
+      LOG.debug("[{}]: program start failed: ", Integer.valueOf(id), e);
+      this.finish(process, SGProgramExitCode.EXIT_FAILURE);
+      return process;
+    }
+
+    if (process.exit_requested) {
+      this.exit(process);
+    } else {
+      this.runnable.add(process);
+    }
+    return process;
+  }
+
+  private int freshId()
+  {
+    while (true) {
+      final var id = this.id_next;
+      this.id_next = id == Integer.MAX_VALUE ? 1 : id + 1;
+      if (id > 0 && !this.processes.containsKey(Integer.valueOf(id))) {
+        return id;
+      }
+    }
+  }
+
+  @Override
+  public Optional<SGProcessType> process(
+    final int id)
+  {
+    return Optional.ofNullable(this.processes.get(Integer.valueOf(id)));
+  }
+
+  @Override
+  public boolean kill(
+    final int id)
+  {
+    final var process = this.processes.get(Integer.valueOf(id));
+    if (process == null) {
+      return false;
+    }
+    this.finish(process, SGProgramExitCode.EXIT_FAILURE);
+    return true;
+  }
+
+  @Override
+  public int processCount()
+  {
+    return this.processes.size();
+  }
+
+  @Override
+  public long cpuUnits()
+  {
+    return this.cpu_units;
+  }
+
+  @Override
+  public long run(
+    final long budget)
+  {
+    Preconditions.checkPreconditionL(
+      budget,
+      budget >= 0L,
+      b -> "Budget must be non-negative");
+
+    var consumed = 0L;
+    while (consumed < budget && !this.runnable.isEmpty()) {
+      final var process = this.runnable.poll();
+      if (process.exit_code != null) {
+        continue;
+      }
+
+      this.min_vruntime = process.vruntime;
+      final var slice = Math.min(this.time_slice, budget - consumed);
+      process.slice_remaining = slice;
+
+      var failed = false;
+      try {
+        process.program.onRun(process);
+      } catch (final RuntimeException e) {
+        LOG.debug("[{}]: program failed: ", Integer.valueOf(process.id), e);
+        failed = true;
+      }
+
+      final var used = Math.max(1L, saturatingSubtract(slice, process.slice_remaining));
+      process.cpu_units = saturatingAdd(process.cpu_units, used);
+      process.vruntime = saturatingAdd(process.vruntime, used);
+      this.cpu_units = saturatingAdd(this.cpu_units, used);
+      consumed = saturatingAdd(consumed, used);
+
+      if (failed) {
+        this.finish(process, SGProgramExitCode.EXIT_FAILURE);
+      } else if (process.exit_requested && process.exit_code == null) {
+        this.exit(process);
+      } else if (process.exit_code == null) {
+        this.runnable.add(process);
+      }
+    }
+
+    this.executeSystemCalls();
+    return consumed;
+  }
+
+  private void executeSystemCalls()
+  {
+    final var count = this.calls_pending.size();
+    for (int index = 0; index < count; ++index) {
+      final var calls = this.calls_pending.poll();
+      calls.dequeued();
+      while (calls.isExecutable()) {
+        this.executeSystemCallChecked(calls);
+      }
+      if (calls.submissionsPending() > 0) {
+        calls.enqueue();
+      }
+    }
+  }
+
+  /**
+   * Execute the oldest submission. Every call completes as the final step of its execution, so
+   * a call that raises an exception has not been completed and is completed here as failed;
+   * the rest of the batch is unaffected.
+   */
+
+  private void executeSystemCallChecked(
+    final SGProgramSystemCalls calls)
+  {
+    try {
+      this.executeSystemCall(calls);
+    } catch (final RuntimeException e) {
+      LOG.debug("system call {} failed: ", calls.headCall(), e);
+      calls.complete(SGSystemCallStatus.FAILED, 0L);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void executeSystemCall(
+    final SGProgramSystemCalls calls)
+  {
+    switch (calls.headCall()) {
+      case WRITE_CONSOLE: {
+        this.kernel.writeConsole("%s", calls.headObject0());
+        calls.complete(SGSystemCallStatus.SUCCEEDED, 0L);
+        break;
+      }
+      case SPAWN: {
+        final var process =
+          this.spawn((SGProgramExecutableType) calls.headObject0(), (List<String>) calls.headObject1());
+        calls.complete(SGSystemCallStatus.SUCCEEDED, (long) process.id());
+        break;
+      }
+      case DEVICE_SPACE_AVAILABLE: {
+        this.executeDeviceSpaceAvailable(calls);
+        break;
+      }
+      default: {
+        calls.complete(SGSystemCallStatus.FAILED, 0L);
+        break;
+      }
+    }
+  }
+
+  private void executeDeviceSpaceAvailable(
+    final SGProgramSystemCalls calls)
+  {
+    final var devices = this.kernel.connectedDevices();
+    final var index = calls.headValue();
+    if (index >= 0L && index < (long) devices.size()) {
+      final var device = devices.get((int) index);
+      if (device instanceof SGStorageDeviceType) {
+        final var available = ((SGStorageDeviceType) device).spaceAvailableOctets();
+        calls.complete(
+          SGSystemCallStatus.SUCCEEDED,
+          available.bitLength() < 64 ? available.longValue() : Long.MAX_VALUE);
+        return;
+      }
+    }
+    calls.complete(SGSystemCallStatus.FAILED, 0L);
+  }
+
+  private void exit(
+    final Process process)
+  {
+    SGProgramExitCode code;
+    try {
+      code = Objects.requireNonNull(process.program.onExit(process), "exit code");
+    } catch (final RuntimeException e) {
+      LOG.debug("[{}]: program exit failed: ", Integer.valueOf(process.id), e);
+      code = SGProgramExitCode.EXIT_FAILURE;
+    }
+    this.finish(process, code);
+  }
+
+  private void finish(
+    final Process process,
+    final SGProgramExitCode code)
+  {
+    if (process.exit_code == null) {
+      process.exit_code = code;
+      process.calls.abandon();
+      process.program = null;
+      this.processes.remove(Integer.valueOf(process.id));
+    }
+  }
+
+  private static final class Process implements SGProcessType, SGProgramContextType
+  {
+    private final int id;
+    private final List<String> arguments;
+    private final SGProgramSystemCalls calls;
+    private SGProgramType program;
+    private long vruntime;
+    private long cpu_units;
+    private long slice_remaining;
+    private boolean exit_requested;
+    private SGProgramExitCode exit_code;
+
+    Process(
+      final int in_id,
+      final List<String> in_arguments,
+      final SGProgramSystemCalls in_calls,
+      final long in_vruntime)
+    {
+      this.id = in_id;
+      this.arguments = Objects.requireNonNull(in_arguments, "arguments");
+      this.calls = Objects.requireNonNull(in_calls, "calls");
+      this.vruntime = in_vruntime;
+    }
+
+    @Override
+    public int id()
+    {
+      return this.id;
+    }
+
+    @Override
+    public int processId()
+    {
+      return this.id;
+    }
+
+    @Override
+    public List<String> arguments()
+    {
+      return this.arguments;
+    }
+
+    @Override
+    public long cpuUnits()
+    {
+      return this.cpu_units;
+    }
+
+    @Override
+    public long sliceRemaining()
+    {
+      return Math.max(0L, this.slice_remaining);
+    }
+
+    @Override
+    public boolean consume(
+      final long units)
+    {
+      Preconditions.checkPreconditionL(
+        units,
+        units >= 0L,
+        u -> "Units must be non-negative");
+
+      this.slice_remaining = saturatingSubtract(this.slice_remaining, units);
+      return this.slice_remaining > 0L;
+    }
+
+    @Override
+    public SGProgramSystemCallsType systemCalls()
+    {
+      return this.calls;
+    }
+
+    @Override
+    public void exit()
+    {
+      this.exit_requested = true;
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+      return this.exit_code == null;
+    }
+
+    @Override
+    public Optional<SGProgramExitCode> exitCode()
+    {
+      return Optional.ofNullable(this.exit_code);
+    }
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.stonegarden.api.programs.SGProgramExecutableType;
+import com.io7m.stonegarden.api.programs.SGProgramSystemCallsType;
+import com.io7m.stonegarden.api.programs.SGSystemCall;
+import com.io7m.stonegarden.api.programs.SGSystemCallCompletionReceiverType;
+import com.io7m.stonegarden.api.programs.SGSystemCallStatus;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+
+/**
+ * The system call rings of a single process. Both rings are held in preallocated parallel
+ * arrays, so submitting a call and receiving a completion store and load only array elements.
+ * When a call is submitted to an empty submission ring, the rings are added to the scheduler's
+ * queue of rings with pending submissions.
+ */
+
+final class SGProgramSystemCalls implements SGProgramSystemCallsType
+{
+  private final Queue<SGProgramSystemCalls> pending;
+  private final SGSystemCall[] submission_calls;
+  private final long[] submission_tags;
+  private final long[] submission_values;
+  private final Object[] submission_objects0;
+  private final Object[] submission_objects1;
+  private final SGSystemCall[] completion_calls;
+  private final long[] completion_tags;
+  private final SGSystemCallStatus[] completion_statuses;
+  private final long[] completion_results;
+  private long submission_head;
+  private long submission_tail;
+  private long completion_head;
+  private long completion_tail;
+  private boolean queued;
+  private boolean abandoned;
+
+  SGProgramSystemCalls(
+    final Queue<SGProgramSystemCalls> in_pending,
+    final int capacity)
+  {
+    Preconditions.checkPreconditionI(
+      capacity,
+      capacity > 0,
+      c -> "Capacity must be positive");
+
+    this.pending = Objects.requireNonNull(in_pending, "pending");
+    this.submission_calls = new SGSystemCall[capacity];
+    this.submission_tags = new long[capacity];
+    this.submission_values = new long[capacity];
+    this.submission_objects0 = new Object[capacity];
+    this.submission_objects1 = new Object[capacity];
+    this.completion_calls = new SGSystemCall[capacity];
+    this.completion_tags = new long[capacity];
+    this.completion_statuses = new SGSystemCallStatus[capacity];
+    this.completion_results = new long[capacity];
+  }
+
+  @Override
+  public int capacity()
+  {
+    return this.submission_calls.length;
+  }
+
+  @Override
+  public int submissionsPending()
+  {
+    return (int) (this.submission_tail - this.submission_head);
+  }
+
+  @Override
+  public int completionsPending()
+  {
+    return (int) (this.completion_tail - this.completion_head);
+  }
+
+  private boolean submit(
+    final SGSystemCall call,
+    final long tag,
+    final long value,
+    final Object object0,
+    final Object object1)
+  {
+    if (this.submissionsPending() == this.capacity()) {
+      return false;
+    }
+
+    final var index = (int) (this.submission_tail % this.capacity());
+    this.submission_calls[index] = call;
+    this.submission_tags[index] = tag;
+    this.submission_values[index] = value;
+    this.submission_objects0[index] = object0;
+    this.submission_objects1[index] = object1;
+    this.submission_tail = this.submission_tail + 1L;
+    this.enqueue();
+    return true;
+  }
+
+  /**
+   * Add the rings to the scheduler's queue of rings with pending submissions, if they are not
+   * already queued.
+   */
+
+  void enqueue()
+  {
+    if (!this.queued) {
+      this.queued = true;
+      this.pending.add(this);
+    }
+  }
+
+  @Override
+  public boolean submitWriteConsole(
+    final long tag,
+    final String text)
+  {
+    return this.submit(SGSystemCall.WRITE_CONSOLE, tag, 0L, Objects.requireNonNull(text, "text"), null);
+  }
+
+  @Override
+  public boolean submitSpawn(
+    final long tag,
+    final SGProgramExecutableType executable,
+    final List<String> arguments)
+  {
+    Objects.requireNonNull(executable, "executable");
+    final var arguments_copy = List.copyOf(Objects.requireNonNull(arguments, "arguments"));
+    return this.submit(SGSystemCall.SPAWN, tag, 0L, executable, arguments_copy);
+  }
+
+  @Override
+  public boolean submitDeviceSpaceAvailable(
+    final long tag,
+    final int device)
+  {
+    return this.submit(SGSystemCall.DEVICE_SPACE_AVAILABLE, tag, device, null, null);
+  }
+
+  @Override
+  public <C> int receiveCompletions(
+    final C context,
+    final SGSystemCallCompletionReceiverType<C> receiver)
+  {
+    Objects.requireNonNull(receiver, "receiver");
+
+    var count = 0;
+    while (this.completion_head < this.completion_tail) {
+      final var index = (int) (this.completion_head % this.capacity());
+      final var call = this.completion_calls[index];
+      final var tag = this.completion_tags[index];
+      final var status = this.completion_statuses[index];
+      final var result = this.completion_results[index];
+      this.completion_head = this.completion_head + 1L;
+      count = count + 1;
+      receiver.receive(context, tag, call, status, result);
+    }
+    return count;
+  }
+
+  /**
+   * Called by the scheduler when the rings are removed from the queue of pending rings.
+   */
+
+  void dequeued()
+  {
+    this.queued = false;
+  }
+
+  /**
+   * @return {@code true} if the oldest submission can be executed
+   */
+
+  boolean isExecutable()
+  {
+    if (this.submission_head == this.submission_tail) {
+      return false;
+    }
+    return this.abandoned || this.completionsPending() < this.capacity();
+  }
+
+  private int headIndex()
+  {
+    return (int) (this.submission_head % this.capacity());
+  }
+
+  SGSystemCall headCall()
+  {
+    return this.submission_calls[this.headIndex()];
+  }
+
+  long headValue()
+  {
+    return this.submission_values[this.headIndex()];
+  }
+
+  Object headObject0()
+  {
+    return this.submission_objects0[this.headIndex()];
+  }
+
+  Object headObject1()
+  {
+    return this.submission_objects1[this.headIndex()];
+  }
+
+  /**
+   * Complete the oldest submission, posting a completion.
+   *
+   * @param status The status
+   * @param result The result
+   */
+
+  void complete(
+    final SGSystemCallStatus status,
+    final long result)
+  {
+    final var submission = this.headIndex();
+    if (!this.abandoned) {
+      final var completion = (int) (this.completion_tail % this.capacity());
+      this.completion_calls[completion] = this.submission_calls[submission];
+      this.completion_tags[completion] = this.submission_tags[submission];
+      this.completion_statuses[completion] = status;
+      this.completion_results[completion] = result;
+      this.completion_tail = this.completion_tail + 1L;
+    }
+
+    this.submission_objects0[submission] = null;
+    this.submission_objects1[submission] = null;
+    this.submission_head = this.submission_head + 1L;
+  }
+
+  /**
+   * Abandon the rings because the owning process has exited. Submissions that are already
+   * pending are still executed, but pending and future completions are discarded.
+   */
+
+  void abandon()
+  {
+    this.abandoned = true;
+    this.completion_head = this.completion_tail;
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.io7m.stonegarden.vanilla;
 
+import com.io7m.jaffirm.core.Preconditions;
 import com.io7m.stonegarden.api.SGEventType;
 import com.io7m.stonegarden.api.computer.SGComputerDescription;
 import com.io7m.stonegarden.api.computer.SGComputerType;
@@ -24,16 +25,34 @@ import com.io7m.stonegarden.api.connectors.SGConnectorSocketDescription;
 import com.io7m.stonegarden.api.connectors.SGConnectorSocketType;
 import com.io7m.stonegarden.api.connectors.SGConnectorType;
 import com.io7m.stonegarden.api.devices.SGDeviceEventCreated;
+import com.io7m.stonegarden.api.devices.SGDeviceEventDestroying;
+import com.io7m.stonegarden.api.devices.SGDeviceType;
 import com.io7m.stonegarden.api.devices.SGStorageDeviceDescription;
 import com.io7m.stonegarden.api.devices.SGStorageDeviceType;
+import com.io7m.stonegarden.api.simulation.SGBootStatistics;
+import com.io7m.stonegarden.api.simulation.SGConsoleStorage;
+import com.io7m.stonegarden.api.simulation.SGKernelStatistics;
+import com.io7m.stonegarden.api.simulation.SGSimulationConfiguration;
+import com.io7m.stonegarden.api.simulation.SGSimulationEventAdvanced;
 import com.io7m.stonegarden.api.simulation.SGSimulationEventTick;
+import com.io7m.stonegarden.api.simulation.SGSimulationTopologyTransactionType;
+import com.io7m.stonegarden.api.simulation.SGSimulationTopologyType;
 import com.io7m.stonegarden.api.simulation.SGSimulationType;
+import com.io7m.stonegarden.api.simulation.SGTopologyExportFormat;
+import com.io7m.stonegarden.api.simulation.SGTopologyLoadStatistics;
+import com.io7m.stonegarden.api.simulation.SGTopologyParseException;
 import io.reactivex.Observable;
 import io.reactivex.subjects.PublishSubject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Objects;
@@ -43,6 +62,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.zip.Deflater;
 
 final class SGSimulation implements SGSimulationType, SGSimulationInternalAPIType
 {
@@ -53,24 +73,83 @@ final class SGSimulation implements SGSimulationType, SGSimulationInternalAPITyp
   private final HashSet<UUID> uuids;
   private final AtomicBoolean closed;
   private final Observable<SGEventType> events_distinct;
+  private final Observable<SGEventType> events_public;
+  private final SGEventInterest events_interest;
   private final SGDeviceGraph device_graph;
+  private final SGKernelCatalog kernel_catalog;
+  private final SGBootScheduler boot_scheduler;
+  private final SGKernelTickScheduler kernel_tick_scheduler;
+  private final SGSimulationConfiguration configuration;
+  private final SGConsoleArchive console_archive;
+  private final SGConsoleTemplateTable console_templates;
+  private final Deflater console_deflater;
   private final Queue<Runnable> tasks;
-  private BigInteger frame;
+  private long frame;
+  private SGTopologyExporter exporter;
+  private volatile Thread tick_thread;
 
   SGSimulation(
-    final PublishSubject<SGEventType> in_events)
+    final PublishSubject<SGEventType> in_events,
+    final SGSimulationConfiguration in_configuration)
   {
+    this.configuration = Objects.requireNonNull(in_configuration, "configuration");
     this.events = Objects.requireNonNull(in_events, "events");
     this.events_distinct = this.events.distinctUntilChanged();
+    this.events_interest = new SGEventInterest();
+    this.events_public =
+      this.events_distinct
+        .doOnSubscribe(subscription -> this.events_interest.subscribeAll())
+        .doFinally(this.events_interest::unsubscribeAll);
 
     this.tasks = new ConcurrentLinkedQueue<>();
     this.actors = new HashMap<>(128);
     this.uuids = new HashSet<>(128);
     this.closed = new AtomicBoolean(false);
-    this.frame = BigInteger.ZERO;
+    this.frame = 0L;
+    this.tick_thread = Thread.currentThread();
 
     this.device_graph =
-      new SGDeviceGraph(this.events::onNext, this.events_distinct, cast(this.actors));
+      new SGDeviceGraph(
+        this.events::onNext,
+        this.events_interest::isWanted,
+        this.eventsOfType(SGDeviceEventDestroying.class),
+        cast(this.actors));
+
+    this.kernel_catalog = new SGKernelCatalog();
+    this.boot_scheduler = new SGBootScheduler(in_configuration, () -> this.frame);
+    this.kernel_tick_scheduler = new SGKernelTickScheduler(in_configuration);
+    this.console_templates = new SGConsoleTemplateTable(in_configuration.consoleTemplateCapacity());
+    this.console_archive = openConsoleArchive(in_configuration);
+    this.console_deflater = new Deflater();
+    createConsoleHistoryDirectory(in_configuration);
+  }
+
+  private static void createConsoleHistoryDirectory(
+    final SGSimulationConfiguration configuration)
+  {
+    final var directory_opt = configuration.consoleHistoryDirectory();
+    if (directory_opt.isPresent()) {
+      try {
+        Files.createDirectories(directory_opt.get());
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private static SGConsoleArchive openConsoleArchive(
+    final SGSimulationConfiguration configuration)
+  {
+    final var directory_opt = configuration.consoleArchiveDirectory();
+    if (directory_opt.isEmpty()) {
+      return null;
+    }
+
+    try {
+      return SGConsoleArchive.open(directory_opt.get(), configuration.consoleArchiveSegmentSize());
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   @SuppressWarnings("unchecked")
@@ -83,7 +162,19 @@ final class SGSimulation implements SGSimulationType, SGSimulationInternalAPITyp
   public void close()
   {
     if (this.closed.compareAndSet(false, true)) {
-      this.events.onComplete();
+      try {
+        this.events.onComplete();
+        for (final var actor : this.actors.values()) {
+          if (actor instanceof SGComputer) {
+            ((SGComputer) actor).flushConsole();
+          }
+        }
+      } finally {
+        this.console_deflater.end();
+        if (this.console_archive != null) {
+          this.console_archive.close();
+        }
+      }
     }
   }
 
@@ -94,16 +185,105 @@ final class SGSimulation implements SGSimulationType, SGSimulationInternalAPITyp
     }
   }
 
+  /**
+   * Check that the current thread is the thread that most recently ticked the simulation, or the
+   * thread that created it if it has not yet been ticked.
+   */
+
+  private void checkTickThread()
+  {
+    final var thread = this.tick_thread;
+    if (thread != Thread.currentThread()) {
+      throw new IllegalStateException(
+        new StringBuilder(128)
+          .append("Operation must be performed on the thread that ticks the simulation.")
+          .append(System.lineSeparator())
+          .append("  Tick thread: ")
+          .append(thread.getName())
+          .append(System.lineSeparator())
+          .append("  Current thread: ")
+          .append(Thread.currentThread().getName())
+          .toString());
+    }
+  }
+
   @Override
   public void tick(final double seconds)
   {
     this.checkNotClosed();
 
-    final var current_frame = this.frame;
-    this.frame = this.frame.add(BigInteger.ONE);
+    this.tick_thread = Thread.currentThread();
+    this.frame = Math.addExact(this.frame, 1L);
+    if (this.events_interest.isWanted(SGSimulationEventTick.class)) {
+      this.events.onNext(SGSimulationEventTick.of(BigInteger.valueOf(this.frame), seconds));
+    }
+    this.runFrame(seconds);
+    this.device_graph.publishSnapshot();
+  }
+
+  @Override
+  public void advance(
+    final long count,
+    final double seconds)
+  {
+    Preconditions.checkPreconditionL(
+      count,
+      count >= 0L,
+      c -> "Tick count must be non-negative");
+
+    this.checkNotClosed();
+
+    this.tick_thread = Thread.currentThread();
+    if (count == 0L) {
+      return;
+    }
+
+    final var frame_first = Math.addExact(this.frame, 1L);
+    for (long index = 0L; index < count; ++index) {
+      this.frame = Math.addExact(this.frame, 1L);
+      this.runFrame(seconds);
+    }
+    this.device_graph.publishSnapshot();
+
+    LOG.debug(
+      "advanced {} ticks (frames {} to {})",
+      Long.valueOf(count),
+      Long.valueOf(frame_first),
+      Long.valueOf(this.frame));
+
+    if (this.events_interest.isWanted(SGSimulationEventAdvanced.class)) {
+      this.events.onNext(
+        SGSimulationEventAdvanced.of(
+          BigInteger.valueOf(frame_first),
+          BigInteger.valueOf(this.frame),
+          count,
+          seconds));
+    }
+  }
+
+  /**
+   * Run the pending tasks, boots, and kernel ticks for the current frame. Kernels started by the
+   * boot scheduler and kernels called by the tick scheduler may schedule tasks of their own, and
+   * those are run within the same frame. Console output produced during the frame is written to
+   * the archive at the end of the frame.
+   */
 
-    this.events.onNext(SGSimulationEventTick.of(this.frame, seconds));
+  private void runFrame(
+    final double seconds)
+  {
+    this.runTasks();
+    this.boot_scheduler.run();
+    this.runTasks();
+    this.kernel_tick_scheduler.run(this.frame, seconds);
+    this.runTasks();
 
+    if (this.console_archive != null) {
+      this.console_archive.flush();
+    }
+  }
+
+  private void runTasks()
+  {
     while (!this.tasks.isEmpty()) {
       try {
         this.tasks.poll().run();
@@ -116,7 +296,77 @@ final class SGSimulation implements SGSimulationType, SGSimulationInternalAPITyp
   @Override
   public Observable<SGEventType> events()
   {
-    return this.events_distinct;
+    return this.events_public;
+  }
+
+  @Override
+  public <T extends SGEventType> Observable<T> eventsOfType(
+    final Class<T> clazz)
+  {
+    Objects.requireNonNull(clazz, "clazz");
+
+    return this.events_distinct
+      .ofType(clazz)
+      .doOnSubscribe(subscription -> this.events_interest.subscribe(clazz))
+      .doFinally(() -> this.events_interest.unsubscribe(clazz));
+  }
+
+  @Override
+  public SGSimulationTopologyType topology()
+  {
+    return this.device_graph;
+  }
+
+  @Override
+  public SGSimulationTopologyType topologySnapshot()
+  {
+    return this.device_graph.snapshot();
+  }
+
+  @Override
+  public SGSimulationTopologyTransactionType topologyTransaction()
+  {
+    this.checkNotClosed();
+    return new SGSimulationTopologyTransaction(this);
+  }
+
+  @Override
+  public CompletableFuture<Void> autoConnect(
+    final SGDeviceType device)
+  {
+    Objects.requireNonNull(device, "device");
+    this.checkNotClosed();
+    return this.runLater(() -> this.device_graph.autoConnect(device));
+  }
+
+  @Override
+  public SGTopologyLoadStatistics loadTopology(
+    final Reader reader)
+    throws IOException, SGTopologyParseException
+  {
+    Objects.requireNonNull(reader, "reader");
+    this.checkNotClosed();
+
+    final var buffered =
+      reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    return new SGTopologyLoader(this, buffered).load();
+  }
+
+  @Override
+  public long exportTopology(
+    final WritableByteChannel channel,
+    final SGTopologyExportFormat format)
+    throws IOException
+  {
+    Objects.requireNonNull(channel, "channel");
+    Objects.requireNonNull(format, "format");
+    this.checkNotClosed();
+    this.checkTickThread();
+
+    if (this.exporter == null) {
+      this.exporter = new SGTopologyExporter(65536);
+    }
+    return this.exporter.export(this.device_graph, channel, format);
   }
 
   @Override
@@ -136,7 +386,9 @@ final class SGSimulation implements SGSimulationType, SGSimulationInternalAPITyp
     final var device = constructor.apply(uuid);
     this.actors.put(uuid, device);
     this.device_graph.addDevice(device);
-    this.events.onNext(SGDeviceEventCreated.of(uuid));
+    if (this.events_interest.isWanted(SGDeviceEventCreated.class)) {
+      this.events.onNext(SGDeviceEventCreated.of(uuid));
+    }
     return device;
   }
 
@@ -147,7 +399,9 @@ final class SGSimulation implements SGSimulationType, SGSimulationInternalAPITyp
     Objects.requireNonNull(description, "description");
 
     this.checkNotClosed();
-    return this.createDevice(uuid -> new SGStorageDevice(this, uuid, description));
+    final var device = this.createDevice(uuid -> new SGStorageDevice(this, uuid, description));
+    this.kernel_catalog.addDevice(device);
+    return device;
   }
 
   @Override
@@ -169,6 +423,76 @@ final class SGSimulation implements SGSimulationType, SGSimulationInternalAPITyp
     return this.device_graph;
   }
 
+  @Override
+  public SGBootStatistics bootStatistics()
+  {
+    return this.boot_scheduler.statistics();
+  }
+
+  @Override
+  public SGKernelStatistics kernelStatistics()
+  {
+    return this.kernel_tick_scheduler.statistics();
+  }
+
+  @Override
+  public SGSimulationConfiguration configuration()
+  {
+    return this.configuration;
+  }
+
+  @Override
+  public long frame()
+  {
+    return this.frame;
+  }
+
+  @Override
+  public SGConsole createConsole(
+    final UUID device)
+  {
+    final var capacity = this.configuration.consoleCapacity();
+    final SGConsoleBufferType buffer;
+    if (this.configuration.consoleStorage() == SGConsoleStorage.BYTES) {
+      buffer =
+        new SGConsoleByteBuffer(
+          this.console_templates,
+          capacity,
+          Math.multiplyExact(capacity, this.configuration.consoleBytesPerLine()));
+    } else {
+      buffer = new SGConsoleTemplateBuffer(this.console_templates, capacity);
+    }
+
+    final var history_directory = this.configuration.consoleHistoryDirectory();
+    SGConsoleHistory history = null;
+    if (history_directory.isPresent()) {
+      history =
+        new SGConsoleHistory(
+          history_directory.get().resolve(device + ".history"),
+          this.configuration.consoleHistoryBlockSize(),
+          this.console_deflater);
+    }
+    return new SGConsole(buffer, device, this.console_archive, history);
+  }
+
+  @Override
+  public SGBootScheduler bootScheduler()
+  {
+    return this.boot_scheduler;
+  }
+
+  @Override
+  public SGKernelTickScheduler kernelTickScheduler()
+  {
+    return this.kernel_tick_scheduler;
+  }
+
+  @Override
+  public SGKernelCatalog kernelCatalog()
+  {
+    return this.kernel_catalog;
+  }
+
   @Override
   public SGConnectorSocketType createConnectorSocket(
     final SGDevice device,
@@ -214,4 +538,11 @@ final class SGSimulation implements SGSimulationType, SGSimulationInternalAPITyp
   {
     this.events.onNext(Objects.requireNonNull(event, "event"));
   }
+
+  @Override
+  public boolean isEventWanted(
+    final Class<? extends SGEventType> clazz)
+  {
+    return this.events_interest.isWanted(clazz);
+  }
 }
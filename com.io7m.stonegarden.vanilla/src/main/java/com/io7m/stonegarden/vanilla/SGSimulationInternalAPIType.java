@@ -21,6 +21,7 @@ import com.io7m.stonegarden.api.connectors.SGConnectorDescription;
 import com.io7m.stonegarden.api.connectors.SGConnectorSocketDescription;
 import com.io7m.stonegarden.api.connectors.SGConnectorSocketType;
 import com.io7m.stonegarden.api.connectors.SGConnectorType;
+import com.io7m.stonegarden.api.simulation.SGSimulationConfiguration;
 import com.io7m.stonegarden.api.simulation.SGSimulationType;
 
 import java.util.UUID;
@@ -30,10 +31,51 @@ interface SGSimulationInternalAPIType extends SGSimulationType
 {
   void publishEvent(SGEventType event);
 
+  /**
+   * Determine whether any observer would receive an event of the given type. Callers are
+   * expected to avoid constructing events for which this method returns {@code false}.
+   *
+   * @param clazz The concrete event type
+   *
+   * @return {@code true} if an event of the given type would be observed
+   */
+
+  boolean isEventWanted(Class<? extends SGEventType> clazz);
+
   UUID freshUUID();
 
+  /**
+   * @return The configuration with which the simulation was created
+   */
+
+  SGSimulationConfiguration configuration();
+
   SGDeviceGraph deviceGraph();
 
+  /**
+   * @return The current frame
+   */
+
+  long frame();
+
+  /**
+   * Create a console for the given device. The console is configured according to the
+   * simulation configuration, and writes to the simulation's console archive if one exists.
+   *
+   * @param device The device that owns the console
+   *
+   * @return A new console
+   */
+
+  SGConsole createConsole(UUID device);
+
+  @Override
+  SGKernelCatalog kernelCatalog();
+
+  SGBootScheduler bootScheduler();
+
+  SGKernelTickScheduler kernelTickScheduler();
+
   SGConnectorSocketType createConnectorSocket(
     SGDevice device,
     SGConnectorSocketDescription description);
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.connectors.SGConnectorSocketType;
+import com.io7m.stonegarden.api.connectors.SGConnectorType;
+import com.io7m.stonegarden.api.simulation.SGSimulationTopologyTransactionType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+final class SGSimulationTopologyTransaction implements SGSimulationTopologyTransactionType
+{
+  private final SGSimulationInternalAPIType simulation;
+  private final ArrayList<SGDeviceGraphOperation> operations;
+  private boolean committed;
+
+  SGSimulationTopologyTransaction(
+    final SGSimulationInternalAPIType in_simulation)
+  {
+    this.simulation = Objects.requireNonNull(in_simulation, "simulation");
+    this.operations = new ArrayList<>();
+  }
+
+  private void checkNotCommitted()
+  {
+    if (this.committed) {
+      throw new IllegalStateException("Transaction has already been committed");
+    }
+  }
+
+  @Override
+  public SGSimulationTopologyTransactionType connect(
+    final SGConnectorType connector,
+    final SGConnectorSocketType socket)
+  {
+    Objects.requireNonNull(connector, "connector");
+    Objects.requireNonNull(socket, "socket");
+
+    this.checkNotCommitted();
+    this.operations.add(SGDeviceGraphOperation.connect(connector, socket));
+    return this;
+  }
+
+  @Override
+  public SGSimulationTopologyTransactionType disconnect(
+    final SGConnectorType connector)
+  {
+    Objects.requireNonNull(connector, "connector");
+
+    this.checkNotCommitted();
+    this.operations.add(SGDeviceGraphOperation.disconnectConnector(connector));
+    return this;
+  }
+
+  @Override
+  public SGSimulationTopologyTransactionType disconnect(
+    final SGConnectorSocketType socket)
+  {
+    Objects.requireNonNull(socket, "socket");
+
+    this.checkNotCommitted();
+    this.operations.add(SGDeviceGraphOperation.disconnectSocket(socket));
+    return this;
+  }
+
+  @Override
+  public CompletableFuture<Void> commit()
+  {
+    this.checkNotCommitted();
+    this.committed = true;
+
+    final var batch = List.copyOf(this.operations);
+    this.operations.clear();
+    return this.simulation.runLater(() -> this.simulation.deviceGraph().apply(batch));
+  }
+}
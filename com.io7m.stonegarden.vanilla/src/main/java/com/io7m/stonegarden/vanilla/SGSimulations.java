@@ -16,10 +16,13 @@
 
 package com.io7m.stonegarden.vanilla;
 
+import com.io7m.stonegarden.api.simulation.SGSimulationConfiguration;
 import com.io7m.stonegarden.api.simulation.SGSimulationProviderType;
 import com.io7m.stonegarden.api.simulation.SGSimulationType;
 import io.reactivex.subjects.PublishSubject;
 
+import java.util.Objects;
+
 /**
  * The default implementation of the {@link SGSimulationProviderType} interface.
  */
@@ -36,8 +39,10 @@ public final class SGSimulations implements SGSimulationProviderType
   }
 
   @Override
-  public SGSimulationType create()
+  public SGSimulationType create(
+    final SGSimulationConfiguration configuration)
   {
-    return new SGSimulation(PublishSubject.create());
+    Objects.requireNonNull(configuration, "configuration");
+    return new SGSimulation(PublishSubject.create(), configuration);
   }
 }
@@ -16,6 +16,8 @@
 
 package com.io7m.stonegarden.vanilla;
 
+import com.io7m.stonegarden.api.SGArchitecture;
+import com.io7m.stonegarden.api.SGVersion;
 import com.io7m.stonegarden.api.devices.SGStorageDeviceDescription;
 import com.io7m.stonegarden.api.devices.SGStorageDeviceKernelInterfaceType;
 import com.io7m.stonegarden.api.devices.SGStorageDeviceOutOfSpaceException;
@@ -27,8 +29,10 @@ import org.slf4j.LoggerFactory;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -39,6 +43,8 @@ final class SGStorageDevice extends SGDevice implements SGStorageDeviceKernelInt
   private final SGStorageDeviceDescription description;
   private final ArrayList<SGKernelExecutableDescriptionType> kernels;
   private final List<SGKernelExecutableDescriptionType> kernels_read;
+  private final HashMap<String, HashMap<SGVersion, HashMap<SGArchitecture, SGKernelExecutableDescriptionType>>>
+    kernels_index;
   private BigInteger space_used;
 
   SGStorageDevice(
@@ -50,6 +56,10 @@ final class SGStorageDevice extends SGDevice implements SGStorageDeviceKernelInt
     this.description = Objects.requireNonNull(in_description, "description");
     this.kernels = new ArrayList<>(in_description.kernels());
     this.kernels_read = Collections.unmodifiableList(this.kernels);
+    this.kernels_index = new HashMap<>(this.kernels.size());
+    for (final var kernel : this.kernels) {
+      this.indexKernel(kernel);
+    }
     this.space_used = BigInteger.valueOf(0L);
   }
 
@@ -71,10 +81,48 @@ final class SGStorageDevice extends SGDevice implements SGStorageDeviceKernelInt
     return this.kernels_read;
   }
 
+  /**
+   * Kernels are indexed by name, then version, then architecture. The nested maps allow lookups
+   * without constructing a composite key. If more than one kernel has the same name, version, and
+   * architecture, the first one added is the one that is found, as with a scan of
+   * {@link #kernels()}.
+   */
+
+  private void indexKernel(
+    final SGKernelExecutableDescriptionType kernel)
+  {
+    final var kernel_description = kernel.description();
+    this.kernels_index
+      .computeIfAbsent(kernel_description.name(), name -> new HashMap<>())
+      .computeIfAbsent(kernel_description.version(), version -> new HashMap<>())
+      .putIfAbsent(kernel_description.compatibility().architecture(), kernel);
+  }
+
   @Override
-  protected void onClose()
+  public Optional<SGKernelExecutableDescriptionType> kernelFor(
+    final String name,
+    final SGVersion version,
+    final SGArchitecture architecture)
   {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(version, "version");
+    Objects.requireNonNull(architecture, "architecture");
 
+    final var by_version = this.kernels_index.get(name);
+    if (by_version == null) {
+      return Optional.empty();
+    }
+    final var by_architecture = by_version.get(version);
+    if (by_architecture == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(by_architecture.get(architecture));
+  }
+
+  @Override
+  protected void onClose()
+  {
+    this.simulation().kernelCatalog().removeDevice(this);
   }
 
   @Override
@@ -96,6 +144,8 @@ final class SGStorageDevice extends SGDevice implements SGStorageDeviceKernelInt
         kernel.description().version().toHumanString(),
         required);
       this.kernels.add(Objects.requireNonNull(kernel, "kernel"));
+      this.indexKernel(kernel);
+      this.simulation().kernelCatalog().addKernel(this, kernel);
       this.space_used = this.space_used.add(required);
     });
   }
@@ -0,0 +1,381 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.connectors.SGConnectableType;
+import com.io7m.stonegarden.api.connectors.SGConnectorSocketType;
+import com.io7m.stonegarden.api.connectors.SGConnectorType;
+import com.io7m.stonegarden.api.devices.SGDeviceType;
+import com.io7m.stonegarden.api.simulation.SGTopologyExportFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A streaming exporter of device graphs. The exporter walks the arrays of the graph directly and
+ * encodes text into a single reusable buffer that is drained to the output channel whenever it
+ * fills, so exporting a graph of any size uses a constant amount of memory. The exporter reads
+ * the live graph and reuses its buffer, so it must only be used from the thread that ticks the
+ * simulation.
+ */
+
+final class SGTopologyExporter
+{
+  private static final byte[] HEX = {
+    '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f',
+  };
+
+  private final ByteBuffer buffer;
+  private WritableByteChannel channel;
+  private long written;
+
+  SGTopologyExporter(
+    final int size)
+  {
+    this.buffer = ByteBuffer.allocate(Math.max(64, size));
+  }
+
+  /**
+   * Export {@code graph} to {@code output}.
+   *
+   * @param graph  The graph
+   * @param output The output channel
+   * @param format The output format
+   *
+   * @return The number of octets written
+   *
+   * @throws IOException On I/O errors, or if the channel does not accept any data on a write
+   */
+
+  long export(
+    final SGDeviceGraph graph,
+    final WritableByteChannel output,
+    final SGTopologyExportFormat format)
+    throws IOException
+  {
+    Objects.requireNonNull(graph, "graph");
+    Objects.requireNonNull(format, "format");
+
+    this.channel = Objects.requireNonNull(output, "channel");
+    this.written = 0L;
+    this.buffer.clear();
+
+    try {
+      switch (format) {
+        case DOT:
+          this.exportDOT(graph);
+          break;
+        case GRAPHML:
+          this.exportGraphML(graph);
+          break;
+      }
+      this.flush();
+      return this.written;
+    } finally {
+      this.channel = null;
+    }
+  }
+
+  private void exportDOT(
+    final SGDeviceGraph graph)
+    throws IOException
+  {
+    this.ascii("graph topology {\n");
+
+    final var device_limit = graph.deviceIndexLimit();
+    for (var index = 0; index < device_limit; ++index) {
+      final var device = graph.deviceAt(index);
+      if (device != null) {
+        this.ascii("  \"d-");
+        this.uuid(device.id());
+        this.ascii("\" [label=\"");
+        this.dotEscaped(device.kind());
+        this.ascii("\"];\n");
+
+        for (final var connector : device.connectors()) {
+          this.dotPort(device, connector, connector.protocol().name().value());
+        }
+        for (final var socket : device.sockets()) {
+          this.dotPort(device, socket, socket.protocol().name().value());
+        }
+      }
+    }
+
+    final var connectable_limit = graph.connectableIndexLimit();
+    for (var index = 0; index < connectable_limit; ++index) {
+      final var peer = graph.peerAt(index);
+      final var connectable = graph.connectableAt(index);
+      if (peer >= 0 && connectable instanceof SGConnectorType) {
+        this.ascii("  \"p-");
+        this.uuid(connectable.id());
+        this.ascii("\" -- \"p-");
+        this.uuid(graph.connectableAt(peer).id());
+        this.ascii("\";\n");
+      }
+    }
+
+    this.ascii("}\n");
+  }
+
+  private void dotPort(
+    final SGDeviceType device,
+    final SGConnectableType port,
+    final String protocol)
+    throws IOException
+  {
+    this.ascii("  \"p-");
+    this.uuid(port.id());
+    this.ascii("\" [shape=point, xlabel=\"");
+    this.dotEscaped(port.kind());
+    this.ascii(" ");
+    this.dotEscaped(protocol);
+    this.ascii("\"];\n  \"d-");
+    this.uuid(device.id());
+    this.ascii("\" -- \"p-");
+    this.uuid(port.id());
+    this.ascii("\" [style=dotted];\n");
+  }
+
+  private void exportGraphML(
+    final SGDeviceGraph graph)
+    throws IOException
+  {
+    this.ascii("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    this.ascii("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+    this.ascii("  <key id=\"kind\" for=\"node\" attr.name=\"kind\" attr.type=\"string\"/>\n");
+    this.ascii("  <key id=\"protocol\" for=\"node\" attr.name=\"protocol\" attr.type=\"string\"/>\n");
+    this.ascii("  <key id=\"type\" for=\"edge\" attr.name=\"type\" attr.type=\"string\"/>\n");
+    this.ascii("  <graph id=\"topology\" edgedefault=\"undirected\">\n");
+
+    final var device_limit = graph.deviceIndexLimit();
+    for (var index = 0; index < device_limit; ++index) {
+      final var device = graph.deviceAt(index);
+      if (device != null) {
+        this.ascii("    <node id=\"d-");
+        this.uuid(device.id());
+        this.ascii("\"><data key=\"kind\">");
+        this.xmlEscaped(device.kind());
+        this.ascii("</data></node>\n");
+
+        for (final var connector : device.connectors()) {
+          this.graphMLPort(device, connector, connector.protocol().name().value());
+        }
+        for (final var socket : device.sockets()) {
+          this.graphMLPort(device, socket, socket.protocol().name().value());
+        }
+      }
+    }
+
+    final var connectable_limit = graph.connectableIndexLimit();
+    for (var index = 0; index < connectable_limit; ++index) {
+      final var peer = graph.peerAt(index);
+      final var connectable = graph.connectableAt(index);
+      if (peer >= 0 && connectable instanceof SGConnectorType) {
+        this.ascii("    <edge source=\"p-");
+        this.uuid(connectable.id());
+        this.ascii("\" target=\"p-");
+        this.uuid(graph.connectableAt(peer).id());
+        this.ascii("\"><data key=\"type\">connection</data></edge>\n");
+      }
+    }
+
+    this.ascii("  </graph>\n");
+    this.ascii("</graphml>\n");
+  }
+
+  private void graphMLPort(
+    final SGDeviceType device,
+    final SGConnectableType port,
+    final String protocol)
+    throws IOException
+  {
+    this.ascii("    <node id=\"p-");
+    this.uuid(port.id());
+    this.ascii("\"><data key=\"kind\">");
+    this.xmlEscaped(port.kind());
+    this.ascii("</data><data key=\"protocol\">");
+    this.xmlEscaped(protocol);
+    this.ascii("</data></node>\n    <edge source=\"d-");
+    this.uuid(device.id());
+    this.ascii("\" target=\"p-");
+    this.uuid(port.id());
+    this.ascii("\"><data key=\"type\">");
+    this.ascii(port instanceof SGConnectorSocketType ? "socket" : "connector");
+    this.ascii("</data></edge>\n");
+  }
+
+  private void ensure(
+    final int octets)
+    throws IOException
+  {
+    if (this.buffer.remaining() < octets) {
+      this.flush();
+    }
+  }
+
+  private void flush()
+    throws IOException
+  {
+    this.buffer.flip();
+    while (this.buffer.hasRemaining()) {
+      final var count = this.channel.write(this.buffer);
+      if (count == 0) {
+        throw new IOException("Channel accepted no data; non-blocking channels are not supported");
+      }
+      this.written = this.written + (long) count;
+    }
+    this.buffer.clear();
+  }
+
+  /**
+   * Write a string that is known to consist only of ASCII characters.
+   */
+
+  private void ascii(
+    final String text)
+    throws IOException
+  {
+    final var length = text.length();
+    for (var index = 0; index < length; ++index) {
+      this.ensure(1);
+      this.buffer.put((byte) text.charAt(index));
+    }
+  }
+
+  private void uuid(
+    final UUID id)
+    throws IOException
+  {
+    this.ensure(36);
+    final var msb = id.getMostSignificantBits();
+    final var lsb = id.getLeastSignificantBits();
+    this.hex(msb >>> 32, 8);
+    this.buffer.put((byte) '-');
+    this.hex(msb >>> 16, 4);
+    this.buffer.put((byte) '-');
+    this.hex(msb, 4);
+    this.buffer.put((byte) '-');
+    this.hex(lsb >>> 48, 4);
+    this.buffer.put((byte) '-');
+    this.hex(lsb, 12);
+  }
+
+  private void hex(
+    final long value,
+    final int digits)
+  {
+    for (var digit = digits - 1; digit >= 0; --digit) {
+      this.buffer.put(HEX[(int) (value >>> (digit * 4)) & 0xf]);
+    }
+  }
+
+  private void dotEscaped(
+    final String text)
+    throws IOException
+  {
+    final var length = text.length();
+    var index = 0;
+    while (index < length) {
+      final var c = text.charAt(index);
+      if (c == '"' || c == '\\') {
+        this.ensure(2);
+        this.buffer.put((byte) '\\');
+        this.buffer.put((byte) c);
+        index = index + 1;
+      } else if (c == '\n') {
+        this.ascii("\\n");
+        index = index + 1;
+      } else {
+        index = this.utf8(text, index);
+      }
+    }
+  }
+
+  private void xmlEscaped(
+    final String text)
+    throws IOException
+  {
+    final var length = text.length();
+    var index = 0;
+    while (index < length) {
+      final var c = text.charAt(index);
+      switch (c) {
+        case '<':
+          this.ascii("&lt;");
+          index = index + 1;
+          break;
+        case '>':
+          this.ascii("&gt;");
+          index = index + 1;
+          break;
+        case '&':
+          this.ascii("&amp;");
+          index = index + 1;
+          break;
+        case '"':
+          this.ascii("&quot;");
+          index = index + 1;
+          break;
+        case '\'':
+          this.ascii("&apos;");
+          index = index + 1;
+          break;
+        default:
+          index = this.utf8(text, index);
+          break;
+      }
+    }
+  }
+
+  /**
+   * Encode the character (or surrogate pair) at {@code index} as UTF-8. An unpaired surrogate is
+   * encoded as U+FFFD REPLACEMENT CHARACTER.
+   *
+   * @return The index of the first {@code char} after the encoded character
+   */
+
+  private int utf8(
+    final String text,
+    final int index)
+    throws IOException
+  {
+    this.ensure(4);
+
+    final var point = text.codePointAt(index);
+    final var code =
+      point >= Character.MIN_SURROGATE && point <= Character.MAX_SURROGATE ? 0xfffd : point;
+    if (code < 0x80) {
+      this.buffer.put((byte) code);
+    } else if (code < 0x800) {
+      this.buffer.put((byte) (0xc0 | (code >>> 6)));
+      this.buffer.put((byte) (0x80 | (code & 0x3f)));
+    } else if (code < 0x10000) {
+      this.buffer.put((byte) (0xe0 | (code >>> 12)));
+      this.buffer.put((byte) (0x80 | ((code >>> 6) & 0x3f)));
+      this.buffer.put((byte) (0x80 | (code & 0x3f)));
+    } else {
+      this.buffer.put((byte) (0xf0 | (code >>> 18)));
+      this.buffer.put((byte) (0x80 | ((code >>> 12) & 0x3f)));
+      this.buffer.put((byte) (0x80 | ((code >>> 6) & 0x3f)));
+      this.buffer.put((byte) (0x80 | (code & 0x3f)));
+    }
+    return index + Character.charCount(code);
+  }
+}
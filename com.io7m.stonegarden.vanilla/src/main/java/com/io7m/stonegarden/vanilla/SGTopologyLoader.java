@@ -0,0 +1,363 @@
+/*
+ * Copyright © 2019 Mark Raynsford <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.stonegarden.vanilla;
+
+import com.io7m.stonegarden.api.SGArchitecture;
+import com.io7m.stonegarden.api.SGException;
+import com.io7m.stonegarden.api.computer.SGComputerDescription;
+import com.io7m.stonegarden.api.connectors.SGConnectorDescription;
+import com.io7m.stonegarden.api.connectors.SGConnectorProtocol;
+import com.io7m.stonegarden.api.connectors.SGConnectorProtocolName;
+import com.io7m.stonegarden.api.connectors.SGConnectorSocketDescription;
+import com.io7m.stonegarden.api.devices.SGDeviceType;
+import com.io7m.stonegarden.api.devices.SGStorageDeviceDescription;
+import com.io7m.stonegarden.api.simulation.SGTopologyLoadStatistics;
+import com.io7m.stonegarden.api.simulation.SGTopologyParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * A streaming loader for topology descriptions.
+ *
+ * @see com.io7m.stonegarden.api.simulation.SGSimulationType#loadTopology(java.io.Reader)
+ */
+
+final class SGTopologyLoader
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SGTopologyLoader.class);
+
+  private final SGSimulation simulation;
+  private final BufferedReader reader;
+  private final HashMap<String, SGConnectorSocketDescription> socket_descriptions;
+  private final HashMap<String, SGConnectorDescription> connector_descriptions;
+  private final HashMap<String, SGArchitecture> architectures;
+  private final HashMap<String, SGDeviceType> devices;
+  private final ArrayList<String> tokens;
+  private final ArrayList<SGConnectorSocketDescription> port_sockets;
+  private final ArrayList<SGConnectorDescription> port_connectors;
+  private long line;
+  private long count_devices;
+  private long count_ports;
+  private long count_links;
+
+  SGTopologyLoader(
+    final SGSimulation in_simulation,
+    final BufferedReader in_reader)
+  {
+    this.simulation = Objects.requireNonNull(in_simulation, "simulation");
+    this.reader = Objects.requireNonNull(in_reader, "reader");
+    this.socket_descriptions = new HashMap<>(16);
+    this.connector_descriptions = new HashMap<>(16);
+    this.architectures = new HashMap<>(16);
+    this.devices = new HashMap<>(1024);
+    this.tokens = new ArrayList<>(16);
+    this.port_sockets = new ArrayList<>(16);
+    this.port_connectors = new ArrayList<>(16);
+  }
+
+  SGTopologyLoadStatistics load()
+    throws IOException, SGTopologyParseException
+  {
+    final var time_start = System.nanoTime();
+
+    while (true) {
+      final var text = this.reader.readLine();
+      if (text == null) {
+        break;
+      }
+      this.line = this.line + 1L;
+      this.tokenize(text);
+      if (!this.tokens.isEmpty()) {
+        this.parseLine();
+      }
+    }
+
+    final var statistics =
+      SGTopologyLoadStatistics.of(
+        this.line,
+        this.count_devices,
+        this.count_ports,
+        this.count_links,
+        Duration.ofNanos(System.nanoTime() - time_start));
+
+    LOG.debug(
+      "loaded {} devices, {} ports, {} links in {}",
+      Long.valueOf(statistics.devices()),
+      Long.valueOf(statistics.ports()),
+      Long.valueOf(statistics.links()),
+      statistics.duration());
+    return statistics;
+  }
+
+  private void tokenize(
+    final String text)
+  {
+    this.tokens.clear();
+
+    final var length = text.length();
+    var index = 0;
+    while (index < length) {
+      while (index < length && Character.isWhitespace(text.charAt(index))) {
+        index = index + 1;
+      }
+      if (index == length || (this.tokens.isEmpty() && text.charAt(index) == '#')) {
+        return;
+      }
+      final var start = index;
+      while (index < length && !Character.isWhitespace(text.charAt(index))) {
+        index = index + 1;
+      }
+      this.tokens.add(text.substring(start, index));
+    }
+  }
+
+  private void parseLine()
+    throws SGTopologyParseException
+  {
+    final var command = this.tokens.get(0);
+    switch (command) {
+      case "protocol":
+        this.parseProtocol();
+        break;
+      case "computer":
+        this.parseComputer();
+        break;
+      case "storage":
+        this.parseStorage();
+        break;
+      case "link":
+        this.parseLink();
+        break;
+      default:
+        throw this.error("Unrecognized command: " + command);
+    }
+  }
+
+  private SGTopologyParseException error(
+    final String message)
+  {
+    return new SGTopologyParseException(this.line, message);
+  }
+
+  private void checkTokenCount(
+    final int minimum,
+    final String syntax)
+    throws SGTopologyParseException
+  {
+    if (this.tokens.size() < minimum) {
+      throw this.error("Expected: " + syntax);
+    }
+  }
+
+  private void parseProtocol()
+    throws SGTopologyParseException
+  {
+    if (this.tokens.size() != 2) {
+      throw this.error("Expected: protocol <name>");
+    }
+    if (this.count_devices > 0L) {
+      throw this.error("Protocols must be declared before any devices");
+    }
+
+    final var name = this.tokens.get(1);
+    if (this.socket_descriptions.containsKey(name)) {
+      throw this.error("Protocol already declared: " + name);
+    }
+
+    final var protocol = SGConnectorProtocol.of(SGConnectorProtocolName.of(name));
+    this.socket_descriptions.put(name, SGConnectorSocketDescription.of(protocol));
+    this.connector_descriptions.put(name, SGConnectorDescription.of(protocol));
+  }
+
+  private void parseComputer()
+    throws SGTopologyParseException
+  {
+    this.checkTokenCount(3, "computer <device> <architecture> [sockets <protocol>...] [connectors <protocol>...]");
+
+    final var name = this.deviceNameFresh();
+    final var architecture =
+      this.architectures.computeIfAbsent(this.tokens.get(2), SGArchitecture::of);
+    this.parsePorts(3);
+
+    final var description =
+      SGComputerDescription.builder()
+        .setArchitecture(architecture)
+        .addAllSockets(this.port_sockets)
+        .addAllConnectors(this.port_connectors)
+        .build();
+
+    this.addDevice(name, this.simulation.createComputer(description));
+  }
+
+  private void parseStorage()
+    throws SGTopologyParseException
+  {
+    this.checkTokenCount(3, "storage <device> <capacity-octets> [sockets <protocol>...] [connectors <protocol>...]");
+
+    final var name = this.deviceNameFresh();
+    final BigInteger capacity;
+    try {
+      capacity = new BigInteger(this.tokens.get(2));
+    } catch (final NumberFormatException e) {
+      throw this.error("Malformed capacity: " + this.tokens.get(2));
+    }
+    if (capacity.signum() < 0) {
+      throw this.error("Capacity must be non-negative");
+    }
+    this.parsePorts(3);
+
+    final var description =
+      SGStorageDeviceDescription.builder()
+        .setSpaceCapacityOctets(capacity)
+        .addAllSockets(this.port_sockets)
+        .addAllConnectors(this.port_connectors)
+        .build();
+
+    this.addDevice(name, this.simulation.createStorageDevice(description));
+  }
+
+  private void addDevice(
+    final String name,
+    final SGDeviceType device)
+  {
+    this.devices.put(name, device);
+    this.count_devices = this.count_devices + 1L;
+    this.count_ports =
+      this.count_ports + (long) device.sockets().size() + (long) device.connectors().size();
+  }
+
+  private String deviceNameFresh()
+    throws SGTopologyParseException
+  {
+    final var name = this.tokens.get(1);
+    if (this.devices.containsKey(name)) {
+      throw this.error("Device already declared: " + name);
+    }
+    return name;
+  }
+
+  private void parsePorts(
+    final int start)
+    throws SGTopologyParseException
+  {
+    this.port_sockets.clear();
+    this.port_connectors.clear();
+
+    var sockets = true;
+    var section = false;
+    for (var index = start; index < this.tokens.size(); ++index) {
+      final var token = this.tokens.get(index);
+      if ("sockets".equals(token)) {
+        sockets = true;
+        section = true;
+      } else if ("connectors".equals(token)) {
+        sockets = false;
+        section = true;
+      } else {
+        if (!section) {
+          throw this.error("Expected 'sockets' or 'connectors' but got: " + token);
+        }
+        this.parsePort(token, sockets);
+      }
+    }
+  }
+
+  private void parsePort(
+    final String protocol,
+    final boolean socket)
+    throws SGTopologyParseException
+  {
+    if (socket) {
+      final var description = this.socket_descriptions.get(protocol);
+      if (description == null) {
+        throw this.error("Undeclared protocol: " + protocol);
+      }
+      this.port_sockets.add(description);
+    } else {
+      final var description = this.connector_descriptions.get(protocol);
+      if (description == null) {
+        throw this.error("Undeclared protocol: " + protocol);
+      }
+      this.port_connectors.add(description);
+    }
+  }
+
+  private void parseLink()
+    throws SGTopologyParseException
+  {
+    if (this.tokens.size() != 5) {
+      throw this.error("Expected: link <device> <connector-index> <device> <socket-index>");
+    }
+
+    final var connector_device = this.deviceNamed(this.tokens.get(1));
+    final var connector_index = this.portIndex(this.tokens.get(2), connector_device.connectors().size());
+    final var socket_device = this.deviceNamed(this.tokens.get(3));
+    final var socket_index = this.portIndex(this.tokens.get(4), socket_device.sockets().size());
+
+    try {
+      this.simulation.deviceGraph().connect(
+        connector_device.connectors().get(connector_index),
+        socket_device.sockets().get(socket_index));
+    } catch (final SGException e) {
+      throw new SGTopologyParseException(this.line, "Could not connect devices", e);
+    }
+    this.count_links = this.count_links + 1L;
+  }
+
+  private SGDeviceType deviceNamed(
+    final String name)
+    throws SGTopologyParseException
+  {
+    final var device = this.devices.get(name);
+    if (device == null) {
+      throw this.error("Undeclared device: " + name);
+    }
+    return device;
+  }
+
+  private int portIndex(
+    final String text,
+    final int count)
+    throws SGTopologyParseException
+  {
+    final int index;
+    try {
+      index = Integer.parseInt(text);
+    } catch (final NumberFormatException e) {
+      throw this.error("Malformed port index: " + text);
+    }
+    if (index < 0 || index >= count) {
+      throw this.error(
+        new StringBuilder(64)
+          .append("Port index ")
+          .append(index)
+          .append(" out of range (device has ")
+          .append(count)
+          .append(" ports of that kind)")
+          .toString());
+    }
+    return index;
+  }
+}